@@ -1,20 +1,37 @@
 package com.tidepool.tidepoolsdkjava;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import javax.net.ssl.HttpsURLConnection;
 
@@ -23,6 +40,7 @@ import org.json.JSONObject;
 
 import com.tidepool.tidepoolsdkjava.config.Environment;
 import com.tidepool.tidepoolsdkjava.config.TidepoolBackendConfig;
+import com.tidepool.tidepoolsdkjava.metrics.RequestMetrics;
 
 /**
  * Will superclass all requests
@@ -85,7 +103,14 @@ abstract public class BaseRequest implements Runnable {
 		 * 
 		 * @since alpha-0.2.0
 		 */
-		StartingConditionFailed
+		StartingConditionFailed,
+		/**
+		 * Signifies that the request wasn't sent, because the
+		 * {@link CircuitBreaker} of its host is open
+		 * 
+		 * @since alpha-3.1.0
+		 */
+		CircuitOpen
 	}
 
 	public static enum RequestType {
@@ -165,6 +190,17 @@ abstract public class BaseRequest implements Runnable {
 			return code;
 		}
 
+		/**
+		 * Gets if sending a request of this type more than once has the same
+		 * effect as sending it once
+		 * 
+		 * @return {@code true} if requests of this type are idempotent
+		 * @since alpha-3.1.0
+		 */
+		public boolean isIdempotent() {
+			return this != POST && this != PATCH;
+		}
+
 		/**
 		 * Gets the {@link RequestType} with the given {@link String} as it's HTTPS
 		 * code.
@@ -199,6 +235,25 @@ abstract public class BaseRequest implements Runnable {
 		this.cnf = cnf;
 		this.queryArgs = queryArgs;
 		this.headerArgs = headerArgs;
+		this.template = null;
+		this.pathArgument = null;
+	}
+
+	/**
+	 * Creates a BaseRequest from a {@link RequestTemplate}, whose URI and headers
+	 * were worked out ahead of time
+	 * 
+	 * @param template     The template
+	 * @param pathArgument What to put into the template's path, or {@code null}
+	 *                     if it doesn't have a placeholder
+	 * @since alpha-3.1.0
+	 */
+	protected BaseRequest(RequestTemplate template, String pathArgument) {
+		this.cnf = template.getConfig();
+		this.queryArgs = Collections.emptyMap();
+		this.headerArgs = Collections.emptyMap();
+		this.template = template;
+		this.pathArgument = pathArgument;
 	}
 
 	/**
@@ -229,12 +284,27 @@ abstract public class BaseRequest implements Runnable {
 	 */
 	private final Map<String, List<Object>> queryArgs;
 
+	/**
+	 * The template the URI and headers come from, or {@code null} if they are
+	 * worked out on each run
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private final RequestTemplate template;
+
+	/**
+	 * What to put into the path of the {@link #template}
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private final String pathArgument;
+
 	/**
 	 * A {@link CountDownLatch} that counts down to zero on exiting the runnable
 	 * 
 	 * @since alpha-0.2.0
 	 */
-	private CountDownLatch latch;
+	private volatile CountDownLatch latch;
 
 	/**
 	 * If the result is a {@link JSONObject},
@@ -261,7 +331,137 @@ abstract public class BaseRequest implements Runnable {
 	 * 
 	 * @since alpha-0.2.0
 	 */
-	private RequestStatus status = RequestStatus.NotStarted;
+	private volatile RequestStatus status = RequestStatus.NotStarted;
+
+	/**
+	 * The cache the response is revalidated against, or {@code null} if it isn't
+	 * cached
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private ConditionalResponseCache responseCache;
+
+	/**
+	 * The key of the response in the {@link #responseCache}
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private String cacheKey;
+
+	/**
+	 * The cached response that the request was revalidating, or {@code null}
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private ConditionalResponseCache.Entry cachedResponse;
+
+	/**
+	 * The {@link RetryPolicy} of this request, or {@code null} to use the one of
+	 * the configuration
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private RetryPolicy retryPolicy;
+
+	/**
+	 * If a compressed response was asked for
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private boolean compressionRequested;
+
+	/**
+	 * Where the request is recorded while it is sent, or {@code null} if it
+	 * isn't
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private RequestMetrics.RequestSeries metricsSeries;
+
+	/**
+	 * The size of the last response body as recieved, or {@code -1} if it wasn't
+	 * counted
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private long responseSize;
+
+	/**
+	 * The flight recorder event of the request while it is sent, or
+	 * {@code null} if it isn't recorded
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private RequestEvent event;
+
+	/**
+	 * The status code the result was parsed from, given to the listeners of the
+	 * requests that were coalesced with this one
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private volatile int responseCode;
+
+	/**
+	 * If the JDK Flight Recorder is part of the runtime, so its events can be
+	 * used
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private static final boolean FLIGHT_RECORDER = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+
+	/**
+	 * Holds the threads responses are read and parsed on, so they are only
+	 * started once a request is sent
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private static final class ResponseReadersHolder {
+		/**
+		 * How many platform threads read responses at once when the JDK doesn't
+		 * support virtual threads
+		 * 
+		 * @since alpha-3.1.0
+		 */
+		private static final int MAX_PLATFORM_READERS = Math.max(16, 4 * Runtime.getRuntime().availableProcessors());
+		/**
+		 * The threads responses are read and parsed on. Reading a streamed body
+		 * blocks until the rest of it arrives, so it mustn't happen on the threads
+		 * of the {@link java.net.http.HttpClient HttpClient}, which are the ones
+		 * that deliver it.
+		 * <br>
+		 * Each response is read on a virtual thread of its own when the JDK
+		 * supports them, so a response waiting on the network doesn't hold onto an
+		 * OS thread. Otherwise at most {@link #MAX_PLATFORM_READERS} responses are
+		 * read at once, and the rest wait their turn with their bodies held back by
+		 * the {@link java.net.http.HttpClient HttpClient}.
+		 * 
+		 * @since alpha-3.1.0
+		 */
+		private static final ExecutorService READERS = newReaders();
+
+		/**
+		 * Creates the threads responses are read and parsed on
+		 * 
+		 * @return A virtual thread per task executor if the JDK supports them, or a
+		 *         bounded pool of daemon threads otherwise
+		 * @since alpha-3.1.0
+		 */
+		private static ExecutorService newReaders() {
+			ExecutorService virtual = RequestExecutor.newVirtualThreadExecutor();
+			if (virtual != null) {
+				return virtual;
+			}
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_PLATFORM_READERS, MAX_PLATFORM_READERS, 60,
+					TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+						Thread thread = new Thread(runnable, "tidepool-response-reader");
+						thread.setDaemon(true);
+						return thread;
+					});
+			pool.allowCoreThreadTimeOut(true);
+			return pool;
+		}
+	}
 
 	/**
 	 * Called to get the environment map
@@ -270,7 +470,25 @@ abstract public class BaseRequest implements Runnable {
 	 * @since alpha-0.2.0
 	 */
 	protected Map<Environment, String> getEnvMap() {
-		Map<Environment, String> result = new HashMap<>();
+		return ENV_MAP;
+	}
+
+	/**
+	 * Maps each environment to its server address. Built once, as it never
+	 * changes.
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private static final Map<Environment, String> ENV_MAP = createEnvMap();
+
+	/**
+	 * Creates the {@link #ENV_MAP}
+	 * 
+	 * @return A map mapping the environment to the server address
+	 * @since alpha-3.1.0
+	 */
+	private static Map<Environment, String> createEnvMap() {
+		Map<Environment, String> result = new EnumMap<>(Environment.class);
 		for (Environment env : Environment.values()) {
 			result.put(env, env.getServerAddress());
 		}
@@ -291,6 +509,20 @@ abstract public class BaseRequest implements Runnable {
 	 */
 	abstract protected String getURI();
 
+	/**
+	 * Should return the URI of this type of request with its arguments left as
+	 * placeholders, such as {@code /data/{userId}}, to tell requests apart in
+	 * flight recordings without telling users apart.
+	 * <br>
+	 * By default, returns {@link #getURI()}
+	 * 
+	 * @return The URI template
+	 * @since alpha-3.1.0
+	 */
+	protected String getURITemplate() {
+		return getURI();
+	}
+
 	/**
 	 * Should return the {@link RequestType} of a singular request
 	 * 
@@ -361,6 +593,130 @@ abstract public class BaseRequest implements Runnable {
 	 */
 	abstract protected void parseResponse(String response);
 
+	/**
+	 * Should return if the response is read as a stream, in which case
+	 * {@link #parseResponse(InputStream)} is called instead of
+	 * {@link #parseResponse(String)}
+	 * 
+	 * @return {@code true} if the response should be streamed
+	 * @since alpha-3.1.0
+	 */
+	protected boolean streamsResponse() {
+		return false;
+	}
+
+	/**
+	 * Called with the response as a stream if {@link #streamsResponse()} returns
+	 * {@code true}. The stream is read as the response arrives, so parsing can
+	 * start before the whole body has been recieved. The stream is closed after
+	 * this returns.
+	 * <br>
+	 * By default, reads the whole stream and passes it to
+	 * {@link #parseResponse(String)}
+	 * 
+	 * @param response The response from the backend
+	 * @throws IOException If reading the response fails
+	 * @since alpha-3.1.0
+	 */
+	protected void parseResponse(InputStream response) throws IOException {
+		parseResponse(new String(response.readAllBytes(), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Should return if the response may be kept in the
+	 * {@link TidepoolBackendConfig#getResponseCache() response cache} of the
+	 * configuration, and revalidated instead of being downloaded again
+	 * <br>
+	 * By default, only {@link RequestType#GET GET} requests are cached
+	 * 
+	 * @return {@code true} if the response may be cached
+	 * @since alpha-3.1.0
+	 */
+	protected boolean cachesResponse() {
+		return getRequestType() == RequestType.GET;
+	}
+
+	/**
+	 * Should return if this request may share the response of an identical
+	 * request that is already in flight, when the configuration has a
+	 * {@link TidepoolBackendConfig#getRequestCoalescer() request coalescer}
+	 * <br>
+	 * By default, only {@link RequestType#GET GET} requests are coalesced. A
+	 * request that hands its response to a consumer as it is parsed should return
+	 * {@code false}, since only the request that was sent would see it.
+	 * 
+	 * @return {@code true} if the request may be coalesced
+	 * @since alpha-3.1.0
+	 * @see RequestCoalescer
+	 */
+	protected boolean coalescesResponse() {
+		return getRequestType() == RequestType.GET;
+	}
+
+	/**
+	 * Should return what, besides its method, URL and session token, changes the
+	 * result this request parses a response into, so that requests which would
+	 * parse the same response differently aren't coalesced
+	 * 
+	 * @return What else changes the result, or {@code null} if nothing does
+	 * @since alpha-3.1.0
+	 */
+	protected String coalescingVariant() {
+		return null;
+	}
+
+	/**
+	 * Called instead of parsing a response, when this request was coalesced with
+	 * an identical request that was sent instead. Should take over the parsed
+	 * result of that request, which is shared rather than copied.
+	 * <br>
+	 * By default, takes over {@link #jsonObject} and {@link #jsonArray}.
+	 * Subclasses that keep their result in fields of their own should override
+	 * this, and call {@code super.adoptResult(leader)}.
+	 * 
+	 * @param leader The request that was sent, of the same class as this one
+	 * @since alpha-3.1.0
+	 */
+	protected void adoptResult(BaseRequest leader) {
+		jsonObject = leader.jsonObject;
+		jsonArray = leader.jsonArray;
+	}
+
+	/**
+	 * Should return if the body of this request is sent compressed with gzip.
+	 * Only the backend endpoints that accept {@code Content-Encoding: gzip} should
+	 * return {@code true}.
+	 * 
+	 * @return {@code true} if the body should be compressed
+	 * @since alpha-3.1.0
+	 */
+	protected boolean compressesBody() {
+		return false;
+	}
+
+	/**
+	 * Should return if sending this request more than once has the same effect as
+	 * sending it once, in which case it may be retried after any failure
+	 * 
+	 * @return {@code true} if this request is idempotent
+	 * @since alpha-3.1.0
+	 * @see RetryPolicy
+	 */
+	protected boolean isIdempotent() {
+		return getRequestType().isIdempotent();
+	}
+
+	/**
+	 * Sets the {@link RetryPolicy} of this request, instead of the
+	 * {@link TidepoolBackendConfig#getRetryPolicy() one of the configuration}
+	 * 
+	 * @param retryPolicy The {@link RetryPolicy} to use
+	 * @since alpha-3.1.0
+	 */
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
 	/**
 	 * Determines if the request was a succsess
 	 * 
@@ -380,13 +736,12 @@ abstract public class BaseRequest implements Runnable {
 	 */
 	abstract protected byte[] getPackage();
 
-	private static final int timeoutDurationSeconds = 30;
-	private static final Duration timeoutDuration = Duration.ofSeconds(timeoutDurationSeconds);
-
 	/**
 	 * Waits until the request is finished.
 	 * 
-	 * Times out after {@value #timeoutDurationSeconds} seconds
+	 * Times out after the
+	 * {@link com.tidepool.tidepoolsdkjava.config.TransportConfig#getCompletionTimeout()
+	 * completion timeout} of the configuration, 30 seconds by default
 	 * 
 	 * @throws InterruptedException
 	 * @throws IllegalStateException When this is called before running this request
@@ -395,7 +750,7 @@ abstract public class BaseRequest implements Runnable {
 	 * @since alpha-0.2.0
 	 */
 	public final boolean awaitCompletion() throws InterruptedException {
-		return awaitCompletion(timeoutDuration);
+		return awaitCompletion(cnf.getTransportConfig().getCompletionTimeout());
 	}
 
 	/**
@@ -428,8 +783,8 @@ abstract public class BaseRequest implements Runnable {
 	 */
 	@Deprecated(forRemoval = true)
 	protected JSONArray getJsonArray() {
-		if (jsonObject == null) {
-			throw new IllegalStateException("jsonObject has not yet been set");
+		if (jsonArray == null) {
+			throw new IllegalStateException("jsonArray has not yet been set");
 		}
 		return jsonArray;
 	}
@@ -451,66 +806,899 @@ abstract public class BaseRequest implements Runnable {
 	}
 
 	/**
-	 * Runs the request.
+	 * Runs the request, blocking until it has finished.
 	 * 
 	 * @since alpha-0.2.0
 	 */
 	@Override
 	public void run() {
+		try {
+			sendAsync().join();
+		} catch (CompletionException e) {
+			throw new RuntimeException("An exception was raised during excecution", e.getCause());
+		}
+	}
+
+	/**
+	 * Sends the request without blocking the calling thread.
+	 * The returned {@link CompletableFuture} completes with this request once
+	 * {@link #parseResponse(String)} and the success or failure listeners have
+	 * been called, or completes exceptionally if an exception was raised during
+	 * excecution, in which case the status is {@link RequestStatus#ExceptionRaised}.
+	 * <br>
+	 * If the session token has expired, the request is sent once it has been
+	 * refreshed. The response is read and parsed on a thread of the SDK, so
+	 * neither the calling thread nor the threads of the
+	 * {@link java.net.http.HttpClient HttpClient} are ever blocked, and the
+	 * returned {@link CompletableFuture} completes on that thread. That is a
+	 * virtual thread when the JDK supports them, so any number of responses can
+	 * be read at once. Otherwise it is one of a pool of at most
+	 * {@code max(16, 4 * availableProcessors())} platform threads, and responses
+	 * beyond that wait for one to free up.
+	 * <br>
+	 * Failed attempts are retried as decided by the {@link RetryPolicy}, after
+	 * waiting without holding onto a thread. If the {@link CircuitBreaker} of the
+	 * host is open, the request isn't sent, and the {@link CompletableFuture}
+	 * completes right away with the status {@link RequestStatus#CircuitOpen}. If
+	 * the configuration has a {@link RequestCoalescer} and an identical request
+	 * is already in flight, this request isn't sent, and finishes with the
+	 * outcome of that request instead.
+	 * <br>
+	 * Note: Override to narrow the type of the result to the subclass
+	 * 
+	 * @return A {@link CompletableFuture} that completes with this request
+	 * @since alpha-3.1.0
+	 */
+	public CompletableFuture<? extends BaseRequest> sendAsync() {
+		start();
+		RequestEvent recorded = FLIGHT_RECORDER && RequestEvent.enabled() ? new RequestEvent() : null;
+		event = recorded;
+		if (recorded != null) {
+			recorded.start();
+		}
+		// while the session token is valid, this has already completed, and the
+		// request is sent right away
+		return sessionTokenAsync().handle((sessionToken, exception) -> {
+			if (exception != null) {
+				return abort(new RuntimeException("Failed to refresh the access token", unwrap(exception)), recorded);
+			}
+			HttpRequest request;
+			try {
+				request = buildHttpRequest(sessionToken);
+			} catch (URISyntaxException | RuntimeException e) {
+				return abort(e, recorded);
+			}
+			if (recorded != null) {
+				recorded.buildTime = recorded.lap();
+			}
+			return dispatch(request, recorded);
+		}).thenCompose(sent -> sent);
+	}
+
+	/**
+	 * Gets the session token to send the request with, without blocking
+	 * 
+	 * @return A {@link CompletableFuture} that completes with the session token,
+	 *         or with {@code null} if {@link #requiresSessionToken()} returns
+	 *         {@code false}
+	 * @since alpha-3.1.0
+	 */
+	private CompletableFuture<String> sessionTokenAsync() {
+		return requiresSessionToken() ? cnf.getAccessTokenAsync() : CompletableFuture.completedFuture(null);
+	}
+
+	/**
+	 * Finishes the request without sending it, because it couldn't be built
+	 * 
+	 * @param exception Why it couldn't be built
+	 * @param recorded  The flight recorder event of the request, or {@code null}
+	 * @return A {@link CompletableFuture} that has completed with the exception
+	 * @since alpha-3.1.0
+	 */
+	private CompletableFuture<BaseRequest> abort(Throwable exception, RequestEvent recorded) {
+		status = RequestStatus.ExceptionRaised;
+		latch.countDown();
+		if (recorded != null) {
+			recorded.buildTime = recorded.lap();
+			commitEvent(recorded, null, null);
+		}
+		return CompletableFuture.failedFuture(exception);
+	}
+
+	/**
+	 * Sends the built request, or joins an identical one that is already in
+	 * flight. The response is read and parsed on a virtual thread when the JDK
+	 * supports them, or on a bounded pool of reader threads otherwise, but never
+	 * on a thread of the {@link java.net.http.HttpClient HttpClient}.
+	 * 
+	 * @param request  The {@link HttpRequest} to send
+	 * @param recorded The flight recorder event of the request, or {@code null}
+	 * @return A {@link CompletableFuture} that completes with this request
+	 * @since alpha-3.1.0
+	 */
+	private CompletableFuture<BaseRequest> dispatch(HttpRequest request, RequestEvent recorded) {
+		RequestCoalescer coalescer = coalescesResponse() ? cnf.getRequestCoalescer() : null;
+		String coalescingKey = coalescer == null ? null
+				: RequestCoalescer.key(getClass(), coalescingVariant(), request.method(), request.uri().toString(),
+						request.headers().firstValue("X-Tidepool-Session-Token").orElse(null));
+		CompletableFuture<BaseRequest> flight = coalescer == null ? null : new CompletableFuture<>();
+		CompletableFuture<BaseRequest> leader = coalescer == null ? null : coalescer.join(coalescingKey, flight);
+		if (leader != null) {
+			// nothing is sent, so there is nothing to record
+			event = null;
+			return leader.handle(this::adopt);
+		}
+		RetryPolicy policy = retryPolicy != null ? retryPolicy : cnf.getRetryPolicy();
+		RequestMetrics metrics = cnf.getMetrics();
+		RequestMetrics.RequestSeries series = metrics == null ? null
+				: metrics.forRequest(getClass(), request.uri().getHost());
+		metricsSeries = series;
+		responseSize = -1;
+		long started = System.nanoTime();
+		if (series != null) {
+			series.recordStart();
+		}
+		CompletableFuture<BaseRequest> finished = attemptAsync(request, policy, 1).handleAsync((response, exception) -> {
+			try {
+				if (exception != null && unwrap(exception) instanceof CircuitBreaker.OpenException) {
+					status = RequestStatus.CircuitOpen;
+					return this;
+				}
+				if (exception != null) {
+					status = RequestStatus.ExceptionRaised;
+					throw exception instanceof CompletionException ? (CompletionException) exception
+							: new CompletionException(exception);
+				}
+				handleResponse(response);
+				return this;
+			} catch (IOException | RuntimeException e) {
+				status = RequestStatus.ExceptionRaised;
+				throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+			} finally {
+				if (series != null) {
+					series.recordFinish(System.nanoTime() - started, status,
+							response != null ? response.statusCode() : 0, responseSize);
+				}
+				if (recorded != null) {
+					commitEvent(recorded, request, response);
+				}
+				latch.countDown();
+			}
+		}, ResponseReadersHolder.READERS);
+		if (flight != null) {
+			finished.whenComplete((sent, exception) -> {
+				coalescer.leave(coalescingKey, flight);
+				if (exception != null) {
+					flight.completeExceptionally(exception);
+				} else {
+					flight.complete(sent);
+				}
+			});
+		}
+		return finished;
+	}
+
+	/**
+	 * Finishes this request with the outcome of an identical request that was
+	 * sent instead of it
+	 * 
+	 * @param leader    The request that was sent, or {@code null} if it failed
+	 * @param exception The exception it failed with, or {@code null}
+	 * @return {@code this}
+	 * @since alpha-3.1.0
+	 */
+	private BaseRequest adopt(BaseRequest leader, Throwable exception) {
+		try {
+			if (exception != null) {
+				status = RequestStatus.ExceptionRaised;
+				throw exception instanceof CompletionException ? (CompletionException) exception
+						: new CompletionException(exception);
+			}
+			RequestStatus shared = leader.getStatus();
+			if (shared != RequestStatus.Success && shared != RequestStatus.Failure) {
+				status = shared;
+				return this;
+			}
+			try {
+				adoptResult(leader);
+			} catch (RuntimeException e) {
+				status = RequestStatus.ExceptionRaised;
+				throw new CompletionException(e);
+			}
+			responseCode = leader.responseCode;
+			status = shared;
+			if (shared == RequestStatus.Success) {
+				onSuccsessListeners.accept(responseCode);
+			} else {
+				onFailureListeners.accept(responseCode);
+			}
+			return this;
+		} finally {
+			latch.countDown();
+		}
+	}
+
+	/**
+	 * Sends the {@link HttpRequest}, and sends it again after a delay for as
+	 * long as the {@link RetryPolicy} says to. The bodies of responses that are
+	 * retried are discarded.
+	 * <br>
+	 * The request is built again for each retry, so it is sent with the session
+	 * token and cache validators that are current by then, rather than the ones
+	 * from before the delay.
+	 * 
+	 * @param request The {@link HttpRequest} to send
+	 * @param policy  The {@link RetryPolicy}, or {@code null} to never retry
+	 * @param attempt How many times the request has been sent, including this
+	 *                time
+	 * @return A {@link CompletableFuture} that completes with the last response
+	 * @since alpha-3.1.0
+	 */
+	private CompletableFuture<HttpResponse<?>> attemptAsync(HttpRequest request, RetryPolicy policy, int attempt) {
+		CompletableFuture<HttpResponse<?>> sent = transmitAsync(request);
+		if (policy == null) {
+			return sent;
+		}
+		return sent.handle((response, exception) -> {
+			long delay;
+			if (exception != null) {
+				delay = policy.retryDelay(unwrap(exception), attempt, isIdempotent());
+			} else {
+				delay = policy.retryDelay(response, attempt, isIdempotent());
+			}
+			if (delay == RetryPolicy.NO_RETRY) {
+				return sent;
+			}
+			if (metricsSeries != null) {
+				metricsSeries.recordRetry();
+			}
+			if (response != null && response.body() instanceof InputStream) {
+				try {
+					((InputStream) response.body()).close();
+				} catch (IOException e) {
+					// the body is being thrown away anyways
+				}
+			}
+			return CompletableFuture.runAsync(() -> {
+			}, CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS, Runnable::run))
+					.thenCompose(retry -> sessionTokenAsync())
+					.thenApply(this::rebuildHttpRequest)
+					.thenCompose(rebuilt -> attemptAsync(rebuilt, policy, attempt + 1));
+		}).thenCompose(next -> next);
+	}
+
+	/**
+	 * Sends the {@link HttpRequest} without blocking, once the
+	 * {@link TidepoolBackendConfig#getRateLimiter(String) rate limiter} of its
+	 * host allows it. If the host has a
+	 * {@link TidepoolBackendConfig#getCircuitBreaker(String) circuit breaker}, the
+	 * request fails right away with a {@link CircuitBreaker.OpenException} while
+	 * it is open, and the outcome of the request is recorded otherwise.
+	 * 
+	 * @param request The {@link HttpRequest} to send
+	 * @return A {@link CompletableFuture} that completes with the response
+	 * @since alpha-3.1.0
+	 */
+	private CompletableFuture<HttpResponse<?>> transmitAsync(HttpRequest request) {
+		String host = request.uri().getHost();
+		CircuitBreaker breaker = cnf.getCircuitBreaker(host);
+		if (breaker != null && !breaker.tryAcquire()) {
+			return CompletableFuture.failedFuture(new CircuitBreaker.OpenException());
+		}
+		// when the request was actually sent, after waiting for the rate limiter
+		long[] start = new long[1];
+		// when the headers of the response arrived, so the body isn't timed whether
+		// it is streamed or read whole
+		long[] headersAt = new long[1];
+		// if it was sent at all, so only calls that were made are measured
+		boolean[] transmitted = new boolean[1];
+		RequestEvent recorded = event;
+		HttpResponse.BodyHandler<?> handler = breaker == null ? bodyHandler() : timeHeaders(bodyHandler(), headersAt);
+		Supplier<CompletableFuture<HttpResponse<?>>> send = () -> {
+			start[0] = System.nanoTime();
+			CompletableFuture<HttpResponse<?>> pending;
+			try {
+				if (recorded == null) {
+					pending = cnf.getHttpClient().sendAsync(request, handler).thenApply(sent -> sent);
+				} else {
+					recorded.attemptSent();
+					pending = cnf.getHttpClient().sendAsync(request, handler).thenApply(sent -> {
+						recorded.firstByteTime = recorded.lap();
+						return sent;
+					});
+				}
+			} catch (RuntimeException e) {
+				return CompletableFuture.failedFuture(e);
+			}
+			transmitted[0] = true;
+			return pending;
+		};
+		RateLimiter limiter = cnf.getRateLimiter(host);
+		CompletableFuture<HttpResponse<?>> response = limiter == null ? send.get()
+				: limiter.acquireAsync().thenCompose(permit -> send.get());
+		if (breaker == null) {
+			return response;
+		}
+		return response.whenComplete((received, exception) -> {
+			if (!transmitted[0]) {
+				// nothing was sent, so there is nothing to measure
+				breaker.release();
+				return;
+			}
+			long end = headersAt[0] != 0 ? headersAt[0] : System.nanoTime();
+			breaker.onResult(end - start[0],
+					exception != null || received.statusCode() >= HttpsURLConnection.HTTP_INTERNAL_ERROR);
+		});
+	}
+
+	/**
+	 * Wraps a {@link HttpResponse.BodyHandler} to note when the headers of the
+	 * response arrived, which is when the handler is called
+	 * 
+	 * @param <T>       The type of the body
+	 * @param handler   The handler
+	 * @param headersAt Where the {@link System#nanoTime()} the headers arrived
+	 *                  is put
+	 * @return The wrapped handler
+	 * @since alpha-3.1.0
+	 */
+	private static <T> HttpResponse.BodyHandler<T> timeHeaders(HttpResponse.BodyHandler<T> handler, long[] headersAt) {
+		return info -> {
+			headersAt[0] = System.nanoTime();
+			return handler.apply(info);
+		};
+	}
+
+	/**
+	 * Gets the cause of an exception that completed a {@link CompletableFuture}
+	 * 
+	 * @param exception The exception
+	 * @return The cause if the exception is a {@link CompletionException}, or the
+	 *         exception itself otherwise
+	 * @since alpha-3.1.0
+	 */
+	private static Throwable unwrap(Throwable exception) {
+		return exception instanceof CompletionException && exception.getCause() != null ? exception.getCause()
+				: exception;
+	}
+
+	/**
+	 * Marks the request as {@link RequestStatus#InProgress in progress}, and sets
+	 * up the {@link #latch} for {@link #awaitCompletion()}
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private void start() {
 		latch = new CountDownLatch(1);
-		// Getting the request status set up
 		status = RequestStatus.InProgress;
-		
-		// Getting the url set up;
-		String serverURL = getEnvMap().get(cnf.getEnvironment());
-		String URI = getURI();
-		String queryParams = generateQueryParams(queryArgs);
-		String full_url = serverURL + URI + queryParams;
+	}
+
+	/**
+	 * Builds the {@link HttpRequest} to send to the backend
+	 * 
+	 * @param sessionToken The session token to send, or {@code null} if
+	 *                     {@link #requiresSessionToken()} returns {@code false}
+	 * @return The {@link HttpRequest} for this request
+	 * @throws URISyntaxException If the URI of the request is invalid
+	 * @since alpha-3.1.0
+	 */
+	private HttpRequest buildHttpRequest(String sessionToken) throws URISyntaxException {
+		URI uri;
+		String full_url;
+		if (template != null) {
+			uri = template.resolve(pathArgument);
+			full_url = uri.toString();
+		} else {
+			// Getting the url set up;
+			String serverURL = cnf.getServerAddressOverride();
+			if (serverURL == null) {
+				serverURL = getEnvMap().get(cnf.getEnvironment());
+			}
+			String URI = getURI();
+			String queryParams = generateQueryParams(queryArgs);
+			full_url = serverURL + URI + queryParams;
 
-		try {
 			// Creating the URI object
-			URI uri = new URI(full_url);
+			uri = new URI(full_url);
+		}
 
-			HttpRequest.Builder builder = HttpRequest.newBuilder(uri).header("Content-Type", contentType());
-			if (contentType() != null) {
-				builder = builder.header("Content-Type", contentType());
-			}
-			if (accept() != null) {
-				builder = builder.header("Accept", accept());
+		HttpRequest.Builder builder = HttpRequest.newBuilder(uri);
+		Duration timeout = cnf.getTransportConfig().getRequestTimeout();
+		if (timeout != null) {
+			builder = builder.timeout(timeout);
+		}
+		if (contentType() != null) {
+			builder = builder.header("Content-Type", contentType());
+		}
+		if (accept() != null) {
+			builder = builder.header("Accept", accept());
+		}
+
+		if (sessionToken != null) {
+			builder = builder.header("X-Tidepool-Session-Token", sessionToken);
+		}
+
+		responseCache = cachesResponse() ? cnf.getResponseCache() : null;
+		cacheKey = null;
+		cachedResponse = null;
+		if (responseCache != null) {
+			cacheKey = ConditionalResponseCache.key(full_url, sessionToken);
+			cachedResponse = responseCache.get(cacheKey);
+			if (cachedResponse != null && cachedResponse.etag != null) {
+				builder = builder.header("If-None-Match", cachedResponse.etag);
 			}
-			
-			if (requiresSessionToken()) {
-				builder = builder.header("X-Tidepool-Session-Token", cnf.getAccessToken());
+			if (cachedResponse != null && cachedResponse.lastModified != null) {
+				builder = builder.header("If-Modified-Since", cachedResponse.lastModified);
 			}
+		}
+
+		if (template != null) {
+			builder = template.applyHeaders(builder);
+		}
+		for (Map.Entry<String, Object> pair : headerArgs.entrySet()) {
+			builder = builder.header(pair.getKey(), pair.getValue().toString());
+		}
 
-			for (Map.Entry<String, Object> pair : headerArgs.entrySet()) {
-				builder = builder.header(pair.getKey(), pair.getValue().toString());
+		compressionRequested = cnf.isCompressionEnabled();
+		if (compressionRequested) {
+			builder = builder.header("Accept-Encoding", "gzip, deflate");
+		}
+
+		HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.noBody();
+		if (doesOutput()) {
+			if (compressesBody()) {
+				builder = builder.header("Content-Encoding", "gzip");
 			}
+			body = bodyPublisher();
+		}
+		return builder.method(getRequestType().getCode(), body).build();
+	}
+
+	/**
+	 * Builds the {@link HttpRequest} again, for a retry
+	 * 
+	 * @param sessionToken The session token to send, or {@code null} if
+	 *                     {@link #requiresSessionToken()} returns {@code false}
+	 * @return The {@link HttpRequest} for this request
+	 * @throws CompletionException If the URI of the request is invalid
+	 * @since alpha-3.1.0
+	 */
+	private HttpRequest rebuildHttpRequest(String sessionToken) {
+		try {
+			return buildHttpRequest(sessionToken);
+		} catch (URISyntaxException e) {
+			throw new CompletionException(e);
+		}
+	}
+
+	/**
+	 * Creates the publisher of the body, if {@link #doesOutput()} returns
+	 * {@code true}. It is subscribed to once for each attempt, so it must
+	 * publish the whole body every time.
+	 * <br>
+	 * By default, publishes {@link #getPackage()}, compressed with gzip if
+	 * {@link #compressesBody()} returns {@code true}
+	 * 
+	 * @return The publisher of the body
+	 * @since alpha-3.1.0
+	 */
+	protected HttpRequest.BodyPublisher bodyPublisher() {
+		byte[] body = getPackage();
+		return HttpRequest.BodyPublishers.ofByteArray(compressesBody() ? gzip(body) : body);
+	}
+
+	/**
+	 * Compresses a body with gzip
+	 * 
+	 * @param body The body
+	 * @return The compressed body
+	 * @since alpha-3.1.0
+	 */
+	private static byte[] gzip(byte[] body) {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+		try (GZIPOutputStream out = new GZIPOutputStream(compressed, 8192)) {
+			out.write(body);
+		} catch (IOException e) {
+			// a ByteArrayOutputStream never throws
+			throw new UncheckedIOException(e);
+		}
+		return compressed.toByteArray();
+	}
 
-			HttpRequest request = builder.method(getRequestType().getCode(),
-					doesOutput() ? HttpRequest.BodyPublishers.ofByteArray(getPackage())
-							: HttpRequest.BodyPublishers.noBody())
-					.build();
+	/**
+	 * Wraps a response body in a stream that decompresses it as it is read, as
+	 * given by its {@code Content-Encoding}
+	 * 
+	 * @param response The response from the backend
+	 * @param body     The body of the response
+	 * @return The decompressed body
+	 * @throws IOException If the body is compressed in a way that isn't supported
+	 * @since alpha-3.1.0
+	 */
+	private static InputStream decompress(HttpResponse<?> response, InputStream body) throws IOException {
+		String encoding = response.headers().firstValue("Content-Encoding").orElse("identity").trim();
+		boolean empty = response.statusCode() == HttpsURLConnection.HTTP_NO_CONTENT
+				|| response.request().method().equals("HEAD");
+		if (empty || encoding.equalsIgnoreCase("identity")) {
+			return body;
+		}
+		if (encoding.equalsIgnoreCase("gzip") || encoding.equalsIgnoreCase("x-gzip")) {
+			return new GZIPInputStream(body, 8192);
+		}
+		if (encoding.equalsIgnoreCase("deflate")) {
+			// deflate is meant to be zlib wrapped, but some servers send raw deflate
+			BufferedInputStream buffered = new BufferedInputStream(body, 8192);
+			buffered.mark(2);
+			int cmf = buffered.read();
+			int flg = buffered.read();
+			buffered.reset();
+			boolean zlib = (cmf & 0x0F) == 8 && ((cmf << 8) | flg) % 31 == 0;
+			return new InflaterInputStream(buffered, new Inflater(!zlib), 8192);
+		}
+		throw new IOException("Unsupported Content-Encoding: " + encoding);
+	}
 
-			HttpResponse<String> response = HttpClient.newHttpClient().send(request,
-					HttpResponse.BodyHandlers.ofString());
+	/**
+	 * Gets the {@link HttpResponse.BodyHandler} to read the response with
+	 * 
+	 * @return A handler that streams the body if {@link #streamsResponse()}, if
+	 *         it may be compressed, or if its size or read time is recorded, or
+	 *         reads it into a {@link String} otherwise
+	 * @since alpha-3.1.0
+	 */
+	private HttpResponse.BodyHandler<?> bodyHandler() {
+		return streamsResponse() || compressionRequested || metricsSeries != null || event != null
+				? HttpResponse.BodyHandlers.ofInputStream()
+				: HttpResponse.BodyHandlers.ofString();
+	}
 
-			parseResponse(response.body());
-			if (isSuccsess(response.statusCode())) {
-				status = RequestStatus.Success;
-				onSuccsessListeners.accept(response.statusCode());
+	/**
+	 * Parses the response, updates the status, and calls the listeners.
+	 * <br>
+	 * A compressed response is decompressed as it is parsed, without being
+	 * decompressed into memory first.
+	 * <br>
+	 * If the request was revalidating a cached response, and the backend replied
+	 * that it is {@code 304 Not Modified}, the cached response is parsed instead,
+	 * and handled as if it had been recieved again. A streamed response is only
+	 * copied for the cache while it fits in the cache, so a large one is still
+	 * parsed in a constant amount of memory.
+	 * 
+	 * @param response The response from the backend
+	 * @throws IOException If reading a streamed response fails
+	 * @since alpha-3.1.0
+	 */
+	private void handleResponse(HttpResponse<?> response) throws IOException {
+		int statusCode = response.statusCode();
+		if (statusCode == HttpsURLConnection.HTTP_NOT_MODIFIED && cachedResponse != null) {
+			if (response.body() instanceof InputStream) {
+				((InputStream) response.body()).close();
+			}
+			responseSize = 0;
+			statusCode = cachedResponse.statusCode;
+			if (streamsResponse()) {
+				parseResponse(new ByteArrayInputStream(cachedResponse.body));
 			} else {
-				status = RequestStatus.Failure;	
-				onFailureListeners.accept(response.statusCode());
+				parseResponse(new String(cachedResponse.body, StandardCharsets.UTF_8));
 			}
-			latch.countDown();
+		} else {
+			boolean cache = responseCache != null && isSuccsess(statusCode) && hasValidators(response);
+			if (response.body() instanceof InputStream) {
+				InputStream raw = (InputStream) response.body();
+				CountingInputStream counted = null;
+				if (metricsSeries != null || event != null) {
+					counted = new CountingInputStream(raw, event != null);
+					raw = counted;
+				}
+				try (InputStream body = decompress(response, raw)) {
+					if (cache) {
+						CapturingInputStream capture = new CapturingInputStream(body, responseCache.getMaxBytes());
+						parseResponse(capture);
+						// the parser may stop before the end of the body
+						capture.transferTo(OutputStream.nullOutputStream());
+						byte[] captured = capture.captured();
+						if (captured != null) {
+							storeResponse(response, captured);
+						} else {
+							// too large to cache, so an older copy mustn't be revalidated either
+							cache = false;
+						}
+					} else {
+						parseResponse(body);
+					}
+				} finally {
+					if (counted != null) {
+						responseSize = counted.count;
+					}
+					if (event != null) {
+						event.bodyReadTime = counted.readNanos;
+					}
+				}
+			} else {
+				parseResponse((String) response.body());
+				if (cache) {
+					storeResponse(response, ((String) response.body()).getBytes(StandardCharsets.UTF_8));
+				}
+			}
+			if (responseCache != null && isSuccsess(statusCode) && !cache) {
+				responseCache.remove(cacheKey);
+			}
+		}
+		if (event != null) {
+			event.parseTime = event.lap() - event.bodyReadTime;
+		}
+		responseCode = statusCode;
+		if (isSuccsess(statusCode)) {
+			status = RequestStatus.Success;
+			onSuccsessListeners.accept(statusCode);
+		} else {
+			status = RequestStatus.Failure;
+			onFailureListeners.accept(statusCode);
+		}
+		if (event != null) {
+			event.listenerTime = event.lap();
+		}
+	}
 
-		} catch (IOException | URISyntaxException | InterruptedException e) {
-			status = RequestStatus.ExceptionRaised;
-			latch.countDown();
-			throw new RuntimeException("An exception was raised during excecution", e);
+	/**
+	 * Fills in the rest of a flight recorder event, and commits it
+	 * 
+	 * @param recorded The event
+	 * @param request  The {@link HttpRequest} that was sent, or {@code null} if
+	 *                 it couldn't be built
+	 * @param response The last response, or {@code null} if there wasn't one
+	 * @since alpha-3.1.0
+	 */
+	private void commitEvent(RequestEvent recorded, HttpRequest request, HttpResponse<?> response) {
+		recorded.end();
+		if (!recorded.shouldCommit()) {
+			return;
 		}
+		recorded.request = getClass().getSimpleName();
+		recorded.method = getRequestType().getCode();
+		recorded.uriTemplate = template != null ? template.getPath() : getURITemplate();
+		recorded.host = request != null ? request.uri().getHost() : null;
+		recorded.status = status.name();
+		recorded.statusCode = response != null ? response.statusCode() : 0;
+		recorded.bytes = responseSize;
+		recorded.commit();
+	}
 
+	/**
+	 * Checks if a response can be revalidated
+	 * 
+	 * @param response The response from the backend
+	 * @return {@code true} if the response has an {@code ETag} or
+	 *         {@code Last-Modified} header
+	 * @since alpha-3.1.0
+	 */
+	private static boolean hasValidators(HttpResponse<?> response) {
+		return response.headers().firstValue("ETag").isPresent()
+				|| response.headers().firstValue("Last-Modified").isPresent();
+	}
+
+	/**
+	 * Puts a response into the {@link #responseCache}
+	 * 
+	 * @param response The response from the backend
+	 * @param body     The body of the response
+	 * @since alpha-3.1.0
+	 */
+	private void storeResponse(HttpResponse<?> response, byte[] body) {
+		responseCache.put(cacheKey,
+				new ConditionalResponseCache.Entry(response.headers().firstValue("ETag").orElse(null),
+						response.headers().firstValue("Last-Modified").orElse(null), response.statusCode(), body));
+	}
+
+	/**
+	 * An {@link InputStream} that counts the bytes read through it, so the size
+	 * of a response can be recorded, and optionally how long reading them took
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private static final class CountingInputStream extends FilterInputStream {
+		/**
+		 * If the time spent reading is measured
+		 * 
+		 * @since alpha-3.1.0
+		 */
+		private final boolean timed;
+
+		/**
+		 * How many bytes have been read or skipped
+		 * 
+		 * @since alpha-3.1.0
+		 */
+		private long count;
+
+		/**
+		 * How long has been spent reading, in nanoseconds, if it is measured
+		 * 
+		 * @since alpha-3.1.0
+		 */
+		private long readNanos;
+
+		/**
+		 * Creates a {@link CountingInputStream}
+		 * 
+		 * @param in    The stream to read from
+		 * @param timed If the time spent reading is measured
+		 * @since alpha-3.1.0
+		 */
+		private CountingInputStream(InputStream in, boolean timed) {
+			super(in);
+			this.timed = timed;
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public int read() throws IOException {
+			long start = timed ? System.nanoTime() : 0;
+			int b = super.read();
+			if (timed) {
+				readNanos += System.nanoTime() - start;
+			}
+			if (b >= 0) {
+				count++;
+			}
+			return b;
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			long start = timed ? System.nanoTime() : 0;
+			int read = super.read(b, off, len);
+			if (timed) {
+				readNanos += System.nanoTime() - start;
+			}
+			if (read > 0) {
+				count += read;
+			}
+			return read;
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public long skip(long n) throws IOException {
+			long start = timed ? System.nanoTime() : 0;
+			long skipped = super.skip(n);
+			if (timed) {
+				readNanos += System.nanoTime() - start;
+			}
+			count += skipped;
+			return skipped;
+		}
+
+		/**
+		 * Marking isn't supported, as a reset would count bytes twice
+		 * 
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+
+	/**
+	 * An {@link InputStream} that keeps a copy of everything read through it, so
+	 * a streamed response can be cached. Once more than a limit has been read,
+	 * the copy is dropped and nothing more is kept, so a body too large to be
+	 * cached is still streamed in a constant amount of memory.
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private static final class CapturingInputStream extends FilterInputStream {
+		/**
+		 * The most bytes that are kept
+		 * 
+		 * @since alpha-3.1.0
+		 */
+		private final long limit;
+		/**
+		 * Everything read so far, or {@code null} once more than the limit has been
+		 * read
+		 * 
+		 * @since alpha-3.1.0
+		 */
+		private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+		/**
+		 * Creates a {@link CapturingInputStream}
+		 * 
+		 * @param in    The stream to read from
+		 * @param limit The most bytes to keep
+		 * @since alpha-3.1.0
+		 */
+		private CapturingInputStream(InputStream in, long limit) {
+			super(in);
+			this.limit = limit;
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0 && keep(1)) {
+				copy.write(b);
+			}
+			return b;
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if (read > 0 && keep(read)) {
+				copy.write(b, off, read);
+			}
+			return read;
+		}
+
+		/**
+		 * Checks if bytes that were just read can still be kept, dropping the copy
+		 * if they can't
+		 * 
+		 * @param count How many bytes were read
+		 * @return {@code true} if they should be added to the copy
+		 * @since alpha-3.1.0
+		 */
+		private boolean keep(int count) {
+			if (copy != null && copy.size() + (long) count > limit) {
+				copy = null;
+			}
+			return copy != null;
+		}
+
+		/**
+		 * Skips by reading, so the skipped bytes are still kept
+		 * 
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public long skip(long n) throws IOException {
+			byte[] buffer = new byte[(int) Math.min(n, 8192)];
+			long skipped = 0;
+			while (skipped < n) {
+				int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+				if (read < 0) {
+					break;
+				}
+				skipped += read;
+			}
+			return skipped;
+		}
+
+		/**
+		 * Marking isn't supported, as a reset would capture bytes twice
+		 * 
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		/**
+		 * Gets everything read so far
+		 * 
+		 * @return The bytes read, or {@code null} if there were more than the limit
+		 * @since alpha-3.1.0
+		 */
+		private byte[] captured() {
+			return copy == null ? null : copy.toByteArray();
+		}
 	}
 
 	/**
@@ -524,25 +1712,101 @@ abstract public class BaseRequest implements Runnable {
 	}
 
 	/**
-	 * Generates everything after the question mark
+	 * Generates everything after the question mark, percent encoding the keys and
+	 * values
 	 * 
 	 * @param params The query params
-	 * @return A string for the given params
+	 * @return A string for the given params, or an empty string if there are none
 	 * @since alpha-0.2.0
 	 */
 	protected static final String generateQueryParams(Map<String, List<Object>> params) {
-		String result = "?";
+		if (params.isEmpty()) {
+			return "";
+		}
+		StringBuilder result = new StringBuilder(32 * params.size());
+		char separator = '?';
 		for (Map.Entry<String, List<Object>> pair : params.entrySet()) {
-			result += pair.getKey();
-			result += "=";
-			for (Object str : pair.getValue()) {
-				result += str.toString();
-				result += ",";
+			result.append(separator);
+			percentEncode(result, pair.getKey());
+			result.append('=');
+			List<Object> values = pair.getValue();
+			for (int i = 0; i < values.size(); i++) {
+				if (i > 0) {
+					result.append(',');
+				}
+				percentEncode(result, values.get(i).toString());
+			}
+			separator = '&';
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Percent encodes a string so it can be used in a query, a path segment, or a
+	 * form body. Everything but the unreserved characters of RFC 3986 is encoded,
+	 * as UTF-8.
+	 * 
+	 * @param result Where to append the encoded string
+	 * @param value  The string to encode
+	 * @since alpha-3.1.0
+	 */
+	static void percentEncode(StringBuilder result, String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (isUnreserved(c)) {
+				result.append(c);
+				continue;
+			}
+			// only the rest of the string needs converting to bytes
+			byte[] bytes = value.substring(i).getBytes(StandardCharsets.UTF_8);
+			for (byte b : bytes) {
+				if (b >= 0 && isUnreserved((char) b)) {
+					result.append((char) b);
+				} else {
+					result.append('%').append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+				}
 			}
-			result = result.substring(0, result.length() - 1);
-			result += "&";
+			return;
 		}
-		// remove final element in string
-		return result.substring(0, result.length() - 1);
+	}
+
+	/**
+	 * Percent encodes a string so it can be used in a query, a path segment, or a
+	 * form body
+	 * 
+	 * @param value The string to encode
+	 * @return The encoded string, which is {@code value} itself if nothing needed
+	 *         encoding
+	 * @since alpha-3.1.0
+	 * @see #percentEncode(StringBuilder, String)
+	 */
+	static String percentEncode(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			if (!isUnreserved(value.charAt(i))) {
+				StringBuilder result = new StringBuilder(value.length() + 16);
+				percentEncode(result, value);
+				return result.toString();
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * The digits of a percent encoded byte
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	/**
+	 * Checks if a character is left as is when percent encoding
+	 * 
+	 * @param c The character
+	 * @return {@code true} if it is one of the unreserved characters of RFC 3986
+	 * @since alpha-3.1.0
+	 */
+	private static boolean isUnreserved(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '.'
+				|| c == '_' || c == '~';
 	}
 }
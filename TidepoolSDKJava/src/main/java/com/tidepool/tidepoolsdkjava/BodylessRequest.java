@@ -23,6 +23,18 @@ public abstract class BodylessRequest extends BaseRequest {
 		super(headerArgs, cnf, queryArgs);
 	}
 
+	/**
+	 * Creates a bodyless request from a {@link RequestTemplate}
+	 * 
+	 * @param template     The template
+	 * @param pathArgument What to put into the template's path, or {@code null}
+	 *                     if it doesn't have a placeholder
+	 * @since alpha-3.1.0
+	 */
+	protected BodylessRequest(RequestTemplate template, String pathArgument) {
+		super(template, pathArgument);
+	}
+
 	/**
 	 * @since alpha-0.2.0
 	 */
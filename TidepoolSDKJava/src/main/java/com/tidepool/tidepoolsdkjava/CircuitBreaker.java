@@ -0,0 +1,538 @@
+package com.tidepool.tidepoolsdkjava;
+
+import java.time.Duration;
+
+/**
+ * Stops requests from being sent to a host that is failing, so they fail right
+ * away instead of each waiting on the host.
+ * <br>
+ * The breaker starts {@link State#CLOSED closed}, and keeps the outcomes of the
+ * last calls through it. Once enough calls have been made, and too many of them
+ * failed or were slow, it {@link State#OPEN opens}, and every call is turned
+ * away for a while. After that, it lets a few trial calls through
+ * ({@link State#HALF_OPEN half open}), and closes again if they all succeeded,
+ * or opens again if any of them failed.
+ * <br>
+ * Thread safe.
+ *
+ * @since alpha-3.1.0
+ */
+public class CircuitBreaker {
+	/**
+	 * The states of a {@link CircuitBreaker}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public enum State {
+		/**
+		 * Calls are let through, and their outcomes are kept
+		 *
+		 * @since alpha-3.1.0
+		 */
+		CLOSED,
+		/**
+		 * Calls are turned away
+		 *
+		 * @since alpha-3.1.0
+		 */
+		OPEN,
+		/**
+		 * A few trial calls are let through, to find out if the host has recovered
+		 *
+		 * @since alpha-3.1.0
+		 */
+		HALF_OPEN
+	}
+
+	/**
+	 * Used to create a {@link CircuitBreaker}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public static class Builder {
+		/**
+		 * How many of the last calls are kept
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private int windowSize = 20;
+		/**
+		 * How many calls have to be kept before the breaker can open
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private int minimumCalls = 10;
+		/**
+		 * The share of failed calls that opens the breaker
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private double failureRateThreshold = 0.5;
+		/**
+		 * The share of slow calls that opens the breaker
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private double slowCallRateThreshold = 0.8;
+		/**
+		 * How long a call takes before it is slow
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Duration slowCallDuration = Duration.ofSeconds(10);
+		/**
+		 * How long the breaker stays open
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Duration openDuration = Duration.ofSeconds(30);
+		/**
+		 * How many trial calls are let through while half open
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private int halfOpenCalls = 3;
+
+		/**
+		 * Creates a builder for {@link CircuitBreaker}
+		 *
+		 * @since alpha-3.1.0
+		 */
+		public Builder() {
+		}
+
+		/**
+		 * Sets how many of the last calls are kept. Defaults to 20
+		 *
+		 * @param windowSize How many calls are kept
+		 * @return {@code this} for chaining
+		 * @throws IllegalArgumentException If it is less than 1
+		 * @since alpha-3.1.0
+		 */
+		public Builder setWindowSize(int windowSize) {
+			checkCount("windowSize", windowSize);
+			this.windowSize = windowSize;
+			return this;
+		}
+
+		/**
+		 * Sets how many calls have to be kept before the breaker can open.
+		 * Defaults to 10
+		 *
+		 * @param minimumCalls How many calls have to be kept
+		 * @return {@code this} for chaining
+		 * @throws IllegalArgumentException If it is less than 1
+		 * @since alpha-3.1.0
+		 */
+		public Builder setMinimumCalls(int minimumCalls) {
+			checkCount("minimumCalls", minimumCalls);
+			this.minimumCalls = minimumCalls;
+			return this;
+		}
+
+		/**
+		 * Sets the share of failed calls that opens the breaker. Defaults to 0.5
+		 *
+		 * @param failureRateThreshold The share, between 0 and 1
+		 * @return {@code this} for chaining
+		 * @throws IllegalArgumentException If it isn't between 0 and 1
+		 * @since alpha-3.1.0
+		 */
+		public Builder setFailureRateThreshold(double failureRateThreshold) {
+			checkShare("failureRateThreshold", failureRateThreshold);
+			this.failureRateThreshold = failureRateThreshold;
+			return this;
+		}
+
+		/**
+		 * Sets the share of slow calls that opens the breaker. Defaults to 0.8
+		 *
+		 * @param slowCallRateThreshold The share, between 0 and 1
+		 * @return {@code this} for chaining
+		 * @throws IllegalArgumentException If it isn't between 0 and 1
+		 * @since alpha-3.1.0
+		 */
+		public Builder setSlowCallRateThreshold(double slowCallRateThreshold) {
+			checkShare("slowCallRateThreshold", slowCallRateThreshold);
+			this.slowCallRateThreshold = slowCallRateThreshold;
+			return this;
+		}
+
+		/**
+		 * Sets how long a call takes before it is slow. Defaults to 10 seconds.
+		 * <br>
+		 * A call is timed from when it is sent until the headers of its response
+		 * have arrived, so the same call is as slow whether its body is then
+		 * streamed or read whole, and a large body doesn't make it slow. A call
+		 * that fails before then is timed until it failed.
+		 *
+		 * @param slowCallDuration How long a call takes before it is slow
+		 * @return {@code this} for chaining
+		 * @throws IllegalArgumentException If it is {@code null}, negative, or
+		 *                                  too long to count in nanoseconds
+		 * @since alpha-3.1.0
+		 */
+		public Builder setSlowCallDuration(Duration slowCallDuration) {
+			checkDuration("slowCallDuration", slowCallDuration);
+			this.slowCallDuration = slowCallDuration;
+			return this;
+		}
+
+		/**
+		 * Sets how long the breaker stays open before letting trial calls
+		 * through. Defaults to 30 seconds
+		 *
+		 * @param openDuration How long the breaker stays open
+		 * @return {@code this} for chaining
+		 * @throws IllegalArgumentException If it is {@code null}, negative, or too
+		 *                                  long to count in nanoseconds
+		 * @since alpha-3.1.0
+		 */
+		public Builder setOpenDuration(Duration openDuration) {
+			checkDuration("openDuration", openDuration);
+			this.openDuration = openDuration;
+			return this;
+		}
+
+		/**
+		 * Sets how many trial calls are let through while half open. Defaults to
+		 * 3
+		 *
+		 * @param halfOpenCalls How many trial calls are let through
+		 * @return {@code this} for chaining
+		 * @throws IllegalArgumentException If it is less than 1
+		 * @since alpha-3.1.0
+		 */
+		public Builder setHalfOpenCalls(int halfOpenCalls) {
+			checkCount("halfOpenCalls", halfOpenCalls);
+			this.halfOpenCalls = halfOpenCalls;
+			return this;
+		}
+
+		/**
+		 * Checks that a number of calls is at least 1
+		 *
+		 * @param name  The name of the setting, for the message
+		 * @param count The number of calls
+		 * @throws IllegalArgumentException If it is less than 1
+		 * @since alpha-3.1.0
+		 */
+		private static void checkCount(String name, int count) {
+			if (count < 1) {
+				throw new IllegalArgumentException(name + " must be at least 1, but was: " + count);
+			}
+		}
+
+		/**
+		 * Checks that a share of calls is between 0 and 1
+		 *
+		 * @param name  The name of the setting, for the message
+		 * @param share The share
+		 * @throws IllegalArgumentException If it isn't between 0 and 1
+		 * @since alpha-3.1.0
+		 */
+		private static void checkShare(String name, double share) {
+			if (!(share >= 0 && share <= 1)) {
+				throw new IllegalArgumentException(name + " must be between 0 and 1, but was: " + share);
+			}
+		}
+
+		/**
+		 * Checks that a duration can be counted in nanoseconds
+		 *
+		 * @param name     The name of the setting, for the message
+		 * @param duration The duration
+		 * @throws IllegalArgumentException If it is {@code null}, negative, or too
+		 *                                  long to count in nanoseconds
+		 * @since alpha-3.1.0
+		 */
+		private static void checkDuration(String name, Duration duration) {
+			if (duration == null || duration.isNegative()) {
+				throw new IllegalArgumentException(name + " must not be null or negative, but was: " + duration);
+			}
+			try {
+				duration.toNanos();
+			} catch (ArithmeticException e) {
+				throw new IllegalArgumentException(name + " is too long, was: " + duration, e);
+			}
+		}
+
+		/**
+		 * Builds this into a {@link CircuitBreaker}
+		 *
+		 * @return a {@link CircuitBreaker}
+		 * @since alpha-3.1.0
+		 */
+		public CircuitBreaker build() {
+			return new CircuitBreaker(this);
+		}
+	}
+
+	/**
+	 * Raised when a call is turned away because the breaker is open
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final class OpenException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Creates an {@link OpenException}
+		 *
+		 * @since alpha-3.1.0
+		 */
+		OpenException() {
+			super("The circuit breaker is open", null, false, false);
+		}
+	}
+
+	/**
+	 * Marks a call that failed in {@link #outcomes}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final byte FAILED = 1;
+	/**
+	 * Marks a call that was slow in {@link #outcomes}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final byte SLOW = 2;
+
+	/**
+	 * How many calls have to be kept before the breaker can open
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final int minimumCalls;
+	/**
+	 * The share of failed calls that opens the breaker
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final double failureRateThreshold;
+	/**
+	 * The share of slow calls that opens the breaker
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final double slowCallRateThreshold;
+	/**
+	 * How long a call takes before it is slow, in nanoseconds
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long slowCallNanos;
+	/**
+	 * How long the breaker stays open, in nanoseconds
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long openNanos;
+	/**
+	 * How many trial calls are let through while half open
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final int halfOpenCalls;
+
+	/**
+	 * The outcomes of the last calls, as a ring
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final byte[] outcomes;
+	/**
+	 * Where the next outcome goes in {@link #outcomes}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private int next;
+	/**
+	 * How many outcomes are kept
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private int calls;
+	/**
+	 * How many of the kept outcomes failed
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private int failures;
+	/**
+	 * How many of the kept outcomes were slow
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private int slowCalls;
+	/**
+	 * The current state
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private State state = State.CLOSED;
+	/**
+	 * When the breaker opened, in {@link System#nanoTime()} time
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private long openedAt;
+	/**
+	 * How many trial calls have been let through since the breaker became half
+	 * open
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private int trialsStarted;
+	/**
+	 * How many trial calls have succeeded since the breaker became half open
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private int trialsSucceeded;
+
+	/**
+	 * protected constructor that uses builder
+	 *
+	 * @param builder The builder
+	 * @since alpha-3.1.0
+	 */
+	protected CircuitBreaker(Builder builder) {
+		outcomes = new byte[builder.windowSize];
+		minimumCalls = Math.min(builder.minimumCalls, builder.windowSize);
+		failureRateThreshold = builder.failureRateThreshold;
+		slowCallRateThreshold = builder.slowCallRateThreshold;
+		slowCallNanos = builder.slowCallDuration.toNanos();
+		openNanos = builder.openDuration.toNanos();
+		halfOpenCalls = builder.halfOpenCalls;
+	}
+
+	/**
+	 * Gets the current state
+	 *
+	 * @return The state
+	 * @since alpha-3.1.0
+	 */
+	public synchronized State getState() {
+		if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+			return State.HALF_OPEN;
+		}
+		return state;
+	}
+
+	/**
+	 * Asks to make a call
+	 *
+	 * @return {@code true} if the call may be made, in which case
+	 *         {@link #onResult(long, boolean)} has to be called once it is done,
+	 *         or {@link #release()} if it ends up not being made, or
+	 *         {@code false} if it has to be turned away
+	 * @since alpha-3.1.0
+	 */
+	public synchronized boolean tryAcquire() {
+		if (state == State.CLOSED) {
+			return true;
+		}
+		if (state == State.OPEN) {
+			if (System.nanoTime() - openedAt < openNanos) {
+				return false;
+			}
+			state = State.HALF_OPEN;
+			trialsStarted = 0;
+			trialsSucceeded = 0;
+		}
+		if (trialsStarted >= halfOpenCalls) {
+			return false;
+		}
+		trialsStarted++;
+		return true;
+	}
+
+	/**
+	 * Gives back a call that {@link #tryAcquire()} allowed, but that was never
+	 * made, without recording an outcome
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public synchronized void release() {
+		if (state == State.HALF_OPEN && trialsStarted > 0) {
+			trialsStarted--;
+		}
+	}
+
+	/**
+	 * Records the outcome of a call
+	 *
+	 * @param durationNanos How long the call took until the headers of its
+	 *                      response arrived, or until it failed, in nanoseconds
+	 * @param failed        If the call failed
+	 * @since alpha-3.1.0
+	 */
+	public synchronized void onResult(long durationNanos, boolean failed) {
+		boolean slow = durationNanos >= slowCallNanos;
+		switch (state) {
+		case HALF_OPEN:
+			if (failed || slow) {
+				open();
+			} else if (++trialsSucceeded >= halfOpenCalls) {
+				close();
+			}
+			break;
+		case CLOSED:
+			record((byte) ((failed ? FAILED : 0) | (slow ? SLOW : 0)));
+			if (calls >= minimumCalls && (failures >= failureRateThreshold * calls
+					|| slowCalls >= slowCallRateThreshold * calls)) {
+				open();
+			}
+			break;
+		case OPEN:
+		default:
+			// a call that started before the breaker opened
+			break;
+		}
+	}
+
+	/**
+	 * Keeps an outcome, dropping the oldest one if the ring is full
+	 *
+	 * @param outcome The outcome
+	 * @since alpha-3.1.0
+	 */
+	private void record(byte outcome) {
+		if (calls == outcomes.length) {
+			byte dropped = outcomes[next];
+			failures -= dropped & FAILED;
+			slowCalls -= (dropped & SLOW) >> 1;
+		} else {
+			calls++;
+		}
+		outcomes[next] = outcome;
+		failures += outcome & FAILED;
+		slowCalls += (outcome & SLOW) >> 1;
+		next = (next + 1) % outcomes.length;
+	}
+
+	/**
+	 * Opens the breaker
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private void open() {
+		state = State.OPEN;
+		openedAt = System.nanoTime();
+	}
+
+	/**
+	 * Closes the breaker, forgetting the kept outcomes
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private void close() {
+		state = State.CLOSED;
+		next = 0;
+		calls = 0;
+		failures = 0;
+		slowCalls = 0;
+	}
+}
@@ -0,0 +1,213 @@
+package com.tidepool.tidepoolsdkjava;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A cache of responses that can be revalidated with the backend, so a response
+ * that hasn't changed is neither downloaded nor recieved again.
+ * <br>
+ * A response is only cached if it was a succsess and carried an {@code ETag}
+ * or {@code Last-Modified} header. The next time the same request is made, the
+ * validators are sent with {@code If-None-Match} and
+ * {@code If-Modified-Since}, and if the backend replies
+ * {@code 304 Not Modified}, the cached body is given to
+ * {@link BaseRequest#parseResponse(String)} instead.
+ * <br>
+ * Responses are keyed by their full URL and the session token they were
+ * requested with, so users never see each other's responses. The least
+ * recently used responses are dropped once the cache is full.
+ * <br>
+ * Thread safe.
+ *
+ * @since alpha-3.1.0
+ */
+public class ConditionalResponseCache {
+	/**
+	 * A cached response
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final class Entry {
+		/**
+		 * The {@code ETag} of the response, or {@code null}
+		 *
+		 * @since alpha-3.1.0
+		 */
+		final String etag;
+		/**
+		 * The {@code Last-Modified} of the response, or {@code null}
+		 *
+		 * @since alpha-3.1.0
+		 */
+		final String lastModified;
+		/**
+		 * The response code of the response
+		 *
+		 * @since alpha-3.1.0
+		 */
+		final int statusCode;
+		/**
+		 * The body of the response
+		 *
+		 * @since alpha-3.1.0
+		 */
+		final byte[] body;
+
+		/**
+		 * Creates an {@link Entry}
+		 *
+		 * @param etag         The {@code ETag}, or {@code null}
+		 * @param lastModified The {@code Last-Modified}, or {@code null}
+		 * @param statusCode   The response code
+		 * @param body         The body
+		 * @since alpha-3.1.0
+		 */
+		Entry(String etag, String lastModified, int statusCode, byte[] body) {
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.statusCode = statusCode;
+			this.body = body;
+		}
+	}
+
+	/**
+	 * The most responses kept at once
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final int maxEntries;
+	/**
+	 * The most bytes of bodies kept at once
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long maxBytes;
+	/**
+	 * The bytes of bodies currently kept
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private long bytes;
+	/**
+	 * The cached responses, least recently used first
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * Creates a {@link ConditionalResponseCache} that keeps up to 256 responses, and up to
+	 * 16MiB of bodies
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public ConditionalResponseCache() {
+		this(256, 16L << 20);
+	}
+
+	/**
+	 * Creates a {@link ConditionalResponseCache}
+	 *
+	 * @param maxEntries The most responses to keep at once
+	 * @param maxBytes   The most bytes of bodies to keep at once. Larger bodies
+	 *                   are never cached.
+	 * @since alpha-3.1.0
+	 */
+	public ConditionalResponseCache(int maxEntries, long maxBytes) {
+		if (maxEntries < 1 || maxBytes < 1) {
+			throw new IllegalArgumentException("maxEntries and maxBytes must be at least 1");
+		}
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Gets the most bytes of bodies kept at once. A larger body is never cached,
+	 * so it needn't be kept while it is read.
+	 *
+	 * @return The most bytes of bodies kept
+	 * @since alpha-3.1.0
+	 */
+	long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Gets a cached response
+	 *
+	 * @param key The key of the response
+	 * @return The response, or {@code null} if it isn't cached
+	 * @since alpha-3.1.0
+	 */
+	synchronized Entry get(String key) {
+		return entries.get(key);
+	}
+
+	/**
+	 * Caches a response, dropping the least recently used responses if the cache
+	 * is full
+	 *
+	 * @param key   The key of the response
+	 * @param entry The response
+	 * @since alpha-3.1.0
+	 */
+	synchronized void put(String key, Entry entry) {
+		remove(key);
+		if (entry.body.length > maxBytes) {
+			return;
+		}
+		entries.put(key, entry);
+		bytes += entry.body.length;
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (entries.size() > maxEntries || bytes > maxBytes) {
+			bytes -= iterator.next().body.length;
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * Drops a cached response
+	 *
+	 * @param key The key of the response
+	 * @since alpha-3.1.0
+	 */
+	synchronized void remove(String key) {
+		Entry old = entries.remove(key);
+		if (old != null) {
+			bytes -= old.body.length;
+		}
+	}
+
+	/**
+	 * Drops every cached response
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * Gets how many responses are cached
+	 *
+	 * @return The number of cached responses
+	 * @since alpha-3.1.0
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Builds the key of a response
+	 *
+	 * @param url          The full URL of the request
+	 * @param sessionToken The session token of the request, or {@code null}
+	 * @return The key
+	 * @since alpha-3.1.0
+	 */
+	static String key(String url, String sessionToken) {
+		return sessionToken == null ? url : url + '\n' + sessionToken;
+	}
+}
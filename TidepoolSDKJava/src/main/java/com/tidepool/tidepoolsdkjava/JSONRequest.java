@@ -1,9 +1,351 @@
 package com.tidepool.tidepoolsdkjava;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.zip.GZIPOutputStream;
+
+import com.tidepool.tidepoolsdkjava.config.TidepoolBackendConfig;
+
 /**
- * Currently being reworked
+ * A request that has JSON as its body, such as a {@code POST}, {@code PUT} or
+ * {@code PATCH} that sends datums to the backend.
+ * <br>
+ * The body is never built up as a {@link String} or a byte array. Instead,
+ * {@link #writeBody(Writer)} writes it into a {@link Writer} that encodes it
+ * (and compresses it, if {@link #compressesBody()} returns {@code true}) with
+ * the same buffers throughout, and hands it to the {@link java.net.http.HttpClient
+ * HttpClient} in chunks as they fill up. Sending a large body takes a constant
+ * amount of memory, and the body is written while the chunks before it are
+ * being sent.
+ * <br>
+ * The body is written on a separate thread, which waits whenever the client
+ * isn't ready for the next chunk.
+ *
  * @since alpha-0.2.0
  */
-public class JSONRequest {
+public abstract class JSONRequest extends BaseRequest {
+	/**
+	 * The size of the chunks the body is sent in
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final int CHUNK_SIZE = 16384;
+
+	/**
+	 * Holds the threads bodies are written on, so they are only started once a
+	 * {@link JSONRequest} is sent
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final class BodyWritersHolder {
+		/**
+		 * The threads bodies are written on
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private static final ExecutorService WRITERS = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "tidepool-json-body-writer");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Creates a JSONRequest
+	 *
+	 * @param headerArgs Things to put in the HTTPS header. Keys are the name of the
+	 *                   header, value is the value
+	 * @param cnf        The backend configuration to use
+	 * @param queryArgs  The query arguments (for none make it an empy map)
+	 * @since alpha-3.1.0
+	 */
+	protected JSONRequest(Map<String, Object> headerArgs, TidepoolBackendConfig cnf,
+			Map<String, List<Object>> queryArgs) {
+		super(headerArgs, cnf, queryArgs);
+	}
+
+	/**
+	 * Creates a JSONRequest from a {@link RequestTemplate}
+	 *
+	 * @param template     The template
+	 * @param pathArgument What to put into the template's path, or {@code null}
+	 *                     if it doesn't have a placeholder
+	 * @since alpha-3.1.0
+	 */
+	protected JSONRequest(RequestTemplate template, String pathArgument) {
+		super(template, pathArgument);
+	}
+
+	/**
+	 * Writes the body of the request, such as with
+	 * {@link org.json.JSONObject#write(Writer)}. Called once for each attempt,
+	 * on a thread of its own, so it must write the same body every time.
+	 * <br>
+	 * Writes may block until the backend is ready for more of the body.
+	 *
+	 * @param out Where to write the body. Doesn't need to be closed
+	 * @throws IOException If the request was cancelled or failed while writing
+	 * @since alpha-3.1.0
+	 */
+	protected abstract void writeBody(Writer out) throws IOException;
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	protected final boolean doesOutput() {
+		return true;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	protected String contentType() {
+		return "application/json";
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	protected String accept() {
+		return "application/json";
+	}
+
+	/**
+	 * The body is written by {@link #writeBody(Writer)} instead
+	 *
+	 * @return {@code null}
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	protected final byte[] getPackage() {
+		return null;
+	}
+
+	/**
+	 * Publishes the body as {@link #writeBody(Writer)} writes it, without a
+	 * known length
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	protected final HttpRequest.BodyPublisher bodyPublisher() {
+		return new HttpRequest.BodyPublisher() {
+			@Override
+			public long contentLength() {
+				return -1;
+			}
+
+			@Override
+			public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+				subscriber.onSubscribe(new BodySubscription(subscriber));
+			}
+		};
+	}
+
+	/**
+	 * A single subscription to the body, which writes it on a thread of its own
+	 * once the first chunk is requested, and waits whenever the subscriber
+	 * hasn't requested the next one yet.
+	 * <br>
+	 * The chunks handed to the subscriber are new each time, since it may still
+	 * be sending one after asking for the next.
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final class BodySubscription extends OutputStream implements Flow.Subscription {
+		/**
+		 * The subscriber the chunks are handed to
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final Flow.Subscriber<? super ByteBuffer> subscriber;
+		/**
+		 * The chunk being filled
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+		/**
+		 * How many more chunks the subscriber has asked for
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private long demand;
+		/**
+		 * If the body has started being written
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private boolean started;
+		/**
+		 * If the subscriber has cancelled, or was given an error
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private boolean cancelled;
+
+		/**
+		 * Creates a subscription
+		 *
+		 * @param subscriber The subscriber
+		 * @since alpha-3.1.0
+		 */
+		private BodySubscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public void request(long n) {
+			synchronized (this) {
+				if (cancelled) {
+					return;
+				}
+				if (n > 0) {
+					demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+					notifyAll();
+					if (started) {
+						return;
+					}
+					started = true;
+				} else {
+					cancelled = true;
+					notifyAll();
+				}
+			}
+			if (n > 0) {
+				BodyWritersHolder.WRITERS.execute(this::writeAll);
+			} else {
+				subscriber.onError(new IllegalArgumentException("Must request a positive number of chunks, not " + n));
+			}
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public synchronized void cancel() {
+			cancelled = true;
+			notifyAll();
+		}
+
+		/**
+		 * Writes the whole body, then completes the subscriber
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private void writeAll() {
+			try {
+				OutputStream out = compressesBody() ? new GZIPOutputStream(this, CHUNK_SIZE) : this;
+				// org.json writes a character at a time, which the encoder is slow at
+				Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), CHUNK_SIZE);
+				writeBody(writer);
+				// finishes compressing, and hands over the last chunk
+				writer.close();
+			} catch (IOException | RuntimeException e) {
+				if (!isCancelled()) {
+					cancel();
+					subscriber.onError(e);
+				}
+				return;
+			}
+			if (!isCancelled()) {
+				subscriber.onComplete();
+			}
+		}
+
+		/**
+		 * Gets if the subscription was cancelled
+		 *
+		 * @return {@code true} if it was cancelled
+		 * @since alpha-3.1.0
+		 */
+		private synchronized boolean isCancelled() {
+			return cancelled;
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public void write(int b) throws IOException {
+			if (!chunk.hasRemaining()) {
+				emit();
+			}
+			chunk.put((byte) b);
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (!chunk.hasRemaining()) {
+					emit();
+				}
+				int count = Math.min(len, chunk.remaining());
+				chunk.put(b, off, count);
+				off += count;
+				len -= count;
+			}
+		}
+
+		/**
+		 * Hands over the last chunk, if it has anything in it
+		 *
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public void close() throws IOException {
+			if (chunk.position() > 0) {
+				emit();
+			}
+		}
 
+		/**
+		 * Hands the chunk to the subscriber once it has asked for it, and starts a
+		 * new one
+		 *
+		 * @throws IOException If the subscription was cancelled, or the thread was
+		 *                     interrupted while waiting
+		 * @since alpha-3.1.0
+		 */
+		private void emit() throws IOException {
+			synchronized (this) {
+				while (demand == 0 && !cancelled) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("Interrupted while waiting to send the body");
+					}
+				}
+				if (cancelled) {
+					throw new IOException("The body is no longer being sent");
+				}
+				demand--;
+			}
+			chunk.flip();
+			subscriber.onNext(chunk);
+			chunk = ByteBuffer.allocate(CHUNK_SIZE);
+		}
+	}
 }
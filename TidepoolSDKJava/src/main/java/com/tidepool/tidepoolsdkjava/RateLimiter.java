@@ -0,0 +1,155 @@
+package com.tidepool.tidepoolsdkjava;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket that limits how often requests are sent to a host.
+ * <br>
+ * The bucket holds up to {@code burst} permits, and refills at
+ * {@code permitsPerSecond}. Waiting for a permit can either block the calling
+ * thread with {@link #acquire()}, or be done without holding onto any thread
+ * with {@link #acquireAsync()}. Permits are handed out in the order they were
+ * asked for, so callers that are waiting don't starve each other.
+ * <br>
+ * The bucket is kept as a single "theoretical arrival time", so taking a
+ * permit is a single compare and set, and never locks.
+ * <br>
+ * Thread safe.
+ *
+ * @since alpha-3.1.0
+ */
+public class RateLimiter {
+	/**
+	 * The time between two permits, in nanoseconds
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long interval;
+	/**
+	 * How far ahead of now the theoretical arrival time may be while a permit is
+	 * still handed out immediately, in nanoseconds
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long tolerance;
+	/**
+	 * Where the current time is read from, in nanoseconds. Only differs from
+	 * {@link System#nanoTime()} in tests.
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final LongSupplier nanoClock;
+	/**
+	 * When the next permit is due, in {@link #nanoClock} time, if the bucket was
+	 * never allowed to burst
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final AtomicLong theoreticalArrival;
+
+	/**
+	 * Creates a {@link RateLimiter}
+	 *
+	 * @param permitsPerSecond How many permits are handed out per second
+	 * @param burst            How many permits can be handed out at once after
+	 *                         the limiter has been idle
+	 * @since alpha-3.1.0
+	 */
+	public RateLimiter(double permitsPerSecond, int burst) {
+		this(permitsPerSecond, burst, System::nanoTime);
+	}
+
+	/**
+	 * Creates a {@link RateLimiter} that reads the time from a given source
+	 *
+	 * @param permitsPerSecond How many permits are handed out per second
+	 * @param burst            How many permits can be handed out at once after
+	 *                         the limiter has been idle
+	 * @param nanoClock        Where the current time is read from, in
+	 *                         nanoseconds, like {@link System#nanoTime()}
+	 * @since alpha-3.1.0
+	 */
+	RateLimiter(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+		if (!(permitsPerSecond > 0) || burst < 1) {
+			throw new IllegalArgumentException(
+					"permitsPerSecond must be positive and burst at least 1, but were: " + permitsPerSecond
+							+ " and " + burst);
+		}
+		this.interval = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+		this.tolerance = interval * (burst - 1);
+		this.nanoClock = nanoClock;
+		this.theoreticalArrival = new AtomicLong(nanoClock.getAsLong());
+	}
+
+	/**
+	 * Takes a permit, and gets how long the caller has to wait before using it
+	 *
+	 * @return How long to wait, in nanoseconds, or {@code 0} if the permit can be
+	 *         used right away
+	 * @since alpha-3.1.0
+	 */
+	public long reserve() {
+		while (true) {
+			long now = nanoClock.getAsLong();
+			long arrival = theoreticalArrival.get();
+			long start = arrival - now < 0 ? now : arrival;
+			if (theoreticalArrival.compareAndSet(arrival, start + interval)) {
+				return Math.max(0, start - tolerance - now);
+			}
+		}
+	}
+
+	/**
+	 * Takes a permit if one is available right away
+	 *
+	 * @return {@code true} if a permit was taken, or {@code false} if taking one
+	 *         would mean waiting
+	 * @since alpha-3.1.0
+	 */
+	public boolean tryAcquire() {
+		while (true) {
+			long now = nanoClock.getAsLong();
+			long arrival = theoreticalArrival.get();
+			long start = arrival - now < 0 ? now : arrival;
+			if (start - tolerance - now > 0) {
+				return false;
+			}
+			if (theoreticalArrival.compareAndSet(arrival, start + interval)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Takes a permit, blocking the calling thread until it can be used
+	 *
+	 * @throws InterruptedException If the thread is interrupted while waiting.
+	 *                              The permit is still taken.
+	 * @since alpha-3.1.0
+	 */
+	public void acquire() throws InterruptedException {
+		long wait = reserve();
+		if (wait > 0) {
+			TimeUnit.NANOSECONDS.sleep(wait);
+		}
+	}
+
+	/**
+	 * Takes a permit without blocking. No thread is held onto while waiting.
+	 *
+	 * @return A {@link CompletableFuture} that completes once the permit can be
+	 *         used
+	 * @since alpha-3.1.0
+	 */
+	public CompletableFuture<Void> acquireAsync() {
+		long wait = reserve();
+		if (wait == 0) {
+			return CompletableFuture.completedFuture(null);
+		}
+		return CompletableFuture.runAsync(() -> {
+		}, CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS, Runnable::run));
+	}
+}
@@ -0,0 +1,141 @@
+package com.tidepool.tidepoolsdkjava;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces identical requests that are in flight at the same time, so only
+ * the first of them is sent, and the rest share its response.
+ * <br>
+ * Requests are identical if they have the same method, full URL and session
+ * token, are of the same class, and would parse the response into the same
+ * kind of result. Only requests whose
+ * {@link BaseRequest#coalescesResponse()} returns {@code true} are coalesced,
+ * which by default are the {@link BaseRequest.RequestType#GET GET} requests.
+ * <br>
+ * Every request that waited on another is given the same parsed result,
+ * through {@link BaseRequest#adoptResult(BaseRequest)}, the same
+ * {@link BaseRequest.RequestStatus RequestStatus}, and the same exception if
+ * it failed. The result is shared, not copied, so it must not be modified.
+ * Once a request has finished, the next identical one is sent again.
+ * <br>
+ * Thread safe.
+ *
+ * @since alpha-3.1.0
+ */
+public final class RequestCoalescer {
+	/**
+	 * The requests in flight, by their key
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final ConcurrentMap<String, CompletableFuture<BaseRequest>> inFlight = new ConcurrentHashMap<>();
+	/**
+	 * How many requests were sent
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final LongAdder sent = new LongAdder();
+	/**
+	 * How many requests shared the response of another
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final LongAdder coalesced = new LongAdder();
+
+	/**
+	 * Creates a {@link RequestCoalescer}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public RequestCoalescer() {
+	}
+
+	/**
+	 * Gets how many coalesced requests were sent to the backend
+	 *
+	 * @return How many requests
+	 * @since alpha-3.1.0
+	 */
+	public long getSentCount() {
+		return sent.sum();
+	}
+
+	/**
+	 * Gets how many requests shared the response of an identical request,
+	 * instead of being sent
+	 *
+	 * @return How many requests
+	 * @since alpha-3.1.0
+	 */
+	public long getCoalescedCount() {
+		return coalesced.sum();
+	}
+
+	/**
+	 * Gets how many requests are in flight
+	 *
+	 * @return How many requests
+	 * @since alpha-3.1.0
+	 */
+	public int getInFlightCount() {
+		return inFlight.size();
+	}
+
+	/**
+	 * Registers a request that is about to be sent, unless an identical one is
+	 * already in flight
+	 *
+	 * @param key    The key of the request
+	 * @param flight Completes with the request once it has finished
+	 * @return The identical request in flight, to wait on instead of sending, or
+	 *         {@code null} if this request should be sent
+	 * @since alpha-3.1.0
+	 */
+	CompletableFuture<BaseRequest> join(String key, CompletableFuture<BaseRequest> flight) {
+		CompletableFuture<BaseRequest> existing = inFlight.putIfAbsent(key, flight);
+		if (existing == null) {
+			sent.increment();
+		} else {
+			coalesced.increment();
+		}
+		return existing;
+	}
+
+	/**
+	 * Unregisters a request that has finished, so the next identical one is sent
+	 * again
+	 *
+	 * @param key    The key of the request
+	 * @param flight The future it was registered with
+	 * @since alpha-3.1.0
+	 */
+	void leave(String key, CompletableFuture<BaseRequest> flight) {
+		inFlight.remove(key, flight);
+	}
+
+	/**
+	 * Builds the key of a request
+	 *
+	 * @param type         The class of the request
+	 * @param variant      What else changes the parsed result, or {@code null}
+	 * @param method       The method of the request
+	 * @param url          The full URL of the request
+	 * @param sessionToken The session token of the request, or {@code null}
+	 * @return The key
+	 * @since alpha-3.1.0
+	 */
+	static String key(Class<?> type, String variant, String method, String url, String sessionToken) {
+		StringBuilder key = new StringBuilder(160).append(type.getName());
+		if (variant != null) {
+			key.append('#').append(variant);
+		}
+		key.append('\n').append(method).append(' ').append(url);
+		if (sessionToken != null) {
+			key.append('\n').append(sessionToken);
+		}
+		return key.toString();
+	}
+}
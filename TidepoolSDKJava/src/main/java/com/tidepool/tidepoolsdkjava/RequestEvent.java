@@ -0,0 +1,210 @@
+package com.tidepool.tidepoolsdkjava;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A JDK Flight Recorder event for a request sent to the backend, with the time
+ * it took split into phases, so SDK activity can be lined up with GC pauses
+ * and thread stalls in the same recording.
+ * <br>
+ * The phases follow each other: the time from {@link #begin()} to
+ * {@link #end()} is their sum.
+ *
+ * @since alpha-3.1.0
+ */
+@Name("com.tidepool.tidepoolsdkjava.Request")
+@Label("Tidepool Request")
+@Category("Tidepool SDK")
+@Description("A request sent to the Tidepool backend")
+@StackTrace(false)
+final class RequestEvent extends Event {
+	/**
+	 * The type of this event, to check if it is enabled without creating one
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final EventType TYPE = EventType.getEventType(RequestEvent.class);
+
+	/**
+	 * The simple name of the class of the request
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Label("Request")
+	String request;
+
+	/**
+	 * The HTTP method
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Label("Method")
+	String method;
+
+	/**
+	 * The path of the request, with its arguments left as placeholders
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Label("URI Template")
+	String uriTemplate;
+
+	/**
+	 * The host the request was sent to
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Label("Host")
+	String host;
+
+	/**
+	 * How the request finished
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Label("Status")
+	String status;
+
+	/**
+	 * The status code of the last response, or 0 if there wasn't one
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Label("Status Code")
+	int statusCode;
+
+	/**
+	 * How many times the request was sent
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Label("Attempts")
+	int attempts;
+
+	/**
+	 * The size of the last response body as recieved, or -1 if it wasn't read
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Label("Response Size")
+	@DataAmount
+	long bytes = -1;
+
+	/**
+	 * Building the {@link java.net.http.HttpRequest}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Label("Build Time")
+	@Timespan
+	long buildTime;
+
+	/**
+	 * Waiting on the rate limiter, and on earlier attempts and the delays before
+	 * retrying them, until the last attempt was handed to the HTTP client
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Label("Send Time")
+	@Timespan
+	long sendTime;
+
+	/**
+	 * From the last attempt being handed to the HTTP client until the headers of
+	 * its response arrived
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Label("First Byte Time")
+	@Timespan
+	long firstByteTime;
+
+	/**
+	 * Waiting on the body of the response to arrive
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Label("Body Read Time")
+	@Timespan
+	long bodyReadTime;
+
+	/**
+	 * Decompressing and parsing the body, apart from waiting on it
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Label("Parse Time")
+	@Timespan
+	long parseTime;
+
+	/**
+	 * Running the success or failure listeners
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Label("Listener Time")
+	@Timespan
+	long listenerTime;
+
+	/**
+	 * When the last phase ended, in {@link System#nanoTime()} time. Transient,
+	 * so it isn't recorded
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private transient long mark;
+
+	/**
+	 * Starts timing the event
+	 *
+	 * @since alpha-3.1.0
+	 */
+	void start() {
+		begin();
+		mark = System.nanoTime();
+	}
+
+	/**
+	 * Ends the current phase
+	 *
+	 * @return How long the phase took, in nanoseconds
+	 * @since alpha-3.1.0
+	 */
+	long lap() {
+		long now = System.nanoTime();
+		long elapsed = now - mark;
+		mark = now;
+		return elapsed;
+	}
+
+	/**
+	 * Marks that an attempt was handed to the HTTP client. The time up to the
+	 * response of an earlier attempt is counted as sending time, so only the
+	 * last attempt's wait is counted as {@link #firstByteTime}.
+	 *
+	 * @since alpha-3.1.0
+	 */
+	void attemptSent() {
+		sendTime += firstByteTime + lap();
+		firstByteTime = 0;
+		attempts++;
+	}
+
+	/**
+	 * Gets if a recording has this event enabled, without creating one
+	 *
+	 * @return {@code true} if the event is enabled
+	 * @since alpha-3.1.0
+	 */
+	static boolean enabled() {
+		return TYPE.isEnabled();
+	}
+}
@@ -0,0 +1,157 @@
+package com.tidepool.tidepoolsdkjava;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs {@link BaseRequest requests} with a bounded number of them in progress
+ * at once.
+ * <br>
+ * Every request is run on its own virtual thread when the JDK supports them,
+ * so a request blocking on the network doesn't hold onto an OS thread. On
+ * JDKs without virtual threads, a pool of platform threads the size of the
+ * concurrency limit is used instead.
+ *
+ * @since alpha-3.1.0
+ */
+public class RequestExecutor implements AutoCloseable {
+	/**
+	 * The executor that the requests are run on
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final ExecutorService executor;
+	/**
+	 * Limits how many requests are in progress at once
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Semaphore permits;
+	/**
+	 * If the requests are run on virtual threads
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final boolean virtualThreads;
+
+	/**
+	 * Creates a {@link RequestExecutor}
+	 *
+	 * @param maxConcurrency The maximum number of requests in progress at once
+	 * @since alpha-3.1.0
+	 */
+	public RequestExecutor(int maxConcurrency) {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException("maxConcurrency must be at least 1, but was: " + maxConcurrency);
+		}
+		ExecutorService virtual = newVirtualThreadExecutor();
+		this.virtualThreads = virtual != null;
+		this.executor = virtualThreads ? virtual : Executors.newFixedThreadPool(maxConcurrency);
+		this.permits = new Semaphore(maxConcurrency);
+	}
+
+	/**
+	 * Creates an executor that starts a virtual thread per task
+	 *
+	 * @return the executor, or {@code null} if the JDK doesn't support virtual
+	 *         threads
+	 * @since alpha-3.1.0
+	 */
+	static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException
+				| UnsupportedOperationException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Gets if the requests are run on virtual threads
+	 *
+	 * @return {@code true} if the requests are run on virtual threads, or
+	 *         {@code false} if they are run on a pool of platform threads
+	 * @since alpha-3.1.0
+	 */
+	public boolean usesVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 * Runs a request.
+	 *
+	 * @param <T>     The type of the request
+	 * @param request The request to run
+	 * @return A {@link CompletableFuture} that completes with the request once it
+	 *         has finished, or completes exceptionally if an exception was raised
+	 *         during excecution
+	 * @since alpha-3.1.0
+	 */
+	public <T extends BaseRequest> CompletableFuture<T> submit(T request) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		executor.execute(() -> {
+			try {
+				result.complete(task(request).call());
+			} catch (Throwable e) {
+				result.completeExceptionally(e);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Runs all the given requests.
+	 * Call {@link CompletionService#take()} once per request to get each request
+	 * as it finishes, in the order that they finish.
+	 *
+	 * @param <T>      The type of the requests
+	 * @param requests The requests to run
+	 * @return A {@link CompletionService} that the finished requests can be taken
+	 *         from
+	 * @since alpha-3.1.0
+	 */
+	public <T extends BaseRequest> CompletionService<T> submitAll(Collection<? extends T> requests) {
+		CompletionService<T> service = new ExecutorCompletionService<>(executor);
+		for (T request : requests) {
+			service.submit(task(request));
+		}
+		return service;
+	}
+
+	/**
+	 * Creates the task that runs a request once there is a free permit
+	 *
+	 * @param <T>     The type of the request
+	 * @param request The request to run
+	 * @return The task
+	 * @since alpha-3.1.0
+	 */
+	private <T extends BaseRequest> Callable<T> task(T request) {
+		return () -> {
+			permits.acquire();
+			try {
+				request.run();
+				return request;
+			} finally {
+				permits.release();
+			}
+		};
+	}
+
+	/**
+	 * Stops accepting requests. Requests that were already submitted still run.
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,295 @@
+package com.tidepool.tidepoolsdkjava;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.tidepool.tidepoolsdkjava.config.TidepoolBackendConfig;
+
+/**
+ * An immutable, prepared form of a request, whose URI and headers are worked
+ * out once, so that it can be sent many times, such as for many users, without
+ * working them out again each time.
+ * <br>
+ * The path may have a single {@code {}} placeholder, which is filled in with a
+ * percent encoded argument, such as a user id, each time the template is used.
+ * Everything around the placeholder, including the server address and the
+ * encoded query, is kept as is.
+ * <br>
+ * Thread safe.
+ *
+ * @since alpha-3.1.0
+ * @see BaseRequest#BaseRequest(RequestTemplate, String)
+ */
+public final class RequestTemplate {
+	/**
+	 * Used to create a {@link RequestTemplate}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public static class Builder {
+		/**
+		 * The placeholder in the path
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private static final String PLACEHOLDER = "{}";
+
+		/**
+		 * The backend configuration
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final TidepoolBackendConfig cnf;
+		/**
+		 * The path, which may have a placeholder
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final String path;
+		/**
+		 * The server address, or {@code null} for the one of the environment
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private String serverAddress;
+		/**
+		 * The headers
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final Map<String, Object> headers = new LinkedHashMap<>();
+		/**
+		 * The arguments for the query
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final Map<String, List<Object>> queryArgs = new LinkedHashMap<>();
+
+		/**
+		 * Creates a builder for {@link RequestTemplate}
+		 *
+		 * @param cnf  The backend configuration to use
+		 * @param path The path, such as {@code /data/{}}, with at most one
+		 *             {@code {}} placeholder
+		 * @since alpha-3.1.0
+		 */
+		public Builder(TidepoolBackendConfig cnf, String path) {
+			if (path.indexOf(PLACEHOLDER) != path.lastIndexOf(PLACEHOLDER)) {
+				throw new IllegalArgumentException("The path can have at most one placeholder: " + path);
+			}
+			this.cnf = cnf;
+			this.path = path;
+		}
+
+		/**
+		 * Sets the server address. Defaults to the
+		 * {@link TidepoolBackendConfig#getServerAddressOverride() override} of the
+		 * configuration when the template is built, or else the
+		 * {@link com.tidepool.tidepoolsdkjava.config.Environment#getServerAddress()
+		 * server address} of its environment
+		 *
+		 * @param serverAddress The server address, such as
+		 *                      {@code https://api.tidepool.org}
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setServerAddress(String serverAddress) {
+			this.serverAddress = serverAddress;
+			return this;
+		}
+
+		/**
+		 * Sets a header that is sent every time
+		 *
+		 * @param name  The name of the header
+		 * @param value The value, which is turned into a string
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setHeader(String name, Object value) {
+			headers.put(name, value);
+			return this;
+		}
+
+		/**
+		 * Sets a query argument that is sent every time
+		 *
+		 * @param key    The key
+		 * @param values The value(s), which are turned into strings
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setQueryArg(String key, Object... values) {
+			List<Object> args = new ArrayList<>(values.length);
+			Collections.addAll(args, values);
+			queryArgs.put(key, args);
+			return this;
+		}
+
+		/**
+		 * Sets the query arguments that are sent every time, replacing any that
+		 * were set
+		 *
+		 * @param queryArgs The arguments for the query
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setQueryArgs(Map<String, List<Object>> queryArgs) {
+			this.queryArgs.clear();
+			this.queryArgs.putAll(queryArgs);
+			return this;
+		}
+
+		/**
+		 * Builds this into a {@link RequestTemplate}
+		 *
+		 * @return a {@link RequestTemplate}
+		 * @since alpha-3.1.0
+		 */
+		public RequestTemplate build() {
+			return new RequestTemplate(this);
+		}
+	}
+
+	/**
+	 * The backend configuration
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final TidepoolBackendConfig cnf;
+	/**
+	 * The path the template was built from, with its placeholder
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String path;
+	/**
+	 * Everything before the placeholder
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String prefix;
+	/**
+	 * Everything after the placeholder, including the query
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String suffix;
+	/**
+	 * The URI if the path has no placeholder, or {@code null}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final URI fixedURI;
+	/**
+	 * The names and values of the headers, one after the other
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String[] headers;
+
+	/**
+	 * private constructor that uses builder
+	 *
+	 * @param builder The builder
+	 * @since alpha-3.1.0
+	 */
+	private RequestTemplate(Builder builder) {
+		cnf = builder.cnf;
+		path = builder.path;
+		String server = builder.serverAddress;
+		if (server == null) {
+			server = cnf.getServerAddressOverride() != null ? cnf.getServerAddressOverride()
+					: cnf.getEnvironment().getServerAddress();
+		}
+		String query = BaseRequest.generateQueryParams(builder.queryArgs);
+		int placeholder = builder.path.indexOf(Builder.PLACEHOLDER);
+		if (placeholder < 0) {
+			prefix = server + builder.path + query;
+			suffix = "";
+			fixedURI = URI.create(prefix);
+		} else {
+			prefix = server + builder.path.substring(0, placeholder);
+			suffix = builder.path.substring(placeholder + Builder.PLACEHOLDER.length()) + query;
+			fixedURI = null;
+			// fails now instead of on every use if the rest of the URI is invalid
+			URI.create(prefix + "x" + suffix);
+		}
+		headers = new String[builder.headers.size() * 2];
+		int i = 0;
+		for (Map.Entry<String, Object> pair : builder.headers.entrySet()) {
+			headers[i++] = pair.getKey();
+			headers[i++] = pair.getValue().toString();
+		}
+	}
+
+	/**
+	 * Gets the path the template was built from
+	 *
+	 * @return The path, with its placeholder if it has one
+	 * @since alpha-3.1.0
+	 */
+	String getPath() {
+		return path;
+	}
+
+	/**
+	 * Gets the backend configuration
+	 *
+	 * @return The backend configuration
+	 * @since alpha-3.1.0
+	 */
+	public TidepoolBackendConfig getConfig() {
+		return cnf;
+	}
+
+	/**
+	 * Gets if the path has a placeholder
+	 *
+	 * @return {@code true} if an argument has to be given to
+	 *         {@link #resolve(String)}
+	 * @since alpha-3.1.0
+	 */
+	public boolean hasPlaceholder() {
+		return fixedURI == null;
+	}
+
+	/**
+	 * Gets the URI with the placeholder filled in
+	 *
+	 * @param argument What to put into the placeholder, which is percent encoded,
+	 *                 or {@code null} if there isn't one
+	 * @return The URI
+	 * @throws IllegalArgumentException If the path has a placeholder, and no
+	 *                                  argument was given
+	 * @since alpha-3.1.0
+	 */
+	public URI resolve(String argument) {
+		if (fixedURI != null) {
+			return fixedURI;
+		}
+		if (argument == null) {
+			throw new IllegalArgumentException("The template needs an argument for its path");
+		}
+		return URI.create(prefix + BaseRequest.percentEncode(argument) + suffix);
+	}
+
+	/**
+	 * Adds the headers of the template to a request
+	 *
+	 * @param builder The builder of the request
+	 * @return {@code builder}
+	 * @since alpha-3.1.0
+	 */
+	HttpRequest.Builder applyHeaders(HttpRequest.Builder builder) {
+		for (int i = 0; i < headers.length; i += 2) {
+			builder = builder.header(headers[i], headers[i + 1]);
+		}
+		return builder;
+	}
+}
@@ -0,0 +1,340 @@
+package com.tidepool.tidepoolsdkjava;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides if and when a request that failed is sent again.
+ * <br>
+ * The wait before each retry is picked at random between zero and an
+ * exponentially growing cap ("full jitter"), so many clients that failed at
+ * once don't all retry at once. If the backend replied with a
+ * {@code Retry-After} header, at least that long is waited.
+ * <br>
+ * Requests that aren't idempotent (such as {@link BaseRequest.RequestType#POST
+ * POST}) are only retried when the backend can't have acted on them: when the
+ * connection couldn't be made, or the backend replied {@code 429} or
+ * {@code 503}.
+ * <br>
+ * Immutable, and so thread safe.
+ *
+ * @since alpha-3.1.0
+ */
+public class RetryPolicy {
+	/**
+	 * Used to create a {@link RetryPolicy}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public static class Builder {
+		/**
+		 * The most times a request is sent
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private int maxAttempts = 3;
+		/**
+		 * The cap of the wait before the first retry
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Duration baseDelay = Duration.ofMillis(200);
+		/**
+		 * The largest wait before a retry
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Duration maxDelay = Duration.ofSeconds(30);
+		/**
+		 * If {@code Retry-After} headers are followed
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private boolean respectRetryAfter = true;
+
+		/**
+		 * Creates a builder for {@link RetryPolicy}
+		 *
+		 * @since alpha-3.1.0
+		 */
+		public Builder() {
+		}
+
+		/**
+		 * Sets the most times a request is sent, including the first time.
+		 * Defaults to 3
+		 *
+		 * @param maxAttempts The most times a request is sent
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setMaxAttempts(int maxAttempts) {
+			if (maxAttempts < 1) {
+				throw new IllegalArgumentException("maxAttempts must be at least 1, but was: " + maxAttempts);
+			}
+			this.maxAttempts = maxAttempts;
+			return this;
+		}
+
+		/**
+		 * Sets the cap of the wait before the first retry, which doubles for each
+		 * retry after. Defaults to 200 milliseconds
+		 *
+		 * @param baseDelay The cap of the first wait
+		 * @return {@code this} for chaining
+		 * @throws IllegalArgumentException If the delay is {@code null}, negative,
+		 *                                  or too long to count in nanoseconds
+		 * @since alpha-3.1.0
+		 */
+		public Builder setBaseDelay(Duration baseDelay) {
+			checkDelay("baseDelay", baseDelay);
+			this.baseDelay = baseDelay;
+			return this;
+		}
+
+		/**
+		 * Sets the largest wait before a retry. A {@code Retry-After} asking for a
+		 * longer wait isn't retried. Defaults to 30 seconds
+		 *
+		 * @param maxDelay The largest wait
+		 * @return {@code this} for chaining
+		 * @throws IllegalArgumentException If the delay is {@code null}, negative,
+		 *                                  or too long to count in nanoseconds
+		 * @since alpha-3.1.0
+		 */
+		public Builder setMaxDelay(Duration maxDelay) {
+			checkDelay("maxDelay", maxDelay);
+			this.maxDelay = maxDelay;
+			return this;
+		}
+
+		/**
+		 * Sets if {@code Retry-After} headers are followed. Defaults to {@code true}
+		 *
+		 * @param respectRetryAfter If {@code Retry-After} headers are followed
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setRespectRetryAfter(boolean respectRetryAfter) {
+			this.respectRetryAfter = respectRetryAfter;
+			return this;
+		}
+
+		/**
+		 * Checks that a delay can be waited
+		 *
+		 * @param name  The name of the delay, for the message
+		 * @param delay The delay
+		 * @throws IllegalArgumentException If the delay is {@code null}, negative,
+		 *                                  or too long to count in nanoseconds
+		 * @since alpha-3.1.0
+		 */
+		private static void checkDelay(String name, Duration delay) {
+			if (delay == null || delay.isNegative()) {
+				throw new IllegalArgumentException(name + " must not be null or negative, but was: " + delay);
+			}
+			try {
+				delay.toNanos();
+			} catch (ArithmeticException e) {
+				throw new IllegalArgumentException(name + " is too long, was: " + delay, e);
+			}
+		}
+
+		/**
+		 * Builds this into a {@link RetryPolicy}
+		 *
+		 * @return a {@link RetryPolicy}
+		 * @since alpha-3.1.0
+		 */
+		public RetryPolicy build() {
+			return new RetryPolicy(this);
+		}
+	}
+
+	/**
+	 * Returned by the delay methods when the request shouldn't be retried
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long NO_RETRY = -1;
+
+	/**
+	 * The most times a request is sent
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final int maxAttempts;
+	/**
+	 * The cap of the wait before the first retry, in nanoseconds
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long baseDelay;
+	/**
+	 * The largest wait before a retry, in nanoseconds
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long maxDelay;
+	/**
+	 * If {@code Retry-After} headers are followed
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final boolean respectRetryAfter;
+
+	/**
+	 * protected constructor that uses builder
+	 *
+	 * @param builder The builder
+	 * @since alpha-3.1.0
+	 */
+	protected RetryPolicy(Builder builder) {
+		maxAttempts = builder.maxAttempts;
+		baseDelay = builder.baseDelay.toNanos();
+		maxDelay = builder.maxDelay.toNanos();
+		respectRetryAfter = builder.respectRetryAfter;
+	}
+
+	/**
+	 * Gets the most times a request is sent
+	 *
+	 * @return The most times a request is sent, including the first time
+	 * @since alpha-3.1.0
+	 */
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * Decides if a request that recieved a response is retried
+	 *
+	 * @param response   The response
+	 * @param attempt    How many times the request has been sent
+	 * @param idempotent If the request is idempotent
+	 * @return How long to wait before retrying, in nanoseconds, or
+	 *         {@link #NO_RETRY}
+	 * @since alpha-3.1.0
+	 */
+	long retryDelay(HttpResponse<?> response, int attempt, boolean idempotent) {
+		if (attempt >= maxAttempts || !isRetryable(response.statusCode(), idempotent)) {
+			return NO_RETRY;
+		}
+		long delay = backoff(attempt);
+		if (respectRetryAfter) {
+			Optional<Duration> retryAfter = parseRetryAfter(response);
+			if (retryAfter.isPresent()) {
+				// compared before converting, as a long enough wait doesn't fit in nanoseconds
+				if (retryAfter.get().compareTo(Duration.ofNanos(maxDelay)) > 0) {
+					return NO_RETRY;
+				}
+				delay = Math.max(delay, retryAfter.get().toNanos());
+			}
+		}
+		return delay;
+	}
+
+	/**
+	 * Decides if a request that raised an exception is retried
+	 *
+	 * @param exception  The exception
+	 * @param attempt    How many times the request has been sent
+	 * @param idempotent If the request is idempotent
+	 * @return How long to wait before retrying, in nanoseconds, or
+	 *         {@link #NO_RETRY}
+	 * @since alpha-3.1.0
+	 */
+	long retryDelay(Throwable exception, int attempt, boolean idempotent) {
+		if (attempt >= maxAttempts || !(exception instanceof IOException)) {
+			return NO_RETRY;
+		}
+		// the request was never sent if the connection couldn't be made
+		boolean notSent = exception instanceof ConnectException || exception instanceof HttpConnectTimeoutException;
+		return idempotent || notSent ? backoff(attempt) : NO_RETRY;
+	}
+
+	/**
+	 * Checks if a response code is worth retrying
+	 *
+	 * @param statusCode The response code
+	 * @param idempotent If the request is idempotent
+	 * @return {@code true} if the request should be retried
+	 * @since alpha-3.1.0
+	 */
+	private static boolean isRetryable(int statusCode, boolean idempotent) {
+		switch (statusCode) {
+		case 429:
+		case 503:
+			return true;
+		case 408:
+		case 500:
+		case 502:
+		case 504:
+			return idempotent;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Picks the wait before a retry
+	 *
+	 * @param attempt How many times the request has been sent
+	 * @return The wait, in nanoseconds
+	 * @since alpha-3.1.0
+	 */
+	private long backoff(int attempt) {
+		int doublings = Math.min(attempt - 1, 30);
+		// doubling into the sign bit or past it would overflow
+		long cap = doublings < Long.numberOfLeadingZeros(baseDelay) ? baseDelay << doublings : maxDelay;
+		if (cap > maxDelay) {
+			cap = maxDelay;
+		}
+		if (cap == 0) {
+			return 0;
+		}
+		return cap == Long.MAX_VALUE ? ThreadLocalRandom.current().nextLong(cap)
+				: ThreadLocalRandom.current().nextLong(cap + 1);
+	}
+
+	/**
+	 * Reads the {@code Retry-After} header of a response, which is either a
+	 * number of seconds or a date
+	 *
+	 * @param response The response
+	 * @return How long the backend asked to wait, if it did
+	 * @since alpha-3.1.0
+	 */
+	private static Optional<Duration> parseRetryAfter(HttpResponse<?> response) {
+		Optional<String> header = response.headers().firstValue("Retry-After");
+		if (header.isEmpty()) {
+			return Optional.empty();
+		}
+		String value = header.get().trim();
+		try {
+			return Optional.of(Duration.ofSeconds(Math.max(0, Long.parseLong(value))));
+		} catch (NumberFormatException e) {
+			if (!value.isEmpty() && value.chars().allMatch(c -> c >= '0' && c <= '9')) {
+				// too many seconds to count, so longer than any wait
+				return Optional.of(Duration.ofSeconds(Long.MAX_VALUE));
+			}
+			// not a number of seconds, so should be a date
+		}
+		try {
+			Instant when = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+			long millis = Math.max(0, when.toEpochMilli() - System.currentTimeMillis());
+			return Optional.of(Duration.ofMillis(millis));
+		} catch (DateTimeParseException e) {
+			return Optional.empty();
+		}
+	}
+}
@@ -1,12 +1,14 @@
 package com.tidepool.tidepoolsdkjava;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
 import com.tidepool.tidepoolsdkjava.config.TidepoolBackendConfig;
 
 /**
- * A request that has the "key=value&amp;key=value" as it's body
+ * A request that has the "key=value&amp;key=value" as it's body, with the keys
+ * and values percent encoded
  * 
  * @since alpha-0.2.0
  */
@@ -53,14 +55,15 @@ public abstract class UrlEncodedRequest extends BaseRequest {
 	 */
 	@Override
 	protected final byte[] getPackage() {
-		String result = "";
+		StringBuilder result = new StringBuilder(64 * bodyParams.size());
 		for (Map.Entry<String, String> pair : bodyParams.entrySet()) {
-			result = result.concat(pair.getKey());
-			result = result.concat("=");
-			result = result.concat(pair.getValue());
-			result = result.concat("&");
+			if (result.length() > 0) {
+				result.append('&');
+			}
+			percentEncode(result, pair.getKey());
+			result.append('=');
+			percentEncode(result, pair.getValue());
 		}
-		result = result.substring(0, result.length() - 1);
-		return result.getBytes();
+		return result.toString().getBytes(StandardCharsets.UTF_8);
 	}
 }
@@ -3,10 +3,12 @@ package com.tidepool.tidepoolsdkjava.authentication;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.json.JSONObject;
 
 import com.tidepool.tidepoolsdkjava.BodylessRequest;
+import com.tidepool.tidepoolsdkjava.RequestTemplate;
 import com.tidepool.tidepoolsdkjava.config.TidepoolBackendConfig;
 
 
@@ -37,6 +39,32 @@ public class GetGroupsForUser extends BodylessRequest {
 		this.userId = userId;
 	}
 
+	/**
+	 * Creates a {@link GetGroupsForUser} request from a template made by
+	 * {@link #prepare(TidepoolBackendConfig)}
+	 * 
+	 * @param template The template
+	 * @param userId   The user id
+	 * @since alpha-3.1.0
+	 */
+	public GetGroupsForUser(RequestTemplate template, String userId) {
+		super(template, userId);
+		this.userId = userId;
+	}
+
+	/**
+	 * Prepares a template for {@link GetGroupsForUser} requests, whose URI is
+	 * worked out once, and which can be used to create requests for many user
+	 * ids with {@link #GetGroupsForUser(RequestTemplate, String)}
+	 * 
+	 * @param cnf The {@link TidepoolBackendConfig backend configuration} to use
+	 * @return a {@link RequestTemplate}
+	 * @since alpha-3.1.0
+	 */
+	public static RequestTemplate prepare(TidepoolBackendConfig cnf) {
+		return new RequestTemplate.Builder(cnf, "/access/groups/{}").build();
+	}
+
 	/**
 	 * @since alpha-2.1.0
 	 */
@@ -45,6 +73,14 @@ public class GetGroupsForUser extends BodylessRequest {
 		return String.format("/access/groups/%s", userId);
 	}
 
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	protected String getURITemplate() {
+		return "/access/groups/{userId}";
+	}
+
 	/**
 	 * @since alpha-2.1.0
 	 */
@@ -128,6 +164,14 @@ public class GetGroupsForUser extends BodylessRequest {
 		return super.getJsonObject();
 	}
 
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public CompletableFuture<GetGroupsForUser> sendAsync() {
+		return super.sendAsync().thenApply(GetGroupsForUser.class::cast);
+	}
+
 	@Override
 	protected String accept() {
 		return "application/json";
@@ -1,8 +1,10 @@
 package com.tidepool.tidepoolsdkjava.authentication;
 
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.json.JSONObject;
 
@@ -37,7 +39,7 @@ public class ObtainToken extends UrlEncodedRequest {
 		 * 
 		 * @since alpha-3.0.0
 		 */
-		private Map<String, String> bodyParams;
+		private final Map<String, String> bodyParams = new HashMap<>();
 
 		/**
 		 * Creates a Builder for {@link ObtainToken}
@@ -54,7 +56,7 @@ public class ObtainToken extends UrlEncodedRequest {
 						"Expected \"refresh_token\" or \"authorization_code\" or \"urn:ietf:params:oauth:grant-type:token-exchange\", but was: \""
 								+ grantType + "\"");
 			}
-			bodyParams.put("grant_type", "grant_type");
+			bodyParams.put("grant_type", grantType);
 			bodyParams.put("client_id", cnf.getClientID());
 
 		}
@@ -193,6 +195,14 @@ public class ObtainToken extends UrlEncodedRequest {
 		return String.format("/realms/%s/protocol/openid-connect/token", cnf.getEnvironmentRealm());
 	}
 
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	protected String getURITemplate() {
+		return "/realms/{realm}/protocol/openid-connect/token";
+	}
+
 	/**
 	 * @since alpha-3.0.0
 	 */
@@ -222,7 +232,25 @@ public class ObtainToken extends UrlEncodedRequest {
 	 */
 	@Override
 	protected Map<Environment, String> getEnvMap() {
-		Map<Environment, String> result = new HashMap<>();
+		return AUTH_ENV_MAP;
+	}
+
+	/**
+	 * Maps each environment to its auth server address. Built once, as it never
+	 * changes.
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private static final Map<Environment, String> AUTH_ENV_MAP = createAuthEnvMap();
+
+	/**
+	 * Creates the {@link #AUTH_ENV_MAP}
+	 * 
+	 * @return A map mapping the environment to the auth server address
+	 * @since alpha-3.1.0
+	 */
+	private static Map<Environment, String> createAuthEnvMap() {
+		Map<Environment, String> result = new EnumMap<>(Environment.class);
 		result.put(Environment.dev, "https://auth.dev.tidepool.org");
 		result.put(Environment.int_, "https://auth.external.tidepool.org");
 		result.put(Environment.prod, "https://auth.tidepool.org");
@@ -240,6 +268,14 @@ public class ObtainToken extends UrlEncodedRequest {
 		return super.getJsonObject();
 	}
 
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public CompletableFuture<ObtainToken> sendAsync() {
+		return super.sendAsync().thenApply(ObtainToken.class::cast);
+	}
+
 	/**
 	 * @since alpha-2.1.0
 	 */
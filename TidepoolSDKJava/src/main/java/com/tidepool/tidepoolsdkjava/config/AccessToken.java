@@ -0,0 +1,243 @@
+package com.tidepool.tidepoolsdkjava.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * An immutable snapshot of an access token, and the refresh token that came
+ * with it.
+ * <br>
+ * When each token expires is worked out once, when the token is recieved, as a
+ * deadline in {@link System#nanoTime()} time, so checking if a token is still
+ * valid doesn't depend on the wall clock, and is only a subtraction.
+ *
+ * @since alpha-3.1.0
+ */
+final class AccessToken {
+	/**
+	 * The access token
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String accessToken;
+	/**
+	 * The refresh token, or {@code null} if there wasn't one
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String refreshToken;
+	/**
+	 * When the token was recieved, in {@link System#nanoTime()} time
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long recievedAt;
+	/**
+	 * When the access token expires, in {@link System#nanoTime()} time
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long accessDeadline;
+	/**
+	 * When the refresh token expires, in {@link System#nanoTime()} time
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long refreshDeadline;
+	/**
+	 * How long the access token is valid for, in seconds
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long expiresIn;
+	/**
+	 * How long the refresh token is valid for, in seconds, or a negative number
+	 * if it isn't known
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long refreshExpiresIn;
+
+	/**
+	 * Creates an {@link AccessToken}
+	 *
+	 * @param accessToken      The access token
+	 * @param refreshToken     The refresh token, or {@code null}
+	 * @param recievedAt       When the token was recieved, in
+	 *                         {@link System#nanoTime()} time
+	 * @param expiresIn        How long the access token is valid for, in seconds
+	 * @param refreshExpiresIn How long the refresh token is valid for, in
+	 *                         seconds, or a negative number if it isn't known
+	 * @since alpha-3.1.0
+	 */
+	AccessToken(String accessToken, String refreshToken, long recievedAt, long expiresIn, long refreshExpiresIn) {
+		this(accessToken, refreshToken, recievedAt, expiresIn, refreshExpiresIn,
+				recievedAt + TimeUnit.SECONDS.toNanos(Math.max(0, refreshExpiresIn)));
+	}
+
+	/**
+	 * Creates an {@link AccessToken} whose refresh token may have been recieved
+	 * earlier than the access token
+	 *
+	 * @param accessToken      The access token
+	 * @param refreshToken     The refresh token, or {@code null}
+	 * @param recievedAt       When the access token was recieved, in
+	 *                         {@link System#nanoTime()} time
+	 * @param expiresIn        How long the access token is valid for, in seconds
+	 * @param refreshExpiresIn How long the refresh token is valid for, in
+	 *                         seconds, or a negative number if it isn't known
+	 * @param refreshDeadline  When the refresh token expires, in
+	 *                         {@link System#nanoTime()} time
+	 * @since alpha-3.1.0
+	 */
+	private AccessToken(String accessToken, String refreshToken, long recievedAt, long expiresIn,
+			long refreshExpiresIn, long refreshDeadline) {
+		this.accessToken = accessToken;
+		this.refreshToken = refreshToken;
+		this.recievedAt = recievedAt;
+		this.accessDeadline = recievedAt + TimeUnit.SECONDS.toNanos(expiresIn);
+		this.refreshDeadline = refreshDeadline;
+		this.expiresIn = expiresIn;
+		this.refreshExpiresIn = refreshExpiresIn;
+	}
+
+	/**
+	 * Creates an {@link AccessToken} that only has a refresh token, whose expiry
+	 * isn't known, so that an access token can be obtained with it
+	 *
+	 * @param refreshToken The refresh token
+	 * @param recievedAt   The current {@link System#nanoTime()}
+	 * @return The token
+	 * @since alpha-3.1.0
+	 */
+	static AccessToken ofRefreshToken(String refreshToken, long recievedAt) {
+		return new AccessToken(null, refreshToken, recievedAt, 0, -1);
+	}
+
+	/**
+	 * Reads an {@link AccessToken} from the reply to an
+	 * {@link com.tidepool.tidepoolsdkjava.authentication.ObtainToken} request.
+	 * <br>
+	 * A reply to a refresh doesn't have to include a new refresh token, in which
+	 * case the previous one is kept, along with when it expires.
+	 *
+	 * @param json       The reply
+	 * @param recievedAt When the reply was recieved, in {@link System#nanoTime()}
+	 *                   time
+	 * @param previous   The tokens the reply replaces, or {@code null} if there
+	 *                   weren't any
+	 * @return The token
+	 * @throws RuntimeException If the reply isn't valid
+	 * @since alpha-3.1.0
+	 */
+	static AccessToken fromJson(JSONObject json, long recievedAt, AccessToken previous) {
+		try {
+			String refreshToken = json.optString("refresh_token", null);
+			if (refreshToken == null && previous != null && previous.refreshToken != null) {
+				return new AccessToken(json.getString("access_token"), previous.refreshToken, recievedAt,
+						json.getLong("expires_in"), previous.refreshExpiresIn, previous.refreshDeadline);
+			}
+			// getLong also accepts numbers sent as strings, which refresh_expires_in has been
+			return new AccessToken(json.getString("access_token"), refreshToken, recievedAt,
+					json.getLong("expires_in"), json.optLong("refresh_expires_in", -1));
+		} catch (JSONException e) {
+			throw new RuntimeException("Recieved invalid json", e);
+		}
+	}
+
+	/**
+	 * Gets the access token
+	 *
+	 * @return The access token
+	 * @since alpha-3.1.0
+	 */
+	String getAccessToken() {
+		return accessToken;
+	}
+
+	/**
+	 * Gets the refresh token
+	 *
+	 * @return The refresh token, or {@code null} if there isn't one
+	 * @since alpha-3.1.0
+	 */
+	String getRefreshToken() {
+		return refreshToken;
+	}
+
+	/**
+	 * Gets when the token was recieved
+	 *
+	 * @return When the token was recieved, in {@link System#nanoTime()} time
+	 * @since alpha-3.1.0
+	 */
+	long getRecievedAt() {
+		return recievedAt;
+	}
+
+	/**
+	 * Gets when the access token expires
+	 *
+	 * @return When the access token expires, in {@link System#nanoTime()} time
+	 * @since alpha-3.1.0
+	 */
+	long getAccessDeadline() {
+		return accessDeadline;
+	}
+
+	/**
+	 * Gets when the refresh token expires
+	 *
+	 * @return When the refresh token expires, in {@link System#nanoTime()} time
+	 * @since alpha-3.1.0
+	 */
+	long getRefreshDeadline() {
+		return refreshDeadline;
+	}
+
+	/**
+	 * Gets how long the access token is valid for
+	 *
+	 * @return How long the access token is valid for, in seconds
+	 * @since alpha-3.1.0
+	 */
+	long getExpiresIn() {
+		return expiresIn;
+	}
+
+	/**
+	 * Gets how long the refresh token is valid for
+	 *
+	 * @return How long the refresh token is valid for, in seconds, or a negative
+	 *         number if it isn't known
+	 * @since alpha-3.1.0
+	 */
+	long getRefreshExpiresIn() {
+		return refreshExpiresIn;
+	}
+
+	/**
+	 * Checks if the access token is still valid
+	 *
+	 * @param now The current {@link System#nanoTime()}
+	 * @return {@code true} if the access token hasn't expired
+	 * @since alpha-3.1.0
+	 */
+	boolean isAccessValid(long now) {
+		return accessToken != null && now - accessDeadline < 0;
+	}
+
+	/**
+	 * Checks if the refresh token can still be used
+	 *
+	 * @param now The current {@link System#nanoTime()}
+	 * @return {@code true} if there is a refresh token, and it isn't known to
+	 *         have expired
+	 * @since alpha-3.1.0
+	 */
+	boolean isRefreshValid(long now) {
+		return refreshToken != null && (refreshExpiresIn < 0 || now - refreshDeadline < 0);
+	}
+}
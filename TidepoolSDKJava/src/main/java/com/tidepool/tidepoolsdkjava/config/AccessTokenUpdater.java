@@ -1,121 +1,62 @@
 package com.tidepool.tidepoolsdkjava.config;
 
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
-
-import org.json.JSONObject;
-
-import com.tidepool.tidepoolsdkjava.authentication.ObtainToken;
-
+/**
+ * Keeps an access token updated in the background
+ * 
+ * @deprecated Use {@link TokenRefresher}, which this now delegates to
+ */
+@Deprecated
 public class AccessTokenUpdater implements AutoCloseable {
-	private static ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
-
-	private ObtainToken createRequest() {
-		if (refreshToken != null && refreshTokenExpiry != null && Instant.now().isBefore(refreshTokenExpiry)) {
-			ObtainToken.Builder builder = new ObtainToken.Builder("refresh_token", config);
-			builder.setRefreshToken(refreshToken);
-			ObtainToken runnable = builder.build();
-			runnable.addOnFailureListener(this::onFailure);
-			runnable.addOnSuccessListener(this::onSuccess);
-			return runnable;
-		} else {
-			refreshToken = null;
-			refreshTokenExpiry = null;
-			// TODO: Deal with expiry better
-			throw new IllegalStateException("Refresh Token Expired");
-		}
-	}
+	/**
+	 * The refresher that does the updating, or {@code null} if not started
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private TokenRefresher refresher;
+	/**
+	 * The configuration whose token is updated
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private TidepoolBackendConfig config;
 
+	/**
+	 * Gets the current access token
+	 * 
+	 * @return the current access token
+	 * @throws IllegalStateException If this wasn't started with the start method
+	 */
 	public String getAccessToken() {
-		if (accessTokenExpiry != null && Instant.now().isAfter(accessTokenExpiry)) {
-			accessToken = null;
-			accessTokenExpiry = null;
+		if (config == null) {
+			throw new IllegalStateException("Did not start background thread with the start method");
 		}
-		if (accessToken == null) {
-			if (task.getDelay(TimeUnit.MILLISECONDS) > 500) {
-				task.cancel(false);
-				runnable = createRequest();
-				executor.schedule(runnable, 0, TimeUnit.SECONDS);
-			}
-			try {
-				runnable.awaitCompletion();
-			} catch (InterruptedException e) {
-				Thread.currentThread().interrupt();
-			} catch (IllegalStateException | NullPointerException e) {
-				throw new IllegalStateException("Did not start background thread with the start method", e);
-			}
-		}
-		return accessToken;
+		return config.getAccessToken();
 	}
 
-	private ScheduledFuture<?> task;
-	private ObtainToken runnable;
-	private Instant lastAccess;
-
-	private Instant accessTokenExpiry;
-	private Instant refreshTokenExpiry;
-
-	private String accessToken;
-	private String refreshToken;
-
-	private TidepoolBackendConfig config;
-
 	/**
 	 * Starts updating the access token
 	 * 
-	 * @param token
+	 * @param config       The configuration whose token is updated
+	 * @param refreshToken The refresh token to start with
 	 */
 	public void start(TidepoolBackendConfig config, String refreshToken) {
-		if (task != null) {
-			task.cancel(true);
+		if (refresher != null) {
+			refresher.close();
 		}
 		this.config = config;
-		this.refreshToken = refreshToken;
-		runnable = createRequest();
-		task = executor.schedule(runnable, 0, TimeUnit.SECONDS);
-	}
-
-	private void onSuccess(int code) {
-		JSONObject json = runnable.getJsonObject();
-		Instant now = Instant.now();
-		accessToken = json.getString("acess_token");
-		long expires_in = json.getLong("expires_in");
-		accessTokenExpiry = now.plusSeconds(expires_in);
-		refreshToken = json.getString("refresh_token");
-		long refresh_expires_in = json.getLong("refresh_expires_in");
-		refreshTokenExpiry = now.plusSeconds(refresh_expires_in);
-
-		long delay = expires_in - 2;
-
-		if (lastAccess.plus(expires_in * 2, ChronoUnit.SECONDS).isAfter(now)) {
-			delay = refresh_expires_in - 4;
-		}
-
-		if (delay < 0) {
-			delay = 0;
-		}
-
-		runnable = createRequest();
-		task = executor.schedule(runnable, delay, TimeUnit.SECONDS);
-	}
-
-	private void onFailure(int code) {
-		// TODO: do meaningful things in here (like only close if it is unrecoverable)
-		close();
+		refresher = new TokenRefresher.Builder(config).build();
+		refresher.start(refreshToken);
 	}
 
+	/**
+	 * Stops updating the access token
+	 */
 	@Override
 	public void close() {
-		task.cancel(true);
-		task = null;
-		runnable = null;
-		lastAccess = null;
-		accessTokenExpiry = null;
-		refreshTokenExpiry = null;
+		if (refresher != null) {
+			refresher.close();
+		}
+		refresher = null;
 		config = null;
 	}
 }
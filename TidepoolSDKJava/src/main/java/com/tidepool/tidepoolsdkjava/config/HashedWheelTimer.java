@@ -0,0 +1,306 @@
+package com.tidepool.tidepoolsdkjava.config;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A timer that keeps its timeouts in a hashed timing wheel, so scheduling and
+ * cancelling a timeout are constant time no matter how many are pending.
+ * <br>
+ * The wheel is a ring of buckets, and a single thread moves to the next bucket
+ * every tick, running the timeouts in it that are due. A timeout further away
+ * than one turn of the wheel waits in its bucket for the right number of
+ * rounds. Timeouts only fire on a tick, so they can be up to a tick late,
+ * which is fine for work such as refreshing tokens.
+ * <br>
+ * Timeouts run on the timer's thread, and so should be quick, handing any
+ * real work elsewhere.
+ * <br>
+ * Thread safe.
+ *
+ * @since alpha-3.1.0
+ */
+final class HashedWheelTimer implements AutoCloseable {
+	/**
+	 * A pending timeout
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final class Timeout {
+		/**
+		 * The state of a timeout that is waiting to fire
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private static final int PENDING = 0;
+		/**
+		 * The state of a timeout that was cancelled
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private static final int CANCELLED = 1;
+		/**
+		 * The state of a timeout that has fired
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private static final int EXPIRED = 2;
+		/**
+		 * Updates {@link #state}
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private static final AtomicIntegerFieldUpdater<Timeout> STATE = AtomicIntegerFieldUpdater
+				.newUpdater(Timeout.class, "state");
+
+		/**
+		 * What to run when the timeout fires
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final Runnable task;
+		/**
+		 * When the timeout fires, in nanoseconds since the timer started
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final long deadline;
+		/**
+		 * How many more turns of the wheel to wait
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private long remainingRounds;
+		/**
+		 * The next timeout in the same bucket
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Timeout next;
+		/**
+		 * {@link #PENDING}, {@link #CANCELLED} or {@link #EXPIRED}
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private volatile int state = PENDING;
+
+		/**
+		 * Creates a {@link Timeout}
+		 *
+		 * @param task     What to run
+		 * @param deadline When to run it, in nanoseconds since the timer started
+		 * @since alpha-3.1.0
+		 */
+		private Timeout(Runnable task, long deadline) {
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * Cancels the timeout, if it hasn't fired yet
+		 *
+		 * @return {@code true} if it was cancelled, or {@code false} if it had
+		 *         already fired or been cancelled
+		 * @since alpha-3.1.0
+		 */
+		boolean cancel() {
+			// the timeout is dropped from its bucket the next time the bucket is visited
+			return STATE.compareAndSet(this, PENDING, CANCELLED);
+		}
+
+		/**
+		 * Fires the timeout, if it wasn't cancelled
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private void expire() {
+			if (STATE.compareAndSet(this, PENDING, EXPIRED)) {
+				try {
+					task.run();
+				} catch (RuntimeException e) {
+					// a failing task must not stop the timer
+				}
+			}
+		}
+	}
+
+	/**
+	 * How long a tick is, in nanoseconds
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long tickNanos;
+	/**
+	 * The buckets, each the head of a list of timeouts
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Timeout[] wheel;
+	/**
+	 * Used to find the bucket of a tick, as the wheel size is a power of two
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final int mask;
+	/**
+	 * Timeouts that were scheduled since the last tick, waiting to be put into
+	 * the wheel by the timer's thread
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+	/**
+	 * The {@link System#nanoTime()} when the timer started
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long startTime;
+	/**
+	 * The thread that turns the wheel
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Thread worker;
+	/**
+	 * If the timer has been closed
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * Creates and starts a {@link HashedWheelTimer}
+	 *
+	 * @param tickDuration  How long a tick is
+	 * @param unit          The unit of {@code tickDuration}
+	 * @param ticksPerWheel How many buckets the wheel has, rounded up to a power
+	 *                      of two
+	 * @param threadFactory Creates the thread that turns the wheel
+	 * @since alpha-3.1.0
+	 */
+	HashedWheelTimer(long tickDuration, TimeUnit unit, int ticksPerWheel, ThreadFactory threadFactory) {
+		if (tickDuration <= 0 || ticksPerWheel < 1 || ticksPerWheel > 1 << 30) {
+			throw new IllegalArgumentException("Invalid tick duration or wheel size");
+		}
+		tickNanos = unit.toNanos(tickDuration);
+		int size = 1;
+		while (size < ticksPerWheel) {
+			size <<= 1;
+		}
+		wheel = new Timeout[size];
+		mask = wheel.length - 1;
+		startTime = System.nanoTime();
+		worker = threadFactory.newThread(this::turn);
+		worker.start();
+	}
+
+	/**
+	 * Schedules a task to run once after a delay
+	 *
+	 * @param task  The task, which should be quick
+	 * @param delay How long to wait
+	 * @param unit  The unit of {@code delay}
+	 * @return The {@link Timeout}, which can be cancelled
+	 * @throws IllegalStateException If the timer has been closed
+	 * @since alpha-3.1.0
+	 */
+	Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+		if (closed) {
+			throw new IllegalStateException("The timer has been closed");
+		}
+		Timeout timeout = new Timeout(task, System.nanoTime() - startTime + Math.max(0, unit.toNanos(delay)));
+		pending.add(timeout);
+		return timeout;
+	}
+
+	/**
+	 * Turns the wheel until the timer is closed
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private void turn() {
+		long tick = 0;
+		while (!closed) {
+			long deadline = tickNanos * (tick + 1);
+			long sleep = deadline - (System.nanoTime() - startTime);
+			if (sleep > 0) {
+				try {
+					TimeUnit.NANOSECONDS.sleep(sleep);
+				} catch (InterruptedException e) {
+					if (closed) {
+						return;
+					}
+					continue;
+				}
+			}
+			transferPending(tick);
+			expireBucket(tick & mask);
+			tick++;
+		}
+	}
+
+	/**
+	 * Puts the timeouts scheduled since the last tick into their buckets
+	 *
+	 * @param tick The current tick
+	 * @since alpha-3.1.0
+	 */
+	private void transferPending(long tick) {
+		Timeout timeout;
+		while ((timeout = pending.poll()) != null) {
+			if (timeout.state != Timeout.PENDING) {
+				continue;
+			}
+			long calculated = timeout.deadline / tickNanos;
+			timeout.remainingRounds = (calculated - tick) / wheel.length;
+			// a timeout that is already due goes into the current bucket
+			int bucket = (int) (Math.max(calculated, tick) & mask);
+			timeout.next = wheel[bucket];
+			wheel[bucket] = timeout;
+		}
+	}
+
+	/**
+	 * Fires the due timeouts of a bucket, and drops the cancelled ones
+	 *
+	 * @param bucket The bucket
+	 * @since alpha-3.1.0
+	 */
+	private void expireBucket(long bucket) {
+		int index = (int) bucket;
+		Timeout kept = null;
+		Timeout timeout = wheel[index];
+		wheel[index] = null;
+		while (timeout != null) {
+			Timeout next = timeout.next;
+			timeout.next = null;
+			if (timeout.state == Timeout.PENDING) {
+				if (timeout.remainingRounds <= 0) {
+					timeout.expire();
+				} else {
+					timeout.remainingRounds--;
+					timeout.next = kept;
+					kept = timeout;
+				}
+			}
+			timeout = next;
+		}
+		// timeouts scheduled by the fired tasks are still in pending, so nothing
+		// else was put into this bucket in the meantime
+		wheel[index] = kept;
+	}
+
+	/**
+	 * Stops the timer. Timeouts that haven't fired never will.
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		worker.interrupt();
+	}
+}
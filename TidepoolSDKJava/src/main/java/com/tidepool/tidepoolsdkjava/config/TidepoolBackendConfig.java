@@ -1,19 +1,28 @@
 package com.tidepool.tidepoolsdkjava.config;
 
-import java.util.concurrent.CountDownLatch;
-import java.util.function.Consumer;
-import java.util.function.IntConsumer;
+import java.net.http.HttpClient;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
-import org.json.JSONException;
 import org.json.JSONObject;
 
+import com.tidepool.tidepoolsdkjava.BaseRequest.RequestStatus;
+import com.tidepool.tidepoolsdkjava.CircuitBreaker;
+import com.tidepool.tidepoolsdkjava.ConditionalResponseCache;
+import com.tidepool.tidepoolsdkjava.RateLimiter;
+import com.tidepool.tidepoolsdkjava.RequestCoalescer;
+import com.tidepool.tidepoolsdkjava.RetryPolicy;
+import com.tidepool.tidepoolsdkjava.metrics.RequestMetrics;
+
 /**
  * Represents a configuration for interfacing with the tidepool backend
  * 
  * @since alpha-0.0.1
  */
 public class TidepoolBackendConfig {
-	private CountDownLatch tokenLatch = new CountDownLatch(1);
 	/**
 	 * The client id of this application
 	 * 
@@ -28,76 +37,464 @@ public class TidepoolBackendConfig {
 	private final Environment env;
 
 	/**
-	 * The current access token
+	 * The current tokens, or {@code null} if there aren't any yet. Replaced as a
+	 * whole whenever the tokens are refreshed, so readers always see an access
+	 * token together with its own expiry.
 	 * 
-	 * @since alpha-0.0.1
+	 * @since alpha-3.1.0
 	 */
-	private String currentAccessToken;
+	private final AtomicReference<AccessToken> token = new AtomicReference<>();
 	/**
-	 * The current refresh token
+	 * The refresh that is in flight, or {@code null} if there isn't one. Every
+	 * caller that needs a new token waits on the same refresh.
 	 * 
-	 * @since alpha-0.0.1
+	 * @since alpha-3.1.0
 	 */
-	private String currentRefreshToken;
+	private final AtomicReference<CompletableFuture<AccessToken>> refreshing = new AtomicReference<>();
 	/**
-	 * How long it takes from recieving the access for it to expire
+	 * The {@link HttpClient} that every request made with this configuration is
+	 * sent through. The client keeps its connections alive per host, so the api
+	 * and auth hosts each keep their own pooled connections across requests.
 	 * 
-	 * @since alpha-0.0.1
+	 * @since alpha-3.1.0
 	 */
-	private int expiresIn;
+	private final HttpClient httpClient;
 	/**
-	 * How long it takes from recieving the refresh token for it to expire
+	 * The settings of how requests made with this configuration are sent
 	 * 
-	 * @since alpha-0.0.1
+	 * @since alpha-3.1.0
 	 */
-	private int refreshExpiresIn;
+	private final TransportConfig transport;
 	/**
-	 * When the current access token was recieved (with
-	 * {@link System#currentTimeMillis()})
+	 * The cache that responses of requests made with this configuration are
+	 * revalidated against, or {@code null} if they aren't cached
 	 * 
-	 * @since alpha-0.0.1
+	 * @since alpha-3.1.0
+	 */
+	private volatile ConditionalResponseCache responseCache;
+	/**
+	 * Coalesces identical requests made with this configuration that are in
+	 * flight at the same time, or {@code null} if they aren't coalesced
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private volatile RequestCoalescer requestCoalescer;
+	/**
+	 * If responses are asked for compressed
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private volatile boolean compressionEnabled;
+	/**
+	 * The limiters of how often requests are sent, by the host they are sent to
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private final Map<String, RateLimiter> rateLimiters = new ConcurrentHashMap<>();
+	/**
+	 * Decides if failed requests made with this configuration are retried, or
+	 * {@code null} if they aren't
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private volatile RetryPolicy retryPolicy;
+	/**
+	 * The breakers that stop requests to failing hosts, by the host they are
+	 * sent to
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+	/**
+	 * The address every request is sent to instead of the one of its
+	 * environment, or {@code null}
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private volatile String serverAddressOverride;
+	/**
+	 * Where requests made with this configuration, and refreshes of its access
+	 * token, are recorded, or {@code null} if they aren't
+	 * 
+	 * @since alpha-3.1.0
 	 */
-	private long recievedToken;
+	private volatile RequestMetrics metrics;
+
+	/**
+	 * If the JDK Flight Recorder is part of the runtime, so its events can be
+	 * used
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private static final boolean FLIGHT_RECORDER = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+
+	/**
+	 * Lazily creates the {@link HttpClient} shared by every configuration that
+	 * wasn't given its own client
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private static final class SharedClientHolder {
+		/**
+		 * The shared client
+		 * 
+		 * @since alpha-3.1.0
+		 */
+		private static final HttpClient CLIENT = TransportConfig.DEFAULT.createHttpClient();
+	}
 
 	/**
 	 * Creates a configuration to access the tidepool backend.
+	 * Requests made with this configuration use a {@link HttpClient} shared by
+	 * all configurations.
 	 * 
 	 * @param env       The {@link Environment} that you are interfacing with
 	 * @param client_id The starting {@code client_id}
 	 * @since alpha-0.0.1
 	 */
 	public TidepoolBackendConfig(Environment env, String client_id) {
+		this(env, client_id, SharedClientHolder.CLIENT);
+	}
+
+	/**
+	 * Creates a configuration to access the tidepool backend, that sends its
+	 * requests through the given {@link HttpClient}.
+	 * 
+	 * @param env        The {@link Environment} that you are interfacing with
+	 * @param client_id  The starting {@code client_id}
+	 * @param httpClient The {@link HttpClient} to send requests through
+	 * @since alpha-3.1.0
+	 */
+	public TidepoolBackendConfig(Environment env, String client_id, HttpClient httpClient) {
+		this(env, client_id, httpClient, TransportConfig.DEFAULT);
+	}
+
+	/**
+	 * Creates a configuration to access the tidepool backend, that sends its
+	 * requests through its own {@link HttpClient}, created with the given
+	 * {@link TransportConfig settings}.
+	 * 
+	 * @param env       The {@link Environment} that you are interfacing with
+	 * @param client_id The starting {@code client_id}
+	 * @param transport The settings of how requests are sent
+	 * @since alpha-3.1.0
+	 */
+	public TidepoolBackendConfig(Environment env, String client_id, TransportConfig transport) {
+		this(env, client_id, transport.createHttpClient(), transport);
+	}
+
+	/**
+	 * Creates a configuration to access the tidepool backend
+	 * 
+	 * @param env        The {@link Environment} that you are interfacing with
+	 * @param client_id  The starting {@code client_id}
+	 * @param httpClient The {@link HttpClient} to send requests through
+	 * @param transport  The settings of how requests are sent
+	 * @since alpha-3.1.0
+	 */
+	private TidepoolBackendConfig(Environment env, String client_id, HttpClient httpClient,
+			TransportConfig transport) {
+		if (httpClient == null) {
+			throw new IllegalArgumentException("httpClient must not be null");
+		}
 		this.env = env;
 		this.client_id = client_id;
+		this.httpClient = httpClient;
+		this.transport = transport;
+	}
+
+	/**
+	 * Gets the {@link #httpClient client} that requests made with this
+	 * configuration are sent through
+	 * 
+	 * @return the {@link HttpClient} for this configuration
+	 * @since alpha-3.1.0
+	 */
+	public HttpClient getHttpClient() {
+		return httpClient;
+	}
+
+	/**
+	 * Gets the {@link #transport settings} of how requests made with this
+	 * configuration are sent. If this configuration was given its own
+	 * {@link HttpClient}, only the timeouts of the settings are used.
+	 * 
+	 * @return the {@link TransportConfig} for this configuration
+	 * @since alpha-3.1.0
+	 */
+	public TransportConfig getTransportConfig() {
+		return transport;
+	}
+
+	/**
+	 * Gets the {@link #responseCache cache} that responses are revalidated
+	 * against
+	 * 
+	 * @return the {@link ConditionalResponseCache}, or {@code null} if responses
+	 *         aren't cached
+	 * @since alpha-3.1.0
+	 */
+	public ConditionalResponseCache getResponseCache() {
+		return responseCache;
+	}
+
+	/**
+	 * Sets the {@link #responseCache cache} that responses are revalidated
+	 * against. Off by default.
+	 * 
+	 * @param responseCache the {@link ConditionalResponseCache} to use, or
+	 *                      {@code null} to stop caching responses
+	 * @since alpha-3.1.0
+	 */
+	public void setResponseCache(ConditionalResponseCache responseCache) {
+		this.responseCache = responseCache;
+	}
+
+	/**
+	 * Gets the {@link #requestCoalescer coalescer} of identical requests in
+	 * flight
+	 * 
+	 * @return the {@link RequestCoalescer}, or {@code null} if requests aren't
+	 *         coalesced
+	 * @since alpha-3.1.0
+	 */
+	public RequestCoalescer getRequestCoalescer() {
+		return requestCoalescer;
+	}
+
+	/**
+	 * Sets the {@link #requestCoalescer coalescer} of identical requests in
+	 * flight, so that identical {@code GET} requests made at the same time share
+	 * one response. Off by default.
+	 * 
+	 * @param requestCoalescer the {@link RequestCoalescer} to use, or
+	 *                         {@code null} to stop coalescing requests
+	 * @since alpha-3.1.0
+	 */
+	public void setRequestCoalescer(RequestCoalescer requestCoalescer) {
+		this.requestCoalescer = requestCoalescer;
+	}
+
+	/**
+	 * Gets if responses are asked for compressed
+	 * 
+	 * @return {@code true} if responses are asked for compressed
+	 * @since alpha-3.1.0
+	 */
+	public boolean isCompressionEnabled() {
+		return compressionEnabled;
+	}
+
+	/**
+	 * Sets if responses are asked for compressed with gzip or deflate, which
+	 * makes large data responses much smaller to transfer. They are decompressed
+	 * as they are parsed. Off by default.
+	 * 
+	 * @param compressionEnabled {@code true} to ask for compressed responses
+	 * @since alpha-3.1.0
+	 */
+	public void setCompressionEnabled(boolean compressionEnabled) {
+		this.compressionEnabled = compressionEnabled;
+	}
+
+	/**
+	 * Gets the address every request is sent to instead of the one of its
+	 * environment
+	 * 
+	 * @return The address, or {@code null} if requests are sent to the address
+	 *         of their environment
+	 * @since alpha-3.1.0
+	 */
+	public String getServerAddressOverride() {
+		return serverAddressOverride;
 	}
 
 	/**
-	 * Gets the current {@link #currentAccessToken access token}
+	 * Sets an address that every request, including the ones to the auth
+	 * server, is sent to instead of the one of its environment, such as a local
+	 * stub server for testing or benchmarking. Off by default.
 	 * 
-	 * @return the current {@link #currentAccessToken access token}
+	 * @param serverAddressOverride The address, such as
+	 *                              {@code http://localhost:8080}, or {@code null}
+	 *                              to use the addresses of the environment
+	 * @since alpha-3.1.0
+	 */
+	public void setServerAddressOverride(String serverAddressOverride) {
+		this.serverAddressOverride = serverAddressOverride;
+	}
+
+	/**
+	 * Gets the {@link RateLimiter} that requests to a host go through
+	 * 
+	 * @param host The host, such as {@code api.tidepool.org}
+	 * @return the {@link RateLimiter}, or {@code null} if requests to the host
+	 *         aren't limited
+	 * @since alpha-3.1.0
+	 */
+	public RateLimiter getRateLimiter(String host) {
+		return rateLimiters.get(host);
+	}
+
+	/**
+	 * Sets the {@link RateLimiter} that requests to a host go through. The api
+	 * host (of {@link Environment#getServerAddress()}) and the auth host are
+	 * limited separately. Requests aren't limited by default.
+	 * 
+	 * @param host        The host, such as {@code api.tidepool.org}
+	 * @param rateLimiter The {@link RateLimiter} to use, or {@code null} to stop
+	 *                    limiting requests to the host
+	 * @since alpha-3.1.0
+	 */
+	public void setRateLimiter(String host, RateLimiter rateLimiter) {
+		if (rateLimiter == null) {
+			rateLimiters.remove(host);
+		} else {
+			rateLimiters.put(host, rateLimiter);
+		}
+	}
+
+	/**
+	 * Gets the {@link #retryPolicy policy} that decides if failed requests are
+	 * retried
+	 * 
+	 * @return the {@link RetryPolicy}, or {@code null} if requests aren't retried
+	 * @since alpha-3.1.0
+	 */
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	/**
+	 * Sets the {@link #retryPolicy policy} that decides if failed requests are
+	 * retried. Requests can override it with
+	 * {@link com.tidepool.tidepoolsdkjava.BaseRequest#setRetryPolicy(RetryPolicy)}.
+	 * Requests aren't retried by default.
+	 * 
+	 * @param retryPolicy the {@link RetryPolicy} to use, or {@code null} to stop
+	 *                    retrying requests
+	 * @since alpha-3.1.0
+	 */
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
+	/**
+	 * Gets the {@link CircuitBreaker} that requests to a host go through
+	 * 
+	 * @param host The host, such as {@code api.tidepool.org}
+	 * @return the {@link CircuitBreaker}, or {@code null} if requests to the host
+	 *         don't go through one
+	 * @since alpha-3.1.0
+	 */
+	public CircuitBreaker getCircuitBreaker(String host) {
+		return circuitBreakers.get(host);
+	}
+
+	/**
+	 * Sets the {@link CircuitBreaker} that requests to a host go through. The api
+	 * host (of {@link Environment#getServerAddress()}) and the auth host each
+	 * need their own breaker. Requests don't go through one by default.
+	 * 
+	 * @param host           The host, such as {@code api.tidepool.org}
+	 * @param circuitBreaker The {@link CircuitBreaker} to use, or {@code null} to
+	 *                       stop using one for the host
+	 * @since alpha-3.1.0
+	 */
+	public void setCircuitBreaker(String host, CircuitBreaker circuitBreaker) {
+		if (circuitBreaker == null) {
+			circuitBreakers.remove(host);
+		} else {
+			circuitBreakers.put(host, circuitBreaker);
+		}
+	}
+
+	/**
+	 * Gets the {@link #metrics registry} that requests are recorded into
+	 * 
+	 * @return the {@link RequestMetrics}, or {@code null} if requests aren't
+	 *         recorded
+	 * @since alpha-3.1.0
+	 */
+	public RequestMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Sets the {@link #metrics registry} that requests, and refreshes of the
+	 * access token, are recorded into. Many configurations can share one
+	 * registry. Off by default.
+	 * 
+	 * @param metrics the {@link RequestMetrics} to use, or {@code null} to stop
+	 *                recording
+	 * @since alpha-3.1.0
+	 */
+	public void setMetrics(RequestMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Gets the current access token, refreshing it first if it has expired.
+	 * <br>
+	 * While the token is valid, this is a single volatile read and never
+	 * blocks. Once it has expired, the calling thread waits on the refresh that
+	 * every caller shares.
+	 * 
+	 * @return the current access token
 	 * @since alpha-0.0.1
 	 */
 	public String getAccessToken() {
-		if (tokenRefreshRequired()) {
-			updateAcessToken();
-			try {
-				tokenLatch.await();
-			} catch (InterruptedException e) {
-				throw new RuntimeException(e);
-			}
-			
+		AccessToken current = token.get();
+		if (current != null && current.isAccessValid(System.nanoTime())) {
+			return current.getAccessToken();
+		}
+		try {
+			return refresh("getAccessToken").join().getAccessToken();
+		} catch (CompletionException e) {
+			throw new RuntimeException("Failed to refresh the access token", e.getCause());
 		}
-		return currentAccessToken;
 	}
 
 	/**
-	 * Gets the current {@link #currentRefreshToken refresh token}
+	 * Gets the current access token without blocking, refreshing it first if it
+	 * has expired.
+	 * <br>
+	 * While the token is valid, the returned {@link CompletableFuture} has
+	 * already completed. Once it has expired, it completes when the refresh that
+	 * every caller shares does.
 	 * 
-	 * @return the current {@link #currentRefreshToken refresh token}
+	 * @return A {@link CompletableFuture} that completes with the current access
+	 *         token, or completes exceptionally if it had to be refreshed and the
+	 *         refresh failed
+	 * @since alpha-3.1.0
+	 * @see #getAccessToken()
+	 */
+	public CompletableFuture<String> getAccessTokenAsync() {
+		AccessToken current = token.get();
+		if (current != null && current.isAccessValid(System.nanoTime())) {
+			return CompletableFuture.completedFuture(current.getAccessToken());
+		}
+		return refresh("getAccessTokenAsync").thenApply(AccessToken::getAccessToken);
+	}
+
+	/**
+	 * Gets the current refresh token
+	 * 
+	 * @return the current refresh token, or {@code null} if there isn't one
 	 * @since alpha-0.0.1
 	 */
 	String getRefreshToken() {
-		return currentRefreshToken;
+		AccessToken current = token.get();
+		return current == null ? null : current.getRefreshToken();
+	}
+
+	/**
+	 * Gets the current tokens
+	 * 
+	 * @return the current {@link AccessToken}, or {@code null} if there isn't one
+	 * @since alpha-3.1.0
+	 */
+	AccessToken getToken() {
+		return token.get();
 	}
 
 	/**
@@ -137,7 +534,8 @@ public class TidepoolBackendConfig {
 	 * @since alpha-0.0.1
 	 */
 	public boolean tokenRefreshRequired() {
-		return System.currentTimeMillis() - recievedToken >= expiresIn * 1_000;
+		AccessToken current = token.get();
+		return current == null || !current.isAccessValid(System.nanoTime());
 	}
 
 	/**
@@ -147,43 +545,168 @@ public class TidepoolBackendConfig {
 	 * @since alpha-0.0.1
 	 */
 	public boolean refreshTokenExpired() {
-		return System.currentTimeMillis() - recievedToken >= refreshExpiresIn * 1_000;
+		AccessToken current = token.get();
+		return current == null || !current.isRefreshValid(System.nanoTime());
 	}
 
 	/**
-	 * Updates the values related to the current {@link #currentAccessToken access
-	 * token}
+	 * Updates the current tokens
 	 * 
 	 * @param json the reply to the https POST request
 	 * @since alpha-0.0.1
 	 */
 	void updateAcessToken(JSONObject json) {
+		token.set(AccessToken.fromJson(json, System.nanoTime(), token.get()));
+	}
+
+	/**
+	 * Sets the refresh token that new access tokens are obtained with, dropping
+	 * the current access token
+	 * 
+	 * @param refreshToken The refresh token
+	 * @since alpha-3.1.0
+	 */
+	public void setRefreshToken(String refreshToken) {
+		token.set(AccessToken.ofRefreshToken(refreshToken, System.nanoTime()));
+	}
+
+	/**
+	 * Updates the acess token using the refresh token, blocking until it has
+	 * been updated
+	 * 
+	 * @since alpha-0.0.1
+	 * @see #refreshAccessToken()
+	 */
+	public void updateAcessToken() {
 		try {
-			currentAccessToken = json.getString("acess_token");
-			expiresIn = json.getInt("expires_in");
-			currentRefreshToken = json.getString("refresh_token");
-			refreshExpiresIn = Integer.parseInt(json.getString("refresh_expires_in"));
-			recievedToken = System.currentTimeMillis();
-		} catch (JSONException e) {
-			throw new RuntimeException("Recieved invalid json", e);
+			refresh("updateAcessToken").join();
+		} catch (CompletionException e) {
+			throw new RuntimeException("Failed to refresh the access token", e.getCause());
 		}
 	}
 
 	/**
-	 * Updates the acess token using the refresh token
+	 * Refreshes the access token using the refresh token, without blocking.
+	 * <br>
+	 * Only one refresh is ever in flight: if one already is, its
+	 * {@link CompletableFuture} is returned instead of starting another.
 	 * 
-	 * @since alpha-0.0.1
+	 * @return A {@link CompletableFuture} that completes with the new access
+	 *         token, or completes exceptionally if the refresh failed
+	 * @since alpha-3.1.0
 	 */
-	public synchronized void updateAcessToken() {
-		if (tokenLatch.getCount() == 0) {
-			tokenLatch = new CountDownLatch(1);
-			UpdateAccessToken request = new UpdateAccessToken(this);
-			IntConsumer update = (code) -> {
-				updateAcessToken(request.getJsonObject());
-				tokenLatch.countDown();
-			};
-			request.addOnSuccessListener(update);
-			request.run();
+	public CompletableFuture<String> refreshAccessToken() {
+		return refresh("refreshAccessToken").thenApply(AccessToken::getAccessToken);
+	}
+
+	/**
+	 * Refreshes the tokens, or joins the refresh that is already in flight
+	 * 
+	 * @param trigger What is asking for the refresh, recorded in the
+	 *                {@link TokenRefreshEvent} if this starts one
+	 * @return A {@link CompletableFuture} that completes with the new tokens, or
+	 *         completes exceptionally if the refresh failed
+	 * @since alpha-3.1.0
+	 */
+	CompletableFuture<AccessToken> refresh(String trigger) {
+		while (true) {
+			CompletableFuture<AccessToken> inFlight = refreshing.get();
+			if (inFlight != null) {
+				RequestMetrics recorder = metrics;
+				if (recorder != null) {
+					recorder.forTokens(client_id).recordJoin();
+				}
+				return inFlight;
+			}
+			CompletableFuture<AccessToken> refresh = new CompletableFuture<>();
+			if (refreshing.compareAndSet(null, refresh)) {
+				startRefresh(refresh, trigger);
+				return refresh;
+			}
+		}
+	}
+
+	/**
+	 * Sends the request that refreshes the tokens, and completes the given
+	 * {@link CompletableFuture} once it has finished
+	 * 
+	 * @param refresh The refresh in flight
+	 * @param trigger What asked for the refresh
+	 * @since alpha-3.1.0
+	 */
+	private void startRefresh(CompletableFuture<AccessToken> refresh, String trigger) {
+		long started = System.nanoTime();
+		TokenRefreshEvent event = FLIGHT_RECORDER && TokenRefreshEvent.enabled() ? new TokenRefreshEvent() : null;
+		if (event != null) {
+			event.begin();
+			event.clientId = client_id;
+			event.environment = env.name();
+			event.trigger = trigger;
+		}
+		if (refreshTokenExpired()) {
+			finishRefresh(refresh, started, event, null,
+					new IllegalStateException("There is no valid refresh token"));
+			return;
+		}
+		UpdateAccessToken request;
+		try {
+			request = new UpdateAccessToken(this);
+		} catch (RuntimeException e) {
+			finishRefresh(refresh, started, event, null, e);
+			return;
+		}
+		request.sendAsync().whenComplete((sent, exception) -> {
+			if (exception != null) {
+				finishRefresh(refresh, started, event, null, exception);
+			} else if (sent.getStatus() != RequestStatus.Success) {
+				finishRefresh(refresh, started, event, null,
+						new IllegalStateException("Refreshing the access token failed with " + sent.getStatus()));
+			} else {
+				try {
+					AccessToken updated = AccessToken.fromJson(sent.getJsonObject(), System.nanoTime(), token.get());
+					token.set(updated);
+					finishRefresh(refresh, started, event, updated, null);
+				} catch (RuntimeException e) {
+					finishRefresh(refresh, started, event, null, e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Ends the refresh in flight, so the next caller that needs a new token
+	 * starts a new one
+	 * 
+	 * @param refresh   The refresh in flight
+	 * @param started   When the refresh started, in {@link System#nanoTime()}
+	 *                  time
+	 * @param event     The flight recorder event of the refresh, or
+	 *                  {@code null} if it isn't recorded
+	 * @param updated   The new tokens, if the refresh succeeded
+	 * @param exception Why the refresh failed, if it did
+	 * @since alpha-3.1.0
+	 */
+	private void finishRefresh(CompletableFuture<AccessToken> refresh, long started, TokenRefreshEvent event,
+			AccessToken updated, Throwable exception) {
+		refreshing.compareAndSet(refresh, null);
+		RequestMetrics recorder = metrics;
+		if (recorder != null) {
+			recorder.forTokens(client_id).recordRefresh(System.nanoTime() - started, exception == null);
+		}
+		if (event != null) {
+			event.succeeded = exception == null;
+			if (exception != null) {
+				Throwable cause = exception instanceof CompletionException && exception.getCause() != null
+						? exception.getCause()
+						: exception;
+				event.failure = cause.toString();
+			}
+			event.commit();
+		}
+		if (exception != null) {
+			refresh.completeExceptionally(exception);
+		} else {
+			refresh.complete(updated);
 		}
 	}
 }
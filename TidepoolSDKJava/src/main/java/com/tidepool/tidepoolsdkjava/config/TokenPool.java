@@ -0,0 +1,583 @@
+package com.tidepool.tidepoolsdkjava.config;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Keeps the access tokens of many accounts fresh in the background, such as
+ * for a service that acts on behalf of many users.
+ * <br>
+ * Unlike a {@link TokenRefresher} per account, the accounts share a single
+ * {@link HashedWheelTimer}, so each account only costs a small entry and a
+ * timeout, and scheduling stays cheap with many thousands of them.
+ * <br>
+ * Each account is renewed once a {@link Builder#setRefreshFraction(double)
+ * fraction} of its {@code expires_in} has passed, moved earlier or later by a
+ * random {@link Builder#setJitter(double) jitter}, so accounts that were added
+ * together don't all refresh at the same moment. On top of that, at most
+ * {@link Builder#setMaxConcurrentRefreshes(int) a few} refreshes are sent to
+ * the auth host at once, and the rest wait their turn. A failed refresh is
+ * tried again after a jittered delay for as long as the refresh token is
+ * still valid. Once it isn't, the account is dropped from the pool, and the
+ * {@link Builder#setDroppedListener(BiConsumer) dropped listener} is told, so
+ * it can be given a new refresh token and added again.
+ * <br>
+ * The refreshes go through {@link TidepoolBackendConfig#refreshAccessToken()},
+ * so a request that finds its token expired joins the same refresh.
+ * <br>
+ * Thread safe.
+ *
+ * @since alpha-3.1.0
+ */
+public class TokenPool implements AutoCloseable {
+	/**
+	 * Used to create a {@link TokenPool}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public static class Builder {
+		/**
+		 * The fraction of {@code expires_in} after which a token is renewed
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private double refreshFraction = 0.75;
+		/**
+		 * How far refreshes are moved, as a fraction of {@code expires_in}
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private double jitter = 0.1;
+		/**
+		 * How many refreshes may be in flight at once
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private int maxConcurrentRefreshes = 4;
+		/**
+		 * How long to wait before trying a failed refresh again
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Duration retryDelay = Duration.ofSeconds(5);
+		/**
+		 * How long a tick of the timer is
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Duration tickDuration = Duration.ofMillis(100);
+		/**
+		 * How many buckets the timer's wheel has
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private int ticksPerWheel = 512;
+		/**
+		 * Told about accounts that are dropped, or {@code null}
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private BiConsumer<TidepoolBackendConfig, Throwable> droppedListener;
+
+		/**
+		 * Creates a builder for {@link TokenPool}
+		 *
+		 * @since alpha-3.1.0
+		 */
+		public Builder() {
+		}
+
+		/**
+		 * Sets the fraction of {@code expires_in} after which a token is renewed.
+		 * Defaults to 0.75
+		 *
+		 * @param refreshFraction The fraction, more than 0 and less than 1
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setRefreshFraction(double refreshFraction) {
+			if (!(refreshFraction > 0 && refreshFraction < 1)) {
+				throw new IllegalArgumentException(
+						"refreshFraction must be between 0 and 1, but was: " + refreshFraction);
+			}
+			this.refreshFraction = refreshFraction;
+			return this;
+		}
+
+		/**
+		 * Sets how far each refresh is randomly moved, as a fraction of
+		 * {@code expires_in}. A jitter of 0.1 with the default refresh fraction
+		 * renews tokens somewhere between 65% and 85% of the way through their
+		 * life. Defaults to 0.1
+		 *
+		 * @param jitter The fraction, at least 0 and less than 1
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setJitter(double jitter) {
+			if (!(jitter >= 0 && jitter < 1)) {
+				throw new IllegalArgumentException("jitter must be between 0 and 1, but was: " + jitter);
+			}
+			this.jitter = jitter;
+			return this;
+		}
+
+		/**
+		 * Sets how many refreshes may be sent to the auth host at once. Defaults
+		 * to 4
+		 *
+		 * @param maxConcurrentRefreshes How many refreshes, at least 1
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setMaxConcurrentRefreshes(int maxConcurrentRefreshes) {
+			this.maxConcurrentRefreshes = maxConcurrentRefreshes;
+			return this;
+		}
+
+		/**
+		 * Sets how long to wait before trying a failed refresh again. The wait is
+		 * jittered by up to half of it either way. Defaults to 5 seconds
+		 *
+		 * @param retryDelay How long to wait
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setRetryDelay(Duration retryDelay) {
+			this.retryDelay = retryDelay;
+			return this;
+		}
+
+		/**
+		 * Sets how long a tick of the timer is, which is how late a refresh can
+		 * be. Defaults to 100 milliseconds
+		 *
+		 * @param tickDuration How long a tick is
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setTickDuration(Duration tickDuration) {
+			this.tickDuration = tickDuration;
+			return this;
+		}
+
+		/**
+		 * Sets how many buckets the timer's wheel has, rounded up to a power of
+		 * two. Defaults to 512
+		 *
+		 * @param ticksPerWheel How many buckets
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setTicksPerWheel(int ticksPerWheel) {
+			this.ticksPerWheel = ticksPerWheel;
+			return this;
+		}
+
+		/**
+		 * Sets what is told about an account that was dropped from the pool,
+		 * because refreshing its token failed once its refresh token could no
+		 * longer be used. It is called with the configuration of the account and
+		 * why the last refresh failed, on the thread that finished the refresh,
+		 * so it should be quick. Defaults to nothing
+		 *
+		 * @param droppedListener The listener, or {@code null} for nothing
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setDroppedListener(BiConsumer<TidepoolBackendConfig, Throwable> droppedListener) {
+			this.droppedListener = droppedListener;
+			return this;
+		}
+
+		/**
+		 * Builds this into a {@link TokenPool}, starting its timer
+		 *
+		 * @return a {@link TokenPool}
+		 * @since alpha-3.1.0
+		 */
+		public TokenPool build() {
+			return new TokenPool(this);
+		}
+	}
+
+	/**
+	 * An account in the pool
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final class Account implements Runnable {
+		/**
+		 * The configuration of the account
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final TidepoolBackendConfig cnf;
+		/**
+		 * The next scheduled refresh, or {@code null} while one is waiting or in
+		 * flight
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private volatile HashedWheelTimer.Timeout timeout;
+		/**
+		 * If the account has been removed from the pool
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private volatile boolean removed;
+
+		/**
+		 * Creates an {@link Account}
+		 *
+		 * @param cnf The configuration of the account
+		 * @since alpha-3.1.0
+		 */
+		private Account(TidepoolBackendConfig cnf) {
+			this.cnf = cnf;
+		}
+
+		/**
+		 * Called by the timer when a refresh is due
+		 *
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public void run() {
+			timeout = null;
+			enqueue(this);
+		}
+	}
+
+	/**
+	 * The timer shared by every account
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final HashedWheelTimer timer;
+	/**
+	 * The accounts in the pool
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Map<TidepoolBackendConfig, Account> accounts = new ConcurrentHashMap<>();
+	/**
+	 * Accounts whose refresh is due, waiting for a free slot
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Queue<Account> waiting = new ConcurrentLinkedQueue<>();
+	/**
+	 * How many refreshes are in flight
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final AtomicInteger inFlight = new AtomicInteger();
+	/**
+	 * The fraction of {@code expires_in} after which a token is renewed
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final double refreshFraction;
+	/**
+	 * How far refreshes are moved, as a fraction of {@code expires_in}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final double jitter;
+	/**
+	 * How many refreshes may be in flight at once
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final int maxConcurrentRefreshes;
+	/**
+	 * How long to wait before trying a failed refresh again, in nanoseconds
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long retryNanos;
+	/**
+	 * Told about accounts that are dropped, or {@code null}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final BiConsumer<TidepoolBackendConfig, Throwable> droppedListener;
+	/**
+	 * If the pool has been closed
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * protected constructor that uses builder
+	 *
+	 * @param builder The builder
+	 * @since alpha-3.1.0
+	 */
+	protected TokenPool(Builder builder) {
+		if (builder.maxConcurrentRefreshes < 1) {
+			throw new IllegalArgumentException("maxConcurrentRefreshes must be at least 1");
+		}
+		refreshFraction = builder.refreshFraction;
+		jitter = Math.min(builder.jitter, Math.min(refreshFraction, 1 - refreshFraction));
+		maxConcurrentRefreshes = builder.maxConcurrentRefreshes;
+		retryNanos = builder.retryDelay.toNanos();
+		droppedListener = builder.droppedListener;
+		timer = new HashedWheelTimer(builder.tickDuration.toNanos(), TimeUnit.NANOSECONDS, builder.ticksPerWheel,
+				runnable -> {
+					Thread thread = new Thread(runnable, "tidepool-token-pool");
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+
+	/**
+	 * Adds an account, with the refresh token its configuration already has.
+	 * If its access token is missing or has expired, it is refreshed as soon as
+	 * a slot is free.
+	 *
+	 * @param cnf The configuration of the account
+	 * @return {@code true} if it was added, or {@code false} if it was already
+	 *         in the pool
+	 * @throws IllegalStateException If the pool has been closed
+	 * @since alpha-3.1.0
+	 */
+	public boolean add(TidepoolBackendConfig cnf) {
+		if (closed) {
+			throw new IllegalStateException("The pool has been closed");
+		}
+		Account account = new Account(cnf);
+		if (accounts.putIfAbsent(cnf, account) != null) {
+			return false;
+		}
+		AccessToken current = cnf.getToken();
+		if (current == null || !current.isAccessValid(System.nanoTime())) {
+			enqueue(account);
+		} else {
+			schedule(account, current);
+		}
+		return true;
+	}
+
+	/**
+	 * Adds an account, obtaining its first access token with the given refresh
+	 * token
+	 *
+	 * @param cnf          The configuration of the account
+	 * @param refreshToken The refresh token
+	 * @return {@code true} if it was added, or {@code false} if it was already
+	 *         in the pool
+	 * @throws IllegalStateException If the pool has been closed
+	 * @since alpha-3.1.0
+	 */
+	public boolean add(TidepoolBackendConfig cnf, String refreshToken) {
+		if (accounts.containsKey(cnf)) {
+			return false;
+		}
+		cnf.setRefreshToken(refreshToken);
+		return add(cnf);
+	}
+
+	/**
+	 * Removes an account, so its token is no longer kept fresh
+	 *
+	 * @param cnf The configuration of the account
+	 * @return {@code true} if it was removed, or {@code false} if it wasn't in
+	 *         the pool
+	 * @since alpha-3.1.0
+	 */
+	public boolean remove(TidepoolBackendConfig cnf) {
+		Account account = accounts.remove(cnf);
+		if (account == null) {
+			return false;
+		}
+		account.removed = true;
+		HashedWheelTimer.Timeout timeout = account.timeout;
+		if (timeout != null) {
+			timeout.cancel();
+		}
+		return true;
+	}
+
+	/**
+	 * Gets how many accounts are in the pool
+	 *
+	 * @return How many accounts
+	 * @since alpha-3.1.0
+	 */
+	public int size() {
+		return accounts.size();
+	}
+
+	/**
+	 * Gets how many refreshes are in flight
+	 *
+	 * @return How many refreshes
+	 * @since alpha-3.1.0
+	 */
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	/**
+	 * Gets how many accounts are waiting for a free slot to refresh
+	 *
+	 * @return How many accounts
+	 * @since alpha-3.1.0
+	 */
+	public int getWaiting() {
+		return waiting.size();
+	}
+
+	/**
+	 * Queues an account for a refresh, and starts as many refreshes as there
+	 * are free slots
+	 *
+	 * @param account The account
+	 * @since alpha-3.1.0
+	 */
+	private void enqueue(Account account) {
+		waiting.add(account);
+		drain();
+	}
+
+	/**
+	 * Starts refreshes for waiting accounts while there are free slots
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private void drain() {
+		while (!closed && !waiting.isEmpty()) {
+			int current = inFlight.get();
+			if (current >= maxConcurrentRefreshes) {
+				// whoever holds a slot drains again once it is done
+				return;
+			}
+			if (!inFlight.compareAndSet(current, current + 1)) {
+				continue;
+			}
+			Account account = waiting.poll();
+			if (account == null || account.removed) {
+				inFlight.decrementAndGet();
+				continue;
+			}
+			refresh(account);
+		}
+	}
+
+	/**
+	 * Refreshes the token of an account, holding a slot until it is done
+	 *
+	 * @param account The account
+	 * @since alpha-3.1.0
+	 */
+	private void refresh(Account account) {
+		account.cnf.refresh("TokenPool").whenComplete((updated, exception) -> {
+			inFlight.decrementAndGet();
+			if (exception == null) {
+				schedule(account, updated);
+			} else {
+				AccessToken current = account.cnf.getToken();
+				// try again while the refresh token can still be used
+				if (current != null && current.isRefreshValid(System.nanoTime())) {
+					schedule(account, jittered(retryNanos, 0.5));
+				} else {
+					drop(account, exception);
+				}
+			}
+			drain();
+		});
+	}
+
+	/**
+	 * Removes an account whose token can no longer be refreshed, so it can be
+	 * added again, and tells the {@link #droppedListener}
+	 *
+	 * @param account   The account
+	 * @param exception Why its last refresh failed
+	 * @since alpha-3.1.0
+	 */
+	private void drop(Account account, Throwable exception) {
+		if (closed || !accounts.remove(account.cnf, account)) {
+			return;
+		}
+		account.removed = true;
+		if (droppedListener != null) {
+			Throwable cause = exception instanceof CompletionException && exception.getCause() != null
+					? exception.getCause()
+					: exception;
+			try {
+				droppedListener.accept(account.cnf, cause);
+			} catch (RuntimeException e) {
+				// a failing listener must not stop the other refreshes
+			}
+		}
+	}
+
+	/**
+	 * Schedules the next refresh of an account from its current token
+	 *
+	 * @param account The account
+	 * @param token   The token of the account
+	 * @since alpha-3.1.0
+	 */
+	private void schedule(Account account, AccessToken token) {
+		long life = TimeUnit.SECONDS.toNanos(token.getExpiresIn());
+		long due = token.getRecievedAt() + (long) (life * refreshFraction) - System.nanoTime();
+		schedule(account, due + (long) (life * jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1)));
+	}
+
+	/**
+	 * Schedules the next refresh of an account
+	 *
+	 * @param account The account
+	 * @param delay   How long until the refresh, in nanoseconds
+	 * @since alpha-3.1.0
+	 */
+	private void schedule(Account account, long delay) {
+		if (closed || account.removed) {
+			return;
+		}
+		account.timeout = timer.newTimeout(account, Math.max(0, delay), TimeUnit.NANOSECONDS);
+		if (account.removed) {
+			// removed while scheduling
+			account.timeout.cancel();
+		}
+	}
+
+	/**
+	 * Moves a delay randomly by up to a fraction of it either way
+	 *
+	 * @param delay    The delay
+	 * @param fraction The fraction
+	 * @return The moved delay
+	 * @since alpha-3.1.0
+	 */
+	private static long jittered(long delay, double fraction) {
+		return delay + (long) (delay * fraction * (2 * ThreadLocalRandom.current().nextDouble() - 1));
+	}
+
+	/**
+	 * Stops keeping the tokens fresh, and stops the timer. Refreshes that are
+	 * in flight are left to finish.
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		timer.close();
+		waiting.clear();
+		accounts.clear();
+	}
+}
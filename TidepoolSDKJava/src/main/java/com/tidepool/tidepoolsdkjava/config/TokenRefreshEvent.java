@@ -0,0 +1,80 @@
+package com.tidepool.tidepoolsdkjava.config;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JDK Flight Recorder event for a refresh of the access token, from when it
+ * started to when the new token was stored or the refresh failed. Callers that
+ * joined a refresh already in flight don't get their own event.
+ *
+ * @since alpha-3.1.0
+ */
+@Name("com.tidepool.tidepoolsdkjava.TokenRefresh")
+@Label("Tidepool Token Refresh")
+@Category("Tidepool SDK")
+@Description("A refresh of the access token of a configuration")
+@StackTrace(false)
+final class TokenRefreshEvent extends Event {
+	/**
+	 * The type of this event, to check if it is enabled without creating one
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final EventType TYPE = EventType.getEventType(TokenRefreshEvent.class);
+
+	/**
+	 * The client id of the configuration
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Label("Client Id")
+	String clientId;
+
+	/**
+	 * The environment of the configuration
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Label("Environment")
+	String environment;
+
+	/**
+	 * What started the refresh
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Label("Trigger")
+	String trigger;
+
+	/**
+	 * If the refresh succeeded
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Label("Succeeded")
+	boolean succeeded;
+
+	/**
+	 * Why the refresh failed, if it did
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Label("Failure")
+	String failure;
+
+	/**
+	 * Gets if a recording has this event enabled, without creating one
+	 *
+	 * @return {@code true} if the event is enabled
+	 * @since alpha-3.1.0
+	 */
+	static boolean enabled() {
+		return TYPE.isEnabled();
+	}
+}
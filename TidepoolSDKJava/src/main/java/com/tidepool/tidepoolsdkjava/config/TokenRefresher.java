@@ -0,0 +1,517 @@
+package com.tidepool.tidepoolsdkjava.config;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the access token of a {@link TidepoolBackendConfig} fresh in the
+ * background, so requests never have to wait on a refresh.
+ * <br>
+ * The access token is renewed with the refresh token once a
+ * {@link Builder#setRefreshFraction(double) fraction} of its
+ * {@code expires_in} has passed. If a refresh fails, it is tried again after a
+ * delay for as long as the refresh token is still valid, going by its
+ * {@code refresh_expires_in}. The refreshes go through
+ * {@link TidepoolBackendConfig#refreshAccessToken()}, so a request that finds
+ * the token expired joins the same refresh instead of starting another.
+ * <br>
+ * When refreshes are due is decided with a {@link Clock}, which can be
+ * replaced for testing. The default clock is monotonic, so it isn't affected
+ * by the wall clock being changed.
+ * <br>
+ * Thread safe.
+ *
+ * @since alpha-3.1.0
+ */
+public class TokenRefresher implements AutoCloseable {
+	/**
+	 * Used to create a {@link TokenRefresher}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public static class Builder {
+		/**
+		 * The configuration whose token is kept fresh
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final TidepoolBackendConfig cnf;
+		/**
+		 * The fraction of {@code expires_in} after which the token is renewed
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private double refreshFraction = 0.75;
+		/**
+		 * How long to wait before trying a failed refresh again
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Duration retryDelay = Duration.ofSeconds(5);
+		/**
+		 * The clock that decides when refreshes are due
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Clock clock = MonotonicClock.INSTANCE;
+		/**
+		 * The scheduler that runs the refreshes
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private ScheduledExecutorService scheduler;
+
+		/**
+		 * Creates a builder for {@link TokenRefresher}
+		 *
+		 * @param cnf The configuration whose token is kept fresh
+		 * @since alpha-3.1.0
+		 */
+		public Builder(TidepoolBackendConfig cnf) {
+			this.cnf = cnf;
+		}
+
+		/**
+		 * Sets the fraction of {@code expires_in} after which the token is
+		 * renewed. Defaults to 0.75
+		 *
+		 * @param refreshFraction The fraction, more than 0 and less than 1
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setRefreshFraction(double refreshFraction) {
+			if (!(refreshFraction > 0 && refreshFraction < 1)) {
+				throw new IllegalArgumentException(
+						"refreshFraction must be between 0 and 1, but was: " + refreshFraction);
+			}
+			this.refreshFraction = refreshFraction;
+			return this;
+		}
+
+		/**
+		 * Sets how long to wait before trying a failed refresh again. Defaults to
+		 * 5 seconds
+		 *
+		 * @param retryDelay How long to wait
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setRetryDelay(Duration retryDelay) {
+			this.retryDelay = retryDelay;
+			return this;
+		}
+
+		/**
+		 * Sets the clock that decides when refreshes are due. Defaults to a
+		 * monotonic clock
+		 *
+		 * @param clock The clock
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setClock(Clock clock) {
+			this.clock = clock;
+			return this;
+		}
+
+		/**
+		 * Sets the scheduler that runs the refreshes. Defaults to a single daemon
+		 * thread shared by every {@link TokenRefresher}
+		 *
+		 * @param scheduler The scheduler
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setScheduler(ScheduledExecutorService scheduler) {
+			this.scheduler = scheduler;
+			return this;
+		}
+
+		/**
+		 * Builds this into a {@link TokenRefresher}
+		 *
+		 * @return a {@link TokenRefresher}
+		 * @since alpha-3.1.0
+		 */
+		public TokenRefresher build() {
+			return new TokenRefresher(this);
+		}
+	}
+
+	/**
+	 * A {@link Clock} that follows {@link System#nanoTime()}, starting from the
+	 * wall clock time when it was first used
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final class MonotonicClock extends Clock {
+		/**
+		 * The instance in UTC
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private static final MonotonicClock INSTANCE = new MonotonicClock(ZoneOffset.UTC, System.currentTimeMillis(),
+				System.nanoTime());
+		/**
+		 * The time zone of the clock
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final ZoneId zone;
+		/**
+		 * The wall clock time at the start, in milliseconds since the epoch
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final long startMillis;
+		/**
+		 * The {@link System#nanoTime()} at the start
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final long startNanos;
+
+		/**
+		 * Creates a {@link MonotonicClock}
+		 *
+		 * @param zone        The time zone of the clock
+		 * @param startMillis The wall clock time at the start
+		 * @param startNanos  The {@link System#nanoTime()} at the start
+		 * @since alpha-3.1.0
+		 */
+		private MonotonicClock(ZoneId zone, long startMillis, long startNanos) {
+			this.zone = zone;
+			this.startMillis = startMillis;
+			this.startNanos = startNanos;
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public long millis() {
+			return startMillis + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public Instant instant() {
+			return Instant.ofEpochMilli(millis());
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public ZoneId getZone() {
+			return zone;
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return new MonotonicClock(zone, startMillis, startNanos);
+		}
+	}
+
+	/**
+	 * Lazily creates the scheduler shared by every {@link TokenRefresher} that
+	 * wasn't given its own
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final class SharedSchedulerHolder {
+		/**
+		 * The shared scheduler
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private static final ScheduledExecutorService SCHEDULER = createScheduler();
+
+		/**
+		 * Creates the shared scheduler
+		 *
+		 * @return a scheduler with a single daemon thread
+		 * @since alpha-3.1.0
+		 */
+		private static ScheduledExecutorService createScheduler() {
+			ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+				Thread thread = new Thread(runnable, "tidepool-token-refresher");
+				thread.setDaemon(true);
+				return thread;
+			});
+			scheduler.setRemoveOnCancelPolicy(true);
+			return scheduler;
+		}
+	}
+
+	/**
+	 * The configuration whose token is kept fresh
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final TidepoolBackendConfig cnf;
+	/**
+	 * The fraction of {@code expires_in} after which the token is renewed
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final double refreshFraction;
+	/**
+	 * How long to wait before trying a failed refresh again, in milliseconds
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long retryDelay;
+	/**
+	 * The clock that decides when refreshes are due
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Clock clock;
+	/**
+	 * The scheduler that runs the refreshes
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final ScheduledExecutorService scheduler;
+
+	/**
+	 * When the next refresh is due, in {@link #clock} milliseconds
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private long refreshAt;
+	/**
+	 * When the refresh token expires, in {@link #clock} milliseconds, or
+	 * {@link Long#MAX_VALUE} if it isn't known
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private long refreshExpiresAt = Long.MAX_VALUE;
+	/**
+	 * The token whose refresh token {@link #refreshExpiresAt} was worked out
+	 * for, or {@code null} if none has been tracked yet
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private AccessToken tracked;
+	/**
+	 * The next scheduled check, or {@code null} if none is scheduled
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private ScheduledFuture<?> task;
+	/**
+	 * If this has been closed
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private boolean closed;
+
+	/**
+	 * protected constructor that uses builder
+	 *
+	 * @param builder The builder
+	 * @since alpha-3.1.0
+	 */
+	protected TokenRefresher(Builder builder) {
+		cnf = builder.cnf;
+		refreshFraction = builder.refreshFraction;
+		retryDelay = builder.retryDelay.toMillis();
+		clock = builder.clock;
+		scheduler = builder.scheduler != null ? builder.scheduler : SharedSchedulerHolder.SCHEDULER;
+	}
+
+	/**
+	 * Starts keeping the token fresh, with the refresh token the configuration
+	 * already has. If the access token is missing or has expired, it is
+	 * refreshed right away.
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public synchronized void start() {
+		AccessToken current = cnf.getToken();
+		long now = clock.millis();
+		long nanoNow = System.nanoTime();
+		if (current == null || current.getAccessToken() == null
+				|| now >= toClockMillis(current.getAccessDeadline(), now, nanoNow)) {
+			refreshAt = now;
+		} else {
+			refreshAt = Math.max(now, toClockMillis(current.getRecievedAt(), now, nanoNow) + dueAfter(current));
+			track(current, now, nanoNow);
+		}
+		schedule(refreshAt - now);
+	}
+
+	/**
+	 * Starts keeping the token fresh, obtaining the first access token with the
+	 * given refresh token
+	 *
+	 * @param refreshToken The refresh token
+	 * @since alpha-3.1.0
+	 */
+	public void start(String refreshToken) {
+		cnf.setRefreshToken(refreshToken);
+		start();
+	}
+
+	/**
+	 * Refreshes the token if a refresh is due by the {@link Clock}. Called by
+	 * the scheduler, but can also be called directly, such as by tests with
+	 * their own clock.
+	 *
+	 * @return A {@link CompletableFuture} that completes once the refresh has
+	 *         finished, or right away if none was due. It completes
+	 *         exceptionally if the refresh failed.
+	 * @since alpha-3.1.0
+	 */
+	public CompletableFuture<Void> refreshIfDue() {
+		synchronized (this) {
+			if (closed) {
+				return CompletableFuture.completedFuture(null);
+			}
+			long now = clock.millis();
+			if (now < refreshAt) {
+				schedule(refreshAt - now);
+				return CompletableFuture.completedFuture(null);
+			}
+			if (now >= refreshExpiresAt) {
+				return CompletableFuture.failedFuture(new IllegalStateException("The refresh token has expired"));
+			}
+		}
+		return cnf.refresh("TokenRefresher").handle((updated, exception) -> {
+			synchronized (this) {
+				long now = clock.millis();
+				if (exception != null) {
+					// try again while the refresh token can still be used
+					refreshAt = now + retryDelay;
+					if (refreshAt < refreshExpiresAt) {
+						schedule(retryDelay);
+					}
+				} else {
+					track(updated, now, System.nanoTime());
+					refreshAt = now + dueAfter(updated);
+					schedule(refreshAt - now);
+				}
+			}
+			if (exception != null) {
+				throw exception instanceof RuntimeException ? (RuntimeException) exception
+						: new RuntimeException(exception);
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Gets when the next refresh is due
+	 *
+	 * @return When the next refresh is due, by the {@link Clock}
+	 * @since alpha-3.1.0
+	 */
+	public synchronized Instant getNextRefresh() {
+		return Instant.ofEpochMilli(refreshAt);
+	}
+
+	/**
+	 * Gets when the refresh token expires
+	 *
+	 * @return When the refresh token expires, by the {@link Clock}, or
+	 *         {@code null} if it isn't known
+	 * @since alpha-3.1.0
+	 */
+	public synchronized Instant getRefreshTokenExpiry() {
+		return refreshExpiresAt == Long.MAX_VALUE ? null : Instant.ofEpochMilli(refreshExpiresAt);
+	}
+
+	/**
+	 * Works out how long after a token was recieved it should be renewed
+	 *
+	 * @param token The token
+	 * @return How long after it was recieved, in milliseconds
+	 * @since alpha-3.1.0
+	 */
+	private long dueAfter(AccessToken token) {
+		return (long) (TimeUnit.SECONDS.toMillis(token.getExpiresIn()) * refreshFraction);
+	}
+
+	/**
+	 * Keeps track of when the refresh token of a token expires. A refresh that
+	 * didn't return a new refresh token keeps the old one, along with when it
+	 * expires, so the expiry that was worked out for it is kept too, rather than
+	 * starting over from when the new access token was recieved.
+	 *
+	 * @param token   The token
+	 * @param now     The current time, in {@link #clock} milliseconds
+	 * @param nanoNow The current {@link System#nanoTime()}
+	 * @since alpha-3.1.0
+	 */
+	private void track(AccessToken token, long now, long nanoNow) {
+		if (tracked != null && tracked.getRefreshDeadline() == token.getRefreshDeadline()
+				&& tracked.getRefreshExpiresIn() == token.getRefreshExpiresIn()) {
+			tracked = token;
+			return;
+		}
+		tracked = token;
+		refreshExpiresAt = token.getRefreshExpiresIn() < 0 ? Long.MAX_VALUE
+				: toClockMillis(token.getRefreshDeadline(), now, nanoNow);
+	}
+
+	/**
+	 * Converts a time of a token to {@link #clock} time. Tokens keep their times
+	 * in {@link System#nanoTime()} time, so the time is placed as far from the
+	 * current time of the clock as it is from the current
+	 * {@link System#nanoTime()}, and only the clock decides what is due.
+	 *
+	 * @param nanos   The time, in {@link System#nanoTime()} time
+	 * @param now     The current time, in {@link #clock} milliseconds
+	 * @param nanoNow The current {@link System#nanoTime()}
+	 * @return The time, in {@link #clock} milliseconds
+	 * @since alpha-3.1.0
+	 */
+	private static long toClockMillis(long nanos, long now, long nanoNow) {
+		return now + TimeUnit.NANOSECONDS.toMillis(nanos - nanoNow);
+	}
+
+	/**
+	 * Schedules the next check, replacing the one that was scheduled
+	 *
+	 * @param delay How long until the check, in milliseconds
+	 * @since alpha-3.1.0
+	 */
+	private void schedule(long delay) {
+		if (closed) {
+			return;
+		}
+		if (task != null) {
+			task.cancel(false);
+		}
+		task = scheduler.schedule(this::refreshIfDue, Math.max(0, delay), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops keeping the token fresh
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public synchronized void close() {
+		closed = true;
+		if (task != null) {
+			task.cancel(false);
+			task = null;
+		}
+	}
+}
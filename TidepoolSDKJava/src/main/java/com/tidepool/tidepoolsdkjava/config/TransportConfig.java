@@ -0,0 +1,311 @@
+package com.tidepool.tidepoolsdkjava.config;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+import javax.net.ssl.SSLContext;
+
+/**
+ * Represents how requests are sent to the tidepool backend: the HTTP version,
+ * timeouts, the executor, and the SSL context of the {@link HttpClient} that a
+ * {@link TidepoolBackendConfig} sends its requests through.
+ * <br>
+ * HTTP/2 is preferred by default, so many concurrent requests to the same host
+ * share one connection. The client falls back to HTTP/1.1 if the host doesn't
+ * support HTTP/2.
+ *
+ * @since alpha-3.1.0
+ */
+public class TransportConfig {
+	/**
+	 * Used to create a {@link TransportConfig}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public static class Builder {
+		/**
+		 * The preferred HTTP version
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private HttpClient.Version httpVersion = HttpClient.Version.HTTP_2;
+		/**
+		 * How long to wait for a connection to be made
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Duration connectTimeout = Duration.ofSeconds(10);
+		/**
+		 * How long to wait for a response, or {@code null} to wait forever
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Duration requestTimeout;
+		/**
+		 * How long {@link com.tidepool.tidepoolsdkjava.BaseRequest#awaitCompletion()}
+		 * waits
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Duration completionTimeout = Duration.ofSeconds(30);
+		/**
+		 * The executor of the client, or {@code null} for the default
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Executor executor;
+		/**
+		 * The SSL context of the client, or {@code null} for the default
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private SSLContext sslContext;
+
+		/**
+		 * Creates a builder for {@link TransportConfig}
+		 *
+		 * @since alpha-3.1.0
+		 */
+		public Builder() {
+		}
+
+		/**
+		 * Sets the preferred HTTP version. Defaults to
+		 * {@link HttpClient.Version#HTTP_2}
+		 *
+		 * @param httpVersion The preferred HTTP version
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setHttpVersion(HttpClient.Version httpVersion) {
+			this.httpVersion = httpVersion;
+			return this;
+		}
+
+		/**
+		 * Sets how long to wait for a connection to be made. Defaults to 10
+		 * seconds
+		 *
+		 * @param connectTimeout How long to wait
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setConnectTimeout(Duration connectTimeout) {
+			this.connectTimeout = connectTimeout;
+			return this;
+		}
+
+		/**
+		 * Sets how long each request waits for the response to start arriving.
+		 * Defaults to waiting forever
+		 *
+		 * @param requestTimeout How long to wait, or {@code null} to wait forever
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setRequestTimeout(Duration requestTimeout) {
+			this.requestTimeout = requestTimeout;
+			return this;
+		}
+
+		/**
+		 * Sets how long {@link com.tidepool.tidepoolsdkjava.BaseRequest#awaitCompletion()}
+		 * waits for a request to finish. Defaults to 30 seconds
+		 *
+		 * @param completionTimeout How long to wait
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setCompletionTimeout(Duration completionTimeout) {
+			this.completionTimeout = completionTimeout;
+			return this;
+		}
+
+		/**
+		 * Sets the executor that the client handles responses on. Defaults to
+		 * the client's own thread pool.
+		 * <br>
+		 * The SDK never blocks a thread of this executor: expired session tokens
+		 * are refreshed without blocking, and responses are read and parsed, and
+		 * the {@link java.util.concurrent.CompletableFuture CompletableFuture}s
+		 * of {@link com.tidepool.tidepoolsdkjava.BaseRequest#sendAsync()
+		 * sendAsync()} completed, on threads of the SDK's own. So even a single
+		 * thread can't deadlock it, though a small pool limits how quickly
+		 * responses are received. Anything else given this executor mustn't
+		 * block it for long either.
+		 *
+		 * @param executor The executor, or {@code null} for the default
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setExecutor(Executor executor) {
+			this.executor = executor;
+			return this;
+		}
+
+		/**
+		 * Sets the SSL context that connections are made with. Defaults to
+		 * {@link SSLContext#getDefault()}
+		 *
+		 * @param sslContext The SSL context, or {@code null} for the default
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setSslContext(SSLContext sslContext) {
+			this.sslContext = sslContext;
+			return this;
+		}
+
+		/**
+		 * Builds this into a {@link TransportConfig}
+		 *
+		 * @return a {@link TransportConfig}
+		 * @since alpha-3.1.0
+		 */
+		public TransportConfig build() {
+			return new TransportConfig(this);
+		}
+	}
+
+	/**
+	 * The settings used when none are given
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final TransportConfig DEFAULT = new Builder().build();
+
+	/**
+	 * The preferred HTTP version
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final HttpClient.Version httpVersion;
+	/**
+	 * How long to wait for a connection to be made
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Duration connectTimeout;
+	/**
+	 * How long to wait for a response, or {@code null} to wait forever
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Duration requestTimeout;
+	/**
+	 * How long {@link com.tidepool.tidepoolsdkjava.BaseRequest#awaitCompletion()}
+	 * waits
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Duration completionTimeout;
+	/**
+	 * The executor of the client, or {@code null} for the default
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Executor executor;
+	/**
+	 * The SSL context of the client, or {@code null} for the default
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final SSLContext sslContext;
+
+	/**
+	 * protected constructor that uses builder
+	 *
+	 * @param builder The builder
+	 * @since alpha-3.1.0
+	 */
+	protected TransportConfig(Builder builder) {
+		if (builder.httpVersion == null || builder.connectTimeout == null || builder.completionTimeout == null) {
+			throw new IllegalArgumentException("httpVersion, connectTimeout and completionTimeout must not be null");
+		}
+		httpVersion = builder.httpVersion;
+		connectTimeout = builder.connectTimeout;
+		requestTimeout = builder.requestTimeout;
+		completionTimeout = builder.completionTimeout;
+		executor = builder.executor;
+		sslContext = builder.sslContext;
+	}
+
+	/**
+	 * Creates a {@link HttpClient} with these settings
+	 *
+	 * @return a new {@link HttpClient}
+	 * @since alpha-3.1.0
+	 */
+	public HttpClient createHttpClient() {
+		HttpClient.Builder builder = HttpClient.newBuilder().version(httpVersion).connectTimeout(connectTimeout);
+		if (executor != null) {
+			builder = builder.executor(executor);
+		}
+		if (sslContext != null) {
+			builder = builder.sslContext(sslContext);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Gets the preferred HTTP version
+	 *
+	 * @return The preferred HTTP version
+	 * @since alpha-3.1.0
+	 */
+	public HttpClient.Version getHttpVersion() {
+		return httpVersion;
+	}
+
+	/**
+	 * Gets how long to wait for a connection to be made
+	 *
+	 * @return How long to wait
+	 * @since alpha-3.1.0
+	 */
+	public Duration getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	/**
+	 * Gets how long each request waits for the response to start arriving
+	 *
+	 * @return How long to wait, or {@code null} to wait forever
+	 * @since alpha-3.1.0
+	 */
+	public Duration getRequestTimeout() {
+		return requestTimeout;
+	}
+
+	/**
+	 * Gets how long {@link com.tidepool.tidepoolsdkjava.BaseRequest#awaitCompletion()}
+	 * waits for a request to finish
+	 *
+	 * @return How long to wait
+	 * @since alpha-3.1.0
+	 */
+	public Duration getCompletionTimeout() {
+		return completionTimeout;
+	}
+
+	/**
+	 * Gets the executor that the client handles responses on
+	 *
+	 * @return The executor, or {@code null} for the default
+	 * @since alpha-3.1.0
+	 */
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Gets the SSL context that connections are made with
+	 *
+	 * @return The SSL context, or {@code null} for the default
+	 * @since alpha-3.1.0
+	 */
+	public SSLContext getSslContext() {
+		return sslContext;
+	}
+}
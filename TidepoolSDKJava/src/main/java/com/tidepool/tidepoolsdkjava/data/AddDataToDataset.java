@@ -0,0 +1,155 @@
+package com.tidepool.tidepoolsdkjava.data;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.tidepool.tidepoolsdkjava.JSONRequest;
+import com.tidepool.tidepoolsdkjava.config.TidepoolBackendConfig;
+
+/**
+ * A request that adds datums to a dataset, with
+ * {@code POST /v1/datasets/{datasetId}/data}. The backend accepts or rejects
+ * all the datums of a request together.
+ * <br>
+ * The datums are written straight into the body as it is sent.
+ * <br>
+ * Use a {@link DatumUploader} to upload more datums than fit in one request.
+ *
+ * @see DatumUploader
+ * @since alpha-3.1.0
+ */
+public class AddDataToDataset extends JSONRequest {
+	/**
+	 * The id of the dataset
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String datasetId;
+	/**
+	 * The datums
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final List<JSONObject> datums;
+	/**
+	 * If the body is sent compressed
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final boolean compressed;
+
+	/**
+	 * Creates a {@link AddDataToDataset} request
+	 *
+	 * @param cnf       The {@link TidepoolBackendConfig backend configuration} to
+	 *                  use
+	 * @param datasetId The id of the dataset
+	 * @param datums    The datums to add
+	 * @since alpha-3.1.0
+	 */
+	public AddDataToDataset(TidepoolBackendConfig cnf, String datasetId, List<JSONObject> datums) {
+		this(cnf, datasetId, datums, false);
+	}
+
+	/**
+	 * Creates a {@link AddDataToDataset} request
+	 *
+	 * @param cnf        The {@link TidepoolBackendConfig backend configuration}
+	 *                   to use
+	 * @param datasetId  The id of the dataset
+	 * @param datums     The datums to add
+	 * @param compressed If the body is sent compressed with gzip
+	 * @since alpha-3.1.0
+	 */
+	AddDataToDataset(TidepoolBackendConfig cnf, String datasetId, List<JSONObject> datums, boolean compressed) {
+		super(new HashMap<>(), cnf, new HashMap<>());
+		this.datasetId = datasetId;
+		this.datums = datums;
+		this.compressed = compressed;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	protected String getURI() {
+		return String.format("/v1/datasets/%s/data", datasetId);
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	protected String getURITemplate() {
+		return "/v1/datasets/{datasetId}/data";
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	protected RequestType getRequestType() {
+		return RequestType.POST;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	protected boolean requiresSessionToken() {
+		return true;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	protected boolean compressesBody() {
+		return compressed;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	protected void writeBody(Writer out) throws IOException {
+		out.write('[');
+		for (int i = 0; i < datums.size(); i++) {
+			if (i > 0) {
+				out.write(',');
+			}
+			try {
+				datums.get(i).write(out);
+			} catch (JSONException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				throw e;
+			}
+		}
+		out.write(']');
+	}
+
+	/**
+	 * The backend answers with nothing worth keeping
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	protected void parseResponse(String response) {
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public CompletableFuture<AddDataToDataset> sendAsync() {
+		return super.sendAsync().thenApply(AddDataToDataset.class::cast);
+	}
+}
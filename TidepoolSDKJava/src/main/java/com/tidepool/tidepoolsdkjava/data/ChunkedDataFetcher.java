@@ -0,0 +1,543 @@
+package com.tidepool.tidepoolsdkjava.data;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.tidepool.tidepoolsdkjava.BaseRequest.RequestStatus;
+import com.tidepool.tidepoolsdkjava.Constants;
+import com.tidepool.tidepoolsdkjava.config.TidepoolBackendConfig;
+import com.tidepool.tidepoolsdkjava.data.datum.Datum;
+
+/**
+ * Fetches the data for a user over a large time range by splitting it into
+ * windows (and optionally by type), fetching those with a bounded number of
+ * {@link GetDataForUser} requests in flight, and merging the results back in
+ * time order.
+ * <br>
+ * A window that fails is retried on its own, without refetching the rest of
+ * the range.
+ *
+ * @since alpha-3.1.0
+ */
+public class ChunkedDataFetcher {
+	/**
+	 * Used to create a {@link ChunkedDataFetcher}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public static class Builder {
+		/**
+		 * The backend configuration
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final TidepoolBackendConfig cnf;
+		/**
+		 * The user id
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final String userId;
+		/**
+		 * The start of the range
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final Instant start;
+		/**
+		 * The end of the range
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final Instant end;
+		/**
+		 * The length of each window
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Duration window = Duration.ofDays(7);
+		/**
+		 * The maximum number of requests in flight at once
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private int parallelism = 4;
+		/**
+		 * The maximum number of times each window is attempted
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private int maxAttempts = 3;
+		/**
+		 * The types of data, or empty for all types
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Constants.uploadType[] types = new Constants.uploadType[0];
+		/**
+		 * If each type is fetched with its own requests
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private boolean splitByType;
+
+		/**
+		 * Creates a builder for {@link ChunkedDataFetcher}
+		 *
+		 * @param cnf    The backend configuration to use
+		 * @param userId The user id
+		 * @param start  The start of the range to fetch
+		 * @param end    The end of the range to fetch
+		 * @since alpha-3.1.0
+		 */
+		public Builder(TidepoolBackendConfig cnf, String userId, ZonedDateTime start, ZonedDateTime end) {
+			if (!start.isBefore(end)) {
+				throw new IllegalArgumentException("start must be before end");
+			}
+			this.cnf = cnf;
+			this.userId = userId;
+			this.start = start.toInstant();
+			this.end = end.toInstant();
+		}
+
+		/**
+		 * Sets the length of each window. Defaults to 7 days
+		 *
+		 * @param window The length of each window
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setWindow(Duration window) {
+			if (window.isNegative() || window.isZero()) {
+				throw new IllegalArgumentException("window must be positive, but was: " + window);
+			}
+			this.window = window;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum number of requests in flight at once. Defaults to 4
+		 *
+		 * @param parallelism The maximum number of requests in flight
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setParallelism(int parallelism) {
+			if (parallelism < 1) {
+				throw new IllegalArgumentException("parallelism must be at least 1, but was: " + parallelism);
+			}
+			this.parallelism = parallelism;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum number of times each window is attempted before the
+		 * fetch fails. Defaults to 3
+		 *
+		 * @param maxAttempts The maximum number of attempts per window
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setMaxAttempts(int maxAttempts) {
+			if (maxAttempts < 1) {
+				throw new IllegalArgumentException("maxAttempts must be at least 1, but was: " + maxAttempts);
+			}
+			this.maxAttempts = maxAttempts;
+			return this;
+		}
+
+		/**
+		 * Sets the types of data
+		 *
+		 * @param types The types of data
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 * @see GetDataForUser.Builder#setTypes(Constants.uploadType...)
+		 */
+		public Builder setTypes(Constants.uploadType... types) {
+			this.types = types.clone();
+			return this;
+		}
+
+		/**
+		 * Sets if each of the {@link #setTypes(Constants.uploadType...) types} is
+		 * fetched with its own requests, instead of all of them together
+		 *
+		 * @param splitByType If each type is fetched separately
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setSplitByType(boolean splitByType) {
+			this.splitByType = splitByType;
+			return this;
+		}
+
+		/**
+		 * Builds this into a {@link ChunkedDataFetcher}
+		 *
+		 * @return a {@link ChunkedDataFetcher}
+		 * @since alpha-3.1.0
+		 */
+		public ChunkedDataFetcher build() {
+			return new ChunkedDataFetcher(this);
+		}
+	}
+
+	/**
+	 * A window of time (and types) fetched by a single request
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final class Chunk {
+		/**
+		 * The start of the window
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final Instant start;
+		/**
+		 * The end of the window
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final Instant end;
+		/**
+		 * If datums at {@link #end} are part of this window, which is only the
+		 * case for the last window
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final boolean includesEnd;
+		/**
+		 * The types of data fetched
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final Constants.uploadType[] types;
+		/**
+		 * How many times this window has been attempted
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private int attempts;
+		/**
+		 * The datums in this window, once it has been fetched
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private volatile List<Datum> datums;
+
+		/**
+		 * Creates a chunk
+		 *
+		 * @param start       The start of the window
+		 * @param end         The end of the window
+		 * @param includesEnd If datums at the end are part of this window
+		 * @param types       The types of data fetched
+		 * @since alpha-3.1.0
+		 */
+		private Chunk(Instant start, Instant end, boolean includesEnd, Constants.uploadType[] types) {
+			this.start = start;
+			this.end = end;
+			this.includesEnd = includesEnd;
+			this.types = types;
+		}
+	}
+
+	/**
+	 * The backend configuration
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final TidepoolBackendConfig cnf;
+	/**
+	 * The user id
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String userId;
+	/**
+	 * The start of the range
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Instant start;
+	/**
+	 * The end of the range
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Instant end;
+	/**
+	 * The length of each window
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Duration window;
+	/**
+	 * The maximum number of requests in flight
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final int parallelism;
+	/**
+	 * The maximum number of attempts per window
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final int maxAttempts;
+	/**
+	 * The types of data, or empty for all types
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Constants.uploadType[] types;
+	/**
+	 * If each type is fetched separately
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final boolean splitByType;
+
+	/**
+	 * protected constructor that uses builder
+	 *
+	 * @param builder The builder
+	 * @since alpha-3.1.0
+	 */
+	protected ChunkedDataFetcher(Builder builder) {
+		cnf = builder.cnf;
+		userId = builder.userId;
+		start = builder.start;
+		end = builder.end;
+		window = builder.window;
+		parallelism = builder.parallelism;
+		maxAttempts = builder.maxAttempts;
+		types = builder.types;
+		splitByType = builder.splitByType;
+	}
+
+	/**
+	 * Fetches all the data in the range.
+	 *
+	 * @return A {@link CompletableFuture} that completes with all the datums in
+	 *         the range, in time order, or completes exceptionally if a window
+	 *         still failed after the maximum number of attempts
+	 * @since alpha-3.1.0
+	 */
+	public CompletableFuture<List<Datum>> fetch() {
+		List<Chunk> chunks = createChunks();
+		return new Fetch(chunks).start();
+	}
+
+	/**
+	 * Splits the range into chunks
+	 *
+	 * @return The chunks, in time order
+	 * @since alpha-3.1.0
+	 */
+	private List<Chunk> createChunks() {
+		List<Chunk> chunks = new ArrayList<>();
+		Instant windowStart = start;
+		while (windowStart.isBefore(end)) {
+			Instant windowEnd = windowStart.plus(window);
+			boolean last = !windowEnd.isBefore(end);
+			if (last) {
+				windowEnd = end;
+			}
+			if (splitByType && types.length > 1) {
+				for (Constants.uploadType type : types) {
+					chunks.add(new Chunk(windowStart, windowEnd, last, new Constants.uploadType[] { type }));
+				}
+			} else {
+				chunks.add(new Chunk(windowStart, windowEnd, last, types));
+			}
+			windowStart = windowEnd;
+		}
+		return chunks;
+	}
+
+	/**
+	 * Creates the request for a chunk
+	 *
+	 * @param chunk The chunk
+	 * @return The request
+	 * @since alpha-3.1.0
+	 */
+	private GetDataForUser createRequest(Chunk chunk) {
+		GetDataForUser.Builder builder = new GetDataForUser.Builder(cnf, userId)
+				.setStartDate(ZonedDateTime.ofInstant(chunk.start, ZoneOffset.UTC))
+				.setEndDate(ZonedDateTime.ofInstant(chunk.end, ZoneOffset.UTC))
+				.setDecodeDatums(true);
+		if (chunk.types.length > 0) {
+			builder.setTypes(chunk.types);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * A single run of {@link ChunkedDataFetcher#fetch()}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final class Fetch {
+		/**
+		 * All the chunks, in time order
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final List<Chunk> chunks;
+		/**
+		 * The chunks that haven't been started yet
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final Queue<Chunk> pending;
+		/**
+		 * The number of chunks that haven't been fetched yet
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final AtomicInteger remaining;
+		/**
+		 * Completes with the merged datums
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final CompletableFuture<List<Datum>> result = new CompletableFuture<>();
+
+		/**
+		 * Creates a fetch
+		 *
+		 * @param chunks The chunks to fetch
+		 * @since alpha-3.1.0
+		 */
+		private Fetch(List<Chunk> chunks) {
+			this.chunks = chunks;
+			this.pending = new ConcurrentLinkedQueue<>(chunks);
+			this.remaining = new AtomicInteger(chunks.size());
+		}
+
+		/**
+		 * Starts fetching the first chunks
+		 *
+		 * @return A future that completes with the merged datums
+		 * @since alpha-3.1.0
+		 */
+		private CompletableFuture<List<Datum>> start() {
+			if (chunks.isEmpty()) {
+				result.complete(Collections.emptyList());
+			}
+			for (int i = 0; i < parallelism; i++) {
+				next();
+			}
+			return result;
+		}
+
+		/**
+		 * Starts fetching the next pending chunk, if there is one
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private void next() {
+			if (result.isDone()) {
+				return;
+			}
+			Chunk chunk = pending.poll();
+			if (chunk != null) {
+				send(chunk);
+			}
+		}
+
+		/**
+		 * Sends the request for a chunk, retrying it on its own if it fails
+		 *
+		 * @param chunk The chunk
+		 * @since alpha-3.1.0
+		 */
+		private void send(Chunk chunk) {
+			chunk.attempts++;
+			CompletableFuture<GetDataForUser> sent;
+			try {
+				sent = createRequest(chunk).sendAsync();
+			} catch (RuntimeException e) {
+				result.completeExceptionally(e);
+				return;
+			}
+			sent.whenComplete((request, exception) -> {
+				try {
+					if (exception == null && request.getStatus() == RequestStatus.Success) {
+						chunk.datums = inWindow(chunk, request.getDatums());
+						if (remaining.decrementAndGet() == 0) {
+							result.complete(merge());
+						} else {
+							next();
+						}
+					} else if (chunk.attempts < maxAttempts && !result.isDone()) {
+						send(chunk);
+					} else {
+						result.completeExceptionally(new RuntimeException("Failed to fetch the data between "
+								+ chunk.start + " and " + chunk.end + " after " + chunk.attempts + " attempts",
+								exception));
+					}
+				} catch (RuntimeException e) {
+					// otherwise the fetch would never finish
+					result.completeExceptionally(e);
+				}
+			});
+		}
+
+		/**
+		 * Merges the datums of every chunk in time order
+		 *
+		 * @return The merged datums
+		 * @since alpha-3.1.0
+		 */
+		private List<Datum> merge() {
+			int size = 0;
+			for (Chunk chunk : chunks) {
+				size += chunk.datums.size();
+			}
+			List<Datum> merged = new ArrayList<>(size);
+			for (Chunk chunk : chunks) {
+				merged.addAll(chunk.datums);
+			}
+			// the chunks are already in time order, so this only merges runs
+			merged.sort(Comparator.comparingLong(Datum::getTimeMillis));
+			return Collections.unmodifiableList(merged);
+		}
+	}
+
+	/**
+	 * Removes the datums that belong to the next window, so datums on a boundary
+	 * aren't returned twice. Every chunk gets the datums without a time, so they
+	 * are only kept in the last one.
+	 *
+	 * @param chunk  The chunk the datums were fetched for
+	 * @param datums The datums
+	 * @return The datums in the window
+	 * @since alpha-3.1.0
+	 */
+	private static List<Datum> inWindow(Chunk chunk, List<Datum> datums) {
+		long endMillis = chunk.end.toEpochMilli();
+		List<Datum> result = new ArrayList<>(datums.size());
+		for (Datum datum : datums) {
+			long time = datum.getTimeMillis();
+			if (time == Datum.MISSING ? chunk.includesEnd
+					: time < endMillis || (chunk.includesEnd && time == endMillis)) {
+				result.add(datum);
+			}
+		}
+		return result;
+	}
+}
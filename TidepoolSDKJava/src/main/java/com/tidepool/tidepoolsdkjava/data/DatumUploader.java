@@ -0,0 +1,737 @@
+package com.tidepool.tidepoolsdkjava.data;
+
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.json.JSONObject;
+
+import com.tidepool.tidepoolsdkjava.BaseRequest.RequestStatus;
+import com.tidepool.tidepoolsdkjava.config.TidepoolBackendConfig;
+
+/**
+ * Uploads a stream of datums to a dataset, by grouping them into batches that
+ * are bounded in size, and sending those with a bounded number of
+ * {@link AddDataToDataset} requests in flight.
+ * <br>
+ * The size of each datum as JSON is measured as soon as it is added, without
+ * building the JSON, so a batch is sent the moment it is full. The JSON itself
+ * is only written as the batch is sent. When as many batches as the window
+ * allows are in flight, adding a datum blocks until one of them has finished,
+ * so a fast producer can't run ahead of the backend.
+ * <br>
+ * The backend accepts or rejects each batch on its own, so every batch
+ * reports its own {@link BatchResult}. A batch that failed holds on to its
+ * datums, so only those need to be sent again. A batch has left the window by
+ * the time its result is given to the listener, so the listener can add them
+ * again itself.
+ * <br>
+ * Thread safe, although datums added from more than one thread may be
+ * batched in any order.
+ *
+ * @since alpha-3.1.0
+ */
+public class DatumUploader {
+	/**
+	 * Used to create a {@link DatumUploader}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public static class Builder {
+		/**
+		 * The backend configuration
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final TidepoolBackendConfig cnf;
+		/**
+		 * The id of the dataset
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final String datasetId;
+		/**
+		 * The maximum size of the body of a batch, in bytes
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private int maxBatchBytes = 1 << 20;
+		/**
+		 * The maximum number of datums in a batch
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private int maxBatchDatums = 1000;
+		/**
+		 * The maximum number of batches in flight at once
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private int window = 4;
+		/**
+		 * If the batches are sent compressed
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private boolean compressBatches;
+		/**
+		 * Given the result of each batch
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Consumer<? super BatchResult> batchListener = result -> {
+		};
+
+		/**
+		 * Creates a builder for {@link DatumUploader}
+		 *
+		 * @param cnf       The backend configuration to use
+		 * @param datasetId The id of the dataset to add the datums to
+		 * @since alpha-3.1.0
+		 */
+		public Builder(TidepoolBackendConfig cnf, String datasetId) {
+			this.cnf = cnf;
+			this.datasetId = datasetId;
+		}
+
+		/**
+		 * Sets the maximum size of the body of a batch. A datum that is larger
+		 * than this on its own is sent in a batch by itself. Defaults to 1MiB
+		 *
+		 * @param maxBatchBytes The maximum size, in bytes
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setMaxBatchBytes(int maxBatchBytes) {
+			if (maxBatchBytes < 2) {
+				throw new IllegalArgumentException("maxBatchBytes must be at least 2, but was: " + maxBatchBytes);
+			}
+			this.maxBatchBytes = maxBatchBytes;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum number of datums in a batch. Defaults to 1000
+		 *
+		 * @param maxBatchDatums The maximum number of datums
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setMaxBatchDatums(int maxBatchDatums) {
+			if (maxBatchDatums < 1) {
+				throw new IllegalArgumentException("maxBatchDatums must be at least 1, but was: " + maxBatchDatums);
+			}
+			this.maxBatchDatums = maxBatchDatums;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum number of batches in flight at once. Defaults to 4
+		 *
+		 * @param window The maximum number of batches in flight
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setWindow(int window) {
+			if (window < 1) {
+				throw new IllegalArgumentException("window must be at least 1, but was: " + window);
+			}
+			this.window = window;
+			return this;
+		}
+
+		/**
+		 * Sets if the batches are sent compressed with gzip, which the backend
+		 * must accept
+		 *
+		 * @param compressBatches If the batches are compressed
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setCompressBatches(boolean compressBatches) {
+			this.compressBatches = compressBatches;
+			return this;
+		}
+
+		/**
+		 * Sets the listener that is given the result of each batch as soon as it
+		 * has finished, on the thread that finished it. The batch has already left
+		 * the window by then, so the listener may add datums, such as the ones of a
+		 * failed batch.
+		 *
+		 * @param batchListener The listener
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setBatchListener(Consumer<? super BatchResult> batchListener) {
+			this.batchListener = batchListener;
+			return this;
+		}
+
+		/**
+		 * Builds this into a {@link DatumUploader}
+		 *
+		 * @return a {@link DatumUploader}
+		 * @since alpha-3.1.0
+		 */
+		public DatumUploader build() {
+			return new DatumUploader(this);
+		}
+	}
+
+	/**
+	 * The result of a single batch
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public static final class BatchResult {
+		/**
+		 * The position of the batch in the order batches were sent, from 0
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final long sequence;
+		/**
+		 * The datums in the batch
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final List<JSONObject> datums;
+		/**
+		 * The status of the request
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final RequestStatus status;
+		/**
+		 * The status code of the response
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final int statusCode;
+		/**
+		 * The exception the request failed with
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final Throwable exception;
+
+		/**
+		 * Creates a batch result
+		 *
+		 * @param sequence   The position of the batch
+		 * @param datums     The datums in the batch
+		 * @param status     The status of the request
+		 * @param statusCode The status code of the response
+		 * @param exception  The exception the request failed with
+		 * @since alpha-3.1.0
+		 */
+		private BatchResult(long sequence, List<JSONObject> datums, RequestStatus status, int statusCode,
+				Throwable exception) {
+			this.sequence = sequence;
+			this.datums = datums;
+			this.status = status;
+			this.statusCode = statusCode;
+			this.exception = exception;
+		}
+
+		/**
+		 * Gets the position of the batch in the order batches were sent
+		 *
+		 * @return The position, from 0
+		 * @since alpha-3.1.0
+		 */
+		public long getSequence() {
+			return sequence;
+		}
+
+		/**
+		 * Gets the datums in the batch, in the order they were added
+		 *
+		 * @return An unmodifiable list of the datums
+		 * @since alpha-3.1.0
+		 */
+		public List<JSONObject> getDatums() {
+			return datums;
+		}
+
+		/**
+		 * Gets the status of the request that sent the batch
+		 *
+		 * @return The status
+		 * @since alpha-3.1.0
+		 */
+		public RequestStatus getStatus() {
+			return status;
+		}
+
+		/**
+		 * Gets the status code of the response to the batch
+		 *
+		 * @return The status code, or {@code 0} if there wasn't a response
+		 * @since alpha-3.1.0
+		 */
+		public int getStatusCode() {
+			return statusCode;
+		}
+
+		/**
+		 * Gets the exception the request that sent the batch failed with
+		 *
+		 * @return The exception, or {@code null} if there wasn't one
+		 * @since alpha-3.1.0
+		 */
+		public Throwable getException() {
+			return exception;
+		}
+
+		/**
+		 * Gets if the backend accepted the batch
+		 *
+		 * @return {@code true} if the batch was accepted
+		 * @since alpha-3.1.0
+		 */
+		public boolean isSuccess() {
+			return status == RequestStatus.Success;
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public String toString() {
+			return "BatchResult[sequence=" + sequence + ", datums=" + datums.size() + ", status=" + status
+					+ ", statusCode=" + statusCode + "]";
+		}
+	}
+
+	/**
+	 * The backend configuration
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final TidepoolBackendConfig cnf;
+	/**
+	 * The id of the dataset
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String datasetId;
+	/**
+	 * The maximum size of the body of a batch, in bytes
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final int maxBatchBytes;
+	/**
+	 * The maximum number of datums in a batch
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final int maxBatchDatums;
+	/**
+	 * If the batches are sent compressed
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final boolean compressBatches;
+	/**
+	 * Given the result of each batch
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Consumer<? super BatchResult> batchListener;
+	/**
+	 * The maximum number of batches in flight
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final int window;
+	/**
+	 * Guards the batch being filled and the window. Waiting for room in the
+	 * window lets go of it, so a batch that finishes can always leave the
+	 * window, and its listener can add datums, while a producer is waiting.
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+	/**
+	 * Signalled when a batch leaves the window
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Condition roomInWindow = lock.newCondition();
+	/**
+	 * How many batches are in the window
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private int inWindow;
+	/**
+	 * Measures the size of each datum
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Utf8Counter counter = new Utf8Counter();
+	/**
+	 * The size of the body of the batch being filled, without its closing
+	 * bracket
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private long batchBytes = 1;
+	/**
+	 * The datums of the batch being filled
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private List<JSONObject> batchDatums = new ArrayList<>();
+	/**
+	 * The position of the next batch
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private long sequence;
+	/**
+	 * If {@link #finish()} has been called
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private boolean finished;
+	/**
+	 * The batches that haven't finished yet
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Set<CompletableFuture<BatchResult>> inFlight = ConcurrentHashMap.newKeySet();
+	/**
+	 * The batches that failed
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Queue<BatchResult> failed = new ConcurrentLinkedQueue<>();
+	/**
+	 * How many datums the backend accepted
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final AtomicLong uploaded = new AtomicLong();
+
+	/**
+	 * protected constructor that uses builder
+	 *
+	 * @param builder The builder
+	 * @since alpha-3.1.0
+	 */
+	protected DatumUploader(Builder builder) {
+		cnf = builder.cnf;
+		datasetId = builder.datasetId;
+		maxBatchBytes = builder.maxBatchBytes;
+		maxBatchDatums = builder.maxBatchDatums;
+		compressBatches = builder.compressBatches;
+		batchListener = builder.batchListener;
+		window = builder.window;
+	}
+
+	/**
+	 * Adds a datum to the current batch. If the datum doesn't fit, the batch is
+	 * sent first, which blocks while the window is full.
+	 *
+	 * @param datum The datum
+	 * @throws InterruptedException  If interrupted while waiting for room in the
+	 *                               window
+	 * @throws IllegalStateException If {@link #finish()} has been called
+	 * @since alpha-3.1.0
+	 */
+	public void add(JSONObject datum) throws InterruptedException {
+		lock.lock();
+		try {
+			ensureNotFinished();
+			counter.count = 0;
+			datum.write(counter);
+			long size = counter.count;
+			if (!fits(size)) {
+				awaitRoom();
+				// the batch may have been sent, or the upload finished, while waiting
+				ensureNotFinished();
+				if (!fits(size)) {
+					send();
+				}
+			}
+			batchBytes += batchDatums.isEmpty() ? size : size + 1;
+			batchDatums.add(datum);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Adds datums to the current batch, sending batches as they fill up
+	 *
+	 * @param datums The datums
+	 * @throws InterruptedException  If interrupted while waiting for room in the
+	 *                               window
+	 * @throws IllegalStateException If {@link #finish()} has been called
+	 * @since alpha-3.1.0
+	 * @see #add(JSONObject)
+	 */
+	public void addAll(Iterable<? extends JSONObject> datums) throws InterruptedException {
+		lock.lock();
+		try {
+			for (JSONObject datum : datums) {
+				add(datum);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Sends the current batch even though it isn't full, blocking while the
+	 * window is full. Does nothing if the batch is empty.
+	 *
+	 * @throws InterruptedException If interrupted while waiting for room in the
+	 *                              window
+	 * @since alpha-3.1.0
+	 */
+	public void flush() throws InterruptedException {
+		lock.lock();
+		try {
+			if (!batchDatums.isEmpty()) {
+				awaitRoom();
+				// another thread may have sent the batch while waiting
+				if (!batchDatums.isEmpty()) {
+					send();
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Sends the last batch, after which no more datums can be added.
+	 *
+	 * @return A {@link CompletableFuture} that completes once every batch has
+	 *         finished, with the batches that failed in the order they were
+	 *         sent, so they can be sent again
+	 * @throws InterruptedException If interrupted while waiting for room in the
+	 *                              window
+	 * @since alpha-3.1.0
+	 */
+	public CompletableFuture<List<BatchResult>> finish() throws InterruptedException {
+		lock.lock();
+		try {
+			flush();
+			finished = true;
+			return CompletableFuture.allOf(inFlight.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+				List<BatchResult> result = new ArrayList<>(failed);
+				result.sort(Comparator.comparingLong(BatchResult::getSequence));
+				return Collections.unmodifiableList(result);
+			});
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets how many datums the backend has accepted so far
+	 *
+	 * @return How many datums
+	 * @since alpha-3.1.0
+	 */
+	public long getUploadedCount() {
+		return uploaded.get();
+	}
+
+	/**
+	 * Gets how many batches are in flight
+	 *
+	 * @return How many batches
+	 * @since alpha-3.1.0
+	 */
+	public int getInFlightCount() {
+		return inFlight.size();
+	}
+
+	/**
+	 * Checks if a datum fits in the batch being filled. Called with the
+	 * {@link #lock} held.
+	 *
+	 * @param size The size of the datum as JSON
+	 * @return {@code true} if the batch is empty, or has room for the datum
+	 * @since alpha-3.1.0
+	 */
+	private boolean fits(long size) {
+		int count = batchDatums.size();
+		// the separator and the closing bracket
+		return count == 0 || (count < maxBatchDatums && batchBytes + size + 2 <= maxBatchBytes);
+	}
+
+	/**
+	 * Throws if {@link #finish()} has been called. Called with the
+	 * {@link #lock} held.
+	 *
+	 * @throws IllegalStateException If {@link #finish()} has been called
+	 * @since alpha-3.1.0
+	 */
+	private void ensureNotFinished() {
+		if (finished) {
+			throw new IllegalStateException("The upload has already finished");
+		}
+	}
+
+	/**
+	 * Waits until there is room in the window, letting go of the {@link #lock}
+	 * while waiting. Called with the {@link #lock} held.
+	 *
+	 * @throws InterruptedException If interrupted while waiting
+	 * @since alpha-3.1.0
+	 */
+	private void awaitRoom() throws InterruptedException {
+		while (inWindow >= window) {
+			roomInWindow.await();
+		}
+	}
+
+	/**
+	 * Lets a finished batch leave the window, and wakes up the producers that
+	 * are waiting for room
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private void leaveWindow() {
+		lock.lock();
+		try {
+			inWindow--;
+			roomInWindow.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Sends the current batch, and starts a new one. Called with the
+	 * {@link #lock} held, once there is room in the window.
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private void send() {
+		inWindow++;
+		List<JSONObject> datums = Collections.unmodifiableList(batchDatums);
+		batchDatums = new ArrayList<>(datums.size());
+		batchBytes = 1;
+		long position = sequence++;
+
+		AddDataToDataset request = new AddDataToDataset(cnf, datasetId, datums, compressBatches);
+		int[] statusCode = new int[1];
+		request.addOnSuccessListener(code -> statusCode[0] = code);
+		request.addOnFailureListener(code -> statusCode[0] = code);
+		CompletableFuture<BatchResult> batch;
+		try {
+			batch = request.sendAsync().handle((sent, exception) -> {
+				BatchResult result = new BatchResult(position, datums, request.getStatus(), statusCode[0],
+						exception != null && exception.getCause() != null ? exception.getCause() : exception);
+				if (result.isSuccess()) {
+					uploaded.addAndGet(datums.size());
+				} else {
+					failed.add(result);
+				}
+				// before the listener, which may add datums and wait for room itself
+				leaveWindow();
+				batchListener.accept(result);
+				return result;
+			});
+		} catch (RuntimeException e) {
+			leaveWindow();
+			throw e;
+		}
+		inFlight.add(batch);
+		batch.whenComplete((result, exception) -> inFlight.remove(batch));
+	}
+
+	/**
+	 * A {@link Writer} that only counts how many bytes what is written to it
+	 * takes up in UTF-8
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final class Utf8Counter extends Writer {
+		/**
+		 * How many bytes have been counted
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private long count;
+
+		/**
+		 * Counts a character. Each half of a surrogate pair counts as 2, so the
+		 * pair counts as the 4 bytes it is encoded as
+		 *
+		 * @param c The character
+		 * @since alpha-3.1.0
+		 */
+		private void count(char c) {
+			if (c < 0x80) {
+				count++;
+			} else if (c < 0x800 || Character.isSurrogate(c)) {
+				count += 2;
+			} else {
+				count += 3;
+			}
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public void write(int c) {
+			count((char) c);
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			for (int i = off; i < off + len; i++) {
+				count(cbuf[i]);
+			}
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public void write(String str, int off, int len) {
+			for (int i = off; i < off + len; i++) {
+				count(str.charAt(i));
+			}
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public void flush() {
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public void close() {
+		}
+	}
+}
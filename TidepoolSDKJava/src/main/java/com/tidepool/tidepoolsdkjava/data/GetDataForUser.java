@@ -1,17 +1,27 @@
 package com.tidepool.tidepoolsdkjava.data;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
 
 import com.tidepool.tidepoolsdkjava.BaseRequest;
 import com.tidepool.tidepoolsdkjava.BodylessRequest;
 import com.tidepool.tidepoolsdkjava.Constants;
+import com.tidepool.tidepoolsdkjava.RequestTemplate;
 import com.tidepool.tidepoolsdkjava.config.TidepoolBackendConfig;
+import com.tidepool.tidepoolsdkjava.data.datum.Datum;
+import com.tidepool.tidepoolsdkjava.data.datum.DatumDecoder;
 
 /**
  * A request that queries the backend for data.
@@ -49,6 +59,26 @@ public class GetDataForUser extends BodylessRequest {
 		 * @sice alpha-0.2.0
 		 */
 		private final String userId;
+		/**
+		 * The consumer that is given each datum as it is parsed, or {@code null}
+		 * to collect the datums into a {@link JSONArray}
+		 * 
+		 * @since alpha-3.1.0
+		 */
+		private Consumer<JSONObject> datumConsumer;
+		/**
+		 * The consumer that is given each typed datum as it is decoded, or
+		 * {@code null} if the datums aren't streamed as {@link Datum}s
+		 * 
+		 * @since alpha-3.1.0
+		 */
+		private Consumer<? super Datum> typedDatumConsumer;
+		/**
+		 * If the datums are decoded into a list of {@link Datum}s
+		 * 
+		 * @since alpha-3.1.0
+		 */
+		private boolean decodeDatums;
 
 		/**
 		 * Creates a builder for {@link GetDataForUser}
@@ -196,6 +226,59 @@ public class GetDataForUser extends BodylessRequest {
 			return this;
 		}
 
+		/**
+		 * Streams the response, handing each datum to the given consumer as soon as
+		 * it has been parsed, instead of collecting them into a {@link JSONArray}.
+		 * Only one datum is held in memory at a time, however large the response
+		 * is.
+		 * <br>
+		 * The consumer is called on the thread reading the response, in the order
+		 * the datums were sent by the backend. {@link GetDataForUser#getJsonArray()}
+		 * can't be used on a request that streams its response.
+		 * 
+		 * @param datumConsumer The consumer that is given each datum
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setDatumConsumer(Consumer<JSONObject> datumConsumer) {
+			this.datumConsumer = datumConsumer;
+			return this;
+		}
+
+		/**
+		 * Decodes the response into typed {@link Datum}s, which can be gotten with
+		 * {@link GetDataForUser#getDatums()}, instead of into a {@link JSONArray}.
+		 * The response is decoded as it arrives, without building a
+		 * {@link JSONObject} for each datum.
+		 * 
+		 * @param decodeDatums If the response should be decoded into {@link Datum}s
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 * @see DatumDecoder
+		 */
+		public Builder setDecodeDatums(boolean decodeDatums) {
+			this.decodeDatums = decodeDatums;
+			return this;
+		}
+
+		/**
+		 * Streams the response, decoding each datum into a typed {@link Datum} and
+		 * handing it to the given consumer as soon as it has been decoded.
+		 * <br>
+		 * The consumer is called on the thread reading the response, in the order
+		 * the datums were sent by the backend. Datums that aren't one of the
+		 * {@link Constants.uploadType upload types} are skipped.
+		 * 
+		 * @param typedDatumConsumer The consumer that is given each datum
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 * @see DatumDecoder
+		 */
+		public Builder setTypedDatumConsumer(Consumer<? super Datum> typedDatumConsumer) {
+			this.typedDatumConsumer = typedDatumConsumer;
+			return this;
+		}
+
 		/**
 		 * Puts a key and some set values into the parameters
 		 * 
@@ -214,6 +297,90 @@ public class GetDataForUser extends BodylessRequest {
 		public GetDataForUser build() {
 			return new GetDataForUser(this);
 		}
+
+		/**
+		 * Prepares this into a {@link Template}, which can be bound to any number
+		 * of user ids. The user id given to this builder is ignored.
+		 * 
+		 * @return a {@link Template}
+		 * @since alpha-3.1.0
+		 */
+		public Template prepare() {
+			return new Template(this);
+		}
+	}
+
+	/**
+	 * A prepared {@link GetDataForUser} request, whose URI and query are worked
+	 * out once, and which can be bound to many user ids, creating a request for
+	 * each. The consumers given to the {@link Builder} are shared by every
+	 * request created from the template.
+	 * <br>
+	 * Thread safe, as long as the consumers are.
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	public static final class Template {
+		/**
+		 * The prepared URI and headers
+		 * 
+		 * @since alpha-3.1.0
+		 */
+		private final RequestTemplate template;
+		/**
+		 * The consumer that is given each datum, or {@code null}
+		 * 
+		 * @since alpha-3.1.0
+		 */
+		private final Consumer<JSONObject> datumConsumer;
+		/**
+		 * The consumer that is given each typed datum, or {@code null}
+		 * 
+		 * @since alpha-3.1.0
+		 */
+		private final Consumer<? super Datum> typedDatumConsumer;
+		/**
+		 * If the datums are decoded into {@link Datum}s
+		 * 
+		 * @since alpha-3.1.0
+		 */
+		private final boolean decodeDatums;
+
+		/**
+		 * private constructor that uses builder
+		 * 
+		 * @param builder The builder
+		 * @since alpha-3.1.0
+		 */
+		private Template(Builder builder) {
+			template = new RequestTemplate.Builder(builder.cnf, "/data/{}").setQueryArgs(builder.queryArgs).build();
+			datumConsumer = builder.datumConsumer;
+			typedDatumConsumer = builder.typedDatumConsumer;
+			decodeDatums = builder.decodeDatums;
+		}
+
+		/**
+		 * Creates a request for a user
+		 * 
+		 * @param userId The user id
+		 * @return a new {@link GetDataForUser} request, which can be sent once
+		 * @since alpha-3.1.0
+		 */
+		public GetDataForUser bind(String userId) {
+			return new GetDataForUser(this, userId);
+		}
+
+		/**
+		 * Creates a request for a user, and sends it
+		 * 
+		 * @param userId The user id
+		 * @return A {@link CompletableFuture} that completes with the request
+		 * @since alpha-3.1.0
+		 * @see GetDataForUser#sendAsync()
+		 */
+		public CompletableFuture<GetDataForUser> sendAsync(String userId) {
+			return bind(userId).sendAsync();
+		}
 	}
 
 	/**
@@ -222,6 +389,32 @@ public class GetDataForUser extends BodylessRequest {
 	 * @since alpha-0.2.0
 	 */
 	private final String userId;
+	/**
+	 * The consumer that is given each datum, or {@code null} if the response
+	 * isn't streamed
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private final Consumer<JSONObject> datumConsumer;
+	/**
+	 * The consumer that is given each typed datum, or {@code null} if typed
+	 * datums aren't streamed
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private final Consumer<? super Datum> typedDatumConsumer;
+	/**
+	 * If the datums are decoded into {@link #datums}
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private final boolean decodeDatums;
+	/**
+	 * The decoded datums, if {@link #decodeDatums}
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	private List<Datum> datums;
 
 	/**
 	 * protected constructor that uses builder
@@ -232,6 +425,24 @@ public class GetDataForUser extends BodylessRequest {
 	protected GetDataForUser(Builder builder) {
 		super(new HashMap<>(), builder.cnf, builder.queryArgs);
 		userId = builder.userId;
+		datumConsumer = builder.datumConsumer;
+		typedDatumConsumer = builder.typedDatumConsumer;
+		decodeDatums = builder.decodeDatums;
+	}
+
+	/**
+	 * protected constructor that uses a prepared template
+	 * 
+	 * @param template The template
+	 * @param userId   The user id
+	 * @since alpha-3.1.0
+	 */
+	protected GetDataForUser(Template template, String userId) {
+		super(template.template, userId);
+		this.userId = userId;
+		datumConsumer = template.datumConsumer;
+		typedDatumConsumer = template.typedDatumConsumer;
+		decodeDatums = template.decodeDatums;
 	}
 
 	/**
@@ -239,7 +450,15 @@ public class GetDataForUser extends BodylessRequest {
 	 */
 	@Override
 	protected String getURI() {
-		return String.format("/data/@s", userId);
+		return String.format("/data/%s", userId);
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	protected String getURITemplate() {
+		return "/data/{userId}";
 	}
 
 	/**
@@ -266,6 +485,64 @@ public class GetDataForUser extends BodylessRequest {
 		jsonArray = new JSONArray(response);
 	}
 
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	protected boolean streamsResponse() {
+		return datumConsumer != null || typedDatumConsumer != null || decodeDatums;
+	}
+
+	/**
+	 * Parses the datums one at a time, handing each to the
+	 * {@link Builder#setDatumConsumer(Consumer) datum consumer}, or decoding
+	 * them into {@link Datum}s
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	protected void parseResponse(InputStream response) throws IOException {
+		if (typedDatumConsumer != null) {
+			new DatumDecoder().decodeArray(response, typedDatumConsumer);
+			return;
+		}
+		if (decodeDatums) {
+			List<Datum> result = new ArrayList<>();
+			new DatumDecoder().decodeArray(response, result::add);
+			datums = Collections.unmodifiableList(result);
+			return;
+		}
+		if (datumConsumer == null) {
+			// a compressed response is streamed even when nothing consumes it datum by
+			// datum
+			super.parseResponse(response);
+			return;
+		}
+		JSONTokener tokener = new JSONTokener(response);
+		if (tokener.nextClean() != '[') {
+			throw tokener.syntaxError("A JSONArray text must start with '['");
+		}
+		if (tokener.nextClean() == ']') {
+			return;
+		}
+		tokener.back();
+		while (true) {
+			Object datum = tokener.nextValue();
+			if (!(datum instanceof JSONObject)) {
+				throw tokener.syntaxError("Expected a datum object");
+			}
+			datumConsumer.accept((JSONObject) datum);
+			switch (tokener.nextClean()) {
+			case ',':
+				break;
+			case ']':
+				return;
+			default:
+				throw tokener.syntaxError("Expected a ',' or ']'");
+			}
+		}
+	}
+
 	/**
 	 * @since alpha-0.2.0
 	 */
@@ -274,6 +551,59 @@ public class GetDataForUser extends BodylessRequest {
 		return super.getJsonArray();
 	}
 
+	/**
+	 * Only a request that doesn't hand its datums to a consumer may be
+	 * coalesced
+	 * 
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	protected boolean coalescesResponse() {
+		return datumConsumer == null && typedDatumConsumer == null && super.coalescesResponse();
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	protected String coalescingVariant() {
+		return decodeDatums ? "datums" : null;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	protected void adoptResult(BaseRequest leader) {
+		super.adoptResult(leader);
+		datums = ((GetDataForUser) leader).datums;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public CompletableFuture<GetDataForUser> sendAsync() {
+		return super.sendAsync().thenApply(GetDataForUser.class::cast);
+	}
+
+	/**
+	 * Gets the typed datums from the response, as an alternative to
+	 * {@link #getJsonArray()}
+	 * 
+	 * @return the datums from the response
+	 * @throws IllegalStateException If the request hasn't finished, or wasn't
+	 *                               built with
+	 *                               {@link Builder#setDecodeDatums(boolean)}
+	 * @since alpha-3.1.0
+	 */
+	public List<Datum> getDatums() {
+		if (datums == null) {
+			throw new IllegalStateException("datums have not yet been set");
+		}
+		return datums;
+	}
+
 	/**
 	 * @since alpha-2.1.0
 	 */
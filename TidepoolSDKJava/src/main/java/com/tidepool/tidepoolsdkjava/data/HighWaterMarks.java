@@ -0,0 +1,286 @@
+package com.tidepool.tidepoolsdkjava.data;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+import com.tidepool.tidepoolsdkjava.data.datum.Datum;
+
+/**
+ * Durably records, per user and per {@link Constants.uploadType}, the time of
+ * the latest datum that has been seen, and the ids of the datums seen close to
+ * it, so datums that are fetched again can be recognized.
+ * <br>
+ * Each user's marks are kept in their own file in a directory. A file is
+ * replaced atomically whenever a mark moves forward, so a crash never leaves a
+ * half written file behind.
+ * <br>
+ * Thread safe.
+ *
+ * @since alpha-3.1.0
+ */
+public class HighWaterMarks {
+	/**
+	 * The directory the files are kept in
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Path directory;
+	/**
+	 * The marks that have been loaded, by user id
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Map<String, Marks> marks = new ConcurrentHashMap<>();
+
+	/**
+	 * The suffix of the property that lists the datums seen of a type
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final String SEEN_SUFFIX = ".seen";
+
+	/**
+	 * The marks of a single user
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final class Marks {
+		/**
+		 * The time of the latest datum seen, by type
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final Map<Constants.uploadType, Long> times = new EnumMap<>(Constants.uploadType.class);
+		/**
+		 * The times of the datums seen, by id, by type
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final Map<Constants.uploadType, Map<String, Long>> seen = new EnumMap<>(
+				Constants.uploadType.class);
+	}
+
+	/**
+	 * Creates a {@link HighWaterMarks} that keeps its files in the given
+	 * directory, creating the directory if it doesn't exist
+	 *
+	 * @param directory The directory to keep the files in
+	 * @throws IOException If the directory couldn't be created
+	 * @since alpha-3.1.0
+	 */
+	public HighWaterMarks(Path directory) throws IOException {
+		this.directory = Files.createDirectories(directory);
+	}
+
+	/**
+	 * Gets the time of the latest datum of a type that has been seen for a user
+	 *
+	 * @param userId The user id
+	 * @param type   The type of data
+	 * @return The time in milliseconds since the epoch, or {@link Datum#MISSING}
+	 *         if no datum of the type has been seen
+	 * @since alpha-3.1.0
+	 */
+	public long get(String userId, Constants.uploadType type) {
+		Marks userMarks = load(userId);
+		synchronized (userMarks) {
+			Long mark = userMarks.times.get(type);
+			return mark == null ? Datum.MISSING : mark;
+		}
+	}
+
+	/**
+	 * Gets the datums of a type that were recorded as seen for a user
+	 *
+	 * @param userId The user id
+	 * @param type   The type of data
+	 * @return The time of each datum, in milliseconds since the epoch or
+	 *         {@link Datum#MISSING}, by its id
+	 * @since alpha-3.1.0
+	 * @see #advance(String, Constants.uploadType, long, Map)
+	 */
+	public Map<String, Long> getSeen(String userId, Constants.uploadType type) {
+		Marks userMarks = load(userId);
+		synchronized (userMarks) {
+			Map<String, Long> seen = userMarks.seen.get(type);
+			return seen == null ? Collections.emptyMap() : Collections.unmodifiableMap(new HashMap<>(seen));
+		}
+	}
+
+	/**
+	 * Moves the mark of a type forward for a user, and writes it to disk. Does
+	 * nothing if the given time isn't after the current mark.
+	 *
+	 * @param userId The user id
+	 * @param type   The type of data
+	 * @param time   The time of the latest datum seen, in milliseconds since the
+	 *               epoch
+	 * @throws UncheckedIOException If the marks couldn't be written
+	 * @since alpha-3.1.0
+	 */
+	public void advance(String userId, Constants.uploadType type, long time) {
+		Marks userMarks = load(userId);
+		synchronized (userMarks) {
+			Long mark = userMarks.times.get(type);
+			if (mark != null && mark >= time) {
+				return;
+			}
+			userMarks.times.put(type, time);
+			write(userId, userMarks);
+		}
+	}
+
+	/**
+	 * Moves the mark of a type forward for a user, unless the given time isn't
+	 * after the current mark, and replaces the datums of the type recorded as
+	 * seen. Both are written to disk together.
+	 *
+	 * @param userId The user id
+	 * @param type   The type of data
+	 * @param time   The time of the latest datum seen, in milliseconds since the
+	 *               epoch, or {@link Datum#MISSING} to leave the mark as it is
+	 * @param seen   The time of each datum seen, in milliseconds since the epoch
+	 *               or {@link Datum#MISSING}, by its id
+	 * @throws UncheckedIOException If the marks couldn't be written
+	 * @since alpha-3.1.0
+	 */
+	public void advance(String userId, Constants.uploadType type, long time, Map<String, Long> seen) {
+		Marks userMarks = load(userId);
+		synchronized (userMarks) {
+			Long mark = userMarks.times.get(type);
+			if (time != Datum.MISSING && (mark == null || mark < time)) {
+				userMarks.times.put(type, time);
+			}
+			userMarks.seen.put(type, new HashMap<>(seen));
+			write(userId, userMarks);
+		}
+	}
+
+	/**
+	 * Gets the marks for a user, reading them from disk the first time
+	 *
+	 * @param userId The user id
+	 * @return The marks of the user
+	 * @since alpha-3.1.0
+	 */
+	private Marks load(String userId) {
+		return marks.computeIfAbsent(userId, id -> {
+			Marks result = new Marks();
+			Path file = fileOf(id);
+			if (!Files.exists(file)) {
+				return result;
+			}
+			Properties properties = new Properties();
+			try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				properties.load(reader);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Failed to read the high water marks for " + id, e);
+			}
+			for (Constants.uploadType type : Constants.uploadType.values()) {
+				String value = properties.getProperty(type.toString());
+				if (value != null) {
+					result.times.put(type, Long.parseLong(value));
+				}
+				String seen = properties.getProperty(type.toString() + SEEN_SUFFIX);
+				if (seen != null && !seen.isEmpty()) {
+					Map<String, Long> datums = new HashMap<>();
+					for (String entry : seen.split(",")) {
+						int separator = entry.lastIndexOf(':');
+						datums.put(entry.substring(0, separator), Long.parseLong(entry.substring(separator + 1)));
+					}
+					result.seen.put(type, datums);
+				}
+			}
+			return result;
+		});
+	}
+
+	/**
+	 * Writes the marks of a user
+	 *
+	 * @param userId    The user id
+	 * @param userMarks The marks of the user
+	 * @throws UncheckedIOException If writing fails
+	 * @since alpha-3.1.0
+	 */
+	private void write(String userId, Marks userMarks) {
+		Properties properties = new Properties();
+		for (Map.Entry<Constants.uploadType, Long> pair : userMarks.times.entrySet()) {
+			properties.setProperty(pair.getKey().toString(), Long.toString(pair.getValue()));
+		}
+		for (Map.Entry<Constants.uploadType, Map<String, Long>> pair : userMarks.seen.entrySet()) {
+			StringBuilder seen = new StringBuilder();
+			for (Map.Entry<String, Long> datum : pair.getValue().entrySet()) {
+				if (seen.length() > 0) {
+					seen.append(',');
+				}
+				seen.append(datum.getKey()).append(':').append(datum.getValue());
+			}
+			properties.setProperty(pair.getKey().toString() + SEEN_SUFFIX, seen.toString());
+		}
+		try {
+			write(userId, properties);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to write the high water marks for " + userId, e);
+		}
+	}
+
+	/**
+	 * Writes the marks of a user to a temporary file, syncs it to disk, and moves
+	 * it over the user's file
+	 *
+	 * @param userId     The user id
+	 * @param properties The marks of the user
+	 * @throws IOException If writing fails
+	 * @since alpha-3.1.0
+	 */
+	private void write(String userId, Properties properties) throws IOException {
+		Path file = fileOf(userId);
+		Path temp = Files.createTempFile(directory, "marks", ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				OutputStream out = Channels.newOutputStream(channel);
+				properties.store(out, "High water marks for " + userId);
+				out.flush();
+				channel.force(true);
+			}
+			try {
+				Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Gets the file the marks of a user are kept in
+	 *
+	 * @param userId The user id
+	 * @return The file
+	 * @since alpha-3.1.0
+	 */
+	private Path fileOf(String userId) {
+		return directory.resolve(URLEncoder.encode(userId, StandardCharsets.UTF_8) + ".properties");
+	}
+}
@@ -0,0 +1,284 @@
+package com.tidepool.tidepoolsdkjava.data;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.tidepool.tidepoolsdkjava.BaseRequest.RequestStatus;
+import com.tidepool.tidepoolsdkjava.Constants;
+import com.tidepool.tidepoolsdkjava.config.TidepoolBackendConfig;
+import com.tidepool.tidepoolsdkjava.data.datum.Datum;
+
+/**
+ * Syncs a user's data in cycles, only fetching the data that is newer than
+ * what the last cycle saw.
+ * <br>
+ * The time of the latest datum seen of each type is kept in
+ * {@link HighWaterMarks}, and is only moved forward once every datum of that
+ * type has been handed to the consumer, so a failed cycle is simply fetched
+ * again by the next one.
+ * <br>
+ * Datums can be uploaded after newer ones, such as when a device uploads its
+ * history late, so each cycle also fetches an {@link Builder#setOverlap(Duration)
+ * overlap} before the mark again. The ids of the datums in the overlap are
+ * kept with the marks, so only the datums that weren't seen before are handed
+ * to the consumer. A datum that is already older than the mark by more than
+ * the overlap when it is uploaded is never fetched. Datums without a time are
+ * handed over once, by their id.
+ *
+ * @since alpha-3.1.0
+ */
+public class IncrementalSync {
+	/**
+	 * Used to create an {@link IncrementalSync}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public static class Builder {
+		/**
+		 * The backend configuration
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final TidepoolBackendConfig cnf;
+		/**
+		 * Where the marks are kept
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final HighWaterMarks marks;
+		/**
+		 * The types of data that are synced
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Constants.uploadType[] types = Constants.uploadType.values();
+		/**
+		 * Where a sync starts for a type that has no mark yet, or {@code null} to
+		 * fetch all of its history
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Instant initialStart;
+		/**
+		 * How far before the mark each cycle fetches again
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Duration overlap = Duration.ofHours(24);
+
+		/**
+		 * Creates a builder for {@link IncrementalSync}
+		 *
+		 * @param cnf   The backend configuration to use
+		 * @param marks Where the marks are kept
+		 * @since alpha-3.1.0
+		 */
+		public Builder(TidepoolBackendConfig cnf, HighWaterMarks marks) {
+			this.cnf = cnf;
+			this.marks = marks;
+		}
+
+		/**
+		 * Sets the types of data that are synced. Defaults to every type
+		 *
+		 * @param types The types of data
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setTypes(Constants.uploadType... types) {
+			this.types = types.clone();
+			return this;
+		}
+
+		/**
+		 * Sets where a sync starts for a type that has no mark yet. Defaults to
+		 * fetching all of its history
+		 *
+		 * @param initialStart Where to start
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setInitialStart(ZonedDateTime initialStart) {
+			this.initialStart = initialStart.toInstant();
+			return this;
+		}
+
+		/**
+		 * Sets how far before the mark of each type a cycle fetches again, to find
+		 * the datums that were uploaded after newer ones. Defaults to 24 hours
+		 *
+		 * @param overlap How far before the mark to fetch
+		 * @return {@code this} for chaining
+		 * @throws IllegalArgumentException If the overlap is negative
+		 * @since alpha-3.1.0
+		 */
+		public Builder setOverlap(Duration overlap) {
+			if (overlap.isNegative()) {
+				throw new IllegalArgumentException("overlap must not be negative");
+			}
+			this.overlap = overlap;
+			return this;
+		}
+
+		/**
+		 * Builds this into an {@link IncrementalSync}
+		 *
+		 * @return an {@link IncrementalSync}
+		 * @since alpha-3.1.0
+		 */
+		public IncrementalSync build() {
+			return new IncrementalSync(this);
+		}
+	}
+
+	/**
+	 * The backend configuration
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final TidepoolBackendConfig cnf;
+	/**
+	 * Where the marks are kept
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final HighWaterMarks marks;
+	/**
+	 * The types of data that are synced
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Constants.uploadType[] types;
+	/**
+	 * Where a sync starts for a type with no mark, or {@code null}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Instant initialStart;
+	/**
+	 * How far before the mark each cycle fetches again, in milliseconds
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long overlapMillis;
+
+	/**
+	 * protected constructor that uses builder
+	 *
+	 * @param builder The builder
+	 * @since alpha-3.1.0
+	 */
+	protected IncrementalSync(Builder builder) {
+		cnf = builder.cnf;
+		marks = builder.marks;
+		types = builder.types;
+		initialStart = builder.initialStart;
+		overlapMillis = builder.overlap.toMillis();
+	}
+
+	/**
+	 * Runs one sync cycle for a user, fetching every type concurrently.
+	 * <br>
+	 * The consumer is called from the threads reading the responses, and so
+	 * may be called concurrently for different types.
+	 *
+	 * @param userId   The user id
+	 * @param consumer The consumer that is given each new datum
+	 * @return A {@link CompletableFuture} that completes with the number of new
+	 *         datums, or completes exceptionally if fetching any of the types
+	 *         failed. The marks of the types that succeeded are still moved
+	 *         forward.
+	 * @since alpha-3.1.0
+	 */
+	public CompletableFuture<Integer> sync(String userId, Consumer<? super Datum> consumer) {
+		AtomicInteger count = new AtomicInteger();
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[types.length];
+		for (int i = 0; i < types.length; i++) {
+			futures[i] = syncType(userId, types[i], consumer, count);
+		}
+		return CompletableFuture.allOf(futures).thenApply(done -> count.get());
+	}
+
+	/**
+	 * Fetches the new data of a single type, and moves its mark forward.
+	 * <br>
+	 * The datums seen from the overlap before the new mark onwards are recorded
+	 * with it, which are all the datums the next cycle can fetch again.
+	 *
+	 * @param userId   The user id
+	 * @param type     The type of data
+	 * @param consumer The consumer that is given each new datum
+	 * @param count    Counts the new datums
+	 * @return A future that completes once the mark has been moved forward
+	 * @since alpha-3.1.0
+	 */
+	private CompletableFuture<Void> syncType(String userId, Constants.uploadType type,
+			Consumer<? super Datum> consumer, AtomicInteger count) {
+		long mark = marks.get(userId, type);
+		Map<String, Long> seen = marks.getSeen(userId, type);
+		// only touched by the thread reading the response, before it completes
+		Map<String, Long> fresh = new HashMap<>();
+		AtomicLong latest = new AtomicLong(mark);
+		GetDataForUser.Builder builder = new GetDataForUser.Builder(cnf, userId).setTypes(type)
+				.setTypedDatumConsumer(datum -> {
+					String id = datum.getId();
+					long time = datum.getTimeMillis();
+					if (id == null) {
+						// can't be recognized, so only what is after the mark is new
+						if (mark != Datum.MISSING && time != Datum.MISSING && time <= mark) {
+							return;
+						}
+					} else if (seen.containsKey(id) || fresh.putIfAbsent(id, time) != null) {
+						return;
+					}
+					consumer.accept(datum);
+					count.incrementAndGet();
+					latest.accumulateAndGet(time, Math::max);
+				});
+		if (mark != Datum.MISSING) {
+			builder.setStartDate(ZonedDateTime.ofInstant(Instant.ofEpochMilli(mark - overlapMillis), ZoneOffset.UTC));
+		} else if (initialStart != null) {
+			builder.setStartDate(ZonedDateTime.ofInstant(initialStart, ZoneOffset.UTC));
+		}
+		return builder.build().sendAsync().thenAccept(request -> {
+			if (request.getStatus() != RequestStatus.Success) {
+				throw new IllegalStateException("Failed to sync " + type + " data for " + userId);
+			}
+			long updated = latest.get();
+			Map<String, Long> kept = new HashMap<>();
+			long from = updated == Datum.MISSING ? Datum.MISSING : updated - overlapMillis;
+			keepSeen(seen, from, kept);
+			keepSeen(fresh, from, kept);
+			if (updated != mark || !kept.equals(seen)) {
+				marks.advance(userId, type, updated, kept);
+			}
+		});
+	}
+
+	/**
+	 * Copies the datums seen that the next cycle can fetch again
+	 *
+	 * @param seen The time of each datum seen, by its id
+	 * @param from Where the next cycle starts fetching, or {@link Datum#MISSING}
+	 *             if it fetches everything
+	 * @param kept Where the datums are copied to
+	 * @since alpha-3.1.0
+	 */
+	private static void keepSeen(Map<String, Long> seen, long from, Map<String, Long> kept) {
+		for (Map.Entry<String, Long> datum : seen.entrySet()) {
+			long time = datum.getValue();
+			// datums without a time are fetched by every cycle
+			if (time == Datum.MISSING || time >= from) {
+				kept.put(datum.getKey(), time);
+			}
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+
+/**
+ * An alert, a {@code alert} datum
+ *
+ * @since alpha-3.1.0
+ */
+public final class AlertDatum extends Datum {
+	/**
+	 * The fields read for this type of datum
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long FIELDS = DatumFields.COMMON | DatumFields.NAME | DatumFields.PRIORITY;
+
+	/**
+	 * The name
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String name;
+	/**
+	 * The priority
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String priority;
+
+	/**
+	 * Creates a {@link AlertDatum}
+	 *
+	 * @param fields The fields that were read
+	 * @since alpha-3.1.0
+	 */
+	AlertDatum(DatumFields fields) {
+		super(fields);
+		this.name = fields.name;
+		this.priority = fields.priority;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public Constants.uploadType getType() {
+		return Constants.uploadType.ALERT;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	void export(DatumFields fields) {
+		super.export(fields);
+		fields.name = name;
+		fields.priority = priority;
+	}
+
+	/**
+	 * Gets the name
+	 *
+	 * @return The name
+	 * @since alpha-3.1.0
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the priority
+	 *
+	 * @return The priority
+	 * @since alpha-3.1.0
+	 */
+	public String getPriority() {
+		return priority;
+	}
+}
@@ -0,0 +1,98 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+
+/**
+ * A basal insulin delivery, a {@code basal} datum
+ *
+ * @since alpha-3.1.0
+ */
+public final class BasalDatum extends Datum {
+	/**
+	 * The fields read for this type of datum
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long FIELDS = DatumFields.COMMON | DatumFields.DELIVERY_TYPE | DatumFields.DURATION | DatumFields.RATE;
+
+	/**
+	 * The delivery type
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String deliveryType;
+	/**
+	 * The duration, in milliseconds
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long duration;
+	/**
+	 * The rate, in units per hour
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final double rate;
+
+	/**
+	 * Creates a {@link BasalDatum}
+	 *
+	 * @param fields The fields that were read
+	 * @since alpha-3.1.0
+	 */
+	BasalDatum(DatumFields fields) {
+		super(fields);
+		this.deliveryType = fields.deliveryType;
+		this.duration = fields.duration;
+		this.rate = fields.rate;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public Constants.uploadType getType() {
+		return Constants.uploadType.BASAL;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	void export(DatumFields fields) {
+		super.export(fields);
+		fields.deliveryType = deliveryType;
+		fields.duration = duration;
+		fields.rate = rate;
+	}
+
+	/**
+	 * Gets the delivery type
+	 *
+	 * @return The delivery type
+	 * @since alpha-3.1.0
+	 */
+	public String getDeliveryType() {
+		return deliveryType;
+	}
+
+	/**
+	 * Gets the duration, in milliseconds
+	 *
+	 * @return The duration, in milliseconds
+	 * @since alpha-3.1.0
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+	/**
+	 * Gets the rate, in units per hour
+	 *
+	 * @return The rate, in units per hour
+	 * @since alpha-3.1.0
+	 */
+	public double getRate() {
+		return rate;
+	}
+}
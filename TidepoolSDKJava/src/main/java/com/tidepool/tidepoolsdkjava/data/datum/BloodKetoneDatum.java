@@ -0,0 +1,80 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+
+/**
+ * A blood ketone reading, a {@code bloodKetone} datum
+ *
+ * @since alpha-3.1.0
+ */
+public final class BloodKetoneDatum extends Datum {
+	/**
+	 * The fields read for this type of datum
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long FIELDS = DatumFields.COMMON | DatumFields.UNITS | DatumFields.VALUE;
+
+	/**
+	 * The units of the value
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String units;
+	/**
+	 * The value
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final double value;
+
+	/**
+	 * Creates a {@link BloodKetoneDatum}
+	 *
+	 * @param fields The fields that were read
+	 * @since alpha-3.1.0
+	 */
+	BloodKetoneDatum(DatumFields fields) {
+		super(fields);
+		this.units = fields.units;
+		this.value = fields.value;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public Constants.uploadType getType() {
+		return Constants.uploadType.BLOOD_KETONE;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	void export(DatumFields fields) {
+		super.export(fields);
+		fields.units = units;
+		fields.value = value;
+	}
+
+	/**
+	 * Gets the units of the value
+	 *
+	 * @return The units of the value
+	 * @since alpha-3.1.0
+	 */
+	public String getUnits() {
+		return units;
+	}
+
+	/**
+	 * Gets the value
+	 *
+	 * @return The value
+	 * @since alpha-3.1.0
+	 */
+	public double getValue() {
+		return value;
+	}
+}
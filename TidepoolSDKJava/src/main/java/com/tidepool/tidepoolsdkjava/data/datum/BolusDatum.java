@@ -0,0 +1,116 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+
+/**
+ * A bolus insulin delivery, a {@code bolus} datum
+ *
+ * @since alpha-3.1.0
+ */
+public final class BolusDatum extends Datum {
+	/**
+	 * The fields read for this type of datum
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long FIELDS = DatumFields.COMMON | DatumFields.SUB_TYPE | DatumFields.NORMAL | DatumFields.EXTENDED | DatumFields.DURATION;
+
+	/**
+	 * The sub type
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String subType;
+	/**
+	 * The amount delivered immediately
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final double normal;
+	/**
+	 * The amount delivered over the duration
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final double extended;
+	/**
+	 * The duration, in milliseconds
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long duration;
+
+	/**
+	 * Creates a {@link BolusDatum}
+	 *
+	 * @param fields The fields that were read
+	 * @since alpha-3.1.0
+	 */
+	BolusDatum(DatumFields fields) {
+		super(fields);
+		this.subType = fields.subType;
+		this.normal = fields.normal;
+		this.extended = fields.extended;
+		this.duration = fields.duration;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public Constants.uploadType getType() {
+		return Constants.uploadType.BOLUS;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	void export(DatumFields fields) {
+		super.export(fields);
+		fields.subType = subType;
+		fields.normal = normal;
+		fields.extended = extended;
+		fields.duration = duration;
+	}
+
+	/**
+	 * Gets the sub type
+	 *
+	 * @return The sub type
+	 * @since alpha-3.1.0
+	 */
+	public String getSubType() {
+		return subType;
+	}
+
+	/**
+	 * Gets the amount delivered immediately
+	 *
+	 * @return The amount delivered immediately
+	 * @since alpha-3.1.0
+	 */
+	public double getNormal() {
+		return normal;
+	}
+
+	/**
+	 * Gets the amount delivered over the duration
+	 *
+	 * @return The amount delivered over the duration
+	 * @since alpha-3.1.0
+	 */
+	public double getExtended() {
+		return extended;
+	}
+
+	/**
+	 * Gets the duration, in milliseconds
+	 *
+	 * @return The duration, in milliseconds
+	 * @since alpha-3.1.0
+	 */
+	public long getDuration() {
+		return duration;
+	}
+}
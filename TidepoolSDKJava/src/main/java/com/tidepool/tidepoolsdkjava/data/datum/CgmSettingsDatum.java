@@ -0,0 +1,80 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+
+/**
+ * The settings of a cgm, a {@code cgmSettings} datum
+ *
+ * @since alpha-3.1.0
+ */
+public final class CgmSettingsDatum extends Datum {
+	/**
+	 * The fields read for this type of datum
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long FIELDS = DatumFields.COMMON | DatumFields.UNITS | DatumFields.TRANSMITTER_ID;
+
+	/**
+	 * The units of the value
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String units;
+	/**
+	 * The id of the transmitter
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String transmitterId;
+
+	/**
+	 * Creates a {@link CgmSettingsDatum}
+	 *
+	 * @param fields The fields that were read
+	 * @since alpha-3.1.0
+	 */
+	CgmSettingsDatum(DatumFields fields) {
+		super(fields);
+		this.units = fields.units;
+		this.transmitterId = fields.transmitterId;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public Constants.uploadType getType() {
+		return Constants.uploadType.CGM_SETTINGS;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	void export(DatumFields fields) {
+		super.export(fields);
+		fields.units = units;
+		fields.transmitterId = transmitterId;
+	}
+
+	/**
+	 * Gets the units of the value
+	 *
+	 * @return The units of the value
+	 * @since alpha-3.1.0
+	 */
+	public String getUnits() {
+		return units;
+	}
+
+	/**
+	 * Gets the id of the transmitter
+	 *
+	 * @return The id of the transmitter
+	 * @since alpha-3.1.0
+	 */
+	public String getTransmitterId() {
+		return transmitterId;
+	}
+}
@@ -0,0 +1,62 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+
+/**
+ * The settings of a controller, a {@code controllerSettings} datum
+ *
+ * @since alpha-3.1.0
+ */
+public final class ControllerSettingsDatum extends Datum {
+	/**
+	 * The fields read for this type of datum
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long FIELDS = DatumFields.COMMON | DatumFields.DEVICE_MODEL | DatumFields.DEVICE;
+
+	/**
+	 * The model of the device
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String deviceModel;
+
+	/**
+	 * Creates a {@link ControllerSettingsDatum}
+	 *
+	 * @param fields The fields that were read
+	 * @since alpha-3.1.0
+	 */
+	ControllerSettingsDatum(DatumFields fields) {
+		super(fields);
+		this.deviceModel = fields.deviceModel;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public Constants.uploadType getType() {
+		return Constants.uploadType.CONTROLLER_SETTINGS;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	void export(DatumFields fields) {
+		super.export(fields);
+		fields.deviceModel = deviceModel;
+	}
+
+	/**
+	 * Gets the model of the device
+	 *
+	 * @return The model of the device
+	 * @since alpha-3.1.0
+	 */
+	public String getDeviceModel() {
+		return deviceModel;
+	}
+}
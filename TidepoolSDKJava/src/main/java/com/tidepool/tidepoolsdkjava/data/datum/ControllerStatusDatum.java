@@ -0,0 +1,62 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+
+/**
+ * The status of a controller, a {@code controllerStatus} datum
+ *
+ * @since alpha-3.1.0
+ */
+public final class ControllerStatusDatum extends Datum {
+	/**
+	 * The fields read for this type of datum
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long FIELDS = DatumFields.COMMON | DatumFields.BATTERY;
+
+	/**
+	 * The remaining battery
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final double batteryRemaining;
+
+	/**
+	 * Creates a {@link ControllerStatusDatum}
+	 *
+	 * @param fields The fields that were read
+	 * @since alpha-3.1.0
+	 */
+	ControllerStatusDatum(DatumFields fields) {
+		super(fields);
+		this.batteryRemaining = fields.batteryRemaining;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public Constants.uploadType getType() {
+		return Constants.uploadType.CONTROLLER_STATUS;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	void export(DatumFields fields) {
+		super.export(fields);
+		fields.batteryRemaining = batteryRemaining;
+	}
+
+	/**
+	 * Gets the remaining battery
+	 *
+	 * @return The remaining battery
+	 * @since alpha-3.1.0
+	 */
+	public double getBatteryRemaining() {
+		return batteryRemaining;
+	}
+}
@@ -0,0 +1,144 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+import java.time.Instant;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+
+/**
+ * A single immutable datum from the backend, decoded by a
+ * {@link DatumDecoder}. There is one subclass for each
+ * {@link Constants.uploadType}.
+ * <br>
+ * Only the fields that each type of datum needs are kept. Numbers that were
+ * missing are {@link Double#NaN}, and strings that were missing are
+ * {@code null}.
+ *
+ * @since alpha-3.1.0
+ */
+public abstract class Datum {
+	/**
+	 * The value of a time or duration that was missing
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public static final long MISSING = Long.MIN_VALUE;
+
+	/**
+	 * The id of the datum
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String id;
+	/**
+	 * When the datum happened, in milliseconds since the epoch
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long time;
+	/**
+	 * The id of the upload that the datum is part of
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String uploadId;
+	/**
+	 * The id of the device that the datum came from
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String deviceId;
+
+	/**
+	 * Creates a datum with the fields every datum has
+	 *
+	 * @param fields The fields that were read
+	 * @since alpha-3.1.0
+	 */
+	Datum(DatumFields fields) {
+		this.id = fields.id;
+		this.time = fields.time;
+		this.uploadId = fields.uploadId;
+		this.deviceId = fields.deviceId;
+	}
+
+	/**
+	 * Copies the fields of this datum into the given fields, the reverse of the
+	 * constructor. Subclasses with their own fields should override this.
+	 *
+	 * @param fields The fields to copy into
+	 * @since alpha-3.1.0
+	 */
+	void export(DatumFields fields) {
+		fields.type = getType().toString();
+		fields.id = id;
+		fields.time = time;
+		fields.uploadId = uploadId;
+		fields.deviceId = deviceId;
+	}
+
+	/**
+	 * Gets the type of this datum
+	 *
+	 * @return The type of this datum
+	 * @since alpha-3.1.0
+	 */
+	public abstract Constants.uploadType getType();
+
+	/**
+	 * Gets the id of this datum
+	 *
+	 * @return The id of this datum
+	 * @since alpha-3.1.0
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * Gets when this datum happened, in milliseconds since the epoch
+	 *
+	 * @return When this datum happened, or {@link #MISSING} if it had no time
+	 * @since alpha-3.1.0
+	 */
+	public long getTimeMillis() {
+		return time;
+	}
+
+	/**
+	 * Gets when this datum happened
+	 *
+	 * @return When this datum happened, or {@code null} if it had no time
+	 * @since alpha-3.1.0
+	 */
+	public Instant getTime() {
+		return time == MISSING ? null : Instant.ofEpochMilli(time);
+	}
+
+	/**
+	 * Gets the id of the upload that this datum is part of
+	 *
+	 * @return The upload id
+	 * @since alpha-3.1.0
+	 */
+	public String getUploadId() {
+		return uploadId;
+	}
+
+	/**
+	 * Gets the id of the device this datum came from
+	 *
+	 * @return The device id
+	 * @since alpha-3.1.0
+	 */
+	public String getDeviceId() {
+		return deviceId;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[id=" + id + ", time=" + getTime() + "]";
+	}
+}
@@ -0,0 +1,361 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+
+/**
+ * Encodes {@link Datum}s into a compact binary form and back.
+ * <br>
+ * A datum is encoded as its type, time, the fields every datum has, and then
+ * only the fields its type uses, in a fixed order. The type is encoded as a
+ * code of its own, not its ordinal, so encoded datums stay readable when
+ * {@link Constants.uploadType} changes. Numbers are written as is,
+ * and strings as their length followed by their UTF-8 bytes.
+ * <br>
+ * A codec can be reused, but is not thread safe.
+ *
+ * @since alpha-3.1.0
+ */
+public final class DatumCodec {
+	/**
+	 * The fields that are encoded after the common ones, in the order they are
+	 * encoded
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final long[] ENCODED_FIELDS = { DatumFields.UNITS, DatumFields.VALUE, DatumFields.SUB_TYPE,
+			DatumFields.DELIVERY_TYPE, DatumFields.DURATION, DatumFields.RATE, DatumFields.NORMAL,
+			DatumFields.EXTENDED, DatumFields.NAME, DatumFields.PRIORITY, DatumFields.REASON,
+			DatumFields.ACTIVE_SCHEDULE, DatumFields.DEVICE_MODEL, DatumFields.DEVICE_SERIAL_NUMBER,
+			DatumFields.TRANSMITTER_ID, DatumFields.CARB_INPUT, DatumFields.INSULIN_ON_BOARD, DatumFields.BG_INPUT,
+			DatumFields.BOLUS, DatumFields.STATUS, DatumFields.NUTRITION, DatumFields.DOSE, DatumFields.AMOUNT,
+			DatumFields.BATTERY };
+	/**
+	 * The names of the upload types, indexed by the code they are encoded as.
+	 * <br>
+	 * Encoded datums are kept on disk, so a code must never change: new types
+	 * are only added to the end, and the slot of a removed type is left
+	 * {@code null}.
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final String[] TYPE_NAMES = { "alert", "basal", "bloodKetone", "bolus", "cbg", "cgmSettings",
+			"controllerSettings", "controllerStatus", "deviceEvent", "deviceStatus", "dosingDescision", "food",
+			"insulin", "physicalActivity", "pumpSettings", "pumpStatus", "reportedState", "smbg", "upload", "water",
+			"wizard" };
+	/**
+	 * The codes of the upload types, by their name
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final Map<String, Byte> TYPE_CODES = new HashMap<>();
+
+	static {
+		for (int code = 0; code < TYPE_NAMES.length; code++) {
+			if (TYPE_NAMES[code] != null) {
+				TYPE_CODES.put(TYPE_NAMES[code], (byte) code);
+			}
+		}
+	}
+
+	/**
+	 * The fields of the datum currently being encoded or decoded
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final DatumFields fields = new DatumFields();
+
+	/**
+	 * Encodes a datum into a buffer
+	 *
+	 * @param datum The datum
+	 * @param out   The buffer to encode into
+	 * @throws java.nio.BufferOverflowException If the buffer is too small, in
+	 *                                          which case its position is
+	 *                                          undefined
+	 * @since alpha-3.1.0
+	 */
+	public void encode(Datum datum, ByteBuffer out) {
+		fields.reset();
+		datum.export(fields);
+		Byte code = TYPE_CODES.get(datum.getType().toString());
+		if (code == null) {
+			throw new IllegalArgumentException("Datums of type " + datum.getType() + " can't be encoded");
+		}
+		out.put(code);
+		out.putLong(fields.time);
+		putString(out, fields.id);
+		putString(out, fields.uploadId);
+		putString(out, fields.deviceId);
+		long wanted = DatumDecoder.fieldsOf(fields.type);
+		for (long field : ENCODED_FIELDS) {
+			if ((wanted & field) != 0) {
+				encodeField(field, out);
+			}
+		}
+	}
+
+	/**
+	 * Decodes a datum from a buffer
+	 *
+	 * @param in The buffer, positioned at an encoded datum. Its position is moved
+	 *           past the datum.
+	 * @return The datum
+	 * @throws IllegalArgumentException If the buffer doesn't hold an encoded datum
+	 * @since alpha-3.1.0
+	 */
+	public Datum decode(ByteBuffer in) {
+		fields.reset();
+		int code = in.get();
+		if (code < 0 || code >= TYPE_NAMES.length || TYPE_NAMES[code] == null) {
+			throw new IllegalArgumentException("Unknown datum type " + code);
+		}
+		fields.type = TYPE_NAMES[code];
+		fields.time = in.getLong();
+		fields.id = getString(in);
+		fields.uploadId = getString(in);
+		fields.deviceId = getString(in);
+		long wanted = DatumDecoder.fieldsOf(fields.type);
+		for (long field : ENCODED_FIELDS) {
+			if ((wanted & field) != 0) {
+				decodeField(field, in);
+			}
+		}
+		return DatumDecoder.create(fields);
+	}
+
+	/**
+	 * Reads the time of an encoded datum without decoding it
+	 *
+	 * @param in     The buffer
+	 * @param offset The offset of the encoded datum in the buffer
+	 * @return The time of the datum, in milliseconds since the epoch
+	 * @since alpha-3.1.0
+	 */
+	public static long peekTime(ByteBuffer in, int offset) {
+		return in.getLong(offset + 1);
+	}
+
+	/**
+	 * Encodes a single field
+	 *
+	 * @param field The field
+	 * @param out   The buffer to encode into
+	 * @since alpha-3.1.0
+	 */
+	private void encodeField(long field, ByteBuffer out) {
+		switch (Long.numberOfTrailingZeros(field)) {
+		case 4:
+			putString(out, fields.units);
+			break;
+		case 5:
+			out.putDouble(fields.value);
+			break;
+		case 6:
+			putString(out, fields.subType);
+			break;
+		case 7:
+			putString(out, fields.deliveryType);
+			break;
+		case 8:
+			out.putLong(fields.duration);
+			break;
+		case 9:
+			out.putDouble(fields.rate);
+			break;
+		case 10:
+			out.putDouble(fields.normal);
+			break;
+		case 11:
+			out.putDouble(fields.extended);
+			break;
+		case 12:
+			putString(out, fields.name);
+			break;
+		case 13:
+			putString(out, fields.priority);
+			break;
+		case 14:
+			putString(out, fields.reason);
+			break;
+		case 15:
+			putString(out, fields.activeSchedule);
+			break;
+		case 16:
+			putString(out, fields.deviceModel);
+			break;
+		case 17:
+			putString(out, fields.deviceSerialNumber);
+			break;
+		case 18:
+			putString(out, fields.transmitterId);
+			break;
+		case 19:
+			out.putDouble(fields.carbInput);
+			break;
+		case 20:
+			out.putDouble(fields.insulinOnBoard);
+			break;
+		case 21:
+			out.putDouble(fields.bgInput);
+			break;
+		case 22:
+			putString(out, fields.bolus);
+			break;
+		case 23:
+			putString(out, fields.status);
+			break;
+		case 24:
+			out.putDouble(fields.carbohydrateNet);
+			break;
+		case 25:
+			out.putDouble(fields.doseTotal);
+			break;
+		case 26:
+			out.putDouble(fields.amountValue);
+			putString(out, fields.amountUnits);
+			break;
+		case 27:
+			out.putDouble(fields.batteryRemaining);
+			break;
+		default:
+			throw new IllegalStateException("Field " + field + " can't be encoded");
+		}
+	}
+
+	/**
+	 * Decodes a single field
+	 *
+	 * @param field The field
+	 * @param in    The buffer to decode from
+	 * @since alpha-3.1.0
+	 */
+	private void decodeField(long field, ByteBuffer in) {
+		switch (Long.numberOfTrailingZeros(field)) {
+		case 4:
+			fields.units = getString(in);
+			break;
+		case 5:
+			fields.value = in.getDouble();
+			break;
+		case 6:
+			fields.subType = getString(in);
+			break;
+		case 7:
+			fields.deliveryType = getString(in);
+			break;
+		case 8:
+			fields.duration = in.getLong();
+			break;
+		case 9:
+			fields.rate = in.getDouble();
+			break;
+		case 10:
+			fields.normal = in.getDouble();
+			break;
+		case 11:
+			fields.extended = in.getDouble();
+			break;
+		case 12:
+			fields.name = getString(in);
+			break;
+		case 13:
+			fields.priority = getString(in);
+			break;
+		case 14:
+			fields.reason = getString(in);
+			break;
+		case 15:
+			fields.activeSchedule = getString(in);
+			break;
+		case 16:
+			fields.deviceModel = getString(in);
+			break;
+		case 17:
+			fields.deviceSerialNumber = getString(in);
+			break;
+		case 18:
+			fields.transmitterId = getString(in);
+			break;
+		case 19:
+			fields.carbInput = in.getDouble();
+			break;
+		case 20:
+			fields.insulinOnBoard = in.getDouble();
+			break;
+		case 21:
+			fields.bgInput = in.getDouble();
+			break;
+		case 22:
+			fields.bolus = getString(in);
+			break;
+		case 23:
+			fields.status = getString(in);
+			break;
+		case 24:
+			fields.carbohydrateNet = in.getDouble();
+			break;
+		case 25:
+			fields.doseTotal = in.getDouble();
+			break;
+		case 26:
+			fields.amountValue = in.getDouble();
+			fields.amountUnits = getString(in);
+			break;
+		case 27:
+			fields.batteryRemaining = in.getDouble();
+			break;
+		default:
+			throw new IllegalStateException("Field " + field + " can't be decoded");
+		}
+	}
+
+	/**
+	 * Writes a string as its length (or -1 for {@code null}) followed by its
+	 * UTF-8 bytes
+	 *
+	 * @param out   The buffer to write to
+	 * @param value The string
+	 * @since alpha-3.1.0
+	 */
+	private static void putString(ByteBuffer out, String value) {
+		if (value == null) {
+			out.putShort((short) -1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > Short.MAX_VALUE) {
+			throw new IllegalArgumentException("Strings longer than " + Short.MAX_VALUE + " bytes can't be encoded");
+		}
+		out.putShort((short) bytes.length);
+		out.put(bytes);
+	}
+
+	/**
+	 * Reads a string written by {@link #putString(ByteBuffer, String)}
+	 *
+	 * @param in The buffer to read from
+	 * @return The string
+	 * @since alpha-3.1.0
+	 */
+	private static String getString(ByteBuffer in) {
+		int length = in.getShort();
+		if (length < 0) {
+			return null;
+		}
+		String result;
+		if (in.hasArray()) {
+			result = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+			in.position(in.position() + length);
+		} else {
+			byte[] bytes = new byte[length];
+			in.get(bytes);
+			result = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return result;
+	}
+}
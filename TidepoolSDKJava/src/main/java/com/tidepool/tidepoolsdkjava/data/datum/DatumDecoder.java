@@ -0,0 +1,527 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.json.JSONException;
+
+/**
+ * Decodes datums straight from the JSON text into typed {@link Datum}s,
+ * without building a {@link org.json.JSONObject} for each of them.
+ * <br>
+ * Every member of a datum is matched by name, and only the ones that a type
+ * of datum uses are read; everything else is skipped without being parsed.
+ * Datums whose {@code type} isn't one of the
+ * {@link com.tidepool.tidepoolsdkjava.Constants.uploadType upload types} are
+ * skipped.
+ * <br>
+ * A decoder can be reused, but is not thread safe.
+ *
+ * @since alpha-3.1.0
+ */
+public final class DatumDecoder {
+	/**
+	 * The fields of the datum currently being decoded
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final DatumFields fields = new DatumFields();
+
+	/**
+	 * Decodes a JSON array of datums, handing each datum to the consumer as soon
+	 * as it has been decoded
+	 *
+	 * @param in       The JSON array, encoded in UTF-8
+	 * @param consumer The consumer that is given each datum
+	 * @throws IOException   If reading fails
+	 * @throws JSONException If the JSON is malformed
+	 * @since alpha-3.1.0
+	 */
+	public void decodeArray(InputStream in, Consumer<? super Datum> consumer) throws IOException {
+		decodeArray(new InputStreamReader(in, StandardCharsets.UTF_8), consumer);
+	}
+
+	/**
+	 * Decodes a JSON array of datums, handing each datum to the consumer as soon
+	 * as it has been decoded
+	 *
+	 * @param in       The JSON array
+	 * @param consumer The consumer that is given each datum
+	 * @throws IOException   If reading fails
+	 * @throws JSONException If the JSON is malformed
+	 * @since alpha-3.1.0
+	 */
+	public void decodeArray(Reader in, Consumer<? super Datum> consumer) throws IOException {
+		JsonReader reader = new JsonReader(in);
+		reader.beginArray();
+		while (reader.hasNext()) {
+			Datum datum = decodeObject(reader);
+			if (datum != null) {
+				consumer.accept(datum);
+			}
+		}
+		reader.endArray();
+	}
+
+	/**
+	 * Decodes a JSON array of datums
+	 *
+	 * @param json The JSON array
+	 * @return The datums
+	 * @throws JSONException If the JSON is malformed
+	 * @since alpha-3.1.0
+	 */
+	public List<Datum> decodeArray(String json) {
+		List<Datum> result = new ArrayList<>();
+		try {
+			decodeArray(new StringReader(json), result::add);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return result;
+	}
+
+	/**
+	 * Decodes a single datum object
+	 *
+	 * @param reader The reader, positioned at the start of the object
+	 * @return The datum, or {@code null} if it isn't of a known type
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	private Datum decodeObject(JsonReader reader) throws IOException {
+		fields.reset();
+		if (reader.peek() != JsonReader.BEGIN_OBJECT) {
+			reader.skipValue();
+			return null;
+		}
+		long wanted = -1L;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if (name.equals("type")) {
+				if (reader.peek() != JsonReader.STRING) {
+					reader.skipValue();
+					continue;
+				}
+				fields.type = reader.nextSymbol();
+				wanted = fieldsOf(fields.type);
+				continue;
+			}
+			long field = fieldOf(name);
+			if ((wanted & field) == 0) {
+				reader.skipValue();
+			} else {
+				read(reader, field);
+			}
+		}
+		reader.endObject();
+		return fields.type == null ? null : create(fields);
+	}
+
+	/**
+	 * Gets the fields that a type of datum reads
+	 *
+	 * @param type The type of datum
+	 * @return The fields, or {@code 0} if the type isn't known
+	 * @since alpha-3.1.0
+	 */
+	static long fieldsOf(String type) {
+		switch (type) {
+		case "alert":
+			return AlertDatum.FIELDS;
+		case "basal":
+			return BasalDatum.FIELDS;
+		case "bloodKetone":
+			return BloodKetoneDatum.FIELDS;
+		case "bolus":
+			return BolusDatum.FIELDS;
+		case "cbg":
+			return CbgDatum.FIELDS;
+		case "cgmSettings":
+			return CgmSettingsDatum.FIELDS;
+		case "controllerSettings":
+			return ControllerSettingsDatum.FIELDS;
+		case "controllerStatus":
+			return ControllerStatusDatum.FIELDS;
+		case "deviceEvent":
+			return DeviceEventDatum.FIELDS;
+		case "deviceStatus":
+			return DeviceStatusDatum.FIELDS;
+		case "dosingDecision":
+		case "dosingDescision":
+			return DosingDecisionDatum.FIELDS;
+		case "food":
+			return FoodDatum.FIELDS;
+		case "insulin":
+			return InsulinDatum.FIELDS;
+		case "physicalActivity":
+			return PhysicalActivityDatum.FIELDS;
+		case "pumpSettings":
+			return PumpSettingsDatum.FIELDS;
+		case "pumpStatus":
+			return PumpStatusDatum.FIELDS;
+		case "reportedState":
+			return ReportedStateDatum.FIELDS;
+		case "smbg":
+			return SmbgDatum.FIELDS;
+		case "upload":
+			return UploadDatum.FIELDS;
+		case "water":
+			return WaterDatum.FIELDS;
+		case "wizard":
+			return WizardDatum.FIELDS;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Creates the datum for the type that was read, from the fields that were
+	 * read
+	 *
+	 * @param fields The fields that were read
+	 * @return The datum, or {@code null} if the type isn't known
+	 * @since alpha-3.1.0
+	 */
+	static Datum create(DatumFields fields) {
+		switch (fields.type) {
+		case "alert":
+			return new AlertDatum(fields);
+		case "basal":
+			return new BasalDatum(fields);
+		case "bloodKetone":
+			return new BloodKetoneDatum(fields);
+		case "bolus":
+			return new BolusDatum(fields);
+		case "cbg":
+			return new CbgDatum(fields);
+		case "cgmSettings":
+			return new CgmSettingsDatum(fields);
+		case "controllerSettings":
+			return new ControllerSettingsDatum(fields);
+		case "controllerStatus":
+			return new ControllerStatusDatum(fields);
+		case "deviceEvent":
+			return new DeviceEventDatum(fields);
+		case "deviceStatus":
+			return new DeviceStatusDatum(fields);
+		case "dosingDecision":
+		case "dosingDescision":
+			return new DosingDecisionDatum(fields);
+		case "food":
+			return new FoodDatum(fields);
+		case "insulin":
+			return new InsulinDatum(fields);
+		case "physicalActivity":
+			return new PhysicalActivityDatum(fields);
+		case "pumpSettings":
+			return new PumpSettingsDatum(fields);
+		case "pumpStatus":
+			return new PumpStatusDatum(fields);
+		case "reportedState":
+			return new ReportedStateDatum(fields);
+		case "smbg":
+			return new SmbgDatum(fields);
+		case "upload":
+			return new UploadDatum(fields);
+		case "water":
+			return new WaterDatum(fields);
+		case "wizard":
+			return new WizardDatum(fields);
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the field with the given name
+	 *
+	 * @param name The name of a member of a datum
+	 * @return The field, or {@code 0} if no type of datum reads it
+	 * @since alpha-3.1.0
+	 */
+	private static long fieldOf(String name) {
+		switch (name) {
+		case "id":
+			return DatumFields.ID;
+		case "time":
+			return DatumFields.TIME;
+		case "uploadId":
+			return DatumFields.UPLOAD_ID;
+		case "deviceId":
+			return DatumFields.DEVICE_ID;
+		case "units":
+			return DatumFields.UNITS;
+		case "value":
+			return DatumFields.VALUE;
+		case "subType":
+			return DatumFields.SUB_TYPE;
+		case "deliveryType":
+			return DatumFields.DELIVERY_TYPE;
+		case "duration":
+			return DatumFields.DURATION;
+		case "rate":
+			return DatumFields.RATE;
+		case "normal":
+			return DatumFields.NORMAL;
+		case "extended":
+			return DatumFields.EXTENDED;
+		case "name":
+			return DatumFields.NAME;
+		case "priority":
+			return DatumFields.PRIORITY;
+		case "reason":
+			return DatumFields.REASON;
+		case "activeSchedule":
+			return DatumFields.ACTIVE_SCHEDULE;
+		case "deviceModel":
+			return DatumFields.DEVICE_MODEL;
+		case "deviceSerialNumber":
+			return DatumFields.DEVICE_SERIAL_NUMBER;
+		case "transmitterId":
+			return DatumFields.TRANSMITTER_ID;
+		case "carbInput":
+			return DatumFields.CARB_INPUT;
+		case "insulinOnBoard":
+			return DatumFields.INSULIN_ON_BOARD;
+		case "bgInput":
+			return DatumFields.BG_INPUT;
+		case "bolus":
+			return DatumFields.BOLUS;
+		case "status":
+			return DatumFields.STATUS;
+		case "nutrition":
+			return DatumFields.NUTRITION;
+		case "dose":
+			return DatumFields.DOSE;
+		case "amount":
+			return DatumFields.AMOUNT;
+		case "battery":
+			return DatumFields.BATTERY;
+		case "device":
+			return DatumFields.DEVICE;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Reads the value of a field. Values that aren't of the expected JSON type
+	 * are skipped.
+	 *
+	 * @param reader The reader, positioned at the value
+	 * @param field  The field being read
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	private void read(JsonReader reader, long field) throws IOException {
+		int token = reader.peek();
+		if (field == DatumFields.TIME) {
+			if (token == JsonReader.STRING) {
+				fields.time = reader.nextTimeMillis();
+				return;
+			}
+		} else if (field == DatumFields.DURATION) {
+			if (token == JsonReader.NUMBER) {
+				fields.duration = reader.nextLong();
+				return;
+			}
+			if (token == JsonReader.BEGIN_OBJECT) {
+				readDurationObject(reader);
+				return;
+			}
+		} else if (token == JsonReader.STRING) {
+			if (readString(reader, field)) {
+				return;
+			}
+		} else if (token == JsonReader.NUMBER) {
+			if (readNumber(reader, field)) {
+				return;
+			}
+		} else if (token == JsonReader.BEGIN_OBJECT) {
+			if (readNested(reader, field)) {
+				return;
+			}
+		}
+		reader.skipValue();
+	}
+
+	/**
+	 * Reads a string field
+	 *
+	 * @param reader The reader, positioned at a string
+	 * @param field  The field being read
+	 * @return {@code false} if the field isn't a string field, in which case
+	 *         nothing was read
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	private boolean readString(JsonReader reader, long field) throws IOException {
+		if (field == DatumFields.ID) {
+			fields.id = reader.nextString();
+		} else if (field == DatumFields.UPLOAD_ID) {
+			fields.uploadId = reader.nextString();
+		} else if (field == DatumFields.DEVICE_ID) {
+			fields.deviceId = reader.nextSymbol();
+		} else if (field == DatumFields.UNITS) {
+			fields.units = reader.nextSymbol();
+		} else if (field == DatumFields.SUB_TYPE) {
+			fields.subType = reader.nextSymbol();
+		} else if (field == DatumFields.DELIVERY_TYPE) {
+			fields.deliveryType = reader.nextSymbol();
+		} else if (field == DatumFields.NAME) {
+			fields.name = reader.nextSymbol();
+		} else if (field == DatumFields.PRIORITY) {
+			fields.priority = reader.nextSymbol();
+		} else if (field == DatumFields.REASON) {
+			fields.reason = reader.nextSymbol();
+		} else if (field == DatumFields.ACTIVE_SCHEDULE) {
+			fields.activeSchedule = reader.nextSymbol();
+		} else if (field == DatumFields.DEVICE_MODEL) {
+			fields.deviceModel = reader.nextSymbol();
+		} else if (field == DatumFields.DEVICE_SERIAL_NUMBER) {
+			fields.deviceSerialNumber = reader.nextSymbol();
+		} else if (field == DatumFields.TRANSMITTER_ID) {
+			fields.transmitterId = reader.nextSymbol();
+		} else if (field == DatumFields.BOLUS) {
+			fields.bolus = reader.nextString();
+		} else if (field == DatumFields.STATUS) {
+			fields.status = reader.nextSymbol();
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Reads a number field
+	 *
+	 * @param reader The reader, positioned at a number
+	 * @param field  The field being read
+	 * @return {@code false} if the field isn't a number field, in which case
+	 *         nothing was read
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	private boolean readNumber(JsonReader reader, long field) throws IOException {
+		if (field == DatumFields.VALUE) {
+			fields.value = reader.nextDouble();
+		} else if (field == DatumFields.RATE) {
+			fields.rate = reader.nextDouble();
+		} else if (field == DatumFields.NORMAL) {
+			fields.normal = reader.nextDouble();
+		} else if (field == DatumFields.EXTENDED) {
+			fields.extended = reader.nextDouble();
+		} else if (field == DatumFields.CARB_INPUT) {
+			fields.carbInput = reader.nextDouble();
+		} else if (field == DatumFields.INSULIN_ON_BOARD) {
+			fields.insulinOnBoard = reader.nextDouble();
+		} else if (field == DatumFields.BG_INPUT) {
+			fields.bgInput = reader.nextDouble();
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the members that are used from a nested object
+	 *
+	 * @param reader The reader, positioned at an object
+	 * @param field  The field being read
+	 * @return {@code false} if the field isn't a nested object, in which case
+	 *         nothing was read
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	private boolean readNested(JsonReader reader, long field) throws IOException {
+		if (field != DatumFields.NUTRITION && field != DatumFields.DOSE && field != DatumFields.AMOUNT
+				&& field != DatumFields.BATTERY && field != DatumFields.DEVICE) {
+			return false;
+		}
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			int token = reader.peek();
+			if (field == DatumFields.NUTRITION && name.equals("carbohydrate") && token == JsonReader.BEGIN_OBJECT) {
+				reader.beginObject();
+				while (reader.hasNext()) {
+					if (reader.nextName().equals("net") && reader.peek() == JsonReader.NUMBER) {
+						fields.carbohydrateNet = reader.nextDouble();
+					} else {
+						reader.skipValue();
+					}
+				}
+				reader.endObject();
+			} else if (field == DatumFields.DOSE && name.equals("total") && token == JsonReader.NUMBER) {
+				fields.doseTotal = reader.nextDouble();
+			} else if (field == DatumFields.AMOUNT && name.equals("value") && token == JsonReader.NUMBER) {
+				fields.amountValue = reader.nextDouble();
+			} else if (field == DatumFields.AMOUNT && name.equals("units") && token == JsonReader.STRING) {
+				fields.amountUnits = reader.nextSymbol();
+			} else if (field == DatumFields.BATTERY && name.equals("remaining") && token == JsonReader.NUMBER) {
+				fields.batteryRemaining = reader.nextDouble();
+			} else if (field == DatumFields.DEVICE && name.equals("model") && token == JsonReader.STRING) {
+				fields.deviceModel = reader.nextSymbol();
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return true;
+	}
+
+	/**
+	 * Reads a duration given as an object with a value and units, converting it
+	 * to milliseconds
+	 *
+	 * @param reader The reader, positioned at an object
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	private void readDurationObject(JsonReader reader) throws IOException {
+		double value = Double.NaN;
+		String units = null;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			int token = reader.peek();
+			if (name.equals("value") && token == JsonReader.NUMBER) {
+				value = reader.nextDouble();
+			} else if (name.equals("units") && token == JsonReader.STRING) {
+				units = reader.nextSymbol();
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		if (Double.isNaN(value) || units == null) {
+			return;
+		}
+		switch (units) {
+		case "hours":
+			fields.duration = (long) (value * 3_600_000);
+			break;
+		case "minutes":
+			fields.duration = (long) (value * 60_000);
+			break;
+		case "seconds":
+			fields.duration = (long) (value * 1_000);
+			break;
+		case "milliseconds":
+			fields.duration = (long) value;
+			break;
+		default:
+			break;
+		}
+	}
+}
@@ -0,0 +1,213 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+/**
+ * The fields read from a single datum, reused for every datum that is
+ * decoded. Each {@link Datum} subclass has a constructor that copies the
+ * fields it needs out of this.
+ * <br>
+ * Not thread safe.
+ *
+ * @since alpha-3.1.0
+ */
+final class DatumFields {
+	/** @since alpha-3.1.0 */
+	static final long ID = 1L;
+	/** @since alpha-3.1.0 */
+	static final long TIME = 1L << 1;
+	/** @since alpha-3.1.0 */
+	static final long UPLOAD_ID = 1L << 2;
+	/** @since alpha-3.1.0 */
+	static final long DEVICE_ID = 1L << 3;
+	/** @since alpha-3.1.0 */
+	static final long UNITS = 1L << 4;
+	/** @since alpha-3.1.0 */
+	static final long VALUE = 1L << 5;
+	/** @since alpha-3.1.0 */
+	static final long SUB_TYPE = 1L << 6;
+	/** @since alpha-3.1.0 */
+	static final long DELIVERY_TYPE = 1L << 7;
+	/**
+	 * Either a number of milliseconds, or an object with a value and units
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long DURATION = 1L << 8;
+	/** @since alpha-3.1.0 */
+	static final long RATE = 1L << 9;
+	/** @since alpha-3.1.0 */
+	static final long NORMAL = 1L << 10;
+	/** @since alpha-3.1.0 */
+	static final long EXTENDED = 1L << 11;
+	/** @since alpha-3.1.0 */
+	static final long NAME = 1L << 12;
+	/** @since alpha-3.1.0 */
+	static final long PRIORITY = 1L << 13;
+	/** @since alpha-3.1.0 */
+	static final long REASON = 1L << 14;
+	/** @since alpha-3.1.0 */
+	static final long ACTIVE_SCHEDULE = 1L << 15;
+	/** @since alpha-3.1.0 */
+	static final long DEVICE_MODEL = 1L << 16;
+	/** @since alpha-3.1.0 */
+	static final long DEVICE_SERIAL_NUMBER = 1L << 17;
+	/** @since alpha-3.1.0 */
+	static final long TRANSMITTER_ID = 1L << 18;
+	/** @since alpha-3.1.0 */
+	static final long CARB_INPUT = 1L << 19;
+	/** @since alpha-3.1.0 */
+	static final long INSULIN_ON_BOARD = 1L << 20;
+	/** @since alpha-3.1.0 */
+	static final long BG_INPUT = 1L << 21;
+	/** @since alpha-3.1.0 */
+	static final long BOLUS = 1L << 22;
+	/** @since alpha-3.1.0 */
+	static final long STATUS = 1L << 23;
+	/**
+	 * {@code nutrition.carbohydrate.net}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long NUTRITION = 1L << 24;
+	/**
+	 * {@code dose.total}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long DOSE = 1L << 25;
+	/**
+	 * {@code amount.value} and {@code amount.units}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long AMOUNT = 1L << 26;
+	/**
+	 * {@code battery.remaining}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long BATTERY = 1L << 27;
+	/**
+	 * {@code device.model}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long DEVICE = 1L << 28;
+
+	/**
+	 * The fields that every datum has
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long COMMON = ID | TIME | UPLOAD_ID | DEVICE_ID;
+
+	/** @since alpha-3.1.0 */
+	String type;
+	/** @since alpha-3.1.0 */
+	String id;
+	/** @since alpha-3.1.0 */
+	long time;
+	/** @since alpha-3.1.0 */
+	String uploadId;
+	/** @since alpha-3.1.0 */
+	String deviceId;
+
+	/** @since alpha-3.1.0 */
+	String units;
+	/** @since alpha-3.1.0 */
+	double value;
+	/** @since alpha-3.1.0 */
+	String subType;
+	/** @since alpha-3.1.0 */
+	String deliveryType;
+	/** @since alpha-3.1.0 */
+	long duration;
+	/** @since alpha-3.1.0 */
+	double rate;
+	/** @since alpha-3.1.0 */
+	double normal;
+	/** @since alpha-3.1.0 */
+	double extended;
+	/** @since alpha-3.1.0 */
+	String name;
+	/** @since alpha-3.1.0 */
+	String priority;
+	/** @since alpha-3.1.0 */
+	String reason;
+	/** @since alpha-3.1.0 */
+	String activeSchedule;
+	/** @since alpha-3.1.0 */
+	String deviceModel;
+	/** @since alpha-3.1.0 */
+	String deviceSerialNumber;
+	/** @since alpha-3.1.0 */
+	String transmitterId;
+	/** @since alpha-3.1.0 */
+	double carbInput;
+	/** @since alpha-3.1.0 */
+	double insulinOnBoard;
+	/** @since alpha-3.1.0 */
+	double bgInput;
+	/** @since alpha-3.1.0 */
+	String bolus;
+	/** @since alpha-3.1.0 */
+	String status;
+	/** @since alpha-3.1.0 */
+	double carbohydrateNet;
+	/** @since alpha-3.1.0 */
+	double doseTotal;
+	/** @since alpha-3.1.0 */
+	double amountValue;
+	/** @since alpha-3.1.0 */
+	String amountUnits;
+	/** @since alpha-3.1.0 */
+	double batteryRemaining;
+
+	/**
+	 * Creates an empty {@link DatumFields}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	DatumFields() {
+		reset();
+	}
+
+	/**
+	 * Clears every field, so the next datum can be read. Missing strings are
+	 * {@code null}, missing numbers are {@link Double#NaN}, and a missing time
+	 * or duration is {@link Datum#MISSING}.
+	 *
+	 * @since alpha-3.1.0
+	 */
+	void reset() {
+		type = null;
+		id = null;
+		time = Datum.MISSING;
+		uploadId = null;
+		deviceId = null;
+		units = null;
+		value = Double.NaN;
+		subType = null;
+		deliveryType = null;
+		duration = Datum.MISSING;
+		rate = Double.NaN;
+		normal = Double.NaN;
+		extended = Double.NaN;
+		name = null;
+		priority = null;
+		reason = null;
+		activeSchedule = null;
+		deviceModel = null;
+		deviceSerialNumber = null;
+		transmitterId = null;
+		carbInput = Double.NaN;
+		insulinOnBoard = Double.NaN;
+		bgInput = Double.NaN;
+		bolus = null;
+		status = null;
+		carbohydrateNet = Double.NaN;
+		doseTotal = Double.NaN;
+		amountValue = Double.NaN;
+		amountUnits = null;
+		batteryRemaining = Double.NaN;
+	}
+}
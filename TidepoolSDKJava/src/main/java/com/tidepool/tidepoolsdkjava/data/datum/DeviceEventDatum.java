@@ -0,0 +1,98 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+
+/**
+ * An event on a device, a {@code deviceEvent} datum
+ *
+ * @since alpha-3.1.0
+ */
+public final class DeviceEventDatum extends Datum {
+	/**
+	 * The fields read for this type of datum
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long FIELDS = DatumFields.COMMON | DatumFields.SUB_TYPE | DatumFields.STATUS | DatumFields.DURATION;
+
+	/**
+	 * The sub type
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String subType;
+	/**
+	 * The status
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String status;
+	/**
+	 * The duration, in milliseconds
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long duration;
+
+	/**
+	 * Creates a {@link DeviceEventDatum}
+	 *
+	 * @param fields The fields that were read
+	 * @since alpha-3.1.0
+	 */
+	DeviceEventDatum(DatumFields fields) {
+		super(fields);
+		this.subType = fields.subType;
+		this.status = fields.status;
+		this.duration = fields.duration;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public Constants.uploadType getType() {
+		return Constants.uploadType.DEVICE_EVENT;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	void export(DatumFields fields) {
+		super.export(fields);
+		fields.subType = subType;
+		fields.status = status;
+		fields.duration = duration;
+	}
+
+	/**
+	 * Gets the sub type
+	 *
+	 * @return The sub type
+	 * @since alpha-3.1.0
+	 */
+	public String getSubType() {
+		return subType;
+	}
+
+	/**
+	 * Gets the status
+	 *
+	 * @return The status
+	 * @since alpha-3.1.0
+	 */
+	public String getStatus() {
+		return status;
+	}
+
+	/**
+	 * Gets the duration, in milliseconds
+	 *
+	 * @return The duration, in milliseconds
+	 * @since alpha-3.1.0
+	 */
+	public long getDuration() {
+		return duration;
+	}
+}
@@ -0,0 +1,62 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+
+/**
+ * The status of a device, a {@code deviceStatus} datum
+ *
+ * @since alpha-3.1.0
+ */
+public final class DeviceStatusDatum extends Datum {
+	/**
+	 * The fields read for this type of datum
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long FIELDS = DatumFields.COMMON | DatumFields.STATUS;
+
+	/**
+	 * The status
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String status;
+
+	/**
+	 * Creates a {@link DeviceStatusDatum}
+	 *
+	 * @param fields The fields that were read
+	 * @since alpha-3.1.0
+	 */
+	DeviceStatusDatum(DatumFields fields) {
+		super(fields);
+		this.status = fields.status;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public Constants.uploadType getType() {
+		return Constants.uploadType.DEVICE_STATUS;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	void export(DatumFields fields) {
+		super.export(fields);
+		fields.status = status;
+	}
+
+	/**
+	 * Gets the status
+	 *
+	 * @return The status
+	 * @since alpha-3.1.0
+	 */
+	public String getStatus() {
+		return status;
+	}
+}
@@ -0,0 +1,62 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+
+/**
+ * A dosing decision, a {@code dosingDescision} datum
+ *
+ * @since alpha-3.1.0
+ */
+public final class DosingDecisionDatum extends Datum {
+	/**
+	 * The fields read for this type of datum
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long FIELDS = DatumFields.COMMON | DatumFields.REASON;
+
+	/**
+	 * The reason
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String reason;
+
+	/**
+	 * Creates a {@link DosingDecisionDatum}
+	 *
+	 * @param fields The fields that were read
+	 * @since alpha-3.1.0
+	 */
+	DosingDecisionDatum(DatumFields fields) {
+		super(fields);
+		this.reason = fields.reason;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public Constants.uploadType getType() {
+		return Constants.uploadType.DOSING_DESCISION;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	void export(DatumFields fields) {
+		super.export(fields);
+		fields.reason = reason;
+	}
+
+	/**
+	 * Gets the reason
+	 *
+	 * @return The reason
+	 * @since alpha-3.1.0
+	 */
+	public String getReason() {
+		return reason;
+	}
+}
@@ -0,0 +1,80 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+
+/**
+ * Food that was eaten, a {@code food} datum
+ *
+ * @since alpha-3.1.0
+ */
+public final class FoodDatum extends Datum {
+	/**
+	 * The fields read for this type of datum
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long FIELDS = DatumFields.COMMON | DatumFields.NAME | DatumFields.NUTRITION;
+
+	/**
+	 * The name
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String name;
+	/**
+	 * The net carbohydrates
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final double carbohydrateNet;
+
+	/**
+	 * Creates a {@link FoodDatum}
+	 *
+	 * @param fields The fields that were read
+	 * @since alpha-3.1.0
+	 */
+	FoodDatum(DatumFields fields) {
+		super(fields);
+		this.name = fields.name;
+		this.carbohydrateNet = fields.carbohydrateNet;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public Constants.uploadType getType() {
+		return Constants.uploadType.FOOD;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	void export(DatumFields fields) {
+		super.export(fields);
+		fields.name = name;
+		fields.carbohydrateNet = carbohydrateNet;
+	}
+
+	/**
+	 * Gets the name
+	 *
+	 * @return The name
+	 * @since alpha-3.1.0
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the net carbohydrates
+	 *
+	 * @return The net carbohydrates
+	 * @since alpha-3.1.0
+	 */
+	public double getCarbohydrateNet() {
+		return carbohydrateNet;
+	}
+}
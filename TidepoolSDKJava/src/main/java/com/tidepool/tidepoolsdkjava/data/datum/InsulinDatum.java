@@ -0,0 +1,62 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+
+/**
+ * Insulin that was taken, a {@code insulin} datum
+ *
+ * @since alpha-3.1.0
+ */
+public final class InsulinDatum extends Datum {
+	/**
+	 * The fields read for this type of datum
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long FIELDS = DatumFields.COMMON | DatumFields.DOSE;
+
+	/**
+	 * The total dose
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final double doseTotal;
+
+	/**
+	 * Creates a {@link InsulinDatum}
+	 *
+	 * @param fields The fields that were read
+	 * @since alpha-3.1.0
+	 */
+	InsulinDatum(DatumFields fields) {
+		super(fields);
+		this.doseTotal = fields.doseTotal;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public Constants.uploadType getType() {
+		return Constants.uploadType.INSULIN;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	void export(DatumFields fields) {
+		super.export(fields);
+		fields.doseTotal = doseTotal;
+	}
+
+	/**
+	 * Gets the total dose
+	 *
+	 * @return The total dose
+	 * @since alpha-3.1.0
+	 */
+	public double getDoseTotal() {
+		return doseTotal;
+	}
+}
@@ -0,0 +1,761 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+
+import org.json.JSONException;
+
+/**
+ * A pull parser that reads JSON one token at a time from a {@link Reader},
+ * without building any intermediate objects or maps.
+ * <br>
+ * Names and enum-like values are kept in a small table, so the
+ * {@link String} for a name that was already seen is reused instead of being
+ * allocated again.
+ * <br>
+ * Not thread safe.
+ *
+ * @since alpha-3.1.0
+ */
+final class JsonReader {
+	/**
+	 * The next token is a '{'
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final int BEGIN_OBJECT = 1;
+	/**
+	 * The next token is a '['
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final int BEGIN_ARRAY = 2;
+	/**
+	 * The next token is a string
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final int STRING = 3;
+	/**
+	 * The next token is a number
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final int NUMBER = 4;
+	/**
+	 * The next token is {@code true} or {@code false}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final int BOOLEAN = 5;
+	/**
+	 * The next token is {@code null}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final int NULL = 6;
+	/**
+	 * The next token ends an object or an array
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final int END = 7;
+	/**
+	 * There are no more tokens
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final int END_DOCUMENT = 8;
+
+	/**
+	 * Powers of ten that can be represented exactly as a double
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	/**
+	 * The reader the JSON is read from
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Reader in;
+	/**
+	 * Characters read from {@link #in} that haven't been consumed yet
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final char[] buffer = new char[8192];
+	/**
+	 * The position of the next character in {@link #buffer}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private int pos;
+	/**
+	 * The number of characters in {@link #buffer}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private int limit;
+	/**
+	 * The number of characters consumed before {@link #buffer}, for error
+	 * messages
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private long offset;
+	/**
+	 * Holds the characters of the last string or number that was read
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private char[] scratch = new char[64];
+	/**
+	 * The number of characters in {@link #scratch}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private int scratchLength;
+	/**
+	 * Previously seen names and symbols, indexed by their hash
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String[] symbols = new String[512];
+	/**
+	 * If the next element of each open object or array is its first one
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private boolean[] first = new boolean[16];
+	/**
+	 * How many objects and arrays are open
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private int depth;
+
+	/**
+	 * Creates a {@link JsonReader}
+	 *
+	 * @param in The reader to read the JSON from
+	 * @since alpha-3.1.0
+	 */
+	JsonReader(Reader in) {
+		this.in = in;
+	}
+
+	/**
+	 * Gets the type of the next token, without consuming it
+	 *
+	 * @return The type of the next token
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	int peek() throws IOException {
+		int c = peekClean();
+		switch (c) {
+		case -1:
+			return END_DOCUMENT;
+		case '{':
+			return BEGIN_OBJECT;
+		case '[':
+			return BEGIN_ARRAY;
+		case '"':
+			return STRING;
+		case 't':
+		case 'f':
+			return BOOLEAN;
+		case 'n':
+			return NULL;
+		case '}':
+		case ']':
+			return END;
+		default:
+			return NUMBER;
+		}
+	}
+
+	/**
+	 * Consumes the start of an object
+	 *
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	void beginObject() throws IOException {
+		expect('{');
+		push();
+	}
+
+	/**
+	 * Consumes the end of an object
+	 *
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	void endObject() throws IOException {
+		expect('}');
+		depth--;
+	}
+
+	/**
+	 * Consumes the start of an array
+	 *
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	void beginArray() throws IOException {
+		expect('[');
+		push();
+	}
+
+	/**
+	 * Consumes the end of an array
+	 *
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	void endArray() throws IOException {
+		expect(']');
+		depth--;
+	}
+
+	/**
+	 * Checks if the current object or array has another element, consuming the
+	 * comma before it if there is one
+	 *
+	 * @return {@code true} if there is another element
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	boolean hasNext() throws IOException {
+		int c = peekClean();
+		if (c == '}' || c == ']') {
+			return false;
+		}
+		if (first[depth - 1]) {
+			first[depth - 1] = false;
+		} else {
+			expect(',');
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the name of the next member of an object, and the colon after it
+	 *
+	 * @return The name
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	String nextName() throws IOException {
+		readString();
+		expect(':');
+		return symbol();
+	}
+
+	/**
+	 * Reads a string
+	 *
+	 * @return The string
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	String nextString() throws IOException {
+		readString();
+		return new String(scratch, 0, scratchLength);
+	}
+
+	/**
+	 * Reads a string that is likely to repeat (like units), reusing the
+	 * {@link String} instance if it has been seen before
+	 *
+	 * @return The string
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	String nextSymbol() throws IOException {
+		readString();
+		return symbol();
+	}
+
+	/**
+	 * Reads an ISO-8601 timestamp string
+	 *
+	 * @return The timestamp, in milliseconds since the epoch
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	long nextTimeMillis() throws IOException {
+		readString();
+		long millis = parseTimeMillis(scratch, scratchLength);
+		if (millis != Long.MIN_VALUE) {
+			return millis;
+		}
+		String text = new String(scratch, 0, scratchLength);
+		try {
+			return OffsetDateTime.parse(text).toInstant().toEpochMilli();
+		} catch (DateTimeParseException e) {
+			throw syntaxError("Invalid timestamp \"" + text + "\"");
+		}
+	}
+
+	/**
+	 * Reads a number
+	 *
+	 * @return The number
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	double nextDouble() throws IOException {
+		readNumber();
+		return parseDouble();
+	}
+
+	/**
+	 * Reads a number, rounding it towards zero if it has a fraction
+	 *
+	 * @return The number
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	long nextLong() throws IOException {
+		readNumber();
+		long result = 0;
+		int i = scratch[0] == '-' ? 1 : 0;
+		if (scratchLength - i > 18) {
+			return (long) parseDouble();
+		}
+		for (; i < scratchLength; i++) {
+			char c = scratch[i];
+			if (c < '0' || c > '9') {
+				return (long) parseDouble();
+			}
+			result = result * 10 + (c - '0');
+		}
+		return scratch[0] == '-' ? -result : result;
+	}
+
+	/**
+	 * Reads {@code true} or {@code false}
+	 *
+	 * @return The boolean
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	boolean nextBoolean() throws IOException {
+		if (peekClean() == 't') {
+			expectLiteral("true");
+			return true;
+		}
+		expectLiteral("false");
+		return false;
+	}
+
+	/**
+	 * Skips the next value, including everything inside of it if it is an object
+	 * or array
+	 *
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	void skipValue() throws IOException {
+		switch (peek()) {
+		case BEGIN_OBJECT:
+			beginObject();
+			while (hasNext()) {
+				readString();
+				expect(':');
+				skipValue();
+			}
+			endObject();
+			break;
+		case BEGIN_ARRAY:
+			beginArray();
+			while (hasNext()) {
+				skipValue();
+			}
+			endArray();
+			break;
+		case STRING:
+			readString();
+			break;
+		case BOOLEAN:
+			nextBoolean();
+			break;
+		case NULL:
+			expectLiteral("null");
+			break;
+		case NUMBER:
+			readNumber();
+			break;
+		default:
+			throw syntaxError("Expected a value");
+		}
+	}
+
+	/**
+	 * Creates an exception for malformed JSON
+	 *
+	 * @param message What went wrong
+	 * @return The exception
+	 * @since alpha-3.1.0
+	 */
+	JSONException syntaxError(String message) {
+		return new JSONException(message + " at character " + (offset + pos));
+	}
+
+	/**
+	 * Opens a new object or array
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private void push() {
+		if (depth == first.length) {
+			boolean[] grown = new boolean[depth * 2];
+			System.arraycopy(first, 0, grown, 0, depth);
+			first = grown;
+		}
+		first[depth++] = true;
+	}
+
+	/**
+	 * Reads a quoted string into {@link #scratch}
+	 *
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	private void readString() throws IOException {
+		expect('"');
+		scratchLength = 0;
+		while (true) {
+			int c = read();
+			if (c == '"') {
+				return;
+			}
+			if (c == -1) {
+				throw syntaxError("Unterminated string");
+			}
+			if (c == '\\') {
+				c = read();
+				switch (c) {
+				case 'b':
+					c = '\b';
+					break;
+				case 'f':
+					c = '\f';
+					break;
+				case 'n':
+					c = '\n';
+					break;
+				case 'r':
+					c = '\r';
+					break;
+				case 't':
+					c = '\t';
+					break;
+				case 'u':
+					c = 0;
+					for (int i = 0; i < 4; i++) {
+						int digit = Character.digit(read(), 16);
+						if (digit < 0) {
+							throw syntaxError("Invalid unicode escape");
+						}
+						c = (c << 4) | digit;
+					}
+					break;
+				case '"':
+				case '\\':
+				case '/':
+					break;
+				default:
+					throw syntaxError("Invalid escape");
+				}
+			}
+			append((char) c);
+		}
+	}
+
+	/**
+	 * Reads the characters of a number into {@link #scratch}
+	 *
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	private void readNumber() throws IOException {
+		peekClean();
+		scratchLength = 0;
+		while (true) {
+			if (pos == limit && !fill()) {
+				break;
+			}
+			char c = buffer[pos];
+			if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+				append(c);
+				pos++;
+			} else {
+				break;
+			}
+		}
+		if (scratchLength == 0) {
+			throw syntaxError("Expected a number");
+		}
+	}
+
+	/**
+	 * Parses the number in {@link #scratch}. Numbers with up to 15 digits and no
+	 * exponent are converted exactly without creating a {@link String}.
+	 *
+	 * @return The number
+	 * @since alpha-3.1.0
+	 */
+	private double parseDouble() {
+		int i = 0;
+		boolean negative = scratch[0] == '-';
+		if (negative) {
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int scale = 0;
+		boolean fraction = false;
+		for (; i < scratchLength; i++) {
+			char c = scratch[i];
+			if (c >= '0' && c <= '9') {
+				mantissa = mantissa * 10 + (c - '0');
+				digits++;
+				if (fraction) {
+					scale++;
+				}
+			} else if (c == '.' && !fraction) {
+				fraction = true;
+			} else {
+				digits = Integer.MAX_VALUE;
+				break;
+			}
+		}
+		if (digits > 0 && digits <= 15) {
+			double result = mantissa / POWERS_OF_TEN[scale];
+			return negative ? -result : result;
+		}
+		try {
+			return Double.parseDouble(new String(scratch, 0, scratchLength));
+		} catch (NumberFormatException e) {
+			throw syntaxError("Invalid number");
+		}
+	}
+
+	/**
+	 * Parses a timestamp like {@code 2023-04-25T12:30:00.000Z} or
+	 * {@code 2023-04-25T12:30:00-07:00}.
+	 *
+	 * @param c      The characters of the timestamp
+	 * @param length The number of characters
+	 * @return The timestamp in milliseconds since the epoch, or
+	 *         {@link Long#MIN_VALUE} if it isn't in the expected format
+	 * @since alpha-3.1.0
+	 */
+	static long parseTimeMillis(char[] c, int length) {
+		if (length < 20 || c[4] != '-' || c[7] != '-' || c[10] != 'T' || c[13] != ':' || c[16] != ':') {
+			return Long.MIN_VALUE;
+		}
+		int year = digits(c, 0, 4);
+		int month = digits(c, 5, 2);
+		int day = digits(c, 8, 2);
+		int hour = digits(c, 11, 2);
+		int minute = digits(c, 14, 2);
+		int second = digits(c, 17, 2);
+		if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 23 || minute < 0
+				|| minute > 59 || second < 0 || second > 59) {
+			return Long.MIN_VALUE;
+		}
+		int i = 19;
+		int millis = 0;
+		if (c[i] == '.') {
+			int place = 100;
+			for (i++; i < length && c[i] >= '0' && c[i] <= '9'; i++) {
+				millis += (c[i] - '0') * place;
+				place /= 10;
+			}
+		}
+		int offsetSeconds;
+		if (i == length - 1 && c[i] == 'Z') {
+			offsetSeconds = 0;
+		} else if (i == length - 6 && (c[i] == '+' || c[i] == '-') && c[i + 3] == ':') {
+			int offsetHours = digits(c, i + 1, 2);
+			int offsetMinutes = digits(c, i + 4, 2);
+			if (offsetHours < 0 || offsetMinutes < 0) {
+				return Long.MIN_VALUE;
+			}
+			offsetSeconds = (offsetHours * 3600 + offsetMinutes * 60) * (c[i] == '-' ? -1 : 1);
+		} else {
+			return Long.MIN_VALUE;
+		}
+		// days from the civil date, see http://howardhinnant.github.io/date_algorithms.html
+		int y = month <= 2 ? year - 1 : year;
+		int era = y / 400;
+		int yearOfEra = y - era * 400;
+		int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		long epochDay = era * 146097L + dayOfEra - 719468;
+		long epochSecond = epochDay * 86400 + hour * 3600 + minute * 60 + second - offsetSeconds;
+		return epochSecond * 1000 + millis;
+	}
+
+	/**
+	 * Parses a run of decimal digits
+	 *
+	 * @param c     The characters
+	 * @param start The index of the first digit
+	 * @param count The number of digits
+	 * @return The value of the digits, or -1 if any of them wasn't a digit
+	 * @since alpha-3.1.0
+	 */
+	private static int digits(char[] c, int start, int count) {
+		int result = 0;
+		for (int i = start; i < start + count; i++) {
+			if (c[i] < '0' || c[i] > '9') {
+				return -1;
+			}
+			result = result * 10 + (c[i] - '0');
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the {@link String} for the characters in {@link #scratch}, reusing a
+	 * previously created one if the same characters were seen before
+	 *
+	 * @return The string
+	 * @since alpha-3.1.0
+	 */
+	private String symbol() {
+		int hash = 0;
+		for (int i = 0; i < scratchLength; i++) {
+			hash = 31 * hash + scratch[i];
+		}
+		int index = (hash ^ (hash >>> 16)) & (symbols.length - 1);
+		String cached = symbols[index];
+		if (cached != null && cached.length() == scratchLength) {
+			boolean equal = true;
+			for (int i = 0; i < scratchLength; i++) {
+				if (cached.charAt(i) != scratch[i]) {
+					equal = false;
+					break;
+				}
+			}
+			if (equal) {
+				return cached;
+			}
+		}
+		String result = new String(scratch, 0, scratchLength);
+		symbols[index] = result;
+		return result;
+	}
+
+	/**
+	 * Adds a character to {@link #scratch}
+	 *
+	 * @param c The character
+	 * @since alpha-3.1.0
+	 */
+	private void append(char c) {
+		if (scratchLength == scratch.length) {
+			char[] grown = new char[scratchLength * 2];
+			System.arraycopy(scratch, 0, grown, 0, scratchLength);
+			scratch = grown;
+		}
+		scratch[scratchLength++] = c;
+	}
+
+	/**
+	 * Consumes a literal like {@code null}
+	 *
+	 * @param literal The literal
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	private void expectLiteral(String literal) throws IOException {
+		peekClean();
+		for (int i = 0; i < literal.length(); i++) {
+			if (read() != literal.charAt(i)) {
+				throw syntaxError("Expected " + literal);
+			}
+		}
+	}
+
+	/**
+	 * Skips whitespace, then consumes the given character
+	 *
+	 * @param expected The character
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	private void expect(char expected) throws IOException {
+		if (peekClean() != expected) {
+			throw syntaxError("Expected '" + expected + "'");
+		}
+		pos++;
+	}
+
+	/**
+	 * Skips whitespace, and returns the next character without consuming it
+	 *
+	 * @return The next character, or -1 at the end of the input
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	private int peekClean() throws IOException {
+		while (true) {
+			if (pos == limit && !fill()) {
+				return -1;
+			}
+			char c = buffer[pos];
+			if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+				pos++;
+			} else {
+				return c;
+			}
+		}
+	}
+
+	/**
+	 * Consumes the next character
+	 *
+	 * @return The next character, or -1 at the end of the input
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	private int read() throws IOException {
+		if (pos == limit && !fill()) {
+			return -1;
+		}
+		return buffer[pos++];
+	}
+
+	/**
+	 * Reads more characters into {@link #buffer}
+	 *
+	 * @return {@code false} if the end of the input has been reached
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	private boolean fill() throws IOException {
+		offset += limit;
+		pos = 0;
+		limit = 0;
+		int read;
+		do {
+			read = in.read(buffer, 0, buffer.length);
+		} while (read == 0);
+		if (read < 0) {
+			return false;
+		}
+		limit = read;
+		return true;
+	}
+}
@@ -0,0 +1,80 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+
+/**
+ * A physical activity, a {@code physicalActivity} datum
+ *
+ * @since alpha-3.1.0
+ */
+public final class PhysicalActivityDatum extends Datum {
+	/**
+	 * The fields read for this type of datum
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long FIELDS = DatumFields.COMMON | DatumFields.NAME | DatumFields.DURATION;
+
+	/**
+	 * The name
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String name;
+	/**
+	 * The duration, in milliseconds
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long duration;
+
+	/**
+	 * Creates a {@link PhysicalActivityDatum}
+	 *
+	 * @param fields The fields that were read
+	 * @since alpha-3.1.0
+	 */
+	PhysicalActivityDatum(DatumFields fields) {
+		super(fields);
+		this.name = fields.name;
+		this.duration = fields.duration;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public Constants.uploadType getType() {
+		return Constants.uploadType.PHYSICAL_ACTIVITY;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	void export(DatumFields fields) {
+		super.export(fields);
+		fields.name = name;
+		fields.duration = duration;
+	}
+
+	/**
+	 * Gets the name
+	 *
+	 * @return The name
+	 * @since alpha-3.1.0
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the duration, in milliseconds
+	 *
+	 * @return The duration, in milliseconds
+	 * @since alpha-3.1.0
+	 */
+	public long getDuration() {
+		return duration;
+	}
+}
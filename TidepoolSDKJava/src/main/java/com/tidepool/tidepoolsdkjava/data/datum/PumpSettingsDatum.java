@@ -0,0 +1,62 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+
+/**
+ * The settings of a pump, a {@code pumpSettings} datum
+ *
+ * @since alpha-3.1.0
+ */
+public final class PumpSettingsDatum extends Datum {
+	/**
+	 * The fields read for this type of datum
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long FIELDS = DatumFields.COMMON | DatumFields.ACTIVE_SCHEDULE;
+
+	/**
+	 * The name of the active basal schedule
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String activeSchedule;
+
+	/**
+	 * Creates a {@link PumpSettingsDatum}
+	 *
+	 * @param fields The fields that were read
+	 * @since alpha-3.1.0
+	 */
+	PumpSettingsDatum(DatumFields fields) {
+		super(fields);
+		this.activeSchedule = fields.activeSchedule;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public Constants.uploadType getType() {
+		return Constants.uploadType.PUMP_SETTINGS;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	void export(DatumFields fields) {
+		super.export(fields);
+		fields.activeSchedule = activeSchedule;
+	}
+
+	/**
+	 * Gets the name of the active basal schedule
+	 *
+	 * @return The name of the active basal schedule
+	 * @since alpha-3.1.0
+	 */
+	public String getActiveSchedule() {
+		return activeSchedule;
+	}
+}
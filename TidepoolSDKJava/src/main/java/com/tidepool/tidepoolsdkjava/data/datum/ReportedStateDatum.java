@@ -0,0 +1,36 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+
+/**
+ * A self-reported state, a {@code reportedState} datum
+ *
+ * @since alpha-3.1.0
+ */
+public final class ReportedStateDatum extends Datum {
+	/**
+	 * The fields read for this type of datum
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long FIELDS = DatumFields.COMMON;
+
+
+	/**
+	 * Creates a {@link ReportedStateDatum}
+	 *
+	 * @param fields The fields that were read
+	 * @since alpha-3.1.0
+	 */
+	ReportedStateDatum(DatumFields fields) {
+		super(fields);
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public Constants.uploadType getType() {
+		return Constants.uploadType.REPORTED_STATE;
+	}
+}
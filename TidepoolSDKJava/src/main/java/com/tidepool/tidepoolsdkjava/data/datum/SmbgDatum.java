@@ -0,0 +1,98 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+
+/**
+ * A self-monitored blood glucose (finger stick) reading, a {@code smbg} datum
+ *
+ * @since alpha-3.1.0
+ */
+public final class SmbgDatum extends Datum {
+	/**
+	 * The fields read for this type of datum
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long FIELDS = DatumFields.COMMON | DatumFields.UNITS | DatumFields.VALUE | DatumFields.SUB_TYPE;
+
+	/**
+	 * The units of the value
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String units;
+	/**
+	 * The value
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final double value;
+	/**
+	 * The sub type
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String subType;
+
+	/**
+	 * Creates a {@link SmbgDatum}
+	 *
+	 * @param fields The fields that were read
+	 * @since alpha-3.1.0
+	 */
+	SmbgDatum(DatumFields fields) {
+		super(fields);
+		this.units = fields.units;
+		this.value = fields.value;
+		this.subType = fields.subType;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public Constants.uploadType getType() {
+		return Constants.uploadType.SMBG;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	void export(DatumFields fields) {
+		super.export(fields);
+		fields.units = units;
+		fields.value = value;
+		fields.subType = subType;
+	}
+
+	/**
+	 * Gets the units of the value
+	 *
+	 * @return The units of the value
+	 * @since alpha-3.1.0
+	 */
+	public String getUnits() {
+		return units;
+	}
+
+	/**
+	 * Gets the value
+	 *
+	 * @return The value
+	 * @since alpha-3.1.0
+	 */
+	public double getValue() {
+		return value;
+	}
+
+	/**
+	 * Gets the sub type
+	 *
+	 * @return The sub type
+	 * @since alpha-3.1.0
+	 */
+	public String getSubType() {
+		return subType;
+	}
+}
@@ -0,0 +1,80 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+
+/**
+ * An upload from a device, a {@code upload} datum
+ *
+ * @since alpha-3.1.0
+ */
+public final class UploadDatum extends Datum {
+	/**
+	 * The fields read for this type of datum
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long FIELDS = DatumFields.COMMON | DatumFields.DEVICE_MODEL | DatumFields.DEVICE_SERIAL_NUMBER;
+
+	/**
+	 * The model of the device
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String deviceModel;
+	/**
+	 * The serial number of the device
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String deviceSerialNumber;
+
+	/**
+	 * Creates a {@link UploadDatum}
+	 *
+	 * @param fields The fields that were read
+	 * @since alpha-3.1.0
+	 */
+	UploadDatum(DatumFields fields) {
+		super(fields);
+		this.deviceModel = fields.deviceModel;
+		this.deviceSerialNumber = fields.deviceSerialNumber;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public Constants.uploadType getType() {
+		return Constants.uploadType.UPLOAD;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	void export(DatumFields fields) {
+		super.export(fields);
+		fields.deviceModel = deviceModel;
+		fields.deviceSerialNumber = deviceSerialNumber;
+	}
+
+	/**
+	 * Gets the model of the device
+	 *
+	 * @return The model of the device
+	 * @since alpha-3.1.0
+	 */
+	public String getDeviceModel() {
+		return deviceModel;
+	}
+
+	/**
+	 * Gets the serial number of the device
+	 *
+	 * @return The serial number of the device
+	 * @since alpha-3.1.0
+	 */
+	public String getDeviceSerialNumber() {
+		return deviceSerialNumber;
+	}
+}
@@ -0,0 +1,80 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+
+/**
+ * Water that was drunk, a {@code water} datum
+ *
+ * @since alpha-3.1.0
+ */
+public final class WaterDatum extends Datum {
+	/**
+	 * The fields read for this type of datum
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long FIELDS = DatumFields.COMMON | DatumFields.AMOUNT;
+
+	/**
+	 * The amount
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final double amountValue;
+	/**
+	 * The units of the amount
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String amountUnits;
+
+	/**
+	 * Creates a {@link WaterDatum}
+	 *
+	 * @param fields The fields that were read
+	 * @since alpha-3.1.0
+	 */
+	WaterDatum(DatumFields fields) {
+		super(fields);
+		this.amountValue = fields.amountValue;
+		this.amountUnits = fields.amountUnits;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public Constants.uploadType getType() {
+		return Constants.uploadType.WATER;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	void export(DatumFields fields) {
+		super.export(fields);
+		fields.amountValue = amountValue;
+		fields.amountUnits = amountUnits;
+	}
+
+	/**
+	 * Gets the amount
+	 *
+	 * @return The amount
+	 * @since alpha-3.1.0
+	 */
+	public double getAmountValue() {
+		return amountValue;
+	}
+
+	/**
+	 * Gets the units of the amount
+	 *
+	 * @return The units of the amount
+	 * @since alpha-3.1.0
+	 */
+	public String getAmountUnits() {
+		return amountUnits;
+	}
+}
@@ -0,0 +1,134 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+
+/**
+ * A bolus wizard calculation, a {@code wizard} datum
+ *
+ * @since alpha-3.1.0
+ */
+public final class WizardDatum extends Datum {
+	/**
+	 * The fields read for this type of datum
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final long FIELDS = DatumFields.COMMON | DatumFields.UNITS | DatumFields.CARB_INPUT | DatumFields.BG_INPUT | DatumFields.INSULIN_ON_BOARD | DatumFields.BOLUS;
+
+	/**
+	 * The units of the value
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String units;
+	/**
+	 * The carbohydrates entered
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final double carbInput;
+	/**
+	 * The blood glucose entered
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final double bgInput;
+	/**
+	 * The insulin on board
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final double insulinOnBoard;
+	/**
+	 * The id of the bolus that was given
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final String bolus;
+
+	/**
+	 * Creates a {@link WizardDatum}
+	 *
+	 * @param fields The fields that were read
+	 * @since alpha-3.1.0
+	 */
+	WizardDatum(DatumFields fields) {
+		super(fields);
+		this.units = fields.units;
+		this.carbInput = fields.carbInput;
+		this.bgInput = fields.bgInput;
+		this.insulinOnBoard = fields.insulinOnBoard;
+		this.bolus = fields.bolus;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public Constants.uploadType getType() {
+		return Constants.uploadType.WIZARD;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	void export(DatumFields fields) {
+		super.export(fields);
+		fields.units = units;
+		fields.carbInput = carbInput;
+		fields.bgInput = bgInput;
+		fields.insulinOnBoard = insulinOnBoard;
+		fields.bolus = bolus;
+	}
+
+	/**
+	 * Gets the units of the value
+	 *
+	 * @return The units of the value
+	 * @since alpha-3.1.0
+	 */
+	public String getUnits() {
+		return units;
+	}
+
+	/**
+	 * Gets the carbohydrates entered
+	 *
+	 * @return The carbohydrates entered
+	 * @since alpha-3.1.0
+	 */
+	public double getCarbInput() {
+		return carbInput;
+	}
+
+	/**
+	 * Gets the blood glucose entered
+	 *
+	 * @return The blood glucose entered
+	 * @since alpha-3.1.0
+	 */
+	public double getBgInput() {
+		return bgInput;
+	}
+
+	/**
+	 * Gets the insulin on board
+	 *
+	 * @return The insulin on board
+	 * @since alpha-3.1.0
+	 */
+	public double getInsulinOnBoard() {
+		return insulinOnBoard;
+	}
+
+	/**
+	 * Gets the id of the bolus that was given
+	 *
+	 * @return The id of the bolus that was given
+	 * @since alpha-3.1.0
+	 */
+	public String getBolus() {
+		return bolus;
+	}
+}
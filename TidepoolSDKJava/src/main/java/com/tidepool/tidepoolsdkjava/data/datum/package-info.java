@@ -0,0 +1,4 @@
+/**
+ * Typed, immutable datums, and the decoder that reads them straight from the JSON returned by the backend
+ */
+package com.tidepool.tidepoolsdkjava.data.datum;
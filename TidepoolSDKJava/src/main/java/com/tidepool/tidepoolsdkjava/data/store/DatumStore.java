@@ -0,0 +1,437 @@
+package com.tidepool.tidepoolsdkjava.data.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+import com.tidepool.tidepoolsdkjava.data.datum.Datum;
+import com.tidepool.tidepoolsdkjava.data.datum.DatumCodec;
+
+/**
+ * A local store of {@link Datum}s, so repeated analytics over the same history
+ * don't need to fetch it from the backend again.
+ * <br>
+ * The datums of each user and {@link Constants.uploadType} are appended to
+ * their own append-only segment files, as compact binary records. Reads go
+ * through memory mapped segments, and segments whose time range doesn't
+ * overlap a scan are skipped entirely. {@link #compact(String, Constants.uploadType)}
+ * rewrites a user's segments of a type in time order, dropping datums that
+ * were appended more than once.
+ * <br>
+ * Thread safe.
+ *
+ * @since alpha-3.1.0
+ */
+public class DatumStore implements Closeable {
+	/**
+	 * The file extension of segments
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final String SEGMENT_SUFFIX = ".seg";
+	/**
+	 * The file extension of segments that are still being written by a
+	 * compaction
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final String COMPACTING_SUFFIX = ".compacting";
+
+	/**
+	 * The directory the segments are kept in
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Path root;
+	/**
+	 * The size a segment grows to before a new one is started
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long segmentSize;
+	/**
+	 * The partitions that have been opened, by their directory
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Map<Path, Partition> partitions = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a {@link DatumStore} with 64MiB segments
+	 *
+	 * @param root The directory to keep the segments in
+	 * @throws IOException If the directory couldn't be created
+	 * @since alpha-3.1.0
+	 */
+	public DatumStore(Path root) throws IOException {
+		this(root, 64L << 20);
+	}
+
+	/**
+	 * Creates a {@link DatumStore}
+	 *
+	 * @param root        The directory to keep the segments in
+	 * @param segmentSize The size a segment grows to before a new one is started
+	 * @throws IOException If the directory couldn't be created
+	 * @since alpha-3.1.0
+	 */
+	public DatumStore(Path root, long segmentSize) throws IOException {
+		if (segmentSize <= Segment.HEADER_SIZE || segmentSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+		}
+		this.root = Files.createDirectories(root);
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * Appends a datum to the store
+	 *
+	 * @param userId The user the datum belongs to
+	 * @param datum  The datum
+	 * @throws IOException If writing fails
+	 * @since alpha-3.1.0
+	 */
+	public void append(String userId, Datum datum) throws IOException {
+		partition(userId, datum.getType()).append(datum);
+	}
+
+	/**
+	 * Gets a consumer that appends every datum it is given to the store, for use
+	 * with {@link com.tidepool.tidepoolsdkjava.data.GetDataForUser.Builder#setTypedDatumConsumer(Consumer)}
+	 *
+	 * @param userId The user the datums belong to
+	 * @return The consumer, which throws {@link UncheckedIOException} if writing
+	 *         fails
+	 * @since alpha-3.1.0
+	 */
+	public Consumer<Datum> appender(String userId) {
+		return datum -> {
+			try {
+				append(userId, datum);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		};
+	}
+
+	/**
+	 * Hands every stored datum of a user and type in the given time range to the
+	 * consumer, in the order they were appended
+	 *
+	 * @param userId   The user id
+	 * @param type     The type of data
+	 * @param from     The start of the range, inclusive
+	 * @param to       The end of the range, exclusive
+	 * @param consumer The consumer
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	public void scan(String userId, Constants.uploadType type, Instant from, Instant to,
+			Consumer<? super Datum> consumer) throws IOException {
+		partition(userId, type).scan(from.toEpochMilli(), to.toEpochMilli(), consumer);
+	}
+
+	/**
+	 * Rewrites the segments of a user and type in time order, dropping all but
+	 * the last appended copy of datums with the same id
+	 *
+	 * @param userId The user id
+	 * @param type   The type of data
+	 * @throws IOException If reading or writing fails
+	 * @since alpha-3.1.0
+	 */
+	public void compact(String userId, Constants.uploadType type) throws IOException {
+		partition(userId, type).compact();
+	}
+
+	/**
+	 * Forces everything appended so far onto the disk
+	 *
+	 * @throws IOException If syncing fails
+	 * @since alpha-3.1.0
+	 */
+	public void flush() throws IOException {
+		for (Partition partition : partitions.values()) {
+			partition.flush();
+		}
+	}
+
+	/**
+	 * Flushes and closes every segment
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public void close() throws IOException {
+		for (Partition partition : partitions.values()) {
+			partition.close();
+		}
+		partitions.clear();
+	}
+
+	/**
+	 * Gets the partition of a user and type, opening it the first time
+	 *
+	 * @param userId The user id
+	 * @param type   The type of data
+	 * @return The partition
+	 * @throws IOException If opening fails
+	 * @since alpha-3.1.0
+	 */
+	private Partition partition(String userId, Constants.uploadType type) throws IOException {
+		Path directory = root.resolve(URLEncoder.encode(userId, StandardCharsets.UTF_8)).resolve(type.toString());
+		try {
+			return partitions.computeIfAbsent(directory, dir -> {
+				try {
+					return new Partition(dir);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * The segments of a single user and type
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final class Partition {
+		/**
+		 * The directory of the segments
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final Path directory;
+		/**
+		 * The segments, in the order they were written
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final List<Segment> segments = new ArrayList<>();
+		/**
+		 * Encodes and decodes the datums
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final DatumCodec codec = new DatumCodec();
+		/**
+		 * Reused to encode each datum
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private ByteBuffer scratch = ByteBuffer.allocate(1024);
+		/**
+		 * The sequence number of the next segment
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private long nextSequence;
+
+		/**
+		 * Opens the segments in a directory, creating the directory if needed.
+		 * Segments left behind by an unfinished compaction are deleted.
+		 *
+		 * @param directory The directory
+		 * @throws IOException If opening fails
+		 * @since alpha-3.1.0
+		 */
+		private Partition(Path directory) throws IOException {
+			this.directory = Files.createDirectories(directory);
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+				for (Path file : files) {
+					String name = file.getFileName().toString();
+					if (name.endsWith(COMPACTING_SUFFIX)) {
+						Files.delete(file);
+					} else if (name.endsWith(SEGMENT_SUFFIX)) {
+						long sequence = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+						segments.add(Segment.open(file, sequence));
+					}
+				}
+			}
+			segments.sort(Comparator.comparingLong(Segment::sequence));
+			nextSequence = segments.isEmpty() ? 0 : segments.get(segments.size() - 1).sequence() + 1;
+		}
+
+		/**
+		 * Appends a datum to the last segment, starting a new segment if it is
+		 * full
+		 *
+		 * @param datum The datum
+		 * @throws IOException If writing fails
+		 * @since alpha-3.1.0
+		 */
+		private synchronized void append(Datum datum) throws IOException {
+			ByteBuffer record = encode(datum);
+			Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+			if (segment == null || segment.size() + 4 + record.remaining() > segmentSize) {
+				if (segment != null) {
+					segment.force();
+				}
+				segment = newSegment(SEGMENT_SUFFIX);
+				segments.add(segment);
+			}
+			segment.append(record, datum.getTimeMillis());
+		}
+
+		/**
+		 * Encodes a datum into {@link #scratch}, growing it if needed
+		 *
+		 * @param datum The datum
+		 * @return {@link #scratch}, holding the encoded datum
+		 * @since alpha-3.1.0
+		 */
+		private ByteBuffer encode(Datum datum) {
+			while (true) {
+				scratch.clear();
+				try {
+					codec.encode(datum, scratch);
+					scratch.flip();
+					return scratch;
+				} catch (BufferOverflowException e) {
+					scratch = ByteBuffer.allocate(scratch.capacity() * 2);
+				}
+			}
+		}
+
+		/**
+		 * Creates a new segment after the last one
+		 *
+		 * @param suffix The file extension of the segment
+		 * @return The segment
+		 * @throws IOException If creating fails
+		 * @since alpha-3.1.0
+		 */
+		private Segment newSegment(String suffix) throws IOException {
+			long sequence = nextSequence++;
+			return Segment.create(directory.resolve(String.format("%019d%s", sequence, suffix)), sequence);
+		}
+
+		/**
+		 * Hands every datum in the time range to the consumer
+		 *
+		 * @param from     The start of the range, inclusive
+		 * @param to       The end of the range, exclusive
+		 * @param consumer The consumer
+		 * @throws IOException If reading fails
+		 * @since alpha-3.1.0
+		 */
+		private synchronized void scan(long from, long to, Consumer<? super Datum> consumer) throws IOException {
+			for (Segment segment : segments) {
+				segment.scan(from, to, codec, consumer);
+			}
+		}
+
+		/**
+		 * Rewrites the segments in time order without duplicates. The new segments
+		 * are written under a temporary name, and are only renamed into place once
+		 * they are on disk, after which the old segments are deleted.
+		 *
+		 * @throws IOException If reading or writing fails
+		 * @since alpha-3.1.0
+		 */
+		private synchronized void compact() throws IOException {
+			if (segments.isEmpty()) {
+				return;
+			}
+			List<Datum> datums = new ArrayList<>();
+			for (Segment segment : segments) {
+				segment.scanAll(codec, datums::add);
+			}
+			// keep the last appended copy of each id
+			Set<String> seen = new HashSet<>();
+			List<Datum> unique = new ArrayList<>(datums.size());
+			for (int i = datums.size() - 1; i >= 0; i--) {
+				Datum datum = datums.get(i);
+				if (datum.getId() == null || seen.add(datum.getId())) {
+					unique.add(datum);
+				}
+			}
+			unique.sort(Comparator.comparingLong(Datum::getTimeMillis));
+
+			List<Segment> old = new ArrayList<>(segments);
+			List<Segment> compacted = new ArrayList<>();
+			try {
+				Segment segment = newSegment(COMPACTING_SUFFIX);
+				compacted.add(segment);
+				for (Datum datum : unique) {
+					ByteBuffer record = encode(datum);
+					if (segment.size() + 4 + record.remaining() > segmentSize) {
+						segment = newSegment(COMPACTING_SUFFIX);
+						compacted.add(segment);
+					}
+					segment.append(record, datum.getTimeMillis());
+				}
+				for (Segment written : compacted) {
+					written.force();
+				}
+			} catch (IOException | RuntimeException e) {
+				for (Segment written : compacted) {
+					written.close();
+					Files.deleteIfExists(written.path());
+				}
+				throw e;
+			}
+			segments.clear();
+			for (Segment written : compacted) {
+				written.close();
+				String name = written.path().getFileName().toString();
+				Path target = directory.resolve(name.substring(0, name.length() - COMPACTING_SUFFIX.length())
+						+ SEGMENT_SUFFIX);
+				Files.move(written.path(), target, StandardCopyOption.ATOMIC_MOVE);
+				segments.add(Segment.open(target, written.sequence()));
+			}
+			for (Segment segment : old) {
+				segment.close();
+				Files.delete(segment.path());
+			}
+		}
+
+		/**
+		 * Forces the last segment onto the disk. The other segments were forced
+		 * when they filled up.
+		 *
+		 * @throws IOException If syncing fails
+		 * @since alpha-3.1.0
+		 */
+		private synchronized void flush() throws IOException {
+			if (!segments.isEmpty()) {
+				segments.get(segments.size() - 1).force();
+			}
+		}
+
+		/**
+		 * Flushes and closes every segment
+		 *
+		 * @throws IOException If syncing or closing fails
+		 * @since alpha-3.1.0
+		 */
+		private synchronized void close() throws IOException {
+			flush();
+			for (Segment segment : segments) {
+				segment.close();
+			}
+			segments.clear();
+		}
+	}
+}
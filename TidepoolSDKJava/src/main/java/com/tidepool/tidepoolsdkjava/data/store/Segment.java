@@ -0,0 +1,354 @@
+package com.tidepool.tidepoolsdkjava.data.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+import com.tidepool.tidepoolsdkjava.data.datum.Datum;
+import com.tidepool.tidepoolsdkjava.data.datum.DatumCodec;
+
+/**
+ * A single append-only segment file.
+ * <br>
+ * A segment starts with a header holding the earliest and latest time of the
+ * datums in it, so whole segments can be skipped by a scan, followed by the
+ * records. Each record is its length followed by a datum encoded with
+ * {@link DatumCodec}. Segments are read through a {@link MappedByteBuffer}.
+ * <br>
+ * Not thread safe.
+ *
+ * @since alpha-3.1.0
+ */
+final class Segment implements Closeable {
+	/**
+	 * Identifies a segment file
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final int MAGIC = 0x54504453;
+	/**
+	 * The version of the format, which includes how {@link DatumCodec} encodes
+	 * datums. Bumped whenever either changes.
+	 * <br>
+	 * Version 1 encoded the type of a datum as its ordinal.
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final int VERSION = 2;
+	/**
+	 * The size of the header
+	 *
+	 * @since alpha-3.1.0
+	 */
+	static final int HEADER_SIZE = 24;
+
+	/**
+	 * The file of this segment
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Path path;
+	/**
+	 * The order of this segment among the segments of a partition
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long sequence;
+	/**
+	 * The channel to the file
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final FileChannel channel;
+	/**
+	 * The size of the valid part of the file
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private long size;
+	/**
+	 * The earliest time of the datums in this segment
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private long minTime = Long.MAX_VALUE;
+	/**
+	 * The latest time of the datums in this segment
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private long maxTime = Long.MIN_VALUE;
+	/**
+	 * The mapping used for reading, or {@code null} if it needs to be (re)mapped
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private MappedByteBuffer mapped;
+
+	/**
+	 * Creates a segment
+	 *
+	 * @param path     The file of the segment
+	 * @param sequence The order of the segment
+	 * @param channel  The channel to the file
+	 * @since alpha-3.1.0
+	 */
+	private Segment(Path path, long sequence, FileChannel channel) {
+		this.path = path;
+		this.sequence = sequence;
+		this.channel = channel;
+	}
+
+	/**
+	 * Creates a new, empty segment file
+	 *
+	 * @param path     The file to create
+	 * @param sequence The order of the segment
+	 * @return The segment
+	 * @throws IOException If the file couldn't be created
+	 * @since alpha-3.1.0
+	 */
+	static Segment create(Path path, long sequence) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		Segment segment = new Segment(path, sequence, channel);
+		segment.size = HEADER_SIZE;
+		segment.writeHeader();
+		return segment;
+	}
+
+	/**
+	 * Opens an existing segment file. A record that was only partly written
+	 * (because of a crash) at the end of the file is cut off.
+	 *
+	 * @param path     The file to open
+	 * @param sequence The order of the segment
+	 * @return The segment
+	 * @throws IOException If the file couldn't be read, or isn't a segment
+	 * @since alpha-3.1.0
+	 */
+	static Segment open(Path path, long sequence) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		Segment segment = new Segment(path, sequence, channel);
+		try {
+			segment.recover();
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		return segment;
+	}
+
+	/**
+	 * Checks the header, and finds the end of the last complete record
+	 *
+	 * @throws IOException If the file couldn't be read, or isn't a segment
+	 * @since alpha-3.1.0
+	 */
+	private void recover() throws IOException {
+		long fileSize = channel.size();
+		if (fileSize < HEADER_SIZE) {
+			throw new IOException(path + " is not a segment");
+		}
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+		if (buffer.getInt(0) != MAGIC) {
+			throw new IOException(path + " is not a segment");
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException(path + " is a segment of version " + buffer.getInt(4) + ", but only version "
+					+ VERSION + " can be read");
+		}
+		// the times in the header may be stale if the segment wasn't closed, so they
+		// are worked out again from the records
+		int position = HEADER_SIZE;
+		while (position + 4 <= fileSize) {
+			int length = buffer.getInt(position);
+			if (length <= 0 || position + 4L + length > fileSize) {
+				break;
+			}
+			long time = DatumCodec.peekTime(buffer, position + 4);
+			if (time != Datum.MISSING) {
+				minTime = Math.min(minTime, time);
+				maxTime = Math.max(maxTime, time);
+			}
+			position += 4 + length;
+		}
+		size = position;
+		if (size < fileSize) {
+			channel.truncate(size);
+		}
+	}
+
+	/**
+	 * Appends an encoded datum
+	 *
+	 * @param record The encoded datum, between its position and limit
+	 * @param time   The time of the datum
+	 * @throws IOException If writing fails
+	 * @since alpha-3.1.0
+	 */
+	void append(ByteBuffer record, long time) throws IOException {
+		ByteBuffer length = ByteBuffer.allocate(4).putInt(0, record.remaining());
+		long position = size;
+		position += writeFully(length, position);
+		position += writeFully(record, position);
+		size = position;
+		if (time != Datum.MISSING) {
+			minTime = Math.min(minTime, time);
+			maxTime = Math.max(maxTime, time);
+		}
+		mapped = null;
+	}
+
+	/**
+	 * Writes the earliest and latest times into the header
+	 *
+	 * @throws IOException If writing fails
+	 * @since alpha-3.1.0
+	 */
+	void writeHeader() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(VERSION).putLong(minTime).putLong(maxTime).flip();
+		writeFully(header, 0);
+	}
+
+	/**
+	 * Forces everything written to this segment onto the disk
+	 *
+	 * @throws IOException If syncing fails
+	 * @since alpha-3.1.0
+	 */
+	void force() throws IOException {
+		writeHeader();
+		channel.force(false);
+	}
+
+	/**
+	 * Hands every datum in the given time range to the consumer
+	 *
+	 * @param from     The start of the range, inclusive
+	 * @param to       The end of the range, exclusive
+	 * @param codec    The codec to decode the datums with
+	 * @param consumer The consumer
+	 * @throws IOException If mapping the file fails
+	 * @since alpha-3.1.0
+	 */
+	void scan(long from, long to, DatumCodec codec, Consumer<? super Datum> consumer) throws IOException {
+		if (size == HEADER_SIZE || maxTime < from || minTime >= to) {
+			return;
+		}
+		ByteBuffer buffer = map().duplicate();
+		int position = HEADER_SIZE;
+		while (position < size) {
+			int length = buffer.getInt(position);
+			int start = position + 4;
+			long time = DatumCodec.peekTime(buffer, start);
+			if (time >= from && time < to) {
+				buffer.limit(start + length).position(start);
+				consumer.accept(codec.decode(buffer));
+				buffer.limit(buffer.capacity());
+			}
+			position = start + length;
+		}
+	}
+
+	/**
+	 * Hands every datum in this segment to the consumer
+	 *
+	 * @param codec    The codec to decode the datums with
+	 * @param consumer The consumer
+	 * @throws IOException If mapping the file fails
+	 * @since alpha-3.1.0
+	 */
+	void scanAll(DatumCodec codec, Consumer<? super Datum> consumer) throws IOException {
+		if (size == HEADER_SIZE) {
+			return;
+		}
+		ByteBuffer buffer = map().duplicate();
+		int position = HEADER_SIZE;
+		while (position < size) {
+			int length = buffer.getInt(position);
+			int start = position + 4;
+			buffer.limit(start + length).position(start);
+			consumer.accept(codec.decode(buffer));
+			buffer.limit(buffer.capacity());
+			position = start + length;
+		}
+	}
+
+	/**
+	 * Gets the mapping of the valid part of the file, mapping it again if the
+	 * file has grown
+	 *
+	 * @return The mapping
+	 * @throws IOException If mapping fails
+	 * @since alpha-3.1.0
+	 */
+	private MappedByteBuffer map() throws IOException {
+		if (mapped == null) {
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+		return mapped;
+	}
+
+	/**
+	 * Writes the whole buffer at the given position
+	 *
+	 * @param buffer   The buffer
+	 * @param position The position in the file
+	 * @return The number of bytes written
+	 * @throws IOException If writing fails
+	 * @since alpha-3.1.0
+	 */
+	private int writeFully(ByteBuffer buffer, long position) throws IOException {
+		int written = 0;
+		while (buffer.hasRemaining()) {
+			written += channel.write(buffer, position + written);
+		}
+		return written;
+	}
+
+	/**
+	 * Gets the size of the valid part of the file
+	 *
+	 * @return The size, in bytes
+	 * @since alpha-3.1.0
+	 */
+	long size() {
+		return size;
+	}
+
+	/**
+	 * Gets the order of this segment
+	 *
+	 * @return The sequence number
+	 * @since alpha-3.1.0
+	 */
+	long sequence() {
+		return sequence;
+	}
+
+	/**
+	 * Gets the file of this segment
+	 *
+	 * @return The file
+	 * @since alpha-3.1.0
+	 */
+	Path path() {
+		return path;
+	}
+
+	/**
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public void close() throws IOException {
+		mapped = null;
+		channel.close();
+	}
+}
@@ -0,0 +1,7 @@
+/**
+ * A local, persistent store of {@link com.tidepool.tidepoolsdkjava.data.datum.Datum}s,
+ * kept in memory mapped append-only segment files.
+ *
+ * @since alpha-3.1.0
+ */
+package com.tidepool.tidepoolsdkjava.data.store;
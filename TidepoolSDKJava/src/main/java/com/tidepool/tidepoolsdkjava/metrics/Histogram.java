@@ -0,0 +1,214 @@
+package com.tidepool.tidepoolsdkjava.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of values, such as latencies in nanoseconds or sizes in bytes,
+ * that many threads can record into at once without locking.
+ * <br>
+ * Values are counted in log-linear buckets, as HDR histograms do: every power
+ * of two is split into 64 buckets, so a percentile is within about 1.6% of the
+ * true value, in a fixed 29KiB however many values are recorded. Recording is a
+ * couple of atomic increments, and never allocates.
+ * <br>
+ * Thread safe.
+ *
+ * @since alpha-3.1.0
+ */
+public final class Histogram {
+	/**
+	 * How many buckets each power of two is split into, as a power of two
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final int SUB_BUCKET_BITS = 6;
+	/**
+	 * How many buckets each power of two is split into
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	/**
+	 * The values below this are each counted in their own bucket
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+	/**
+	 * How many buckets there are, enough for every positive {@code long}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final int BUCKETS = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+	/**
+	 * How many values are in each bucket
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	/**
+	 * How many values have been recorded
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final LongAdder count = new LongAdder();
+	/**
+	 * The sum of the recorded values
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final LongAdder sum = new LongAdder();
+
+	/**
+	 * Creates an empty {@link Histogram}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public Histogram() {
+	}
+
+	/**
+	 * Records a value
+	 *
+	 * @param value The value. Negative values are counted as 0
+	 * @since alpha-3.1.0
+	 */
+	public void record(long value) {
+		long clamped = Math.max(0, value);
+		counts.incrementAndGet(bucketOf(clamped));
+		count.increment();
+		sum.add(clamped);
+	}
+
+	/**
+	 * Gets how many values have been recorded
+	 *
+	 * @return How many values
+	 * @since alpha-3.1.0
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Gets the sum of the recorded values
+	 *
+	 * @return The sum
+	 * @since alpha-3.1.0
+	 */
+	public long getSum() {
+		return sum.sum();
+	}
+
+	/**
+	 * Gets the mean of the recorded values
+	 *
+	 * @return The mean, or {@code 0} if nothing was recorded
+	 * @since alpha-3.1.0
+	 */
+	public double getMean() {
+		long values = count.sum();
+		return values == 0 ? 0 : (double) sum.sum() / values;
+	}
+
+	/**
+	 * Gets a percentile of the recorded values
+	 *
+	 * @param percentile The percentile, such as {@code 99.9}
+	 * @return The highest value that is counted in the same bucket as the
+	 *         percentile, or {@code 0} if nothing was recorded
+	 * @since alpha-3.1.0
+	 */
+	public long getPercentile(double percentile) {
+		return getPercentiles(percentile)[0];
+	}
+
+	/**
+	 * Gets several percentiles of the recorded values at once, from the same
+	 * snapshot, which is cheaper than getting them one at a time
+	 *
+	 * @param percentiles The percentiles, such as {@code 50, 99, 99.9}
+	 * @return The highest value that is counted in the same bucket as each
+	 *         percentile, in the same order, or {@code 0}s if nothing was
+	 *         recorded
+	 * @since alpha-3.1.0
+	 */
+	public long[] getPercentiles(double... percentiles) {
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+		long[] result = new long[percentiles.length];
+		if (total == 0) {
+			return result;
+		}
+		for (int p = 0; p < percentiles.length; p++) {
+			long target = Math.max(1,
+					(long) Math.ceil(total * Math.min(100, Math.max(0, percentiles[p])) / 100));
+			long seen = 0;
+			int bucket = 0;
+			while (bucket < BUCKETS - 1) {
+				seen += snapshot[bucket];
+				if (seen >= target) {
+					break;
+				}
+				bucket++;
+			}
+			result[p] = highestValueOf(bucket);
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the highest recorded value
+	 *
+	 * @return The highest value that is counted in the same bucket as the
+	 *         highest recorded value, or {@code 0} if nothing was recorded
+	 * @since alpha-3.1.0
+	 */
+	public long getMax() {
+		for (int i = BUCKETS - 1; i >= 0; i--) {
+			if (counts.get(i) > 0) {
+				return highestValueOf(i);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Gets the bucket a value is counted in
+	 *
+	 * @param value The value, at least 0
+	 * @return The bucket
+	 * @since alpha-3.1.0
+	 */
+	private static int bucketOf(long value) {
+		if (value < LINEAR_LIMIT) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		int top = (int) (value >>> shift);
+		return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (top - SUB_BUCKETS);
+	}
+
+	/**
+	 * Gets the highest value counted in a bucket
+	 *
+	 * @param bucket The bucket
+	 * @return The highest value
+	 * @since alpha-3.1.0
+	 */
+	private static long highestValueOf(int bucket) {
+		if (bucket < LINEAR_LIMIT) {
+			return bucket;
+		}
+		int shift = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+		long top = (bucket - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+		long highest = ((top + 1) << shift) - 1;
+		return highest < 0 ? Long.MAX_VALUE : highest;
+	}
+}
@@ -0,0 +1,123 @@
+package com.tidepool.tidepoolsdkjava.metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves the metrics of a {@link RequestMetrics} in the Prometheus text format
+ * at {@code /metrics}, for Prometheus to scrape.
+ * <br>
+ * Runs on the HTTP server of the JDK, on a single thread, so it doesn't need
+ * any dependencies. Close it to stop serving.
+ *
+ * @since alpha-3.1.0
+ */
+public final class PrometheusExporter implements AutoCloseable {
+	/**
+	 * The content type of the Prometheus text format
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	/**
+	 * The metrics that are served
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final RequestMetrics metrics;
+	/**
+	 * The HTTP server
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final HttpServer server;
+
+	/**
+	 * Starts serving metrics on every interface
+	 *
+	 * @param metrics The metrics to serve
+	 * @param port    The port, or 0 for any free port
+	 * @throws IOException If the server can't listen on the port
+	 * @since alpha-3.1.0
+	 */
+	public PrometheusExporter(RequestMetrics metrics, int port) throws IOException {
+		this(metrics, new InetSocketAddress(port));
+	}
+
+	/**
+	 * Starts serving metrics
+	 *
+	 * @param metrics The metrics to serve
+	 * @param address The address to listen on
+	 * @throws IOException If the server can't listen on the address
+	 * @since alpha-3.1.0
+	 */
+	public PrometheusExporter(RequestMetrics metrics, InetSocketAddress address) throws IOException {
+		this.metrics = metrics;
+		server = HttpServer.create(address, 16);
+		server.createContext("/metrics", this::scrape);
+		server.start();
+	}
+
+	/**
+	 * Gets the port metrics are served on
+	 *
+	 * @return The port
+	 * @since alpha-3.1.0
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Answers a scrape
+	 *
+	 * @param exchange The exchange
+	 * @throws IOException If answering fails
+	 * @since alpha-3.1.0
+	 */
+	private void scrape(HttpExchange exchange) throws IOException {
+		try {
+			String method = exchange.getRequestMethod();
+			if (!method.equals("GET") && !method.equals("HEAD")) {
+				exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+			ByteArrayOutputStream body = new ByteArrayOutputStream(8192);
+			try (Writer out = new OutputStreamWriter(body, StandardCharsets.UTF_8)) {
+				metrics.writePrometheus(out);
+			}
+			exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+			if (method.equals("HEAD")) {
+				exchange.sendResponseHeaders(200, -1);
+				return;
+			}
+			exchange.sendResponseHeaders(200, body.size());
+			try (OutputStream out = exchange.getResponseBody()) {
+				body.writeTo(out);
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Stops serving metrics
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+}
@@ -0,0 +1,898 @@
+package com.tidepool.tidepoolsdkjava.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.tidepool.tidepoolsdkjava.BaseRequest.RequestStatus;
+
+/**
+ * Records how requests sent to the backend behave, by the kind of request and
+ * the host it was sent to: latency and response size histograms, status code
+ * counts, retries, exceptions and requests in flight. Also records how the
+ * access token is refreshed, by client id.
+ * <br>
+ * Requests are recorded into it once it is set on a configuration with
+ * {@link com.tidepool.tidepoolsdkjava.config.TidepoolBackendConfig#setMetrics(RequestMetrics)
+ * setMetrics}. Many configurations can share one registry, and their requests
+ * are then recorded together.
+ * <br>
+ * Recording never locks: finding the series of a request is two lookups in
+ * concurrent maps, and recording into it is a few atomic increments, so it can
+ * stay on in production. The values are kept from when the series was created.
+ * <br>
+ * The metrics can be read from the series, exported through JMX with
+ * {@link #registerMBeans()}, or written in the Prometheus text format with
+ * {@link #writePrometheus(Writer)}, which {@link PrometheusExporter} serves
+ * over HTTP.
+ * <br>
+ * Thread safe.
+ *
+ * @since alpha-3.1.0
+ */
+public final class RequestMetrics {
+	/**
+	 * The metrics of one kind of request sent to one host
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public static final class RequestSeries implements RequestSeriesMXBean {
+		/**
+		 * The highest status code that is counted on its own
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private static final int MAX_STATUS_CODE = 599;
+
+		/**
+		 * The name of the kind of request
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final String request;
+		/**
+		 * The host the requests are sent to
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final String host;
+		/**
+		 * How long requests take, from being sent to being parsed, in nanoseconds
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final Histogram latency = new Histogram();
+		/**
+		 * The sizes of the response bodies, in bytes
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final Histogram responseSizes = new Histogram();
+		/**
+		 * How many responses were recieved with each status code, indexed by the
+		 * code
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final AtomicLongArray statusCodes = new AtomicLongArray(MAX_STATUS_CODE + 1);
+		/**
+		 * How many requests are in flight
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final LongAdder inFlight = new LongAdder();
+		/**
+		 * How many times requests were retried
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final LongAdder retries = new LongAdder();
+		/**
+		 * How many requests raised an exception
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final LongAdder exceptions = new LongAdder();
+		/**
+		 * How many requests were turned away by an open circuit breaker
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final LongAdder circuitOpen = new LongAdder();
+
+		/**
+		 * Creates a {@link RequestSeries}
+		 *
+		 * @param request The name of the kind of request
+		 * @param host    The host the requests are sent to
+		 * @since alpha-3.1.0
+		 */
+		private RequestSeries(String request, String host) {
+			this.request = request;
+			this.host = host;
+		}
+
+		/**
+		 * Records that a request was sent
+		 *
+		 * @since alpha-3.1.0
+		 */
+		public void recordStart() {
+			inFlight.increment();
+		}
+
+		/**
+		 * Records that a request is being retried
+		 *
+		 * @since alpha-3.1.0
+		 */
+		public void recordRetry() {
+			retries.increment();
+		}
+
+		/**
+		 * Records that a request that was {@link #recordStart() sent} has finished
+		 *
+		 * @param nanos         How long it took, in nanoseconds
+		 * @param status        How it finished
+		 * @param statusCode    The status code of the last response, or {@code 0}
+		 *                      if there wasn't one
+		 * @param responseBytes The size of the last response body, or {@code -1}
+		 *                      if there wasn't one
+		 * @since alpha-3.1.0
+		 */
+		public void recordFinish(long nanos, RequestStatus status, int statusCode, long responseBytes) {
+			inFlight.decrement();
+			if (status == RequestStatus.CircuitOpen) {
+				// it was never sent, so its latency would only skew the rest
+				circuitOpen.increment();
+				return;
+			}
+			latency.record(nanos);
+			if (status == RequestStatus.ExceptionRaised) {
+				exceptions.increment();
+			}
+			if (statusCode > 0) {
+				statusCodes.incrementAndGet(Math.min(statusCode, MAX_STATUS_CODE));
+			}
+			if (responseBytes >= 0) {
+				responseSizes.record(responseBytes);
+			}
+		}
+
+		/**
+		 * Gets how long requests take, from being sent to being parsed
+		 *
+		 * @return The latencies, in nanoseconds
+		 * @since alpha-3.1.0
+		 */
+		public Histogram getLatency() {
+			return latency;
+		}
+
+		/**
+		 * Gets the sizes of the response bodies, as recieved, before they are
+		 * decompressed
+		 *
+		 * @return The sizes, in bytes
+		 * @since alpha-3.1.0
+		 */
+		public Histogram getResponseSizes() {
+			return responseSizes;
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public String getRequest() {
+			return request;
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public String getHost() {
+			return host;
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public long getCount() {
+			return latency.getCount() + circuitOpen.sum();
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public long getInFlight() {
+			return inFlight.sum();
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public long getRetries() {
+			return retries.sum();
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public long getExceptions() {
+			return exceptions.sum();
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public long getCircuitOpen() {
+			return circuitOpen.sum();
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public Map<String, Long> getStatusCodes() {
+			Map<String, Long> result = new TreeMap<>();
+			for (int code = 1; code <= MAX_STATUS_CODE; code++) {
+				long count = statusCodes.get(code);
+				if (count > 0) {
+					result.put(Integer.toString(code), count);
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public double getLatencyP50Millis() {
+			return latency.getPercentile(50) / 1e6;
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public double getLatencyP99Millis() {
+			return latency.getPercentile(99) / 1e6;
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public double getLatencyP999Millis() {
+			return latency.getPercentile(99.9) / 1e6;
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public double getLatencyMaxMillis() {
+			return latency.getMax() / 1e6;
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public double getMeanResponseBytes() {
+			return responseSizes.getMean();
+		}
+	}
+
+	/**
+	 * How the access token of one client is refreshed
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public static final class TokenSeries implements TokenSeriesMXBean {
+		/**
+		 * The client id the tokens are for
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final String clientId;
+		/**
+		 * How long refreshes take, in nanoseconds
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final Histogram duration = new Histogram();
+		/**
+		 * How many refreshes failed
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final LongAdder failures = new LongAdder();
+		/**
+		 * How many times a caller waited on a refresh already in flight
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final LongAdder joined = new LongAdder();
+
+		/**
+		 * Creates a {@link TokenSeries}
+		 *
+		 * @param clientId The client id the tokens are for
+		 * @since alpha-3.1.0
+		 */
+		private TokenSeries(String clientId) {
+			this.clientId = clientId;
+		}
+
+		/**
+		 * Records that a refresh has finished
+		 *
+		 * @param nanos     How long it took, in nanoseconds
+		 * @param succeeded If it succeeded
+		 * @since alpha-3.1.0
+		 */
+		public void recordRefresh(long nanos, boolean succeeded) {
+			duration.record(nanos);
+			if (!succeeded) {
+				failures.increment();
+			}
+		}
+
+		/**
+		 * Records that a caller waited on a refresh that was already in flight
+		 *
+		 * @since alpha-3.1.0
+		 */
+		public void recordJoin() {
+			joined.increment();
+		}
+
+		/**
+		 * Gets how long refreshes take
+		 *
+		 * @return The durations, in nanoseconds
+		 * @since alpha-3.1.0
+		 */
+		public Histogram getDuration() {
+			return duration;
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public String getClientId() {
+			return clientId;
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public long getRefreshes() {
+			return duration.getCount();
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public long getFailures() {
+			return failures.sum();
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public long getJoined() {
+			return joined.sum();
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public double getDurationP50Millis() {
+			return duration.getPercentile(50) / 1e6;
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public double getDurationP99Millis() {
+			return duration.getPercentile(99) / 1e6;
+		}
+
+		/**
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public double getDurationMaxMillis() {
+			return duration.getMax() / 1e6;
+		}
+	}
+
+	/**
+	 * The JMX domain the series are registered under by default
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public static final String DEFAULT_JMX_DOMAIN = "com.tidepool.tidepoolsdkjava";
+
+	/**
+	 * The quantiles written for each summary in the Prometheus format
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+	/**
+	 * {@link #QUANTILES} as percentiles
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+	/**
+	 * The series of each kind of request, by the class of the request, then by
+	 * host. Keyed by class so that finding a series doesn't allocate.
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Map<Class<?>, Map<String, RequestSeries>> requests = new ConcurrentHashMap<>();
+	/**
+	 * The token series, by client id
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Map<String, TokenSeries> tokens = new ConcurrentHashMap<>();
+	/**
+	 * The server the series are registered with, or {@code null} if they aren't
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private volatile MBeanServer mbeanServer;
+	/**
+	 * The JMX domain the series are registered under
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private volatile String jmxDomain;
+
+	/**
+	 * Creates an empty {@link RequestMetrics}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public RequestMetrics() {
+	}
+
+	/**
+	 * Gets the series of a kind of request sent to a host, creating it if it
+	 * doesn't exist yet
+	 *
+	 * @param type The class of the request
+	 * @param host The host, such as {@code api.tidepool.org}
+	 * @return The series
+	 * @since alpha-3.1.0
+	 */
+	public RequestSeries forRequest(Class<?> type, String host) {
+		Map<String, RequestSeries> byHost = requests.get(type);
+		if (byHost == null) {
+			byHost = requests.computeIfAbsent(type, key -> new ConcurrentHashMap<>());
+		}
+		RequestSeries series = byHost.get(host);
+		if (series == null) {
+			RequestSeries created = new RequestSeries(nameOf(type), host);
+			series = byHost.putIfAbsent(host, created);
+			if (series == null) {
+				series = created;
+				register(created, "Request", "request", created.request, "host", host);
+			}
+		}
+		return series;
+	}
+
+	/**
+	 * Gets the token series of a client, creating it if it doesn't exist yet
+	 *
+	 * @param clientId The client id
+	 * @return The series
+	 * @since alpha-3.1.0
+	 */
+	public TokenSeries forTokens(String clientId) {
+		TokenSeries series = tokens.get(clientId);
+		if (series == null) {
+			TokenSeries created = new TokenSeries(clientId);
+			series = tokens.putIfAbsent(clientId, created);
+			if (series == null) {
+				series = created;
+				register(created, "TokenRefresh", "clientId", clientId, null, null);
+			}
+		}
+		return series;
+	}
+
+	/**
+	 * Gets every request series
+	 *
+	 * @return The series, as they are now
+	 * @since alpha-3.1.0
+	 */
+	public Collection<RequestSeries> getRequestSeries() {
+		List<RequestSeries> result = new ArrayList<>();
+		for (Map<String, RequestSeries> byHost : requests.values()) {
+			result.addAll(byHost.values());
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * Gets every token series
+	 *
+	 * @return The series, as they are now
+	 * @since alpha-3.1.0
+	 */
+	public Collection<TokenSeries> getTokenSeries() {
+		return Collections.unmodifiableList(new ArrayList<>(tokens.values()));
+	}
+
+	/**
+	 * Registers every series as an MXBean with the platform MBean server, under
+	 * the {@link #DEFAULT_JMX_DOMAIN default domain}, and every series that is
+	 * created later as it is created
+	 *
+	 * @throws JMException If a series can't be registered
+	 * @since alpha-3.1.0
+	 */
+	public void registerMBeans() throws JMException {
+		registerMBeans(ManagementFactory.getPlatformMBeanServer(), DEFAULT_JMX_DOMAIN);
+	}
+
+	/**
+	 * Registers every series as an MXBean, and every series that is created
+	 * later as it is created. A request series is named
+	 * {@code <domain>:type=Request,request=<request>,host="<host>"}, and a token
+	 * series {@code <domain>:type=TokenRefresh,clientId="<client id>"}.
+	 * <br>
+	 * Use a different domain for each registry registered with the same server.
+	 *
+	 * @param server The server to register with
+	 * @param domain The JMX domain to register under
+	 * @throws JMException If a series can't be registered
+	 * @since alpha-3.1.0
+	 */
+	public void registerMBeans(MBeanServer server, String domain) throws JMException {
+		jmxDomain = domain;
+		mbeanServer = server;
+		for (RequestSeries series : getRequestSeries()) {
+			registerOrThrow(server, objectName(domain, "Request", "request", series.request, "host", series.host),
+					series);
+		}
+		for (TokenSeries series : getTokenSeries()) {
+			registerOrThrow(server, objectName(domain, "TokenRefresh", "clientId", series.clientId, null, null),
+					series);
+		}
+	}
+
+	/**
+	 * Unregisters every series from the server they were registered with, and
+	 * stops registering new ones
+	 *
+	 * @throws JMException If a series can't be unregistered
+	 * @since alpha-3.1.0
+	 */
+	public void unregisterMBeans() throws JMException {
+		MBeanServer server = mbeanServer;
+		String domain = jmxDomain;
+		mbeanServer = null;
+		if (server == null) {
+			return;
+		}
+		for (RequestSeries series : getRequestSeries()) {
+			unregister(server, objectName(domain, "Request", "request", series.request, "host", series.host));
+		}
+		for (TokenSeries series : getTokenSeries()) {
+			unregister(server, objectName(domain, "TokenRefresh", "clientId", series.clientId, null, null));
+		}
+	}
+
+	/**
+	 * Writes every series in the Prometheus text format, version 0.0.4.
+	 * Latencies, response sizes and refresh durations are written as summaries,
+	 * with the 0.5, 0.9, 0.99 and 0.999 quantiles.
+	 *
+	 * @param out Where to write
+	 * @throws IOException If writing fails
+	 * @since alpha-3.1.0
+	 */
+	public void writePrometheus(Writer out) throws IOException {
+		Collection<RequestSeries> requestSeries = getRequestSeries();
+		Collection<TokenSeries> tokenSeries = getTokenSeries();
+
+		header(out, "tidepool_request_duration_seconds", "summary",
+				"How long requests take, from being sent to being parsed, including retries");
+		for (RequestSeries series : requestSeries) {
+			summary(out, "tidepool_request_duration_seconds", requestLabels(series), series.latency, 1e9);
+		}
+		header(out, "tidepool_response_size_bytes", "summary",
+				"The sizes of response bodies as recieved, before they are decompressed");
+		for (RequestSeries series : requestSeries) {
+			summary(out, "tidepool_response_size_bytes", requestLabels(series), series.responseSizes, 1);
+		}
+		header(out, "tidepool_responses_total", "counter", "Responses recieved, by status code");
+		for (RequestSeries series : requestSeries) {
+			for (Map.Entry<String, Long> code : series.getStatusCodes().entrySet()) {
+				sample(out, "tidepool_responses_total",
+						requestLabels(series) + ",code=\"" + code.getKey() + "\"", code.getValue());
+			}
+		}
+		header(out, "tidepool_request_retries_total", "counter", "Times requests were retried");
+		for (RequestSeries series : requestSeries) {
+			sample(out, "tidepool_request_retries_total", requestLabels(series), series.getRetries());
+		}
+		header(out, "tidepool_request_exceptions_total", "counter", "Requests that raised an exception");
+		for (RequestSeries series : requestSeries) {
+			sample(out, "tidepool_request_exceptions_total", requestLabels(series), series.getExceptions());
+		}
+		header(out, "tidepool_request_circuit_open_total", "counter",
+				"Requests turned away by an open circuit breaker");
+		for (RequestSeries series : requestSeries) {
+			sample(out, "tidepool_request_circuit_open_total", requestLabels(series), series.getCircuitOpen());
+		}
+		header(out, "tidepool_requests_in_flight", "gauge", "Requests in flight");
+		for (RequestSeries series : requestSeries) {
+			sample(out, "tidepool_requests_in_flight", requestLabels(series), series.getInFlight());
+		}
+
+		header(out, "tidepool_token_refresh_duration_seconds", "summary", "How long access token refreshes take");
+		for (TokenSeries series : tokenSeries) {
+			summary(out, "tidepool_token_refresh_duration_seconds", tokenLabels(series), series.duration, 1e9);
+		}
+		header(out, "tidepool_token_refresh_failures_total", "counter", "Access token refreshes that failed");
+		for (TokenSeries series : tokenSeries) {
+			sample(out, "tidepool_token_refresh_failures_total", tokenLabels(series), series.getFailures());
+		}
+		header(out, "tidepool_token_refresh_joined_total", "counter",
+				"Times a caller waited on an access token refresh already in flight");
+		for (TokenSeries series : tokenSeries) {
+			sample(out, "tidepool_token_refresh_joined_total", tokenLabels(series), series.getJoined());
+		}
+	}
+
+	/**
+	 * Gets the name of a kind of request
+	 *
+	 * @param type The class of the request
+	 * @return The simple name of the class, or its full name if it is anonymous
+	 * @since alpha-3.1.0
+	 */
+	private static String nameOf(Class<?> type) {
+		String name = type.getSimpleName();
+		return name.isEmpty() ? type.getName() : name;
+	}
+
+	/**
+	 * Registers a series that was just created, if the series are registered
+	 * with a server. Failures are ignored, as they would otherwise fail the
+	 * request that created the series.
+	 *
+	 * @param series The series
+	 * @param type   The {@code type} key of its name
+	 * @param key1   The first key of its name
+	 * @param value1 The first value of its name
+	 * @param key2   The second key of its name, or {@code null}
+	 * @param value2 The second value of its name
+	 * @since alpha-3.1.0
+	 */
+	private void register(Object series, String type, String key1, String value1, String key2, String value2) {
+		MBeanServer server = mbeanServer;
+		if (server == null) {
+			return;
+		}
+		try {
+			registerOrThrow(server, objectName(jmxDomain, type, key1, value1, key2, value2), series);
+		} catch (JMException e) {
+			// the series is still recorded into, just not visible through JMX
+		}
+	}
+
+	/**
+	 * Registers a series, unless it already is
+	 *
+	 * @param server The server to register with
+	 * @param name   The name of the series
+	 * @param series The series
+	 * @throws JMException If the series can't be registered
+	 * @since alpha-3.1.0
+	 */
+	private static void registerOrThrow(MBeanServer server, ObjectName name, Object series) throws JMException {
+		try {
+			server.registerMBean(series, name);
+		} catch (InstanceAlreadyExistsException e) {
+			// registered by a concurrent call
+		}
+	}
+
+	/**
+	 * Unregisters a series, unless it already isn't
+	 *
+	 * @param server The server to unregister from
+	 * @param name   The name of the series
+	 * @throws JMException If the series can't be unregistered
+	 * @since alpha-3.1.0
+	 */
+	private static void unregister(MBeanServer server, ObjectName name) throws JMException {
+		try {
+			server.unregisterMBean(name);
+		} catch (InstanceNotFoundException e) {
+			// was never registered
+		}
+	}
+
+	/**
+	 * Creates the JMX name of a series. Values that aren't identifiers are
+	 * quoted
+	 *
+	 * @param domain The JMX domain
+	 * @param type   The {@code type} key
+	 * @param key1   The first key
+	 * @param value1 The first value
+	 * @param key2   The second key, or {@code null}
+	 * @param value2 The second value
+	 * @return The name
+	 * @throws JMException If the name is invalid
+	 * @since alpha-3.1.0
+	 */
+	private static ObjectName objectName(String domain, String type, String key1, String value1, String key2,
+			String value2) throws JMException {
+		StringBuilder name = new StringBuilder(domain).append(":type=").append(type);
+		name.append(',').append(key1).append('=').append(quoteIfNeeded(value1));
+		if (key2 != null) {
+			name.append(',').append(key2).append('=').append(quoteIfNeeded(value2));
+		}
+		return new ObjectName(name.toString());
+	}
+
+	/**
+	 * Quotes a value of a JMX name if it has characters that aren't allowed
+	 * unquoted
+	 *
+	 * @param value The value
+	 * @return The value, quoted if needed
+	 * @since alpha-3.1.0
+	 */
+	private static String quoteIfNeeded(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == ',' || c == '=' || c == ':' || c == '"' || c == '*' || c == '?' || c == '\n') {
+				return ObjectName.quote(value);
+			}
+		}
+		return value.isEmpty() ? ObjectName.quote(value) : value;
+	}
+
+	/**
+	 * Gets the Prometheus labels of a request series
+	 *
+	 * @param series The series
+	 * @return The labels, without the braces
+	 * @since alpha-3.1.0
+	 */
+	private static String requestLabels(RequestSeries series) {
+		return "request=\"" + escape(series.request) + "\",host=\"" + escape(series.host) + "\"";
+	}
+
+	/**
+	 * Gets the Prometheus labels of a token series
+	 *
+	 * @param series The series
+	 * @return The labels, without the braces
+	 * @since alpha-3.1.0
+	 */
+	private static String tokenLabels(TokenSeries series) {
+		return "client_id=\"" + escape(series.clientId) + "\"";
+	}
+
+	/**
+	 * Escapes a Prometheus label value
+	 *
+	 * @param value The value
+	 * @return The escaped value
+	 * @since alpha-3.1.0
+	 */
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	/**
+	 * Writes the {@code HELP} and {@code TYPE} lines of a metric
+	 *
+	 * @param out  Where to write
+	 * @param name The name of the metric
+	 * @param type The type of the metric
+	 * @param help What the metric is
+	 * @throws IOException If writing fails
+	 * @since alpha-3.1.0
+	 */
+	private static void header(Writer out, String name, String type, String help) throws IOException {
+		out.write("# HELP " + name + " " + help + "\n");
+		out.write("# TYPE " + name + " " + type + "\n");
+	}
+
+	/**
+	 * Writes a sample
+	 *
+	 * @param out    Where to write
+	 * @param name   The name of the metric
+	 * @param labels The labels, without the braces
+	 * @param value  The value
+	 * @throws IOException If writing fails
+	 * @since alpha-3.1.0
+	 */
+	private static void sample(Writer out, String name, String labels, double value) throws IOException {
+		out.write(name + "{" + labels + "} " + format(value) + "\n");
+	}
+
+	/**
+	 * Writes a histogram as a summary
+	 *
+	 * @param out       Where to write
+	 * @param name      The name of the metric
+	 * @param labels    The labels, without the braces
+	 * @param histogram The histogram
+	 * @param divisor   What the values of the histogram are divided by, such as
+	 *                  {@code 1e9} to write nanoseconds as seconds
+	 * @throws IOException If writing fails
+	 * @since alpha-3.1.0
+	 */
+	private static void summary(Writer out, String name, String labels, Histogram histogram, double divisor)
+			throws IOException {
+		long[] values = histogram.getPercentiles(PERCENTILES);
+		for (int i = 0; i < QUANTILES.length; i++) {
+			sample(out, name, labels + ",quantile=\"" + QUANTILES[i] + "\"", values[i] / divisor);
+		}
+		sample(out, name + "_sum", labels, histogram.getSum() / divisor);
+		sample(out, name + "_count", labels, histogram.getCount());
+	}
+
+	/**
+	 * Formats a value as Prometheus expects
+	 *
+	 * @param value The value
+	 * @return The value, without a fraction if it is whole
+	 * @since alpha-3.1.0
+	 */
+	private static String format(double value) {
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			return Long.toString((long) value);
+		}
+		return Double.toString(value);
+	}
+}
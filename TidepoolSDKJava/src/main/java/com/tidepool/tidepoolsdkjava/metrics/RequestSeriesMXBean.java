@@ -0,0 +1,115 @@
+package com.tidepool.tidepoolsdkjava.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX view of the metrics of one kind of request sent to one host
+ *
+ * @since alpha-3.1.0
+ */
+public interface RequestSeriesMXBean {
+	/**
+	 * Gets the name of the kind of request
+	 *
+	 * @return The simple name of the class of the request, such as
+	 *         {@code GetDataForUser}
+	 * @since alpha-3.1.0
+	 */
+	String getRequest();
+
+	/**
+	 * Gets the host the requests are sent to
+	 *
+	 * @return The host, such as {@code api.tidepool.org}
+	 * @since alpha-3.1.0
+	 */
+	String getHost();
+
+	/**
+	 * Gets how many requests have finished, however they finished
+	 *
+	 * @return How many requests
+	 * @since alpha-3.1.0
+	 */
+	long getCount();
+
+	/**
+	 * Gets how many requests are in flight
+	 *
+	 * @return How many requests
+	 * @since alpha-3.1.0
+	 */
+	long getInFlight();
+
+	/**
+	 * Gets how many times requests were retried
+	 *
+	 * @return How many retries
+	 * @since alpha-3.1.0
+	 */
+	long getRetries();
+
+	/**
+	 * Gets how many requests raised an exception
+	 *
+	 * @return How many requests
+	 * @since alpha-3.1.0
+	 */
+	long getExceptions();
+
+	/**
+	 * Gets how many requests were turned away by an open circuit breaker
+	 *
+	 * @return How many requests
+	 * @since alpha-3.1.0
+	 */
+	long getCircuitOpen();
+
+	/**
+	 * Gets how many responses were recieved with each status code
+	 *
+	 * @return How many responses, by status code
+	 * @since alpha-3.1.0
+	 */
+	Map<String, Long> getStatusCodes();
+
+	/**
+	 * Gets the median latency
+	 *
+	 * @return The latency, in milliseconds
+	 * @since alpha-3.1.0
+	 */
+	double getLatencyP50Millis();
+
+	/**
+	 * Gets the 99th percentile latency
+	 *
+	 * @return The latency, in milliseconds
+	 * @since alpha-3.1.0
+	 */
+	double getLatencyP99Millis();
+
+	/**
+	 * Gets the 99.9th percentile latency
+	 *
+	 * @return The latency, in milliseconds
+	 * @since alpha-3.1.0
+	 */
+	double getLatencyP999Millis();
+
+	/**
+	 * Gets the highest latency
+	 *
+	 * @return The latency, in milliseconds
+	 * @since alpha-3.1.0
+	 */
+	double getLatencyMaxMillis();
+
+	/**
+	 * Gets the mean size of the response bodies
+	 *
+	 * @return The size, in bytes
+	 * @since alpha-3.1.0
+	 */
+	double getMeanResponseBytes();
+}
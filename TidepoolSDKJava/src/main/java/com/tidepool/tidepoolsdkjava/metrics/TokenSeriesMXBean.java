@@ -0,0 +1,65 @@
+package com.tidepool.tidepoolsdkjava.metrics;
+
+/**
+ * The JMX view of how the access token of one client is refreshed
+ *
+ * @since alpha-3.1.0
+ */
+public interface TokenSeriesMXBean {
+	/**
+	 * Gets the client id the tokens are for
+	 *
+	 * @return The client id
+	 * @since alpha-3.1.0
+	 */
+	String getClientId();
+
+	/**
+	 * Gets how many refreshes have finished, however they finished
+	 *
+	 * @return How many refreshes
+	 * @since alpha-3.1.0
+	 */
+	long getRefreshes();
+
+	/**
+	 * Gets how many refreshes failed
+	 *
+	 * @return How many refreshes
+	 * @since alpha-3.1.0
+	 */
+	long getFailures();
+
+	/**
+	 * Gets how many times a caller waited on a refresh that was already in
+	 * flight, rather than starting its own
+	 *
+	 * @return How many times
+	 * @since alpha-3.1.0
+	 */
+	long getJoined();
+
+	/**
+	 * Gets the median time a refresh takes
+	 *
+	 * @return The time, in milliseconds
+	 * @since alpha-3.1.0
+	 */
+	double getDurationP50Millis();
+
+	/**
+	 * Gets the 99th percentile time a refresh takes
+	 *
+	 * @return The time, in milliseconds
+	 * @since alpha-3.1.0
+	 */
+	double getDurationP99Millis();
+
+	/**
+	 * Gets the longest time a refresh took
+	 *
+	 * @return The time, in milliseconds
+	 * @since alpha-3.1.0
+	 */
+	double getDurationMaxMillis();
+}
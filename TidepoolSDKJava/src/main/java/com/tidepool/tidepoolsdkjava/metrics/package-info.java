@@ -0,0 +1,7 @@
+/**
+ * Instrumentation of the requests sent to the backend: latency and response
+ * size histograms, status code counts, retries and requests in flight, by
+ * request and host, and how the access token is refreshed. Exported through
+ * JMX and in the Prometheus text format.
+ */
+package com.tidepool.tidepoolsdkjava.metrics;
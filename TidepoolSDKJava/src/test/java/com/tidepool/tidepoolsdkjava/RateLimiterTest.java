@@ -0,0 +1,137 @@
+package com.tidepool.tidepoolsdkjava;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link RateLimiter} with a clock the test moves forward, so no test
+ * depends on how fast it runs
+ *
+ * @since alpha-3.1.0
+ */
+public class RateLimiterTest {
+	/**
+	 * How many permits the limiter under test hands out per second
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final double PERMITS_PER_SECOND = 10;
+	/**
+	 * The time between two permits at {@link #PERMITS_PER_SECOND}, in
+	 * nanoseconds
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+	/**
+	 * How many permits the limiter under test hands out at once
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final int BURST = 3;
+
+	/**
+	 * The current time of the limiter under test, in nanoseconds
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private long now;
+
+	/**
+	 * Creates a limiter that reads the time from {@link #now}
+	 *
+	 * @return The limiter
+	 * @since alpha-3.1.0
+	 */
+	private RateLimiter limiter() {
+		return new RateLimiter(PERMITS_PER_SECOND, BURST, () -> now);
+	}
+
+	/**
+	 * The first {@code burst} permits are handed out at once, and each after
+	 * that waits one more interval
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void reserveWaitsAfterBurst() {
+		now = 123_456_789;
+		RateLimiter limiter = limiter();
+		for (int i = 0; i < BURST; i++) {
+			assertEquals("permit " + i, 0, limiter.reserve());
+		}
+		assertEquals(INTERVAL, limiter.reserve());
+		assertEquals(2 * INTERVAL, limiter.reserve());
+		// the wait shrinks as time passes
+		now += INTERVAL / 2;
+		assertEquals(INTERVAL * 5 / 2, limiter.reserve());
+	}
+
+	/**
+	 * A permit that isn't available is refused without being taken, so refusals
+	 * don't push back the permits after them
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void tryAcquireRefusesWithoutTakingPermit() {
+		now = 0;
+		RateLimiter limiter = limiter();
+		for (int i = 0; i < BURST; i++) {
+			assertTrue("permit " + i, limiter.tryAcquire());
+		}
+		for (int i = 0; i < 10; i++) {
+			assertFalse(limiter.tryAcquire());
+		}
+		now += INTERVAL - 1;
+		assertFalse(limiter.tryAcquire());
+		now += 1;
+		assertTrue(limiter.tryAcquire());
+		assertFalse(limiter.tryAcquire());
+		assertEquals(INTERVAL, limiter.reserve());
+	}
+
+	/**
+	 * An idle limiter refills up to {@code burst} permits, and no more
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void refillsOnlyUpToBurst() {
+		now = 0;
+		RateLimiter limiter = limiter();
+		for (int i = 0; i < BURST; i++) {
+			assertTrue(limiter.tryAcquire());
+		}
+		now += 100 * INTERVAL;
+		for (int i = 0; i < BURST; i++) {
+			assertTrue("permit " + i, limiter.tryAcquire());
+		}
+		assertFalse(limiter.tryAcquire());
+	}
+
+	/**
+	 * The limiter keeps working when the time wraps around, as
+	 * {@link System#nanoTime()} may
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void survivesTimeWrappingAround() {
+		now = Long.MAX_VALUE - INTERVAL / 2;
+		RateLimiter limiter = limiter();
+		for (int i = 0; i < BURST; i++) {
+			assertEquals("permit " + i, 0, limiter.reserve());
+		}
+		assertEquals(INTERVAL, limiter.reserve());
+		now += 2 * INTERVAL;
+		assertTrue(now < 0);
+		assertTrue(limiter.tryAcquire());
+		assertFalse(limiter.tryAcquire());
+	}
+}
@@ -0,0 +1,154 @@
+package com.tidepool.tidepoolsdkjava;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.net.ssl.SSLSession;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link RetryPolicy}
+ *
+ * @since alpha-3.1.0
+ */
+public class RetryPolicyTest {
+	/**
+	 * Creates a response without a body
+	 *
+	 * @param statusCode The response code
+	 * @param retryAfter The {@code Retry-After} header, or {@code null} for none
+	 * @return The response
+	 * @since alpha-3.1.0
+	 */
+	private static HttpResponse<Void> response(int statusCode, String retryAfter) {
+		HttpHeaders headers = HttpHeaders.of(retryAfter == null ? Map.of() : Map.of("Retry-After", List.of(retryAfter)),
+				(name, value) -> true);
+		return new HttpResponse<Void>() {
+			@Override
+			public int statusCode() {
+				return statusCode;
+			}
+
+			@Override
+			public HttpRequest request() {
+				return null;
+			}
+
+			@Override
+			public Optional<HttpResponse<Void>> previousResponse() {
+				return Optional.empty();
+			}
+
+			@Override
+			public HttpHeaders headers() {
+				return headers;
+			}
+
+			@Override
+			public Void body() {
+				return null;
+			}
+
+			@Override
+			public Optional<SSLSession> sslSession() {
+				return Optional.empty();
+			}
+
+			@Override
+			public URI uri() {
+				return null;
+			}
+
+			@Override
+			public HttpClient.Version version() {
+				return HttpClient.Version.HTTP_1_1;
+			}
+		};
+	}
+
+	/**
+	 * A {@code Retry-After} within the largest wait is waited at least
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void waitsForRetryAfter() {
+		RetryPolicy policy = new RetryPolicy.Builder().build();
+		assertTrue(policy.retryDelay(response(503, "2"), 1, true) >= Duration.ofSeconds(2).toNanos());
+	}
+
+	/**
+	 * A {@code Retry-After} too long to count in nanoseconds, or even in a long,
+	 * isn't retried instead of failing the request
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void hugeRetryAfterIsNotRetried() {
+		RetryPolicy policy = new RetryPolicy.Builder().build();
+		assertEquals(RetryPolicy.NO_RETRY, policy.retryDelay(response(503, "99999999999"), 1, true));
+		assertEquals(RetryPolicy.NO_RETRY, policy.retryDelay(response(503, "99999999999999999999999"), 1, true));
+	}
+
+	/**
+	 * The cap of the wait grows up to the largest wait without wrapping around,
+	 * however large the base delay
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void backoffNeverWraps() {
+		Duration maxDelay = Duration.ofDays(100_000);
+		// doubled 30 times, this wraps around to about a second
+		Duration baseDelay = Duration.ofNanos((1L << 34) + 1);
+		RetryPolicy policy = new RetryPolicy.Builder().setMaxAttempts(Integer.MAX_VALUE).setBaseDelay(baseDelay)
+				.setMaxDelay(maxDelay).build();
+		long longest = 0;
+		for (int attempt = 1; attempt < 64; attempt++) {
+			for (int i = 0; i < 50; i++) {
+				long delay = policy.retryDelay(response(503, null), attempt, true);
+				assertTrue("attempt " + attempt + " waited " + delay, delay >= 0 && delay <= maxDelay.toNanos());
+				if (attempt > 40) {
+					longest = Math.max(longest, delay);
+				}
+			}
+		}
+		// a wrapped cap would keep the later waits short
+		assertTrue(longest > Duration.ofDays(365).toNanos());
+	}
+
+	/**
+	 * Delays that can't be waited are refused by the builder
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void rejectsInvalidDelays() {
+		for (Duration delay : new Duration[] { null, Duration.ofMillis(-1), Duration.ofSeconds(Long.MAX_VALUE) }) {
+			try {
+				new RetryPolicy.Builder().setMaxDelay(delay);
+				fail("accepted maxDelay " + delay);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+			try {
+				new RetryPolicy.Builder().setBaseDelay(delay);
+				fail("accepted baseDelay " + delay);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+}
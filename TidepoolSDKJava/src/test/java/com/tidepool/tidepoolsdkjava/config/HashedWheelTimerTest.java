@@ -0,0 +1,231 @@
+package com.tidepool.tidepoolsdkjava.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link HashedWheelTimer}
+ *
+ * @since alpha-3.1.0
+ */
+public class HashedWheelTimerTest {
+	/**
+	 * How long a tick of the timer under test is, in milliseconds
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final long TICK_MILLIS = 10;
+
+	/**
+	 * The timer under test, with a small wheel so timeouts wrap around it
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private HashedWheelTimer timer;
+
+	/**
+	 * Starts the timer
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Before
+	public void startTimer() {
+		timer = new HashedWheelTimer(TICK_MILLIS, TimeUnit.MILLISECONDS, 8, runnable -> {
+			Thread thread = new Thread(runnable, "hashed-wheel-timer-test");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Stops the timer
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@After
+	public void closeTimer() {
+		timer.close();
+	}
+
+	/**
+	 * A timeout fires once, and never before its delay has passed
+	 *
+	 * @throws InterruptedException If interrupted while waiting
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void firesAfterDelay() throws InterruptedException {
+		CountDownLatch fired = new CountDownLatch(1);
+		long[] firedAt = new long[1];
+		long start = System.nanoTime();
+		timer.newTimeout(() -> {
+			firedAt[0] = System.nanoTime();
+			fired.countDown();
+		}, 50, TimeUnit.MILLISECONDS);
+		assertTrue("timeout didn't fire", fired.await(5, TimeUnit.SECONDS));
+		assertTrue("fired early", firedAt[0] - start >= TimeUnit.MILLISECONDS.toNanos(50));
+	}
+
+	/**
+	 * A timeout more than one turn of the wheel away waits for the right round,
+	 * instead of firing the first time its bucket comes up
+	 *
+	 * @throws InterruptedException If interrupted while waiting
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void waitsForLaterRounds() throws InterruptedException {
+		CountDownLatch fired = new CountDownLatch(1);
+		long start = System.nanoTime();
+		// the wheel turns every 80 milliseconds
+		timer.newTimeout(fired::countDown, 250, TimeUnit.MILLISECONDS);
+		assertTrue("timeout didn't fire", fired.await(5, TimeUnit.SECONDS));
+		assertTrue("fired on an earlier round", System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(250));
+	}
+
+	/**
+	 * Timeouts fire in the order of their deadlines
+	 *
+	 * @throws InterruptedException If interrupted while waiting
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void firesInDeadlineOrder() throws InterruptedException {
+		List<Integer> order = new CopyOnWriteArrayList<>();
+		CountDownLatch fired = new CountDownLatch(4);
+		long[] delays = { 120, 30, 200, 60 };
+		for (int i = 0; i < delays.length; i++) {
+			int index = i;
+			timer.newTimeout(() -> {
+				order.add(index);
+				fired.countDown();
+			}, delays[i], TimeUnit.MILLISECONDS);
+		}
+		assertTrue("timeouts didn't fire", fired.await(5, TimeUnit.SECONDS));
+		assertEquals(List.of(1, 3, 0, 2), order);
+	}
+
+	/**
+	 * A cancelled timeout never fires, and can only be cancelled once
+	 *
+	 * @throws InterruptedException If interrupted while waiting
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void cancelledTimeoutNeverFires() throws InterruptedException {
+		AtomicInteger runs = new AtomicInteger();
+		CountDownLatch later = new CountDownLatch(1);
+		HashedWheelTimer.Timeout timeout = timer.newTimeout(runs::incrementAndGet, 30, TimeUnit.MILLISECONDS);
+		assertTrue(timeout.cancel());
+		assertFalse(timeout.cancel());
+		timer.newTimeout(later::countDown, 100, TimeUnit.MILLISECONDS);
+		assertTrue("later timeout didn't fire", later.await(5, TimeUnit.SECONDS));
+		assertEquals(0, runs.get());
+	}
+
+	/**
+	 * A timeout that has fired can't be cancelled
+	 *
+	 * @throws InterruptedException If interrupted while waiting
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void firedTimeoutCantBeCancelled() throws InterruptedException {
+		CountDownLatch fired = new CountDownLatch(1);
+		HashedWheelTimer.Timeout timeout = timer.newTimeout(fired::countDown, 0, TimeUnit.MILLISECONDS);
+		assertTrue("timeout didn't fire", fired.await(5, TimeUnit.SECONDS));
+		assertFalse(timeout.cancel());
+	}
+
+	/**
+	 * A task that throws doesn't stop later timeouts from firing
+	 *
+	 * @throws InterruptedException If interrupted while waiting
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void failingTaskDoesntStopTimer() throws InterruptedException {
+		CountDownLatch fired = new CountDownLatch(1);
+		timer.newTimeout(() -> {
+			throw new IllegalStateException("fails on purpose");
+		}, 10, TimeUnit.MILLISECONDS);
+		timer.newTimeout(fired::countDown, 40, TimeUnit.MILLISECONDS);
+		assertTrue("timer stopped after a failing task", fired.await(5, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * A task can schedule another timeout, which then fires too
+	 *
+	 * @throws InterruptedException If interrupted while waiting
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void taskCanReschedule() throws InterruptedException {
+		CountDownLatch fired = new CountDownLatch(3);
+		Runnable[] task = new Runnable[1];
+		task[0] = () -> {
+			fired.countDown();
+			if (fired.getCount() > 0) {
+				timer.newTimeout(task[0], 20, TimeUnit.MILLISECONDS);
+			}
+		};
+		timer.newTimeout(task[0], 20, TimeUnit.MILLISECONDS);
+		assertTrue("rescheduled timeouts didn't fire", fired.await(5, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * Many timeouts spread over several turns of the wheel all fire exactly once
+	 *
+	 * @throws InterruptedException If interrupted while waiting
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void firesManyTimeoutsOnce() throws InterruptedException {
+		int count = 2000;
+		AtomicInteger runs = new AtomicInteger();
+		CountDownLatch fired = new CountDownLatch(count);
+		for (int i = 0; i < count; i++) {
+			timer.newTimeout(() -> {
+				runs.incrementAndGet();
+				fired.countDown();
+			}, i % 300, TimeUnit.MILLISECONDS);
+		}
+		assertTrue("not every timeout fired", fired.await(5, TimeUnit.SECONDS));
+		// give a duplicate firing the chance to show up
+		Thread.sleep(3 * TICK_MILLIS);
+		assertEquals(count, runs.get());
+	}
+
+	/**
+	 * Once closed, pending timeouts never fire, and no new ones can be scheduled
+	 *
+	 * @throws InterruptedException If interrupted while waiting
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void closeStopsTimeouts() throws InterruptedException {
+		AtomicInteger runs = new AtomicInteger();
+		timer.newTimeout(runs::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+		timer.close();
+		Thread.sleep(100);
+		assertEquals(0, runs.get());
+		try {
+			timer.newTimeout(runs::incrementAndGet, 0, TimeUnit.MILLISECONDS);
+			fail("scheduled a timeout on a closed timer");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+}
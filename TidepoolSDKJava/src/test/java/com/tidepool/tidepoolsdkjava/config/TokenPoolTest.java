@@ -0,0 +1,264 @@
+package com.tidepool.tidepoolsdkjava.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests {@link TokenPool} against a local stub of the auth server
+ *
+ * @since alpha-3.1.0
+ */
+public class TokenPoolTest {
+	/**
+	 * The stub auth server
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private HttpServer server;
+	/**
+	 * The threads the stub answers on
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private ExecutorService serverThreads;
+	/**
+	 * Holds every answer of the stub back until it is counted down
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private volatile CountDownLatch release = new CountDownLatch(0);
+	/**
+	 * How many of the next refreshes the stub fails
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final AtomicInteger failuresLeft = new AtomicInteger();
+	/**
+	 * How many refreshes the stub is answering right now
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final AtomicInteger concurrent = new AtomicInteger();
+	/**
+	 * The most refreshes the stub has answered at once
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final AtomicInteger maxConcurrent = new AtomicInteger();
+	/**
+	 * How many refreshes the stub has answered successfully
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final AtomicInteger refreshed = new AtomicInteger();
+
+	/**
+	 * Starts the stub auth server
+	 *
+	 * @throws IOException If it couldn't be started
+	 * @since alpha-3.1.0
+	 */
+	@Before
+	public void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		serverThreads = Executors.newCachedThreadPool();
+		server.setExecutor(serverThreads);
+		server.createContext("/", this::answer);
+		server.start();
+	}
+
+	/**
+	 * Stops the stub auth server
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@After
+	public void stopServer() {
+		release.countDown();
+		server.stop(0);
+		serverThreads.shutdownNow();
+	}
+
+	/**
+	 * Answers a refresh with new tokens, or with an error while
+	 * {@link #failuresLeft} is positive
+	 *
+	 * @param exchange The exchange
+	 * @throws IOException If answering fails
+	 * @since alpha-3.1.0
+	 */
+	private void answer(HttpExchange exchange) throws IOException {
+		int now = concurrent.incrementAndGet();
+		maxConcurrent.accumulateAndGet(now, Math::max);
+		try {
+			exchange.getRequestBody().readAllBytes();
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			boolean fail = failuresLeft.getAndUpdate(left -> Math.max(0, left - 1)) > 0;
+			byte[] body = (fail ? "{\"error\":\"temporarily_unavailable\"}"
+					: new JSONObject().put("access_token", "access-" + refreshed.incrementAndGet())
+							.put("expires_in", 3600).put("refresh_token", "refresh")
+							.put("refresh_expires_in", 7200).toString())
+					.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "application/json");
+			exchange.sendResponseHeaders(fail ? 503 : 200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		} finally {
+			concurrent.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Creates the configuration of an account that refreshes against the stub
+	 *
+	 * @return The configuration
+	 * @since alpha-3.1.0
+	 */
+	private TidepoolBackendConfig account() {
+		TidepoolBackendConfig cnf = new TidepoolBackendConfig(Environment.prod, "token-pool-test");
+		cnf.setServerAddressOverride("http://localhost:" + server.getAddress().getPort());
+		cnf.setRefreshToken("refresh");
+		return cnf;
+	}
+
+	/**
+	 * Waits for a condition to become true
+	 *
+	 * @param condition The condition
+	 * @return {@code true} if it became true within 10 seconds
+	 * @throws InterruptedException If interrupted while waiting
+	 * @since alpha-3.1.0
+	 */
+	private static boolean await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!condition.getAsBoolean()) {
+			if (System.nanoTime() - deadline > 0) {
+				return false;
+			}
+			Thread.sleep(5);
+		}
+		return true;
+	}
+
+	/**
+	 * Accounts that are due at once never have more refreshes in flight than
+	 * the limit, and the rest wait their turn until every account is refreshed
+	 *
+	 * @throws InterruptedException If interrupted while waiting
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void boundsConcurrentRefreshes() throws InterruptedException {
+		release = new CountDownLatch(1);
+		List<TidepoolBackendConfig> configs = new ArrayList<>();
+		try (TokenPool pool = new TokenPool.Builder().setMaxConcurrentRefreshes(3).build()) {
+			for (int i = 0; i < 10; i++) {
+				TidepoolBackendConfig cnf = account();
+				configs.add(cnf);
+				assertTrue(pool.add(cnf));
+			}
+			assertTrue("refreshes didn't reach the server", await(() -> concurrent.get() == 3));
+			// give a refresh over the limit the chance to show up
+			Thread.sleep(100);
+			assertEquals(3, concurrent.get());
+			assertEquals(3, pool.getInFlight());
+			assertEquals(7, pool.getWaiting());
+
+			release.countDown();
+			assertTrue("not every account was refreshed", await(() -> refreshed.get() == 10));
+			assertTrue(await(() -> pool.getInFlight() == 0));
+			assertEquals(0, pool.getWaiting());
+			assertEquals(3, maxConcurrent.get());
+			assertEquals(10, pool.size());
+			for (TidepoolBackendConfig cnf : configs) {
+				assertFalse(cnf.tokenRefreshRequired());
+			}
+		}
+	}
+
+	/**
+	 * A failed refresh is tried again while the refresh token can still be used
+	 *
+	 * @throws InterruptedException If interrupted while waiting
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void retriesFailedRefresh() throws InterruptedException {
+		failuresLeft.set(2);
+		AtomicInteger dropped = new AtomicInteger();
+		TidepoolBackendConfig cnf = account();
+		try (TokenPool pool = new TokenPool.Builder().setRetryDelay(Duration.ofMillis(50))
+				.setTickDuration(Duration.ofMillis(10)).setDroppedListener((account, cause) -> dropped.incrementAndGet())
+				.build()) {
+			assertTrue(pool.add(cnf));
+			assertTrue("the refresh wasn't tried again", await(() -> !cnf.tokenRefreshRequired()));
+			assertEquals(1, refreshed.get());
+			assertEquals(1, pool.size());
+			assertEquals(0, dropped.get());
+		}
+	}
+
+	/**
+	 * An account whose refresh token can't be used any more is dropped from the
+	 * pool, and the listener is told, so it can be added again
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void dropsAccountWithoutRefreshToken() {
+		List<TidepoolBackendConfig> dropped = new ArrayList<>();
+		List<Throwable> causes = new ArrayList<>();
+		// never given a refresh token
+		TidepoolBackendConfig cnf = new TidepoolBackendConfig(Environment.prod, "token-pool-test");
+		try (TokenPool pool = new TokenPool.Builder().setDroppedListener((account, cause) -> {
+			synchronized (dropped) {
+				dropped.add(account);
+				causes.add(cause);
+			}
+		}).build()) {
+			assertTrue(pool.add(cnf));
+			synchronized (dropped) {
+				assertEquals(1, dropped.size());
+				assertSame(cnf, dropped.get(0));
+				assertTrue(causes.get(0) instanceof IllegalStateException);
+			}
+			assertEquals(0, pool.size());
+			assertEquals(0, pool.getInFlight());
+			// it can be added again, such as with a new refresh token
+			assertTrue(pool.add(cnf));
+			synchronized (dropped) {
+				assertEquals(2, dropped.size());
+			}
+		}
+	}
+}
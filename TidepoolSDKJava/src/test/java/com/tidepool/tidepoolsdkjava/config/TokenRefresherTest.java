@@ -0,0 +1,200 @@
+package com.tidepool.tidepoolsdkjava.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests {@link TokenRefresher} with a clock the test moves forward
+ *
+ * @since alpha-3.1.0
+ */
+public class TokenRefresherTest {
+	/**
+	 * How long the stub's refresh token is valid for, in seconds
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final long REFRESH_EXPIRES_IN = 7200;
+
+	/**
+	 * A {@link Clock} that only moves when told to
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final class ManualClock extends Clock {
+		/**
+		 * The current time, in milliseconds since the epoch
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final AtomicLong millis = new AtomicLong(1_000_000);
+
+		/**
+		 * Moves the clock forward
+		 *
+		 * @param by How far to move it
+		 * @since alpha-3.1.0
+		 */
+		void advance(Duration by) {
+			millis.addAndGet(by.toMillis());
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public long millis() {
+			return millis.get();
+		}
+
+		@Override
+		public Instant instant() {
+			return Instant.ofEpochMilli(millis());
+		}
+	}
+
+	/**
+	 * The stub auth server
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private HttpServer server;
+	/**
+	 * The threads the stub answers on
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private ExecutorService serverThreads;
+	/**
+	 * How many refreshes the stub has answered
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final AtomicInteger refreshed = new AtomicInteger();
+
+	/**
+	 * Starts the stub auth server
+	 *
+	 * @throws IOException If it couldn't be started
+	 * @since alpha-3.1.0
+	 */
+	@Before
+	public void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		serverThreads = Executors.newCachedThreadPool();
+		server.setExecutor(serverThreads);
+		server.createContext("/", this::answer);
+		server.start();
+	}
+
+	/**
+	 * Stops the stub auth server
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@After
+	public void stopServer() {
+		server.stop(0);
+		serverThreads.shutdownNow();
+	}
+
+	/**
+	 * Answers a refresh with a new access token. Only the first answer has a
+	 * refresh token, the rest leave it out, as the backend may.
+	 *
+	 * @param exchange The exchange
+	 * @throws IOException If answering fails
+	 * @since alpha-3.1.0
+	 */
+	private void answer(HttpExchange exchange) throws IOException {
+		exchange.getRequestBody().readAllBytes();
+		JSONObject reply = new JSONObject().put("access_token", "access-" + refreshed.incrementAndGet())
+				.put("expires_in", 3600);
+		if (refreshed.get() == 1) {
+			reply.put("refresh_token", "refresh").put("refresh_expires_in", REFRESH_EXPIRES_IN);
+		}
+		byte[] body = reply.toString().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	/**
+	 * A refresh that doesn't return a new refresh token keeps the expiry of the
+	 * old one, and no refresh is tried once it has passed by the clock
+	 *
+	 * @throws InterruptedException If interrupted while waiting
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void keepsExpiryOfKeptRefreshToken() throws InterruptedException {
+		ManualClock clock = new ManualClock();
+		TidepoolBackendConfig cnf = new TidepoolBackendConfig(Environment.prod, "token-refresher-test");
+		cnf.setServerAddressOverride("http://localhost:" + server.getAddress().getPort());
+		try (TokenRefresher refresher = new TokenRefresher.Builder(cnf).setClock(clock).build()) {
+			refresher.start("refresh");
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (refresher.getRefreshTokenExpiry() == null) {
+				assertTrue("the first refresh didn't finish", System.nanoTime() - deadline < 0);
+				Thread.sleep(5);
+			}
+			Instant expiry = refresher.getRefreshTokenExpiry();
+			long expected = clock.millis() + TimeUnit.SECONDS.toMillis(REFRESH_EXPIRES_IN);
+			assertTrue("expiry is off: " + expiry, Math.abs(expiry.toEpochMilli() - expected) < 5_000);
+
+			// due by the clock, without any real time passing
+			clock.advance(Duration.ofMinutes(50));
+			assertFalse(refresher.getNextRefresh().isAfter(clock.instant()));
+			refresher.refreshIfDue().join();
+			assertEquals(2, refreshed.get());
+			assertNotNull(refresher.getRefreshTokenExpiry());
+			assertEquals(expiry, refresher.getRefreshTokenExpiry());
+
+			clock.advance(Duration.ofSeconds(REFRESH_EXPIRES_IN));
+			try {
+				refresher.refreshIfDue().join();
+				fail("refreshed with an expired refresh token");
+			} catch (CompletionException e) {
+				assertTrue(e.getCause() instanceof IllegalStateException);
+			}
+			assertEquals(2, refreshed.get());
+		}
+	}
+}
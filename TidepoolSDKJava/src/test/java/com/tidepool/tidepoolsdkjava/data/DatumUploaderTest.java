@@ -0,0 +1,150 @@
+package com.tidepool.tidepoolsdkjava.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.tidepool.tidepoolsdkjava.config.Environment;
+import com.tidepool.tidepoolsdkjava.config.TidepoolBackendConfig;
+
+/**
+ * Tests {@link DatumUploader} against a local stub of the backend
+ *
+ * @since alpha-3.1.0
+ */
+public class DatumUploaderTest {
+	/**
+	 * The stub backend
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private HttpServer server;
+	/**
+	 * The threads the stub answers on
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private ExecutorService serverThreads;
+	/**
+	 * How many of the next uploads the stub fails
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final AtomicInteger failuresLeft = new AtomicInteger();
+
+	/**
+	 * Starts the stub backend
+	 *
+	 * @throws IOException If it couldn't be started
+	 * @since alpha-3.1.0
+	 */
+	@Before
+	public void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		serverThreads = Executors.newCachedThreadPool();
+		server.setExecutor(serverThreads);
+		server.createContext("/", this::answer);
+		server.start();
+	}
+
+	/**
+	 * Stops the stub backend
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@After
+	public void stopServer() {
+		server.stop(0);
+		serverThreads.shutdownNow();
+	}
+
+	/**
+	 * Answers a token refresh with new tokens, and an upload with success, or
+	 * with an error while {@link #failuresLeft} is positive
+	 *
+	 * @param exchange The exchange
+	 * @throws IOException If answering fails
+	 * @since alpha-3.1.0
+	 */
+	private void answer(HttpExchange exchange) throws IOException {
+		exchange.getRequestBody().readAllBytes();
+		int status = 200;
+		String body = "{}";
+		if (exchange.getRequestURI().getPath().endsWith("/token")) {
+			body = new JSONObject().put("access_token", "access").put("expires_in", 3600)
+					.put("refresh_token", "refresh").toString();
+		} else if (failuresLeft.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+			status = 500;
+		}
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * A listener that adds the datums of a failed batch again doesn't deadlock
+	 * with a producer waiting for room in a full window
+	 *
+	 * @throws InterruptedException If interrupted while waiting
+	 * @since alpha-3.1.0
+	 */
+	@Test(timeout = 10_000)
+	public void listenerCanAddFailedDatumsAgain() throws InterruptedException {
+		failuresLeft.set(3);
+		TidepoolBackendConfig cnf = new TidepoolBackendConfig(Environment.prod, "datum-uploader-test");
+		cnf.setServerAddressOverride("http://localhost:" + server.getAddress().getPort());
+		cnf.setRefreshToken("refresh");
+		AtomicInteger resent = new AtomicInteger();
+		List<Throwable> errors = new ArrayList<>();
+		DatumUploader[] uploader = new DatumUploader[1];
+		uploader[0] = new DatumUploader.Builder(cnf, "dataset").setWindow(1).setMaxBatchDatums(2)
+				.setBatchListener(result -> {
+					if (result.isSuccess()) {
+						return;
+					}
+					try {
+						uploader[0].addAll(result.getDatums());
+						resent.incrementAndGet();
+					} catch (InterruptedException | RuntimeException e) {
+						synchronized (errors) {
+							errors.add(e);
+						}
+					}
+				}).build();
+		for (int i = 0; i < 20; i++) {
+			uploader[0].add(new JSONObject().put("type", "cbg").put("value", i));
+		}
+		// the datums added again may sit in a batch that is only sent once flushed
+		while (uploader[0].getUploadedCount() < 20) {
+			uploader[0].flush();
+			Thread.sleep(5);
+		}
+		List<DatumUploader.BatchResult> failed = uploader[0].finish().join();
+		synchronized (errors) {
+			assertTrue(errors.toString(), errors.isEmpty());
+		}
+		assertEquals(3, resent.get());
+		assertEquals(3, failed.size());
+		assertEquals(20, uploader[0].getUploadedCount());
+	}
+}
@@ -0,0 +1,187 @@
+package com.tidepool.tidepoolsdkjava.data.datum;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+
+/**
+ * Tests that {@link DatumCodec} decodes exactly what it encoded
+ *
+ * @since alpha-3.1.0
+ */
+public class DatumCodecTest {
+	/**
+	 * Creates a datum of a type with every field it has set, including some
+	 * text that isn't ASCII
+	 *
+	 * @param type The type
+	 * @return The datum
+	 * @since alpha-3.1.0
+	 */
+	private static Datum filled(Constants.uploadType type) {
+		DatumFields fields = new DatumFields();
+		fields.type = type.toString();
+		fields.id = "id-" + type;
+		fields.time = 1_700_000_000_123L;
+		fields.uploadId = "upload-1";
+		fields.deviceId = "device-\u00e9\u6f22";
+		fields.units = "mmol/L";
+		fields.value = 5.5;
+		fields.subType = "sub";
+		fields.deliveryType = "scheduled";
+		fields.duration = 1_800_000;
+		fields.rate = 0.85;
+		fields.normal = 2.25;
+		fields.extended = 1.5;
+		fields.name = "name";
+		fields.priority = "high";
+		fields.reason = "reason";
+		fields.activeSchedule = "weekday";
+		fields.deviceModel = "model";
+		fields.deviceSerialNumber = "serial";
+		fields.transmitterId = "transmitter";
+		fields.carbInput = 45;
+		fields.insulinOnBoard = 1.25;
+		fields.bgInput = 7.1;
+		fields.bolus = "bolus-id";
+		fields.status = "resumed";
+		fields.carbohydrateNet = 30;
+		fields.doseTotal = 3.5;
+		fields.amountValue = 250;
+		fields.amountUnits = "mL";
+		fields.batteryRemaining = 0.42;
+		return DatumDecoder.create(fields);
+	}
+
+	/**
+	 * Creates a datum of a type with every string, including its id, left out
+	 *
+	 * @param type The type
+	 * @return The datum
+	 * @since alpha-3.1.0
+	 */
+	private static Datum empty(Constants.uploadType type) {
+		DatumFields fields = new DatumFields();
+		fields.type = type.toString();
+		return DatumDecoder.create(fields);
+	}
+
+	/**
+	 * Encodes a datum and decodes it again
+	 *
+	 * @param datum  The datum
+	 * @param direct If the datum is encoded into a direct buffer, which has no
+	 *               array behind it
+	 * @return The decoded datum
+	 * @since alpha-3.1.0
+	 */
+	private static Datum roundTrip(Datum datum, boolean direct) {
+		DatumCodec codec = new DatumCodec();
+		ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(4096) : ByteBuffer.allocate(4096);
+		codec.encode(datum, buffer);
+		buffer.flip();
+		assertEquals(datum.getTimeMillis(), DatumCodec.peekTime(buffer, 0));
+		Datum decoded = codec.decode(buffer);
+		assertEquals("not every byte was read", 0, buffer.remaining());
+		return decoded;
+	}
+
+	/**
+	 * Checks that two datums have the same fields
+	 *
+	 * @param expected The datum that was encoded
+	 * @param actual   The datum that was decoded
+	 * @throws IllegalAccessException If a field can't be read
+	 * @since alpha-3.1.0
+	 */
+	private static void assertSameFields(Datum expected, Datum actual) throws IllegalAccessException {
+		assertEquals(expected.getClass(), actual.getClass());
+		DatumFields wanted = new DatumFields();
+		expected.export(wanted);
+		DatumFields got = new DatumFields();
+		actual.export(got);
+		for (Field field : DatumFields.class.getDeclaredFields()) {
+			if (!Modifier.isStatic(field.getModifiers())) {
+				assertEquals(expected.getType() + "." + field.getName(), field.get(wanted), field.get(got));
+			}
+		}
+	}
+
+	/**
+	 * Every type of datum comes back with every field it has
+	 *
+	 * @throws IllegalAccessException If a field can't be read
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void roundTripsEveryType() throws IllegalAccessException {
+		for (Constants.uploadType type : Constants.uploadType.values()) {
+			Datum datum = filled(type);
+			assertSameFields(datum, roundTrip(datum, false));
+			assertSameFields(datum, roundTrip(datum, true));
+		}
+	}
+
+	/**
+	 * Strings that were left out come back as {@code null}, and numbers that
+	 * were left out as missing
+	 *
+	 * @throws IllegalAccessException If a field can't be read
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void roundTripsMissingFields() throws IllegalAccessException {
+		for (Constants.uploadType type : Constants.uploadType.values()) {
+			Datum datum = empty(type);
+			Datum decoded = roundTrip(datum, false);
+			assertSameFields(datum, decoded);
+			assertNull(decoded.getId());
+			assertEquals(Datum.MISSING, decoded.getTimeMillis());
+		}
+	}
+
+	/**
+	 * The code a type is encoded as never changes, since encoded datums are
+	 * kept on disk
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void typeCodesAreStable() {
+		DatumCodec codec = new DatumCodec();
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		codec.encode(filled(Constants.uploadType.ALERT), buffer);
+		assertEquals(0, buffer.get(0));
+		buffer.clear();
+		codec.encode(filled(Constants.uploadType.CBG), buffer);
+		assertEquals(4, buffer.get(0));
+		buffer.clear();
+		codec.encode(filled(Constants.uploadType.WIZARD), buffer);
+		assertEquals(20, buffer.get(0));
+	}
+
+	/**
+	 * A type code that was never assigned is refused
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void rejectsUnknownTypeCode() {
+		ByteBuffer buffer = ByteBuffer.allocate(16);
+		buffer.put(0, (byte) 100);
+		try {
+			new DatumCodec().decode(buffer);
+			fail("decoded an unknown type");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
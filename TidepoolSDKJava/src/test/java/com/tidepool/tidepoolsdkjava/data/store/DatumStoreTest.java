@@ -0,0 +1,246 @@
+package com.tidepool.tidepoolsdkjava.data.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+import com.tidepool.tidepoolsdkjava.data.datum.CbgDatum;
+import com.tidepool.tidepoolsdkjava.data.datum.Datum;
+import com.tidepool.tidepoolsdkjava.data.datum.DatumDecoder;
+
+/**
+ * Tests {@link DatumStore} and the {@link Segment} files behind it
+ *
+ * @since alpha-3.1.0
+ */
+public class DatumStoreTest {
+	/**
+	 * The user the datums belong to
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final String USER = "0d4b9f7e3a";
+	/**
+	 * The time of the datum at minute 0
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final long START = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+	/**
+	 * A segment size that only fits a few datums, so they are spread over many
+	 * segments
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final long SMALL_SEGMENTS = 256;
+
+	/**
+	 * The directory the store is kept in
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Creates a cbg datum
+	 *
+	 * @param id     The id, or {@code null} for none
+	 * @param minute How many minutes after {@link #START} it is
+	 * @param value  The value
+	 * @return The datum
+	 * @since alpha-3.1.0
+	 */
+	private static CbgDatum cbg(String id, int minute, double value) {
+		String json = "[{\"type\":\"cbg\"," + (id == null ? "" : "\"id\":\"" + id + "\",") + "\"time\":\""
+				+ Instant.ofEpochMilli(START + minute * 60_000L) + "\",\"units\":\"mmol/L\",\"value\":" + value + "}]";
+		return (CbgDatum) new DatumDecoder().decodeArray(json).get(0);
+	}
+
+	/**
+	 * Gets the minute of a datum
+	 *
+	 * @param datum The datum
+	 * @return How many minutes after {@link #START} it is
+	 * @since alpha-3.1.0
+	 */
+	private static int minute(Datum datum) {
+		return (int) ((datum.getTimeMillis() - START) / 60_000);
+	}
+
+	/**
+	 * Scans the cbg datums of the user in a range of minutes
+	 *
+	 * @param store The store
+	 * @param from  The first minute, inclusive
+	 * @param to    The last minute, exclusive
+	 * @return The datums, in the order they were handed over
+	 * @throws IOException If reading fails
+	 * @since alpha-3.1.0
+	 */
+	private static List<Datum> scan(DatumStore store, int from, int to) throws IOException {
+		List<Datum> result = new ArrayList<>();
+		store.scan(USER, Constants.uploadType.CBG, Instant.ofEpochMilli(START + from * 60_000L),
+				Instant.ofEpochMilli(START + to * 60_000L), result::add);
+		return result;
+	}
+
+	/**
+	 * Lists the files in the cbg partition of the user
+	 *
+	 * @return The files, sorted by name
+	 * @throws IOException If listing fails
+	 * @since alpha-3.1.0
+	 */
+	private List<Path> files() throws IOException {
+		try (Stream<Path> files = Files.list(folder.getRoot().toPath().resolve(USER).resolve("cbg"))) {
+			return files.sorted().collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * A range scan finds exactly the datums in the range, in order, however
+	 * many segments they are spread over
+	 *
+	 * @throws IOException If the store fails
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void scansRangeAcrossSegments() throws IOException {
+		try (DatumStore store = new DatumStore(folder.getRoot().toPath(), SMALL_SEGMENTS)) {
+			for (int i = 0; i < 100; i++) {
+				store.append(USER, cbg("id-" + i, i, i));
+			}
+			List<Datum> found = scan(store, 20, 70);
+			assertEquals(50, found.size());
+			for (int i = 0; i < found.size(); i++) {
+				assertEquals(20 + i, minute(found.get(i)));
+				assertEquals(20 + i, ((CbgDatum) found.get(i)).getValue(), 0);
+			}
+		}
+		assertTrue("the datums fit in one segment", files().size() > 5);
+		// and again after reopening
+		try (DatumStore store = new DatumStore(folder.getRoot().toPath(), SMALL_SEGMENTS)) {
+			assertEquals(50, scan(store, 20, 70).size());
+			assertEquals(100, scan(store, 0, 100).size());
+			assertEquals(0, scan(store, 100, 200).size());
+		}
+	}
+
+	/**
+	 * A record cut off by a crash is dropped when the segment is opened again,
+	 * and appending carries on after the last whole record
+	 *
+	 * @throws IOException If the store fails
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void dropsTornLastRecord() throws IOException {
+		try (DatumStore store = new DatumStore(folder.getRoot().toPath())) {
+			for (int i = 0; i < 3; i++) {
+				store.append(USER, cbg("id-" + i, i, i));
+			}
+		}
+		List<Path> files = files();
+		assertEquals(1, files.size());
+		Path segment = files.get(0);
+		long size = Files.size(segment);
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			channel.truncate(size - 5);
+		}
+
+		try (DatumStore store = new DatumStore(folder.getRoot().toPath())) {
+			List<Datum> found = scan(store, 0, 100);
+			assertEquals(2, found.size());
+			assertEquals(1, minute(found.get(1)));
+			assertTrue(Files.size(segment) < size - 5);
+			store.append(USER, cbg("id-3", 3, 3));
+		}
+		try (DatumStore store = new DatumStore(folder.getRoot().toPath())) {
+			List<Datum> found = scan(store, 0, 100);
+			assertEquals(3, found.size());
+			assertEquals(3, minute(found.get(2)));
+		}
+	}
+
+	/**
+	 * Compaction keeps the last appended copy of each id, and every datum
+	 * without an id, in time order
+	 *
+	 * @throws IOException If the store fails
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void compactionKeepsLastCopy() throws IOException {
+		try (DatumStore store = new DatumStore(folder.getRoot().toPath(), SMALL_SEGMENTS)) {
+			for (int i = 0; i < 20; i++) {
+				store.append(USER, cbg("id-" + (i % 5), 30 - i, i));
+			}
+			store.append(USER, cbg(null, 50, 100));
+			store.append(USER, cbg(null, 1, 101));
+			store.compact(USER, Constants.uploadType.CBG);
+
+			List<Datum> found = scan(store, 0, 100);
+			assertEquals(7, found.size());
+			for (int i = 1; i < found.size(); i++) {
+				assertTrue("not in time order", found.get(i - 1).getTimeMillis() <= found.get(i).getTimeMillis());
+			}
+			for (int id = 0; id < 5; id++) {
+				String wanted = "id-" + id;
+				List<Datum> copies = found.stream().filter(datum -> wanted.equals(datum.getId()))
+						.collect(Collectors.toList());
+				assertEquals(1, copies.size());
+				// the last one appended was number 15 + id
+				assertEquals(15 + id, ((CbgDatum) copies.get(0)).getValue(), 0);
+			}
+			assertEquals(2, found.stream().filter(datum -> datum.getId() == null).count());
+		}
+		for (Path file : files()) {
+			assertFalse(file + " was left behind", file.toString().endsWith(".compacting"));
+		}
+		try (DatumStore store = new DatumStore(folder.getRoot().toPath(), SMALL_SEGMENTS)) {
+			assertEquals(7, scan(store, 0, 100).size());
+		}
+	}
+
+	/**
+	 * A segment written in the format before datum types had codes of their own
+	 * is refused, rather than read as the wrong types
+	 *
+	 * @throws IOException If the store fails
+	 * @since alpha-3.1.0
+	 */
+	@Test
+	public void rejectsVersionOneSegment() throws IOException {
+		try (DatumStore store = new DatumStore(folder.getRoot().toPath())) {
+			store.append(USER, cbg("id-0", 0, 0));
+		}
+		try (FileChannel channel = FileChannel.open(files().get(0), StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.allocate(4).putInt(0, 1), 4);
+		}
+		try (DatumStore store = new DatumStore(folder.getRoot().toPath())) {
+			scan(store, 0, 100);
+			fail("read a version 1 segment");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("version 1"));
+		}
+	}
+}
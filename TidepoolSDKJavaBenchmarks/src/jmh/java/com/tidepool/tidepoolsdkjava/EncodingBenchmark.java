@@ -0,0 +1,121 @@
+package com.tidepool.tidepoolsdkjava;
+
+import java.net.URI;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.tidepool.tidepoolsdkjava.authentication.ObtainToken;
+import com.tidepool.tidepoolsdkjava.config.Environment;
+import com.tidepool.tidepoolsdkjava.config.TidepoolBackendConfig;
+
+/**
+ * Measures building the URI and body of a request: the query of a typical
+ * {@link com.tidepool.tidepoolsdkjava.data.GetDataForUser} request, the body of
+ * a refresh token request, and resolving a {@link RequestTemplate}.
+ *
+ * @since alpha-3.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EncodingBenchmark {
+	/**
+	 * The query of a typical data request
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private Map<String, List<Object>> queryArgs;
+	/**
+	 * A refresh token request
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private ObtainToken obtainToken;
+	/**
+	 * A template for data requests with the same query
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private RequestTemplate template;
+
+	/**
+	 * Builds the requests
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Setup
+	public void setUp() {
+		TidepoolBackendConfig cnf = new TidepoolBackendConfig(Environment.prod, "tidepool-benchmark");
+		queryArgs = new LinkedHashMap<>();
+		queryArgs.put("type", Arrays.asList(Constants.uploadType.CBG, Constants.uploadType.SMBG,
+				Constants.uploadType.BOLUS, Constants.uploadType.BASAL));
+		queryArgs.put("startDate", List.of(ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.ofHours(-5))));
+		queryArgs.put("endDate", List.of(ZonedDateTime.of(2024, 1, 31, 0, 0, 0, 0, ZoneOffset.ofHours(-5))));
+		queryArgs.put("latest", List.of(false));
+		obtainToken = new ObtainToken.Builder("refresh_token", cnf)
+				.setRefreshToken("eyJhbGciOiJIUzI1NiIsInR5cCIgOiAiSldUIiwia2lkIiA6ICI0YjE2ZjVkMC1mZjM5LTRm"
+						+ "MjMtOTE5MS0yMGM5YzE5YTBmZGMifQ.eyJleHAiOjE3MDQwNjcyMDAsImlhdCI6MTcwNDA2MzYwMH0"
+						+ ".Xk2y0yY2b1Fq0o9xWqg3u5m1h0j8cX7f1oZrHq2l0sE")
+				.build();
+		template = new RequestTemplate.Builder(cnf, "/data/{}").setQueryArgs(queryArgs).build();
+	}
+
+	/**
+	 * Encodes the query of a data request
+	 *
+	 * @return The query
+	 * @since alpha-3.1.0
+	 */
+	@Benchmark
+	public String generateQueryParams() {
+		return BaseRequest.generateQueryParams(queryArgs);
+	}
+
+	/**
+	 * Encodes the body of a refresh token request
+	 *
+	 * @return The body
+	 * @since alpha-3.1.0
+	 */
+	@Benchmark
+	public byte[] urlEncodedBody() {
+		return obtainToken.getPackage();
+	}
+
+	/**
+	 * Builds the full URI of a data request, the way a request without a
+	 * template does on every run
+	 *
+	 * @return The URI
+	 * @since alpha-3.1.0
+	 */
+	@Benchmark
+	public URI buildURI() {
+		return URI.create(Environment.prod.getServerAddress() + String.format("/data/%s", "0d4b9f7e3a")
+				+ BaseRequest.generateQueryParams(queryArgs));
+	}
+
+	/**
+	 * Resolves the full URI of a data request from a template
+	 *
+	 * @return The URI
+	 * @since alpha-3.1.0
+	 */
+	@Benchmark
+	public URI resolveTemplate() {
+		return template.resolve("0d4b9f7e3a");
+	}
+}
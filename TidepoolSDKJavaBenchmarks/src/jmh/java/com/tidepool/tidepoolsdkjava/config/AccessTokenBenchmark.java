@@ -0,0 +1,68 @@
+package com.tidepool.tidepoolsdkjava.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures reading a valid access token with
+ * {@link TidepoolBackendConfig#getAccessToken()}, from one thread and from
+ * many at once, which is what every request that needs a session token does.
+ *
+ * @since alpha-3.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccessTokenBenchmark {
+	/**
+	 * The configuration, with a token that stays valid for the whole run
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private TidepoolBackendConfig cnf;
+
+	/**
+	 * Gives the configuration a token
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Setup
+	public void setUp() {
+		cnf = new TidepoolBackendConfig(Environment.prod, "benchmark");
+		cnf.updateAcessToken(new JSONObject().put("access_token", "access").put("refresh_token", "refresh")
+				.put("expires_in", 86400).put("refresh_expires_in", 86400));
+	}
+
+	/**
+	 * Reads the token from a single thread
+	 *
+	 * @return The token
+	 * @since alpha-3.1.0
+	 */
+	@Benchmark
+	@Threads(1)
+	public String singleThread() {
+		return cnf.getAccessToken();
+	}
+
+	/**
+	 * Reads the token from 8 threads at once
+	 *
+	 * @return The token
+	 * @since alpha-3.1.0
+	 */
+	@Benchmark
+	@Threads(8)
+	public String contended() {
+		return cnf.getAccessToken();
+	}
+}
@@ -0,0 +1,103 @@
+package com.tidepool.tidepoolsdkjava.data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+/**
+ * Generates realistic {@code GET /data/{userId}} responses of continuous
+ * glucose monitor readings, one every 5 minutes, as a Dexcom uploads them.
+ *
+ * @since alpha-3.1.0
+ */
+public final class CgmPayloads {
+	/**
+	 * How many readings a day has
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public static final int READINGS_PER_DAY = 24 * 60 / 5;
+
+	/**
+	 * Formats the {@code time} of a reading
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'")
+			.withZone(ZoneOffset.UTC);
+	/**
+	 * Formats the {@code deviceTime} of a reading
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final DateTimeFormatter DEVICE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss")
+			.withZone(ZoneOffset.ofHours(-5));
+	/**
+	 * The trends a reading can have
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final String[] TRENDS = { "Flat", "FortyFiveUp", "FortyFiveDown", "SingleUp", "SingleDown" };
+
+	private CgmPayloads() {
+	}
+
+	/**
+	 * Generates a response with the readings of some days. The same number of
+	 * days always gives the same response.
+	 *
+	 * @param days How many days of readings
+	 * @return The response, as a JSON array
+	 * @since alpha-3.1.0
+	 */
+	public static byte[] generate(int days) {
+		Random random = new Random(days);
+		String userId = hex(random, 10);
+		String uploadId = hex(random, 32);
+		Instant start = Instant.parse("2024-01-01T00:00:00Z");
+		StringBuilder json = new StringBuilder(days * READINGS_PER_DAY * 420);
+		json.append('[');
+		double value = 6.5;
+		for (int i = 0; i < days * READINGS_PER_DAY; i++) {
+			Instant time = start.plusSeconds(i * 300L);
+			// a slow random walk that stays in a plausible range
+			value = Math.max(2.2, Math.min(22.2, value + random.nextGaussian() * 0.2));
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("{\"_userId\":\"").append(userId)
+					.append("\",\"clockDriftOffset\":0,\"conversionOffset\":0")
+					.append(",\"createdTime\":\"").append(TIME.format(time.plusSeconds(60)))
+					.append("\",\"deviceId\":\"DexG6MobRec_SM7400000\"")
+					.append(",\"deviceTime\":\"").append(DEVICE_TIME.format(time))
+					.append("\",\"id\":\"").append(hex(random, 32))
+					.append("\",\"payload\":{\"transmitterId\":\"8AB2CD\",\"trend\":\"")
+					.append(TRENDS[random.nextInt(TRENDS.length)])
+					.append("\",\"trendRate\":").append(Math.round(random.nextGaussian() * 10) / 10.0)
+					.append("},\"time\":\"").append(TIME.format(time))
+					.append("\",\"timezoneOffset\":-300,\"type\":\"cbg\",\"units\":\"mmol/L\"")
+					.append(",\"uploadId\":\"").append(uploadId)
+					.append("\",\"value\":").append(Math.round(value * 10) / 10.0).append('}');
+		}
+		json.append(']');
+		return json.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Generates a random hex string
+	 *
+	 * @param random Where the randomness comes from
+	 * @param length How many digits
+	 * @return The hex string
+	 * @since alpha-3.1.0
+	 */
+	private static String hex(Random random, int length) {
+		char[] digits = new char[length];
+		for (int i = 0; i < length; i++) {
+			digits[i] = Character.forDigit(random.nextInt(16), 16);
+		}
+		return new String(digits);
+	}
+}
@@ -0,0 +1,124 @@
+package com.tidepool.tidepoolsdkjava.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.tidepool.tidepoolsdkjava.config.Environment;
+import com.tidepool.tidepoolsdkjava.config.TidepoolBackendConfig;
+
+/**
+ * Measures parsing a {@link GetDataForUser} response of 1, 30 and 90 days of
+ * CGM readings, in each of the ways a response can be parsed.
+ *
+ * @since alpha-3.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParseBenchmark {
+	/**
+	 * How many days of readings the response has
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Param({ "1", "30", "90" })
+	public int days;
+
+	/**
+	 * The response
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private byte[] payload;
+	/**
+	 * The response as a string, as it is recieved when it isn't streamed
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private String payloadString;
+	/**
+	 * The configuration the requests are made with
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private TidepoolBackendConfig cnf;
+
+	/**
+	 * Generates the response
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Setup
+	public void setUp() {
+		payload = CgmPayloads.generate(days);
+		payloadString = new String(payload, StandardCharsets.UTF_8);
+		cnf = new TidepoolBackendConfig(Environment.prod, "benchmark");
+	}
+
+	/**
+	 * Parses the whole response into a {@link org.json.JSONArray}
+	 *
+	 * @param blackhole Consumes the result
+	 * @since alpha-3.1.0
+	 */
+	@Benchmark
+	public void jsonArray(Blackhole blackhole) {
+		GetDataForUser request = new GetDataForUser.Builder(cnf, "user").build();
+		request.parseResponse(payloadString);
+		blackhole.consume(request.getJsonArray());
+	}
+
+	/**
+	 * Streams the response, one {@link org.json.JSONObject} at a time
+	 *
+	 * @param blackhole Consumes each datum
+	 * @throws IOException never
+	 * @since alpha-3.1.0
+	 */
+	@Benchmark
+	public void streamedJsonObjects(Blackhole blackhole) throws IOException {
+		GetDataForUser request = new GetDataForUser.Builder(cnf, "user").setDatumConsumer(blackhole::consume)
+				.build();
+		request.parseResponse(new ByteArrayInputStream(payload));
+	}
+
+	/**
+	 * Decodes the response into a list of typed datums
+	 *
+	 * @param blackhole Consumes the result
+	 * @throws IOException never
+	 * @since alpha-3.1.0
+	 */
+	@Benchmark
+	public void decodedDatums(Blackhole blackhole) throws IOException {
+		GetDataForUser request = new GetDataForUser.Builder(cnf, "user").setDecodeDatums(true).build();
+		request.parseResponse(new ByteArrayInputStream(payload));
+		blackhole.consume(request.getDatums());
+	}
+
+	/**
+	 * Streams the response, one typed datum at a time
+	 *
+	 * @param blackhole Consumes each datum
+	 * @throws IOException never
+	 * @since alpha-3.1.0
+	 */
+	@Benchmark
+	public void streamedDatums(Blackhole blackhole) throws IOException {
+		GetDataForUser request = new GetDataForUser.Builder(cnf, "user").setTypedDatumConsumer(blackhole::consume)
+				.build();
+		request.parseResponse(new ByteArrayInputStream(payload));
+	}
+}
@@ -0,0 +1,203 @@
+package com.tidepool.tidepoolsdkjava.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.tidepool.tidepoolsdkjava.BaseRequest;
+import com.tidepool.tidepoolsdkjava.config.Environment;
+import com.tidepool.tidepoolsdkjava.config.TidepoolBackendConfig;
+
+/**
+ * Measures whole {@link GetDataForUser} requests against a stub server on the
+ * loopback interface, which answers every request with the same day of CGM
+ * readings, so the cost measured is the SDK's and the HTTP client's rather than
+ * the network's.
+ *
+ * @since alpha-3.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ThroughputBenchmark {
+	/**
+	 * How many requests {@link #concurrent(Blackhole)} keeps in flight
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final int IN_FLIGHT = 32;
+
+	/**
+	 * If responses are asked for compressed
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Param({ "false", "true" })
+	public boolean compression;
+
+	/**
+	 * The stub server
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private HttpServer server;
+	/**
+	 * The threads of the stub server
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private ExecutorService serverThreads;
+	/**
+	 * The configuration, pointed at the stub server
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private TidepoolBackendConfig cnf;
+	/**
+	 * A template for the requests
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private GetDataForUser.Template template;
+
+	/**
+	 * Starts the stub server, and logs in to it
+	 *
+	 * @throws IOException If the server can't be started
+	 * @since alpha-3.1.0
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		byte[] day = CgmPayloads.generate(1);
+		byte[] dayGzip = gzip(day);
+		byte[] token = ("{\"access_token\":\"access\",\"refresh_token\":\"refresh\",\"expires_in\":86400,"
+				+ "\"refresh_expires_in\":86400}").getBytes(StandardCharsets.UTF_8);
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 256);
+		serverThreads = Executors.newFixedThreadPool(4);
+		server.setExecutor(serverThreads);
+		server.createContext("/realms/", exchange -> respond(exchange, token, null));
+		server.createContext("/data/", exchange -> {
+			String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+			if (accepted != null && accepted.contains("gzip")) {
+				respond(exchange, dayGzip, "gzip");
+			} else {
+				respond(exchange, day, null);
+			}
+		});
+		server.start();
+
+		cnf = new TidepoolBackendConfig(Environment.prod, "benchmark");
+		cnf.setServerAddressOverride("http://localhost:" + server.getAddress().getPort());
+		cnf.setCompressionEnabled(compression);
+		cnf.setRefreshToken("refresh");
+		cnf.updateAcessToken();
+		template = new GetDataForUser.Builder(cnf, null).setDecodeDatums(true).prepare();
+	}
+
+	/**
+	 * Stops the stub server
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		server.stop(0);
+		serverThreads.shutdownNow();
+	}
+
+	/**
+	 * Sends one request at a time, waiting for each
+	 *
+	 * @param blackhole Consumes the datums
+	 * @since alpha-3.1.0
+	 */
+	@Benchmark
+	public void sequential(Blackhole blackhole) {
+		GetDataForUser request = template.bind("0d4b9f7e3a");
+		request.run();
+		blackhole.consume(request.getDatums());
+	}
+
+	/**
+	 * Sends {@value #IN_FLIGHT} requests at once, and waits for all of them
+	 *
+	 * @param blackhole Consumes the datums
+	 * @since alpha-3.1.0
+	 */
+	@Benchmark
+	@OperationsPerInvocation(IN_FLIGHT)
+	public void concurrent(Blackhole blackhole) {
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		CompletableFuture<GetDataForUser>[] requests = new CompletableFuture[IN_FLIGHT];
+		for (int i = 0; i < IN_FLIGHT; i++) {
+			requests[i] = template.sendAsync("user" + i);
+		}
+		for (CompletableFuture<GetDataForUser> request : requests) {
+			GetDataForUser done = request.join();
+			if (done.getStatus() != BaseRequest.RequestStatus.Success) {
+				throw new IllegalStateException("A request failed: " + done.getStatus());
+			}
+			blackhole.consume(done.getDatums());
+		}
+	}
+
+	/**
+	 * Sends a response from the stub server
+	 *
+	 * @param exchange The exchange
+	 * @param body     The body
+	 * @param encoding The {@code Content-Encoding}, or {@code null}
+	 * @throws IOException If sending fails
+	 * @since alpha-3.1.0
+	 */
+	private static void respond(HttpExchange exchange, byte[] body, String encoding) throws IOException {
+		exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		if (encoding != null) {
+			exchange.getResponseHeaders().set("Content-Encoding", encoding);
+		}
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	/**
+	 * Compresses a body with gzip
+	 *
+	 * @param body The body
+	 * @return The compressed body
+	 * @throws IOException never
+	 * @since alpha-3.1.0
+	 */
+	private static byte[] gzip(byte[] body) throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+			out.write(body);
+		}
+		return compressed.toByteArray();
+	}
+}
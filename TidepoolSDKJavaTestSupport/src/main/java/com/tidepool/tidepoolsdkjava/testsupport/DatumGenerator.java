@@ -0,0 +1,627 @@
+package com.tidepool.tidepoolsdkjava.testsupport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.json.JSONObject;
+
+import com.tidepool.tidepoolsdkjava.Constants;
+
+/**
+ * Generates realistic streams of datums for a user, of every
+ * {@link Constants.uploadType upload type}, as a pump, a CGM and a controller
+ * would upload them: CGM readings every 5 minutes, scheduled basal segments,
+ * meal boluses with their wizard and food entries, fingersticks, status
+ * reports, settings, and the occasional alert or device event.
+ * <br>
+ * The datums of a user for a day are always the same for the same seed, so a
+ * {@link MockTidepoolServer} gives the same answer to the same request, and
+ * data fetched in chunks matches data fetched at once.
+ * <br>
+ * Thread safe.
+ *
+ * @since alpha-3.1.0
+ */
+public class DatumGenerator {
+	/**
+	 * Used to create a {@link DatumGenerator}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public static class Builder {
+		/**
+		 * The seed of the randomness
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private long seed = 0x7D3E9A1CL;
+		/**
+		 * How often the CGM takes a reading
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Duration cgmInterval = Duration.ofMinutes(5);
+		/**
+		 * How many meals are eaten a day
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private int mealsPerDay = 3;
+
+		/**
+		 * Creates a builder for {@link DatumGenerator}
+		 *
+		 * @since alpha-3.1.0
+		 */
+		public Builder() {
+		}
+
+		/**
+		 * Sets the seed of the randomness
+		 *
+		 * @param seed The seed
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setSeed(long seed) {
+			this.seed = seed;
+			return this;
+		}
+
+		/**
+		 * Sets how often the CGM takes a reading. Defaults to 5 minutes
+		 *
+		 * @param cgmInterval How often
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setCgmInterval(Duration cgmInterval) {
+			this.cgmInterval = cgmInterval;
+			return this;
+		}
+
+		/**
+		 * Sets how many meals are eaten a day, each with a bolus, a wizard entry,
+		 * a food entry and a fingerstick. Defaults to 3
+		 *
+		 * @param mealsPerDay How many meals
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setMealsPerDay(int mealsPerDay) {
+			this.mealsPerDay = mealsPerDay;
+			return this;
+		}
+
+		/**
+		 * Builds this into a {@link DatumGenerator}
+		 *
+		 * @return a {@link DatumGenerator}
+		 * @since alpha-3.1.0
+		 */
+		public DatumGenerator build() {
+			return new DatumGenerator(this);
+		}
+	}
+
+	/**
+	 * The length of a day
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final Duration DAY = Duration.ofDays(1);
+	/**
+	 * Sorts the datums of a day by time
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final Comparator<JSONObject> BY_TIME = Comparator.comparing(datum -> datum.getString("time"));
+	/**
+	 * Formats the {@code time} of a datum, as the backend does, so that times
+	 * sort in order as strings
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'")
+			.withZone(ZoneOffset.UTC);
+
+	/**
+	 * The seed of the randomness
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long seed;
+	/**
+	 * How often the CGM takes a reading, in seconds
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long cgmSeconds;
+	/**
+	 * How many meals are eaten a day
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final int mealsPerDay;
+
+	/**
+	 * protected constructor that uses builder
+	 *
+	 * @param builder The builder
+	 * @since alpha-3.1.0
+	 */
+	protected DatumGenerator(Builder builder) {
+		if (builder.cgmInterval.getSeconds() < 1 || builder.mealsPerDay < 0) {
+			throw new IllegalArgumentException("cgmInterval must be at least a second, and mealsPerDay at least 0");
+		}
+		seed = builder.seed;
+		cgmSeconds = builder.cgmInterval.getSeconds();
+		mealsPerDay = builder.mealsPerDay;
+	}
+
+	/**
+	 * Generates the datums of a user in a time range, in order of time, one day
+	 * at a time, so only a day of datums is held in memory at once
+	 *
+	 * @param userId The user id
+	 * @param from   The start of the range, inclusive
+	 * @param to     The end of the range, exclusive
+	 * @param types  The types of datums to generate
+	 * @param sink   Given each datum
+	 * @since alpha-3.1.0
+	 */
+	public void generate(String userId, Instant from, Instant to, Set<Constants.uploadType> types,
+			Consumer<JSONObject> sink) {
+		// the times sort in order as strings, so they needn't be parsed
+		String fromTime = TIME.format(from);
+		String toTime = TIME.format(to);
+		Instant day = from.truncatedTo(ChronoUnit.DAYS);
+		while (day.isBefore(to)) {
+			List<JSONObject> datums = generateDay(userId, day, types);
+			for (JSONObject datum : datums) {
+				String time = datum.getString("time");
+				if (time.compareTo(fromTime) >= 0 && time.compareTo(toTime) < 0) {
+					sink.accept(datum);
+				}
+			}
+			day = day.plus(DAY);
+		}
+	}
+
+	/**
+	 * Writes the datums of a user in a time range as a JSON array, as the
+	 * backend sends them
+	 *
+	 * @param userId The user id
+	 * @param from   The start of the range, inclusive
+	 * @param to     The end of the range, exclusive
+	 * @param types  The types of datums to generate
+	 * @param out    Where to write the array
+	 * @throws IOException If writing fails
+	 * @since alpha-3.1.0
+	 */
+	public void writeJson(String userId, Instant from, Instant to, Set<Constants.uploadType> types, Writer out)
+			throws IOException {
+		out.write('[');
+		boolean[] first = { true };
+		try {
+			generate(userId, from, to, types, datum -> {
+				try {
+					if (!first[0]) {
+						out.write(',');
+					}
+					first[0] = false;
+					datum.write(out);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		out.write(']');
+	}
+
+	/**
+	 * Generates the datums of a user in a time range as a JSON array
+	 *
+	 * @param userId The user id
+	 * @param from   The start of the range, inclusive
+	 * @param to     The end of the range, exclusive
+	 * @param types  The types of datums to generate
+	 * @return The array, in UTF-8
+	 * @since alpha-3.1.0
+	 */
+	public byte[] generateJson(String userId, Instant from, Instant to, Set<Constants.uploadType> types) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (Writer out = new OutputStreamWriter(bytes, StandardCharsets.UTF_8)) {
+			writeJson(userId, from, to, types, out);
+		} catch (IOException e) {
+			// a ByteArrayOutputStream never throws
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Generates every datum of a user for a day
+	 *
+	 * @param userId The user id
+	 * @param day    The start of the day
+	 * @param types  The types of datums to generate
+	 * @return The datums, in order of time
+	 * @since alpha-3.1.0
+	 */
+	private List<JSONObject> generateDay(String userId, Instant day, Set<Constants.uploadType> types) {
+		DayContext ctx = new DayContext(userId, day,
+				new Random(seed ^ (userId.hashCode() * 0x9E3779B97F4A7C15L) ^ day.getEpochSecond()), mealsPerDay);
+		List<JSONObject> datums = ctx.datums;
+		for (Constants.uploadType type : types.isEmpty() ? EnumSet.allOf(Constants.uploadType.class) : types) {
+			switch (type) {
+			case CBG:
+				cgm(ctx);
+				break;
+			case BASAL:
+				basal(ctx);
+				break;
+			case BOLUS:
+			case WIZARD:
+			case FOOD:
+			case SMBG:
+				// meals are generated once for all four types, and filtered below
+				break;
+			case INSULIN:
+				for (int hour : new int[] { 8, 22 }) {
+					ctx.datum(Constants.uploadType.INSULIN, ctx.at(hour, 30), ctx.penId)
+							.put("dose", new JSONObject().put("total", round(4 + ctx.random.nextDouble() * 10, 1))
+									.put("units", "Units"));
+				}
+				break;
+			case PUMP_STATUS:
+			case CONTROLLER_STATUS:
+			case DEVICE_STATUS:
+				status(ctx, type);
+				break;
+			case PUMP_SETTINGS:
+				ctx.datum(type, ctx.at(0, 1), ctx.pumpId).put("activeSchedule", "Standard");
+				break;
+			case CGM_SETTINGS:
+				ctx.datum(type, ctx.at(0, 2), ctx.cgmId).put("transmitterId", ctx.transmitterId)
+						.put("units", "mmol/L");
+				break;
+			case CONTROLLER_SETTINGS:
+				ctx.datum(type, ctx.at(0, 3), ctx.controllerId).put("device",
+						new JSONObject().put("model", "iPhone14,5"));
+				break;
+			case UPLOAD:
+				ctx.datum(type, ctx.at(0, 0), ctx.pumpId).put("deviceModel", "t:slim X2")
+						.put("deviceSerialNumber", "90451736");
+				break;
+			case DEVICE_EVENT:
+				if (ctx.dayIndex % 3 == 0) {
+					ctx.datum(type, ctx.at(19, 15), ctx.pumpId).put("subType", "reservoirChange");
+				}
+				if (ctx.random.nextInt(4) == 0) {
+					ctx.datum(type, ctx.at(ctx.random.nextInt(24), ctx.random.nextInt(60)), ctx.pumpId)
+							.put("subType", "alarm").put("reason", "occlusion");
+				}
+				break;
+			case ALERT:
+				if (ctx.random.nextInt(2) == 0) {
+					ctx.datum(type, ctx.at(ctx.random.nextInt(24), ctx.random.nextInt(60)), ctx.controllerId)
+							.put("name", "glucoseLow").put("priority", "critical");
+				}
+				break;
+			case REPORTED_STATE:
+				ctx.datum(type, ctx.at(7, 0), ctx.controllerId).put("name", "wakeUp");
+				break;
+			case PHYSICAL_ACTIVITY:
+				ctx.datum(type, ctx.at(17, 30), ctx.controllerId).put("name", "walking").put("duration",
+						new JSONObject().put("value", 20 + ctx.random.nextInt(40)).put("units", "minutes"));
+				break;
+			case WATER:
+				for (int hour = 9; hour < 21; hour += 3) {
+					ctx.datum(type, ctx.at(hour, ctx.random.nextInt(60)), ctx.controllerId).put("amount",
+							new JSONObject().put("value", 250 + ctx.random.nextInt(5) * 50).put("units", "mL"));
+				}
+				break;
+			case BLOOD_KETONE:
+				if (ctx.random.nextInt(7) == 0) {
+					ctx.datum(type, ctx.at(12, 0), ctx.meterId).put("units", "mmol/L").put("value",
+							round(0.1 + ctx.random.nextDouble() * 0.5, 1));
+				}
+				break;
+			case DOSING_DESCISION:
+				for (long second = 120; second < DAY.getSeconds(); second += 3600) {
+					ctx.datum(type, ctx.day.plusSeconds(second), ctx.controllerId).put("reason", "loop");
+				}
+				break;
+			default:
+				break;
+			}
+		}
+		if (types.isEmpty() || types.contains(Constants.uploadType.BOLUS) || types.contains(Constants.uploadType.WIZARD)
+				|| types.contains(Constants.uploadType.FOOD) || types.contains(Constants.uploadType.SMBG)) {
+			meals(ctx, types);
+		}
+		Collections.sort(datums, BY_TIME);
+		return datums;
+	}
+
+	/**
+	 * Generates the CGM readings of a day, as a slow random walk that rises
+	 * after meals
+	 *
+	 * @param ctx The day
+	 * @since alpha-3.1.0
+	 */
+	private void cgm(DayContext ctx) {
+		double value = 5.5 + ctx.random.nextGaussian();
+		for (long second = 0; second < DAY.getSeconds(); second += cgmSeconds) {
+			double hour = second / 3600.0;
+			double mealEffect = 0;
+			for (double meal : ctx.mealHours) {
+				double since = hour - meal;
+				if (since > 0 && since < 3) {
+					mealEffect += 0.08 * Math.sin(since / 3 * Math.PI);
+				}
+			}
+			value += (6.5 - value) * 0.02 + mealEffect + ctx.random.nextGaussian() * 0.15;
+			value = Math.max(2.2, Math.min(22.2, value));
+			ctx.datum(Constants.uploadType.CBG, ctx.day.plusSeconds(second), ctx.cgmId)
+					.put("units", "mmol/L").put("value", round(value, 1)).put("transmitterId", ctx.transmitterId);
+		}
+	}
+
+	/**
+	 * Generates the scheduled basal segments of a day, every half hour
+	 *
+	 * @param ctx The day
+	 * @since alpha-3.1.0
+	 */
+	private void basal(DayContext ctx) {
+		for (int segment = 0; segment < 48; segment++) {
+			int hour = segment / 2;
+			// the dawn phenomenon needs more basal early in the morning
+			double rate = hour >= 3 && hour < 8 ? 0.95 : 0.75;
+			boolean temp = ctx.random.nextInt(12) == 0;
+			ctx.datum(Constants.uploadType.BASAL, ctx.at(hour, segment % 2 * 30), ctx.pumpId)
+					.put("deliveryType", temp ? "temp" : "scheduled").put("duration", 1_800_000)
+					.put("rate", round(temp ? rate * 0.5 : rate, 3));
+		}
+	}
+
+	/**
+	 * Generates the meals of a day: a fingerstick, a food entry, a wizard entry
+	 * and a bolus for each
+	 *
+	 * @param ctx   The day
+	 * @param types The types of datums to generate
+	 * @since alpha-3.1.0
+	 */
+	private void meals(DayContext ctx, Set<Constants.uploadType> types) {
+		for (double mealHour : ctx.mealHours) {
+			Instant time = ctx.day.plusSeconds((long) (mealHour * 3600));
+			double bg = round(4.5 + ctx.random.nextDouble() * 6, 1);
+			int carbs = 20 + ctx.random.nextInt(60);
+			double iob = round(ctx.random.nextDouble() * 1.5, 2);
+			double dose = round(Math.max(0, carbs / 10.0 + (bg - 6.5) / 2.5 - iob), 2);
+			String bolusId = ctx.id();
+			if (types.isEmpty() || types.contains(Constants.uploadType.SMBG)) {
+				ctx.datum(Constants.uploadType.SMBG, time.minusSeconds(120), ctx.meterId).put("subType", "manual")
+						.put("units", "mmol/L").put("value", bg);
+			}
+			if (types.isEmpty() || types.contains(Constants.uploadType.FOOD)) {
+				ctx.datum(Constants.uploadType.FOOD, time.minusSeconds(60), ctx.controllerId).put("nutrition",
+						new JSONObject().put("carbohydrate", new JSONObject().put("net", carbs).put("units", "grams")));
+			}
+			if (types.isEmpty() || types.contains(Constants.uploadType.WIZARD)) {
+				ctx.datum(Constants.uploadType.WIZARD, time, ctx.pumpId).put("units", "mmol/L")
+						.put("carbInput", carbs).put("bgInput", bg).put("insulinOnBoard", iob).put("bolus", bolusId);
+			}
+			if (types.isEmpty() || types.contains(Constants.uploadType.BOLUS)) {
+				JSONObject bolus = ctx.datum(Constants.uploadType.BOLUS, time.plusSeconds(5), ctx.pumpId, bolusId);
+				if (carbs > 60) {
+					bolus.put("subType", "dual/square").put("normal", round(dose * 0.6, 2))
+							.put("extended", round(dose * 0.4, 2)).put("duration", 7_200_000);
+				} else {
+					bolus.put("subType", "normal").put("normal", dose);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Generates the hourly status reports of a device for a day
+	 *
+	 * @param ctx  The day
+	 * @param type The type of status
+	 * @since alpha-3.1.0
+	 */
+	private void status(DayContext ctx, Constants.uploadType type) {
+		String deviceId = type == Constants.uploadType.PUMP_STATUS ? ctx.pumpId : ctx.controllerId;
+		double battery = 1.0;
+		for (int hour = 0; hour < 24; hour++) {
+			battery = Math.max(0.05, battery - 0.02 - ctx.random.nextDouble() * 0.02);
+			JSONObject datum = ctx.datum(type, ctx.at(hour, 10), deviceId).put("battery",
+					new JSONObject().put("remaining", round(battery, 2)).put("units", "percent"));
+			if (type == Constants.uploadType.DEVICE_STATUS) {
+				datum.put("subType", "status").put("status", battery > 0.1 ? "resumed" : "suspended");
+			}
+		}
+	}
+
+	/**
+	 * Rounds a number to some decimal places
+	 *
+	 * @param value  The number
+	 * @param places The decimal places
+	 * @return The rounded number
+	 * @since alpha-3.1.0
+	 */
+	private static double round(double value, int places) {
+		double scale = Math.pow(10, places);
+		return Math.round(value * scale) / scale;
+	}
+
+	/**
+	 * The state of generating a day of datums for a user
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final class DayContext {
+		/**
+		 * The user id
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final String userId;
+		/**
+		 * The start of the day
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final Instant day;
+		/**
+		 * How many days after the epoch the day is
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final long dayIndex;
+		/**
+		 * The randomness of the day
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final Random random;
+		/**
+		 * The upload the datums of the day are part of
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final String uploadId;
+		/**
+		 * The device ids, which stay the same for a user
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final String pumpId, cgmId, controllerId, meterId, penId, transmitterId;
+		/**
+		 * When the meals of the day are, in hours since the start of the day
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final double[] mealHours;
+		/**
+		 * The datums generated so far
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final List<JSONObject> datums = new ArrayList<>();
+
+		/**
+		 * Creates a {@link DayContext}
+		 *
+		 * @param userId      The user id
+		 * @param day         The start of the day
+		 * @param random      The randomness of the day
+		 * @param mealsPerDay How many meals are eaten
+		 * @since alpha-3.1.0
+		 */
+		private DayContext(String userId, Instant day, Random random, int mealsPerDay) {
+			this.userId = userId;
+			this.day = day;
+			this.dayIndex = day.getEpochSecond() / DAY.getSeconds();
+			this.random = random;
+			this.uploadId = id();
+			String serial = Integer.toString(Math.floorMod(userId.hashCode(), 9_000_000) + 1_000_000);
+			pumpId = "tandem-tslimx2-" + serial;
+			cgmId = "DexG6MobRec_SM" + serial;
+			controllerId = "LoopApp-" + serial;
+			meterId = "ContourNextOne-" + serial;
+			penId = "InPen-" + serial;
+			transmitterId = Integer.toHexString(serial.hashCode() & 0xFFFFFF).toUpperCase();
+			// spread over the waking hours, each give or take half an hour
+			mealHours = new double[mealsPerDay];
+			for (int i = 0; i < mealsPerDay; i++) {
+				mealHours[i] = 7 + 14.0 * (i + 0.5) / mealsPerDay + random.nextDouble() - 0.5;
+			}
+		}
+
+		/**
+		 * Gets a time of the day
+		 *
+		 * @param hour   The hour
+		 * @param minute The minute
+		 * @return The time
+		 * @since alpha-3.1.0
+		 */
+		private Instant at(int hour, int minute) {
+			return day.plusSeconds(hour * 3600L + minute * 60L);
+		}
+
+		/**
+		 * Generates a random datum id
+		 *
+		 * @return The id, 32 hex digits
+		 * @since alpha-3.1.0
+		 */
+		private String id() {
+			return String.format("%016x%016x", random.nextLong(), random.nextLong());
+		}
+
+		/**
+		 * Creates a datum with the fields every datum has, and adds it to the day
+		 *
+		 * @param type     The type
+		 * @param time     When it happened
+		 * @param deviceId The device it came from
+		 * @return The datum, to add the rest of the fields to
+		 * @since alpha-3.1.0
+		 */
+		private JSONObject datum(Constants.uploadType type, Instant time, String deviceId) {
+			return datum(type, time, deviceId, id());
+		}
+
+		/**
+		 * Creates a datum with the fields every datum has, and adds it to the day
+		 *
+		 * @param type     The type
+		 * @param time     When it happened
+		 * @param deviceId The device it came from
+		 * @param id       The id of the datum
+		 * @return The datum, to add the rest of the fields to
+		 * @since alpha-3.1.0
+		 */
+		private JSONObject datum(Constants.uploadType type, Instant time, String deviceId, String id) {
+			JSONObject datum = new JSONObject();
+			// the backend spells it dosingDecision, even though the constant doesn't
+			datum.put("type", type == Constants.uploadType.DOSING_DESCISION ? "dosingDecision" : type.toString());
+			datum.put("id", id);
+			datum.put("_userId", userId);
+			datum.put("time", TIME.format(time));
+			datum.put("timezoneOffset", -300);
+			datum.put("uploadId", uploadId);
+			datum.put("deviceId", deviceId);
+			datums.add(datum);
+			return datum;
+		}
+	}
+}
@@ -0,0 +1,573 @@
+package com.tidepool.tidepoolsdkjava.testsupport;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.tidepool.tidepoolsdkjava.BaseRequest;
+import com.tidepool.tidepoolsdkjava.Constants;
+import com.tidepool.tidepoolsdkjava.RequestCoalescer;
+import com.tidepool.tidepoolsdkjava.authentication.GetGroupsForUser;
+import com.tidepool.tidepoolsdkjava.config.Environment;
+import com.tidepool.tidepoolsdkjava.config.TidepoolBackendConfig;
+import com.tidepool.tidepoolsdkjava.data.AddDataToDataset;
+import com.tidepool.tidepoolsdkjava.data.DatumUploader;
+import com.tidepool.tidepoolsdkjava.data.GetDataForUser;
+import com.tidepool.tidepoolsdkjava.metrics.Histogram;
+import com.tidepool.tidepoolsdkjava.metrics.RequestMetrics;
+
+/**
+ * Drives a closed loop of requests, keeping a fixed number in flight for a
+ * while, and reports the throughput and latency percentiles.
+ * <br>
+ * Requests that complete during the warmup aren't counted, so the JIT and the
+ * connection pool have settled by the time anything is measured.
+ * <br>
+ * {@link #main(String[])} runs the SDK's request paths against a
+ * {@link MockTidepoolServer}.
+ *
+ * @since alpha-3.1.0
+ */
+public class LoadDriver {
+	/**
+	 * Used to create a {@link LoadDriver}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public static class Builder {
+		/**
+		 * How many requests are kept in flight
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private int concurrency = 16;
+		/**
+		 * How long requests are measured for
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Duration duration = Duration.ofSeconds(10);
+		/**
+		 * How long requests are sent for before they are measured
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Duration warmup = Duration.ofSeconds(2);
+
+		/**
+		 * Creates a builder for {@link LoadDriver}
+		 *
+		 * @since alpha-3.1.0
+		 */
+		public Builder() {
+		}
+
+		/**
+		 * Sets how many requests are kept in flight. Defaults to 16
+		 *
+		 * @param concurrency How many requests
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setConcurrency(int concurrency) {
+			this.concurrency = concurrency;
+			return this;
+		}
+
+		/**
+		 * Sets how long requests are measured for. Defaults to 10 seconds
+		 *
+		 * @param duration How long
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setDuration(Duration duration) {
+			this.duration = duration;
+			return this;
+		}
+
+		/**
+		 * Sets how long requests are sent for before they are measured. Defaults
+		 * to 2 seconds
+		 *
+		 * @param warmup How long
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setWarmup(Duration warmup) {
+			this.warmup = warmup;
+			return this;
+		}
+
+		/**
+		 * Builds this into a {@link LoadDriver}
+		 *
+		 * @return a {@link LoadDriver}
+		 * @since alpha-3.1.0
+		 */
+		public LoadDriver build() {
+			return new LoadDriver(this);
+		}
+	}
+
+	/**
+	 * The results of a run
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public static final class Report {
+		/**
+		 * The name of the run
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final String name;
+		/**
+		 * How many requests completed while measuring
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final long requests;
+		/**
+		 * How many of them failed
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final long errors;
+		/**
+		 * How long was measured
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final Duration duration;
+		/**
+		 * The latencies of the requests
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final Histogram latencies;
+
+		/**
+		 * Creates a {@link Report}
+		 *
+		 * @param name      The name of the run
+		 * @param requests  How many requests completed while measuring
+		 * @param errors    How many of them failed
+		 * @param duration  How long was measured
+		 * @param latencies The latencies of the requests
+		 * @since alpha-3.1.0
+		 */
+		private Report(String name, long requests, long errors, Duration duration, Histogram latencies) {
+			this.name = name;
+			this.requests = requests;
+			this.errors = errors;
+			this.duration = duration;
+			this.latencies = latencies;
+		}
+
+		/**
+		 * Gets the name of the run
+		 *
+		 * @return The name
+		 * @since alpha-3.1.0
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Gets how many requests completed while measuring, including failed ones
+		 *
+		 * @return How many requests
+		 * @since alpha-3.1.0
+		 */
+		public long getRequests() {
+			return requests;
+		}
+
+		/**
+		 * Gets how many requests failed while measuring
+		 *
+		 * @return How many requests
+		 * @since alpha-3.1.0
+		 */
+		public long getErrors() {
+			return errors;
+		}
+
+		/**
+		 * Gets how many requests completed a second
+		 *
+		 * @return The throughput
+		 * @since alpha-3.1.0
+		 */
+		public double getThroughput() {
+			return requests / (duration.toNanos() / 1e9);
+		}
+
+		/**
+		 * Gets the latencies of the requests, failed ones included
+		 *
+		 * @return The latencies, in nanoseconds
+		 * @since alpha-3.1.0
+		 */
+		public Histogram getLatencies() {
+			return latencies;
+		}
+
+		/**
+		 * Formats the report as one line, with latencies in milliseconds
+		 *
+		 * @return The report
+		 * @since alpha-3.1.0
+		 */
+		@Override
+		public String toString() {
+			long[] percentiles = latencies.getPercentiles(50, 99, 99.9);
+			return String.format("%-24s %10.1f req/s %8d requests %6d errors  p50 %8.3f  p99 %8.3f  p999 %8.3f  max %8.3f ms",
+					name, getThroughput(), requests, errors, percentiles[0] / 1e6, percentiles[1] / 1e6,
+					percentiles[2] / 1e6, latencies.getMax() / 1e6);
+		}
+	}
+
+	/**
+	 * How many requests are kept in flight
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final int concurrency;
+	/**
+	 * How long requests are measured for
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Duration duration;
+	/**
+	 * How long requests are sent for before they are measured
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Duration warmup;
+
+	/**
+	 * protected constructor that uses builder
+	 *
+	 * @param builder The builder
+	 * @since alpha-3.1.0
+	 */
+	protected LoadDriver(Builder builder) {
+		concurrency = builder.concurrency;
+		duration = builder.duration;
+		warmup = builder.warmup;
+	}
+
+	/**
+	 * Keeps requests in flight for the warmup and the duration, waits for the
+	 * last ones, and reports on the ones that completed while measuring.
+	 * <br>
+	 * A request fails if its {@link CompletableFuture} completes exceptionally,
+	 * or with a {@link BaseRequest} whose status isn't
+	 * {@link BaseRequest.RequestStatus#Success}.
+	 *
+	 * @param name    The name of the run
+	 * @param request Starts a request
+	 * @return The report
+	 * @throws InterruptedException If interrupted while waiting
+	 * @since alpha-3.1.0
+	 */
+	public Report run(String name, Supplier<? extends CompletableFuture<?>> request) throws InterruptedException {
+		long measureFrom = System.nanoTime() + warmup.toNanos();
+		long measureTo = measureFrom + duration.toNanos();
+		Histogram latencies = new Histogram();
+		AtomicLong requests = new AtomicLong();
+		AtomicLong errors = new AtomicLong();
+		CountDownLatch finished = new CountDownLatch(concurrency);
+		Loop loop = new Loop(request, measureFrom, measureTo, latencies, requests, errors, finished);
+		for (int i = 0; i < concurrency; i++) {
+			loop.next();
+		}
+		finished.await();
+		return new Report(name, requests.get(), errors.get(), duration, latencies);
+	}
+
+	/**
+	 * Sends a request after each one completes, until the run is over
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private static final class Loop {
+		/**
+		 * Starts a request
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final Supplier<? extends CompletableFuture<?>> request;
+		/**
+		 * When measuring starts, in {@link System#nanoTime()} time
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final long measureFrom;
+		/**
+		 * When the run is over, in {@link System#nanoTime()} time
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final long measureTo;
+		/**
+		 * The latencies of the measured requests
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final Histogram latencies;
+		/**
+		 * How many requests were measured
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final AtomicLong requests;
+		/**
+		 * How many measured requests failed
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final AtomicLong errors;
+		/**
+		 * Counted down as each in flight slot finishes
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private final CountDownLatch finished;
+
+		/**
+		 * Creates a {@link Loop}
+		 *
+		 * @param request     Starts a request
+		 * @param measureFrom When measuring starts
+		 * @param measureTo   When the run is over
+		 * @param latencies   The latencies of the measured requests
+		 * @param requests    How many requests were measured
+		 * @param errors      How many measured requests failed
+		 * @param finished    Counted down as each in flight slot finishes
+		 * @since alpha-3.1.0
+		 */
+		Loop(Supplier<? extends CompletableFuture<?>> request, long measureFrom, long measureTo,
+				Histogram latencies, AtomicLong requests, AtomicLong errors, CountDownLatch finished) {
+			this.request = request;
+			this.measureFrom = measureFrom;
+			this.measureTo = measureTo;
+			this.latencies = latencies;
+			this.requests = requests;
+			this.errors = errors;
+			this.finished = finished;
+		}
+
+		/**
+		 * Sends requests until one is still in flight, or the run is over.
+		 * Requests that are already done are handled in this loop rather than by
+		 * recursing, so a fast path can't overflow the stack
+		 *
+		 * @since alpha-3.1.0
+		 */
+		void next() {
+			while (System.nanoTime() - measureTo < 0) {
+				long start = System.nanoTime();
+				CompletableFuture<?> future = start(request);
+				if (future.isDone()) {
+					complete(future, start);
+					continue;
+				}
+				future.whenComplete((result, error) -> {
+					complete(future, start);
+					next();
+				});
+				return;
+			}
+			finished.countDown();
+		}
+
+		/**
+		 * Starts a request, turning a failure to start it into a failed request
+		 *
+		 * @param request Starts a request
+		 * @return The request
+		 * @since alpha-3.1.0
+		 */
+		private static CompletableFuture<?> start(Supplier<? extends CompletableFuture<?>> request) {
+			try {
+				return request.get();
+			} catch (RuntimeException e) {
+				return CompletableFuture.failedFuture(e);
+			}
+		}
+
+		/**
+		 * Records a completed request, if it started and completed while
+		 * measuring
+		 *
+		 * @param future The completed request
+		 * @param start  When it started
+		 * @since alpha-3.1.0
+		 */
+		private void complete(CompletableFuture<?> future, long start) {
+			long end = System.nanoTime();
+			if (start - measureFrom < 0 || end - measureTo > 0) {
+				return;
+			}
+			latencies.record(end - start);
+			requests.incrementAndGet();
+			Object result = future.handle((value, error) -> error == null ? value : error).join();
+			if (result instanceof Throwable || (result instanceof BaseRequest
+					&& ((BaseRequest) result).getStatus() != BaseRequest.RequestStatus.Success)) {
+				errors.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Runs the SDK's request paths against a {@link MockTidepoolServer}, and
+	 * prints a report for each.
+	 * <br>
+	 * Options, all optional:
+	 * <ul>
+	 * <li>{@code --concurrency n} requests in flight, 16 by default</li>
+	 * <li>{@code --duration s} seconds measured for each path, 10 by default</li>
+	 * <li>{@code --warmup s} seconds of warmup for each path, 2 by default</li>
+	 * <li>{@code --latency ms} server latency, 0 by default</li>
+	 * <li>{@code --jitter ms} server latency jitter, 0 by default</li>
+	 * <li>{@code --error-rate r} share of requests the server fails, 0 by
+	 * default</li>
+	 * <li>{@code --rate-limit n} requests a second the server lets through, no
+	 * limit by default</li>
+	 * <li>{@code --days n} days of data in each data request, 1 by default</li>
+	 * <li>{@code --compression} ask for compressed responses</li>
+	 * <li>{@code --metrics} record the requests in a {@link RequestMetrics}, and
+	 * print it in the Prometheus text format at the end</li>
+	 * <li>{@code --coalesce} coalesce identical requests in flight with a
+	 * {@link RequestCoalescer}</li>
+	 * </ul>
+	 *
+	 * @param args The options
+	 * @throws IOException          If the server can't be started
+	 * @throws InterruptedException If interrupted
+	 * @since alpha-3.1.0
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		Builder driverBuilder = new Builder();
+		MockTidepoolServer.Builder serverBuilder = new MockTidepoolServer.Builder();
+		boolean compression = false;
+		RequestMetrics metrics = null;
+		RequestCoalescer coalescer = null;
+		long latency = 0;
+		long jitter = 0;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "--concurrency":
+				driverBuilder.setConcurrency(Integer.parseInt(args[++i]));
+				break;
+			case "--duration":
+				driverBuilder.setDuration(Duration.ofSeconds(Long.parseLong(args[++i])));
+				break;
+			case "--warmup":
+				driverBuilder.setWarmup(Duration.ofSeconds(Long.parseLong(args[++i])));
+				break;
+			case "--latency":
+				latency = Long.parseLong(args[++i]);
+				break;
+			case "--jitter":
+				jitter = Long.parseLong(args[++i]);
+				break;
+			case "--error-rate":
+				serverBuilder.setErrorRate(Double.parseDouble(args[++i]));
+				break;
+			case "--rate-limit":
+				double rate = Double.parseDouble(args[++i]);
+				serverBuilder.setRateLimit(rate, (int) Math.max(1, rate / 10));
+				break;
+			case "--days":
+				serverBuilder.setDefaultDays(Integer.parseInt(args[++i]));
+				break;
+			case "--compression":
+				compression = true;
+				break;
+			case "--metrics":
+				metrics = new RequestMetrics();
+				break;
+			case "--coalesce":
+				coalescer = new RequestCoalescer();
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		serverBuilder.setLatency(Duration.ofMillis(latency)).setLatencyJitter(Duration.ofMillis(jitter));
+		LoadDriver driver = driverBuilder.build();
+
+		try (MockTidepoolServer server = serverBuilder.start()) {
+			TidepoolBackendConfig cnf = new TidepoolBackendConfig(Environment.prod, "load-driver");
+			cnf.setServerAddressOverride(server.getAddress());
+			cnf.setCompressionEnabled(compression);
+			cnf.setMetrics(metrics);
+			cnf.setRequestCoalescer(coalescer);
+			cnf.setRefreshToken("load-driver");
+			cnf.updateAcessToken();
+
+			GetDataForUser.Template dataTemplate = new GetDataForUser.Builder(cnf, null).prepare();
+			Instant now = Instant.now();
+			JSONArray generated = new JSONArray(new String(new DatumGenerator.Builder().build().generateJson(
+					"0d4b9f7e3a", now.minus(Duration.ofDays(1)), now, EnumSet.noneOf(Constants.uploadType.class)),
+					StandardCharsets.UTF_8));
+			List<JSONObject> batch = new ArrayList<>(500);
+			for (int i = 0; i < Math.min(500, generated.length()); i++) {
+				batch.add(generated.getJSONObject(i));
+			}
+			List<Report> reports = new ArrayList<>();
+			reports.add(driver.run("token refresh", cnf::refreshAccessToken));
+			reports.add(driver.run("groups", () -> new GetGroupsForUser(cnf, "0d4b9f7e3a").sendAsync()));
+			reports.add(driver.run("data", () -> new GetDataForUser.Builder(cnf, "0d4b9f7e3a").build().sendAsync()));
+			reports.add(driver.run("data (template)", () -> dataTemplate.sendAsync("0d4b9f7e3a")));
+			reports.add(driver.run("data (decoded)",
+					() -> new GetDataForUser.Builder(cnf, "0d4b9f7e3a").setDecodeDatums(true).build().sendAsync()));
+			reports.add(driver.run("upload", () -> new AddDataToDataset(cnf, "load-driver", batch).sendAsync()));
+			for (Report report : reports) {
+				System.out.println(report);
+			}
+
+			DatumUploader uploader = new DatumUploader.Builder(cnf, "load-driver").setCompressBatches(compression)
+					.build();
+			long started = System.nanoTime();
+			for (int i = 0; i < 200; i++) {
+				uploader.addAll(batch);
+			}
+			List<DatumUploader.BatchResult> failed = uploader.finish().join();
+			double seconds = (System.nanoTime() - started) / 1e9;
+			System.out.printf("uploader: %d datums in %.2f s, %.0f datums/s, %d failed batches%n",
+					uploader.getUploadedCount(), seconds, uploader.getUploadedCount() / seconds, failed.size());
+			System.out.printf("server: %d requests, %d injected errors, %d throttled, %d datums uploaded%n",
+					server.getRequestCount(), server.getInjectedErrorCount(), server.getThrottledCount(),
+					server.getUploadedDatumCount());
+			if (coalescer != null) {
+				System.out.printf("coalescer: %d requests sent, %d coalesced%n", coalescer.getSentCount(),
+						coalescer.getCoalescedCount());
+			}
+			if (metrics != null) {
+				Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+				metrics.writePrometheus(out);
+				out.flush();
+			}
+		}
+	}
+}
@@ -0,0 +1,767 @@
+package com.tidepool.tidepoolsdkjava.testsupport;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.tidepool.tidepoolsdkjava.Constants;
+import com.tidepool.tidepoolsdkjava.RateLimiter;
+
+/**
+ * An in-process stand in for the Tidepool backend, to test and load test code
+ * that uses the SDK without touching the real service.
+ * <br>
+ * It serves the endpoints the SDK uses:
+ * <ul>
+ * <li>{@code POST /realms/{realm}/protocol/openid-connect/token}, which
+ * issues tokens for any credentials, and new ones for a refresh token it
+ * issued</li>
+ * <li>{@code GET /data/{userId}}, which answers with
+ * {@link DatumGenerator generated} datums, honouring the {@code type},
+ * {@code startDate} and {@code endDate} query parameters, compressed with gzip
+ * if asked for</li>
+ * <li>{@code GET /access/groups/{userId}}, which answers with the user and a
+ * few users that share their data with them</li>
+ * <li>{@code POST /v1/datasets/{datasetId}/data}, which accepts a JSON array
+ * of datums, compressed with gzip or not, and only counts them</li>
+ * </ul>
+ * The last two need a {@code X-Tidepool-Session-Token} that the server issued,
+ * and answer {@code 401} otherwise.
+ * <br>
+ * Every request can be delayed by a {@link Builder#setLatency(Duration) latency}
+ * without tying up a server thread, failed at an
+ * {@link Builder#setErrorRate(double) error rate}, and
+ * {@link Builder#setRateLimit(double, int) throttled} with a {@code 429} and a
+ * {@code Retry-After} header.
+ * <br>
+ * Point a {@link com.tidepool.tidepoolsdkjava.config.TidepoolBackendConfig} at
+ * it with
+ * {@link com.tidepool.tidepoolsdkjava.config.TidepoolBackendConfig#setServerAddressOverride(String)
+ * setServerAddressOverride}{@code (server.getAddress())}.
+ * <br>
+ * Thread safe.
+ *
+ * @since alpha-3.1.0
+ */
+public class MockTidepoolServer implements AutoCloseable {
+	static {
+		// the JDK server writes headers and body separately, so without this every
+		// small response waits out the client's delayed ACK, about 40ms. It is read
+		// once, so it must be set before the first server in the JVM is created
+		if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+	}
+
+	/**
+	 * Used to create and start a {@link MockTidepoolServer}
+	 *
+	 * @since alpha-3.1.0
+	 */
+	public static class Builder {
+		/**
+		 * The port, or 0 for any free port
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private int port;
+		/**
+		 * How many threads handle requests
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private int threads = 8;
+		/**
+		 * How long every response is delayed
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Duration latency = Duration.ZERO;
+		/**
+		 * How much the delay randomly varies by
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Duration latencyJitter = Duration.ZERO;
+		/**
+		 * The share of requests that fail
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private double errorRate;
+		/**
+		 * The status code of failed requests
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private int errorStatus = 503;
+		/**
+		 * How many requests a second are let through, or 0 for no limit
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private double requestsPerSecond;
+		/**
+		 * How many requests can be let through at once
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private int burst = 1;
+		/**
+		 * How long issued access tokens are valid for
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private Duration tokenLifetime = Duration.ofHours(1);
+		/**
+		 * How many days of data are sent when no start date is asked for
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private int defaultDays = 1;
+		/**
+		 * Generates the data
+		 *
+		 * @since alpha-3.1.0
+		 */
+		private DatumGenerator generator;
+
+		/**
+		 * Creates a builder for {@link MockTidepoolServer}
+		 *
+		 * @since alpha-3.1.0
+		 */
+		public Builder() {
+		}
+
+		/**
+		 * Sets the port to listen on. Defaults to any free port
+		 *
+		 * @param port The port, or 0 for any free port
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setPort(int port) {
+			this.port = port;
+			return this;
+		}
+
+		/**
+		 * Sets how many threads handle requests. Delayed requests don't hold a
+		 * thread while they wait. Defaults to 8
+		 *
+		 * @param threads How many threads
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setThreads(int threads) {
+			this.threads = threads;
+			return this;
+		}
+
+		/**
+		 * Sets how long every response is delayed. Defaults to no delay
+		 *
+		 * @param latency How long
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setLatency(Duration latency) {
+			this.latency = latency;
+			return this;
+		}
+
+		/**
+		 * Sets how much the delay randomly varies by, either way. Defaults to no
+		 * variation
+		 *
+		 * @param latencyJitter How much
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setLatencyJitter(Duration latencyJitter) {
+			this.latencyJitter = latencyJitter;
+			return this;
+		}
+
+		/**
+		 * Sets the share of requests that fail. Defaults to 0
+		 *
+		 * @param errorRate The share, between 0 and 1
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setErrorRate(double errorRate) {
+			this.errorRate = errorRate;
+			return this;
+		}
+
+		/**
+		 * Sets the status code of failed requests. Defaults to {@code 503}
+		 *
+		 * @param errorStatus The status code
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setErrorStatus(int errorStatus) {
+			this.errorStatus = errorStatus;
+			return this;
+		}
+
+		/**
+		 * Throttles requests, answering the ones over the limit with {@code 429}
+		 * and a {@code Retry-After} header. Defaults to no limit
+		 *
+		 * @param requestsPerSecond How many requests a second are let through, or
+		 *                          0 for no limit
+		 * @param burst             How many requests can be let through at once
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setRateLimit(double requestsPerSecond, int burst) {
+			this.requestsPerSecond = requestsPerSecond;
+			this.burst = burst;
+			return this;
+		}
+
+		/**
+		 * Sets how long issued access tokens are valid for. Defaults to an hour
+		 *
+		 * @param tokenLifetime How long
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setTokenLifetime(Duration tokenLifetime) {
+			this.tokenLifetime = tokenLifetime;
+			return this;
+		}
+
+		/**
+		 * Sets how many days of data are sent when a request doesn't ask for a
+		 * start date. Defaults to 1
+		 *
+		 * @param defaultDays How many days
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setDefaultDays(int defaultDays) {
+			this.defaultDays = defaultDays;
+			return this;
+		}
+
+		/**
+		 * Sets what generates the data. Defaults to a {@link DatumGenerator} with
+		 * its default settings
+		 *
+		 * @param generator The generator
+		 * @return {@code this} for chaining
+		 * @since alpha-3.1.0
+		 */
+		public Builder setGenerator(DatumGenerator generator) {
+			this.generator = generator;
+			return this;
+		}
+
+		/**
+		 * Builds this into a {@link MockTidepoolServer}, and starts it
+		 *
+		 * @return a running {@link MockTidepoolServer}
+		 * @throws IOException If the server can't listen on the port
+		 * @since alpha-3.1.0
+		 */
+		public MockTidepoolServer start() throws IOException {
+			return new MockTidepoolServer(this);
+		}
+	}
+
+	/**
+	 * The HTTP server
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final HttpServer server;
+	/**
+	 * Handles requests, and runs delayed responses
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final ScheduledThreadPoolExecutor executor;
+	/**
+	 * How long every response is delayed, in nanoseconds
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long latencyNanos;
+	/**
+	 * How much the delay varies by, in nanoseconds
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final long jitterNanos;
+	/**
+	 * The share of requests that fail
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final double errorRate;
+	/**
+	 * The status code of failed requests
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final int errorStatus;
+	/**
+	 * Throttles requests, or {@code null} if they aren't
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final RateLimiter limiter;
+	/**
+	 * How long issued access tokens are valid for
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Duration tokenLifetime;
+	/**
+	 * How many days of data are sent when no start date is asked for
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final int defaultDays;
+	/**
+	 * Generates the data
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final DatumGenerator generator;
+
+	/**
+	 * The issued access tokens, and when they expire in
+	 * {@link System#nanoTime()} time
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Map<String, Long> accessTokens = new ConcurrentHashMap<>();
+	/**
+	 * The refresh tokens that were used, which can't be used again
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final Set<String> usedRefreshTokens = ConcurrentHashMap.newKeySet();
+	/**
+	 * Numbers the issued tokens
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final AtomicLong tokenCounter = new AtomicLong();
+	/**
+	 * How many requests were recieved
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final AtomicLong requests = new AtomicLong();
+	/**
+	 * How many requests were failed on purpose
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final AtomicLong injectedErrors = new AtomicLong();
+	/**
+	 * How many requests were throttled
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final AtomicLong throttled = new AtomicLong();
+	/**
+	 * How many datums were uploaded
+	 *
+	 * @since alpha-3.1.0
+	 */
+	private final AtomicLong uploadedDatums = new AtomicLong();
+
+	/**
+	 * protected constructor that uses builder
+	 *
+	 * @param builder The builder
+	 * @throws IOException If the server can't listen on the port
+	 * @since alpha-3.1.0
+	 */
+	protected MockTidepoolServer(Builder builder) throws IOException {
+		latencyNanos = builder.latency.toNanos();
+		jitterNanos = builder.latencyJitter.toNanos();
+		errorRate = builder.errorRate;
+		errorStatus = builder.errorStatus;
+		limiter = builder.requestsPerSecond > 0 ? new RateLimiter(builder.requestsPerSecond, builder.burst) : null;
+		tokenLifetime = builder.tokenLifetime;
+		defaultDays = builder.defaultDays;
+		generator = builder.generator != null ? builder.generator : new DatumGenerator.Builder().build();
+
+		executor = new ScheduledThreadPoolExecutor(builder.threads, runnable -> {
+			Thread thread = new Thread(runnable, "mock-tidepool-server");
+			thread.setDaemon(true);
+			return thread;
+		});
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), builder.port), 1024);
+		server.setExecutor(executor);
+		server.createContext("/realms/", wrap(this::token));
+		server.createContext("/data/", wrap(this::data));
+		server.createContext("/access/groups/", wrap(this::groups));
+		server.createContext("/v1/datasets/", wrap(this::datasetData));
+		server.start();
+	}
+
+	/**
+	 * Gets the address of the server
+	 *
+	 * @return The address, such as {@code http://localhost:49152}
+	 * @since alpha-3.1.0
+	 */
+	public String getAddress() {
+		return "http://localhost:" + getPort();
+	}
+
+	/**
+	 * Gets the port the server listens on
+	 *
+	 * @return The port
+	 * @since alpha-3.1.0
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Gets how many requests were recieved
+	 *
+	 * @return How many requests
+	 * @since alpha-3.1.0
+	 */
+	public long getRequestCount() {
+		return requests.get();
+	}
+
+	/**
+	 * Gets how many requests were failed on purpose, by the error rate
+	 *
+	 * @return How many requests
+	 * @since alpha-3.1.0
+	 */
+	public long getInjectedErrorCount() {
+		return injectedErrors.get();
+	}
+
+	/**
+	 * Gets how many requests were throttled
+	 *
+	 * @return How many requests
+	 * @since alpha-3.1.0
+	 */
+	public long getThrottledCount() {
+		return throttled.get();
+	}
+
+	/**
+	 * Gets how many datums were uploaded to any dataset
+	 *
+	 * @return How many datums
+	 * @since alpha-3.1.0
+	 */
+	public long getUploadedDatumCount() {
+		return uploadedDatums.get();
+	}
+
+	/**
+	 * Wraps a handler with the throttling, error injection and latency that
+	 * every endpoint has
+	 *
+	 * @param handler The handler
+	 * @return The wrapped handler
+	 * @since alpha-3.1.0
+	 */
+	private HttpHandler wrap(HttpHandler handler) {
+		return exchange -> {
+			requests.incrementAndGet();
+			HttpHandler respond = handler;
+			if (limiter != null && !limiter.tryAcquire()) {
+				throttled.incrementAndGet();
+				respond = e -> {
+					e.getResponseHeaders().set("Retry-After", "1");
+					send(e, 429, "{\"code\":429,\"reason\":\"Too many requests\"}");
+				};
+			} else if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+				injectedErrors.incrementAndGet();
+				respond = e -> send(e, errorStatus, "{\"code\":" + errorStatus + ",\"reason\":\"Injected error\"}");
+			}
+			long delay = latencyNanos;
+			if (jitterNanos > 0) {
+				delay += ThreadLocalRandom.current().nextLong(-jitterNanos, jitterNanos + 1);
+			}
+			if (delay <= 0) {
+				safely(respond, exchange);
+			} else {
+				HttpHandler delayed = respond;
+				executor.schedule(() -> safely(delayed, exchange), delay, TimeUnit.NANOSECONDS);
+			}
+		};
+	}
+
+	/**
+	 * Runs a handler, answering with {@code 500} if it fails
+	 *
+	 * @param handler  The handler
+	 * @param exchange The exchange
+	 * @since alpha-3.1.0
+	 */
+	private static void safely(HttpHandler handler, HttpExchange exchange) {
+		try {
+			handler.handle(exchange);
+		} catch (IOException | RuntimeException e) {
+			try {
+				send(exchange, 500, "{\"code\":500,\"reason\":\"" + e.getClass().getSimpleName() + "\"}");
+			} catch (IOException | RuntimeException ignored) {
+				// the response had already started
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Handles the realm token endpoint
+	 *
+	 * @param exchange The exchange
+	 * @throws IOException If answering fails
+	 * @since alpha-3.1.0
+	 */
+	private void token(HttpExchange exchange) throws IOException {
+		if (!exchange.getRequestMethod().equals("POST")
+				|| !exchange.getRequestURI().getPath().endsWith("/protocol/openid-connect/token")) {
+			send(exchange, 404, "{\"error\":\"not_found\"}");
+			return;
+		}
+		Map<String, String> form = parseForm(
+				new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+		if ("refresh_token".equals(form.get("grant_type")) && !usedRefreshTokens.add(form.get("refresh_token"))) {
+			send(exchange, 400, "{\"error\":\"invalid_grant\",\"error_description\":\"Invalid refresh token\"}");
+			return;
+		}
+		long number = tokenCounter.incrementAndGet();
+		String accessToken = "mock-access-" + number;
+		String refreshToken = "mock-refresh-" + number;
+		accessTokens.put(accessToken, System.nanoTime() + tokenLifetime.toNanos());
+		send(exchange, 200,
+				new JSONObject().put("access_token", accessToken).put("expires_in", tokenLifetime.getSeconds())
+						.put("refresh_token", refreshToken).put("refresh_expires_in", tokenLifetime.getSeconds() * 2)
+						.put("token_type", "Bearer").toString());
+	}
+
+	/**
+	 * Handles {@code GET /data/{userId}}
+	 *
+	 * @param exchange The exchange
+	 * @throws IOException If answering fails
+	 * @since alpha-3.1.0
+	 */
+	private void data(HttpExchange exchange) throws IOException {
+		if (!authorized(exchange)) {
+			return;
+		}
+		String userId = exchange.getRequestURI().getPath().substring("/data/".length());
+		Map<String, String> query = parseForm(exchange.getRequestURI().getRawQuery());
+		Set<Constants.uploadType> types = EnumSet.noneOf(Constants.uploadType.class);
+		if (query.containsKey("type")) {
+			for (String name : query.get("type").split(",")) {
+				for (Constants.uploadType type : Constants.uploadType.values()) {
+					if (type.toString().equals(name)
+							|| (type == Constants.uploadType.DOSING_DESCISION && name.equals("dosingDecision"))) {
+						types.add(type);
+					}
+				}
+			}
+			if (types.isEmpty()) {
+				send(exchange, 200, "[]");
+				return;
+			}
+		}
+		Instant to = query.containsKey("endDate") ? ZonedDateTime.parse(query.get("endDate")).toInstant()
+				: Instant.now().truncatedTo(ChronoUnit.MINUTES);
+		Instant from = query.containsKey("startDate") ? ZonedDateTime.parse(query.get("startDate")).toInstant()
+				: to.minus(Duration.ofDays(defaultDays));
+
+		String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+		boolean gzip = accepted != null && accepted.contains("gzip");
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		if (gzip) {
+			exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+		}
+		// streamed, so a large range never has to be held in memory
+		exchange.sendResponseHeaders(200, 0);
+		OutputStream body = exchange.getResponseBody();
+		if (gzip) {
+			body = new GZIPOutputStream(body, 8192);
+		}
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8), 16384)) {
+			generator.writeJson(userId, from, to, types, out);
+		}
+	}
+
+	/**
+	 * Handles {@code GET /access/groups/{userId}}
+	 *
+	 * @param exchange The exchange
+	 * @throws IOException If answering fails
+	 * @since alpha-3.1.0
+	 */
+	private void groups(HttpExchange exchange) throws IOException {
+		if (!authorized(exchange)) {
+			return;
+		}
+		String userId = exchange.getRequestURI().getPath().substring("/access/groups/".length());
+		JSONObject groups = new JSONObject();
+		groups.put(userId, new JSONObject().put("root", new JSONObject()));
+		int shared = Math.floorMod(userId.hashCode(), 4) + 1;
+		for (int i = 0; i < shared; i++) {
+			JSONObject permissions = new JSONObject().put("view", new JSONObject());
+			if (i % 2 == 0) {
+				permissions.put("note", new JSONObject());
+			}
+			if (i == 0) {
+				permissions.put("upload", new JSONObject());
+			}
+			groups.put(String.format("%010x", Math.floorMod((long) userId.hashCode() * 31 + i, 1L << 40)),
+					permissions);
+		}
+		send(exchange, 200, groups.toString());
+	}
+
+	/**
+	 * Handles {@code POST /v1/datasets/{datasetId}/data}
+	 *
+	 * @param exchange The exchange
+	 * @throws IOException If answering fails
+	 * @since alpha-3.1.0
+	 */
+	private void datasetData(HttpExchange exchange) throws IOException {
+		if (!exchange.getRequestMethod().equals("POST") || !exchange.getRequestURI().getPath().endsWith("/data")) {
+			send(exchange, 404, "{\"code\":404,\"reason\":\"Not found\"}");
+			return;
+		}
+		if (!authorized(exchange)) {
+			return;
+		}
+		InputStream body = exchange.getRequestBody();
+		if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+			body = new GZIPInputStream(body, 8192);
+		}
+		JSONArray datums;
+		try (Reader in = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+			datums = new JSONArray(new JSONTokener(in));
+		} catch (JSONException e) {
+			send(exchange, 400, "{\"code\":400,\"reason\":\"Invalid JSON\"}");
+			return;
+		}
+		uploadedDatums.addAndGet(datums.length());
+		send(exchange, 200, "{}");
+	}
+
+	/**
+	 * Checks that a request has a valid session token, answering with
+	 * {@code 401} if it doesn't
+	 *
+	 * @param exchange The exchange
+	 * @return {@code true} if the request may go on
+	 * @throws IOException If answering fails
+	 * @since alpha-3.1.0
+	 */
+	private boolean authorized(HttpExchange exchange) throws IOException {
+		String token = exchange.getRequestHeaders().getFirst("X-Tidepool-Session-Token");
+		Long expiry = token != null ? accessTokens.get(token) : null;
+		if (expiry == null || System.nanoTime() - expiry >= 0) {
+			send(exchange, 401, "{\"code\":401,\"reason\":\"Unauthorized\"}");
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Sends a JSON response
+	 *
+	 * @param exchange The exchange
+	 * @param status   The status code
+	 * @param json     The body
+	 * @throws IOException If sending fails
+	 * @since alpha-3.1.0
+	 */
+	private static void send(HttpExchange exchange, int status, String json) throws IOException {
+		byte[] body = json.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	/**
+	 * Parses a form body or a query
+	 *
+	 * @param form The form, or {@code null}
+	 * @return The keys and values, decoded
+	 * @since alpha-3.1.0
+	 */
+	private static Map<String, String> parseForm(String form) {
+		Map<String, String> result = new HashMap<>();
+		if (form == null || form.isEmpty()) {
+			return result;
+		}
+		for (String pair : form.split("&")) {
+			int equals = pair.indexOf('=');
+			String key = equals < 0 ? pair : pair.substring(0, equals);
+			String value = equals < 0 ? "" : pair.substring(equals + 1);
+			result.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+		}
+		return result;
+	}
+
+	/**
+	 * Stops the server
+	 *
+	 * @since alpha-3.1.0
+	 */
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,9 @@
+/**
+ * Support for testing and load testing code that uses the SDK without the
+ * real Tidepool service: an in-process {@link MockTidepoolServer}, a
+ * {@link DatumGenerator} of realistic data, and a {@link LoadDriver} that
+ * reports throughput and latency percentiles.
+ *
+ * @since alpha-3.1.0
+ */
+package com.tidepool.tidepoolsdkjava.testsupport;